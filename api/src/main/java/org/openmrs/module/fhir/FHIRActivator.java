@@ -15,15 +15,83 @@ package org.openmrs.module.fhir;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
 import org.openmrs.module.ModuleActivator;
+import org.openmrs.module.fhir.api.LocationService;
+import org.openmrs.module.fhir.api.PersonService;
+import org.openmrs.module.fhir.api.cache.FHIRConceptCache;
+import org.openmrs.module.fhir.api.cache.FHIRDiagnosticReportFieldCache;
+import org.openmrs.module.fhir.api.cache.FHIRIdentifierTypeCache;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
+import org.openmrs.module.fhir.api.cache.FHIRNameIndex;
+import org.openmrs.module.fhir.api.cache.FHIRObsConceptCache;
+import org.openmrs.module.fhir.api.cache.FHIRRelationshipTypeCache;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRRESTfulGenericClient;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
 
 /**
  * This class contains the logic that is run every time this module is either started or stopped.
  */
-public class FHIRActivator implements ModuleActivator {
+public class FHIRActivator implements ModuleActivator, DaemonTokenAware {
 	
 	protected Log log = LogFactory.getLog(getClass());
 
+	private DaemonToken daemonToken;
+
+	private final GlobalPropertyListener resourceCacheSizeListener = new GlobalPropertyListener() {
+
+		@Override
+		public boolean supportsPropertyName(String propertyName) {
+			return FHIRConstants.RESOURCE_CACHE_MAX_SIZE_PROPERTY.equals(propertyName);
+		}
+
+		@Override
+		public void globalPropertyChanged(GlobalProperty newValue) {
+			FHIRResourceCache.getInstance().setMaxSizeInBytes(FHIRUtils.getResourceCacheMaxSizeInBytes());
+		}
+
+		@Override
+		public void globalPropertyDeleted(String propertyName) {
+			FHIRResourceCache.getInstance().setMaxSizeInBytes(FHIRUtils.getResourceCacheMaxSizeInBytes());
+		}
+	};
+
+	private final GlobalPropertyListener obsConceptListener = new GlobalPropertyListener() {
+
+		@Override
+		public boolean supportsPropertyName(String propertyName) {
+			return FHIRConstants.CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS.equals(propertyName)
+					|| FHIRConstants.OBS_ALLERGY_STRATEGY_CONCEPT_UUID.equals(propertyName);
+		}
+
+		@Override
+		public void globalPropertyChanged(GlobalProperty newValue) {
+			FHIRObsConceptCache.getInstance().clear();
+		}
+
+		@Override
+		public void globalPropertyDeleted(String propertyName) {
+			FHIRObsConceptCache.getInstance().clear();
+		}
+	};
+
+	private final GlobalPropertyListener diagnosticReportFieldListener =
+			new FHIRDiagnosticReportFieldCache.FieldPropertyListener();
+
+	/**
+	 * @see DaemonTokenAware#setDaemonToken(DaemonToken)
+	 */
+	public void setDaemonToken(DaemonToken token) {
+		this.daemonToken = token;
+	}
+
 	/**
 	 * @see ModuleActivator#willRefreshContext()
 	 */
@@ -50,6 +118,35 @@ public class FHIRActivator implements ModuleActivator {
 	 * @see ModuleActivator#started()
 	 */
 	public void started() {
+		FHIRResourceCache.getInstance().setMaxSizeInBytes(FHIRUtils.getResourceCacheMaxSizeInBytes());
+		Context.getAdministrationService().addGlobalPropertyListener(resourceCacheSizeListener);
+		FHIRIdentifierTypeCache.getInstance().setEnabled(true);
+		FHIRRelationshipTypeCache.getInstance().setEnabled(true);
+		Context.getAdministrationService().addGlobalPropertyListener(obsConceptListener);
+		FHIRObsConceptCache.getInstance().setEnabled(true);
+		FHIRConceptCache.getInstance().setEnabled(true);
+		Context.getAdministrationService().addGlobalPropertyListener(diagnosticReportFieldListener);
+		FHIRDiagnosticReportFieldCache.getInstance().setEnabled(true);
+		try {
+			Context.getService(LocationService.class).rebuildLocationIndex();
+		}
+		catch (Exception e) {
+			log.error("Failed to build the location index, locations are read from the database", e);
+		}
+		// Indexing every person name takes a while on large registries, searches fall back to prefix matches meanwhile
+		Daemon.runInDaemonThread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Context.getService(PersonService.class).rebuildNameIndex();
+				}
+				catch (Exception e) {
+					log.error("Failed to build the name index, phonetic and fuzzy name searches fall back to prefix matches",
+							e);
+				}
+			}
+		}, daemonToken);
 		log.info("FHIR Module started");
 	}
 	
@@ -58,6 +155,20 @@ public class FHIRActivator implements ModuleActivator {
 	 */
 	public void willStop() {
 		log.info("Stopping FHIR Module");
+		FHIRRESTfulGenericClient.shutdown();
+		Context.getAdministrationService().removeGlobalPropertyListener(resourceCacheSizeListener);
+		log.info(FHIRResourceCache.getInstance().getSummary());
+		FHIRResourceCache.getInstance().setMaxSizeInBytes(0);
+		FHIRResourceCache.getInstance().clear();
+		FHIRLocationIndex.getInstance().clear();
+		FHIRNameIndex.getInstance().clear();
+		FHIRIdentifierTypeCache.getInstance().setEnabled(false);
+		FHIRRelationshipTypeCache.getInstance().setEnabled(false);
+		Context.getAdministrationService().removeGlobalPropertyListener(obsConceptListener);
+		FHIRObsConceptCache.getInstance().setEnabled(false);
+		FHIRConceptCache.getInstance().setEnabled(false);
+		Context.getAdministrationService().removeGlobalPropertyListener(diagnosticReportFieldListener);
+		FHIRDiagnosticReportFieldCache.getInstance().setEnabled(false);
 	}
 	
 	/**
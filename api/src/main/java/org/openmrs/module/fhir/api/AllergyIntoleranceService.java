@@ -15,6 +15,7 @@ package org.openmrs.module.fhir.api;
 
 
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
 
 import java.util.List;
 
@@ -60,4 +61,21 @@ public interface AllergyIntoleranceService {
 	 */
 	List<AllergyIntolerance> getAllergiesByPersonId(String personId);
 
+	/**
+	 * Search allergies, ordered by patient. The allergies of many patients are retrieved with a query per thousand
+	 * patients.
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first allergy to return, starting at 0
+	 * @param maxResults  maximum number of allergies to return, or null for all of them
+	 * @return fhir allergy resource list
+	 */
+	List<AllergyIntolerance> searchAllergies(AllergySearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of allergies matching the criteria
+	 */
+	long getAllergyCount(AllergySearchCriteria criteria);
+
 }
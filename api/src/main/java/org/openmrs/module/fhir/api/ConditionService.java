@@ -16,6 +16,7 @@ package org.openmrs.module.fhir.api;
 import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.dstu3.model.Condition;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 
 import java.util.List;
 
@@ -53,6 +54,22 @@ public interface ConditionService {
 	 */
 	List<Condition> searchConditionsByPatient(String patientUuid);
 
+	/**
+	 * Search the conditions stored as obs of the configured condition concepts, most recent first
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first condition to return, starting at 0
+	 * @param maxResults  maximum number of conditions to return, or null for all of them
+	 * @return fhir condition resource list
+	 */
+	List<Condition> searchObsConditions(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of conditions stored as obs which match the criteria
+	 */
+	long getObsConditionCount(ObsSearchCriteria criteria);
+
 	/**
 	 * creates a oms Condition from FHIR personn
 	 *
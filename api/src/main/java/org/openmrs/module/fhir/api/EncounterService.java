@@ -17,6 +17,7 @@ import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Composition;
 import org.hl7.fhir.dstu3.model.Encounter;
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -139,4 +140,20 @@ public interface EncounterService extends OpenmrsService {
 	 */
 	Encounter createFHIREncounter(Encounter encounter);
 
+
+	/**
+	 * Search visits as encounters, the most recently started first
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first visit to return, starting at 0
+	 * @param maxResults  maximum number of visits to return, or null for all of them
+	 * @return fhir encounter resources of the matching visits
+	 */
+	List<Encounter> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of visits matching the criteria
+	 */
+	long getVisitCount(VisitSearchCriteria criteria);
 }
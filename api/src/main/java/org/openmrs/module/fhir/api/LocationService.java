@@ -15,6 +15,7 @@ package org.openmrs.module.fhir.api;
 
 import org.hl7.fhir.dstu3.model.Location;
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -53,6 +54,29 @@ public interface LocationService extends OpenmrsService {
 	 * @return fhir location resource list
 	 */
 	List<Location> searchLocationsByName(String name);
+
+	/**
+	 * Search locations with the filters applied by the database, ordered by name
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first location to return, starting at 0
+	 * @param maxResults  maximum number of locations to return, or null for all of them
+	 * @return fhir location resource list
+	 */
+	List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * Count the locations matching a search
+	 *
+	 * @param criteria filters of the search
+	 * @return number of matching locations
+	 */
+	long getLocationCount(LocationSearchCriteria criteria);
+
+	/**
+	 * Reload the in-memory location tree index from the database
+	 */
+	void rebuildLocationIndex();
 	
 	/**
 	 * Delete location by id
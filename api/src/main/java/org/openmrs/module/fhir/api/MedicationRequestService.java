@@ -14,6 +14,7 @@
 package org.openmrs.module.fhir.api;
 
 import org.hl7.fhir.dstu3.model.MedicationRequest;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
 
 import java.util.List;
 
@@ -43,6 +44,23 @@ public interface MedicationRequestService {
      */
     List<MedicationRequest> searchMedicationRequestByPatientId(String patientUuid);
 
+    /**
+     * Search drug orders, most recently activated first
+     *
+     * @param criteria    filters of the search
+     * @param firstResult index of the first drug order to return, starting at 0
+     * @param maxResults  maximum number of drug orders to return, or null for all of them
+     * @return medication requests of the matching drug orders
+     */
+    List<MedicationRequest> searchMedicationRequests(DrugOrderSearchCriteria criteria, Integer firstResult,
+                                                     Integer maxResults);
+
+    /**
+     * @param criteria filters of the search
+     * @return number of drug orders matching the criteria
+     */
+    long getMedicationRequestCount(DrugOrderSearchCriteria criteria);
+
     /**
      * Delete drug order by uuid
      *
@@ -13,10 +13,13 @@
  */
 package org.openmrs.module.fhir.api;
 
+import org.hl7.fhir.dstu3.model.Binary;
 import org.hl7.fhir.dstu3.model.Observation;
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.File;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +100,16 @@ public interface ObsService extends OpenmrsService {
 	 */
 	List<Observation> searchObsByPatientIdentifier(String identifier);
 
+	/**
+	 * Search observations, most recent first
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first observation to return, starting at 0
+	 * @param maxResults  maximum number of observations to return, or null for all of them
+	 * @return fhir observation resource list
+	 */
+	List<Observation> searchObs(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
 	/**
 	 * Delete observation by id
 	 *
@@ -121,4 +134,20 @@ public interface ObsService extends OpenmrsService {
 	 */
 	Observation updateFHIRObservation(Observation observation, String theId);
 
+	/**
+	 * Get the content of a complex observation as a Binary resource
+	 *
+	 * @param id uuid of the complex observation
+	 * @return binary fhir resource, or null if there is no content for the given id
+	 */
+	Binary getBinary(String id);
+
+	/**
+	 * Get the file which stores the content of a complex observation, so that it can be streamed to the client
+	 *
+	 * @param id uuid of the complex observation
+	 * @return the file, or null if there is no content for the given id
+	 */
+	File getBinaryFile(String id);
+
 }
@@ -16,6 +16,7 @@ package org.openmrs.module.fhir.api;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.openmrs.api.OpenmrsService;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -77,6 +78,23 @@ public interface PatientService extends OpenmrsService {
 	 */
 	Bundle searchPatientsByFamilyName(String familyName);
 
+	/**
+	 * Search patients by given and/or family name. Matching is done by the database and a patient is returned once
+	 * even if several of its names match.
+	 *
+	 * @param criteria    name filters
+	 * @param firstResult index of the first patient to return, starting at 0
+	 * @param maxResults  maximum number of patients to return, or null for all of them
+	 * @return fhir patient resource list
+	 */
+	List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria name filters
+	 * @return number of patients matching the criteria
+	 */
+	long getPatientCountByName(PatientNameSearchCriteria criteria);
+
 	/**
 	 * Search all patients by name
 	 *
@@ -16,6 +16,8 @@ package org.openmrs.module.fhir.api;
 import ca.uhn.fhir.rest.server.exceptions.NotModifiedException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.dstu3.model.Person;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -55,6 +57,34 @@ public interface PersonService {
 	 */
 	List<Person> searchPersonsByName(String name);
 
+	/**
+	 * Search persons by name with the given match. Phonetic and fuzzy matches are answered by the name index, the
+	 * best matches first, and fall back to {@link #searchPersonsByName(String)} while the index is not loaded.
+	 *
+	 * @param name        the name to be search
+	 * @param match       how the words of the name are compared with the names of the persons
+	 * @param firstResult index of the first person to return, null for the first
+	 * @param maxResults  maximum number of persons to return, null for all
+	 * @return one page of the fhir persons
+	 */
+	List<Person> searchPersonsByName(String name, PatientNameSearchCriteria.Match match, Integer firstResult,
+	                                 Integer maxResults);
+
+	/**
+	 * @param name  the name to be search
+	 * @param match how the words of the name are compared with the names of the persons
+	 * @return number of persons {@link #searchPersonsByName(String, PatientNameSearchCriteria.Match, Integer, Integer)}
+	 * finds
+	 */
+	long getPersonCountByName(String name, PatientNameSearchCriteria.Match match);
+
+	/**
+	 * Reload the in-memory person name index from the database. The names are read a page at a time within one read
+	 * only transaction, searches keep using the previous index meanwhile.
+	 */
+	@Transactional(readOnly = true)
+	void rebuildNameIndex();
+
 	/**
 	 * creates a oms Person from FHIR personn
 	 *
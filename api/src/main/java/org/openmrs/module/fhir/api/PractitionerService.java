@@ -96,4 +96,23 @@ public interface PractitionerService extends OpenmrsService {
 	 * @return fhir practitioner resource list
 	 */
 	Practitioner updatePractitioner(Practitioner practitioner, String theId);
+
+	/**
+	 * Search practitioners by the given name and/or family name of their person
+	 *
+	 * @param givenName   given name, or null to match any given name
+	 * @param familyName  family name, or null to match any family name
+	 * @param firstResult index of the first practitioner to return, starting at 0
+	 * @param maxResults  maximum number of practitioners to return, or null for all of them
+	 * @return fhir practitioner resource list
+	 */
+	List<Practitioner> searchPractitionersByPersonName(String givenName, String familyName, Integer firstResult,
+	                                                   Integer maxResults);
+
+	/**
+	 * @param givenName  given name, or null to match any given name
+	 * @param familyName family name, or null to match any family name
+	 * @return number of practitioners matching the names
+	 */
+	long getPractitionerCountByPersonName(String givenName, String familyName);
 }
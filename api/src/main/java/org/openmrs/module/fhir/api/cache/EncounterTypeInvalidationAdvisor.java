@@ -0,0 +1,31 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.springframework.aop.support.NameMatchMethodPointcutAdvisor;
+
+/**
+ * Applies {@link ResourceCacheInvalidationAdvice} to the encounter type methods of the EncounterService only. Encounters
+ * are not cached, so saving or voiding them does not need to run the invalidation.
+ */
+public class EncounterTypeInvalidationAdvisor extends NameMatchMethodPointcutAdvisor {
+
+	private static final String[] ENCOUNTER_TYPE_METHODS = { "saveEncounterType", "retireEncounterType",
+			"unretireEncounterType", "purgeEncounterType" };
+
+	public EncounterTypeInvalidationAdvisor() {
+		super(new ResourceCacheInvalidationAdvice());
+		setMappedNames(ENCOUNTER_TYPE_METHODS);
+	}
+}
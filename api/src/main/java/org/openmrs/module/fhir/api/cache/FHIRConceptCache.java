@@ -0,0 +1,193 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.Concept;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves FHIR codings and unit names of incoming resources to OpenMRS concepts, without running the uuid, mapping
+ * and locale sensitive name queries of the ConceptService for every request. Codes are keyed by (system, code) and
+ * names by (locale, name).
+ * <p>
+ * Only concept ids are kept, concepts are read through the current Hibernate session. Codes and names which match no
+ * concept are remembered for {@link #NEGATIVE_TTL_MILLIS}, so a burst of requests with an unknown code runs a single
+ * query. The least recently used entries are dropped beyond {@link #MAX_ENTRIES}, and the whole cache is cleared by
+ * {@link ResourceCacheInvalidationAdvice} when a concept, name, mapping or source is changed. Until the module is
+ * started the cache is disabled and every call reads the database.
+ */
+public class FHIRConceptCache {
+
+	public static final int MAX_ENTRIES = 10000;
+
+	public static final long NEGATIVE_TTL_MILLIS = 60 * 1000;
+
+	private static final FHIRConceptCache instance = new FHIRConceptCache();
+
+	private static final Integer NO_CONCEPT = -1;
+
+	private boolean enabled = false;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	public static FHIRConceptCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param system system of a FHIR coding, either the OpenMRS uri or the uri of a concept source
+	 * @param code   concept uuid for the OpenMRS uri, otherwise the code of a mapping in the concept source
+	 * @return matching concept, or null if there is none or the system is unknown
+	 */
+	public Concept getConceptByCode(String system, String code) {
+		if (StringUtils.isBlank(system) || StringUtils.isBlank(code)) {
+			return null;
+		}
+		String sourceName = null;
+		if (!FHIRConstants.OPENMRS_URI.equals(system)) {
+			sourceName = FHIRConstants.conceptSourceURINameMap.get(system);
+			if (StringUtils.isEmpty(sourceName)) {
+				return null;
+			}
+		}
+		String key = "code|" + system + "|" + code;
+		Integer conceptId = lookup(key);
+		if (conceptId != null) {
+			Concept concept = getConcept(key, conceptId);
+			if (concept != null || conceptId.equals(NO_CONCEPT)) {
+				return concept;
+			}
+		}
+		Concept concept = sourceName == null ? Context.getConceptService().getConceptByUuid(code) :
+				Context.getConceptService().getConceptByMapping(code, sourceName);
+		store(key, concept);
+		return concept;
+	}
+
+	/**
+	 * @param uuid uuid of a concept
+	 * @return matching concept, or null if there is none
+	 */
+	public Concept getConceptByUuid(String uuid) {
+		return getConceptByCode(FHIRConstants.OPENMRS_URI, uuid);
+	}
+
+	/**
+	 * @param name name of a concept in the locale of the current user
+	 * @return matching concept, or null if there is none
+	 */
+	public Concept getConceptByName(String name) {
+		if (StringUtils.isBlank(name)) {
+			return null;
+		}
+		Locale locale = Context.getLocale();
+		String key = "name|" + locale + "|" + name.toLowerCase(locale);
+		Integer conceptId = lookup(key);
+		if (conceptId != null) {
+			Concept concept = getConcept(key, conceptId);
+			if (concept != null || conceptId.equals(NO_CONCEPT)) {
+				return concept;
+			}
+		}
+		Concept concept = Context.getConceptService().getConceptByName(name);
+		store(key, concept);
+		return concept;
+	}
+
+	private synchronized Integer lookup(String key) {
+		if (!enabled) {
+			return null;
+		}
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.expiresAt != 0 && entry.expiresAt < System.currentTimeMillis()) {
+			entries.remove(key);
+			return null;
+		}
+		return entry.conceptId;
+	}
+
+	private synchronized void store(String key, Concept concept) {
+		if (!enabled) {
+			return;
+		}
+		if (concept != null && concept.getConceptId() != null) {
+			entries.put(key, new Entry(concept.getConceptId(), 0));
+		} else {
+			entries.put(key, new Entry(NO_CONCEPT, System.currentTimeMillis() + NEGATIVE_TTL_MILLIS));
+		}
+	}
+
+	/**
+	 * @return concept of a cached id, or null if it is a cached miss or the concept was purged meanwhile
+	 */
+	private Concept getConcept(String key, Integer conceptId) {
+		if (conceptId.equals(NO_CONCEPT)) {
+			return null;
+		}
+		Concept concept = Context.getConceptService().getConcept(conceptId);
+		if (concept == null) {
+			synchronized (this) {
+				entries.remove(key);
+			}
+		}
+		return concept;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+
+	private static class Entry {
+
+		private final Integer conceptId;
+
+		/**
+		 * Instant at which a cached miss expires, 0 for a cached concept
+		 */
+		private final long expiresAt;
+
+		private Entry(Integer conceptId, long expiresAt) {
+			this.conceptId = conceptId;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Dispatch table from concept id to the DiagnosticReport field, `result`, `status`, `name`, `imaging_study` or
+ * `presentedForm`, which a top level obs of a report encounter is mapped to. The concepts are configured by the
+ * `fhir.diagnosticreport.*` global properties. The table is built once from them, so classifying an obs is a lookup
+ * of its concept id instead of reading and parsing up to four global properties and loading their concepts.
+ * <p>
+ * The module activator registers a {@link FieldPropertyListener}, which clears the cache when one of the global
+ * properties changes. Until the module is started the cache is disabled and the table is built for every report.
+ */
+public class FHIRDiagnosticReportFieldCache {
+
+	private static final Log log = LogFactory.getLog(FHIRDiagnosticReportFieldCache.class);
+
+	private static final FHIRDiagnosticReportFieldCache instance = new FHIRDiagnosticReportFieldCache();
+
+	/**
+	 * Global property of the concept of every field, in the order fields are matched when concepts are shared
+	 */
+	private static final Map<String, String> FIELD_PROPERTIES = new LinkedHashMap<String, String>();
+
+	static {
+		FIELD_PROPERTIES.put(FHIRConstants.DIAGNOSTIC_REPORT_RESULT, FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY);
+		FIELD_PROPERTIES.put(FHIRConstants.DIAGNOSTIC_REPORT_STATUS, FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY);
+		FIELD_PROPERTIES.put(FHIRConstants.DIAGNOSTIC_REPORT_NAME, FHIRConstants.DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY);
+		FIELD_PROPERTIES.put(FHIRConstants.DIAGNOSTIC_REPORT_IMAGING_STUDY,
+				FHIRConstants.DIAGNOSTIC_REPORT_IMAGING_STUDY_CONCEPT_PROPERTY);
+		FIELD_PROPERTIES.put(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM,
+				FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM_CONCEPT_PROPERTY);
+	}
+
+	private boolean enabled = false;
+
+	private FieldTable table;
+
+	/**
+	 * Incremented by every clear, so that a table built from the previous values is not published
+	 */
+	private long generation;
+
+	public static FHIRDiagnosticReportFieldCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return true if the global property configures the concept of a DiagnosticReport field
+	 */
+	public static boolean isFieldProperty(String propertyName) {
+		return FIELD_PROPERTIES.containsValue(propertyName);
+	}
+
+	/**
+	 * @param conceptId id of the concept of a top level obs
+	 * @return name of the DiagnosticReport field, one of the DIAGNOSTIC_REPORT_* constants of {@link FHIRConstants},
+	 * or null if the concept is not configured for any field
+	 */
+	public String getField(int conceptId) {
+		return getTable().getField(conceptId);
+	}
+
+	/**
+	 * @return the table of the current configuration
+	 */
+	public FieldTable getTable() {
+		long buildGeneration;
+		synchronized (this) {
+			if (table != null && enabled) {
+				return table;
+			}
+			buildGeneration = generation;
+		}
+		// Built outside of the lock, the global properties and concepts are read from the database
+		FieldTable newTable = buildTable();
+		synchronized (this) {
+			// A clear while building means the table may miss the new values, it is only used by this call
+			if (enabled && generation == buildGeneration) {
+				table = newTable;
+			}
+		}
+		return newTable;
+	}
+
+	private FieldTable buildTable() {
+		Map<String, Integer> conceptIds = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, String> entry : FIELD_PROPERTIES.entrySet()) {
+			String value = StringUtils.trim(Context.getAdministrationService().getGlobalProperty(entry.getValue()));
+			if (StringUtils.isBlank(value)) {
+				continue;
+			}
+			if (!StringUtils.isNumeric(value) || Context.getConceptService().getConcept(Integer.valueOf(value)) == null) {
+				log.warn("No concept found for " + entry.getValue() + " " + value + ", obs are not mapped to the "
+						+ entry.getKey() + " of DiagnosticReports");
+				continue;
+			}
+			conceptIds.put(entry.getKey(), Integer.valueOf(value));
+		}
+		return new FieldTable(conceptIds);
+	}
+
+	public synchronized void clear() {
+		table = null;
+		generation++;
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+
+	/**
+	 * Clears the cache when a field global property is changed or deleted, the table is rebuilt by the next lookup
+	 */
+	public static class FieldPropertyListener implements GlobalPropertyListener {
+
+		@Override
+		public boolean supportsPropertyName(String propertyName) {
+			return isFieldProperty(propertyName);
+		}
+
+		@Override
+		public void globalPropertyChanged(GlobalProperty newValue) {
+			getInstance().clear();
+		}
+
+		@Override
+		public void globalPropertyDeleted(String propertyName) {
+			getInstance().clear();
+		}
+	}
+
+	/**
+	 * Immutable concept id to field table. There are only a handful of fields, so the ids are kept in a primitive array
+	 * which is scanned, without boxing the looked up id.
+	 */
+	public static class FieldTable {
+
+		private final int[] conceptIds;
+
+		private final String[] fields;
+
+		/**
+		 * @param fieldConceptIds concept id of every field, the first field wins when fields share a concept
+		 */
+		public FieldTable(Map<String, Integer> fieldConceptIds) {
+			conceptIds = new int[fieldConceptIds.size()];
+			fields = new String[fieldConceptIds.size()];
+			int i = 0;
+			for (Map.Entry<String, Integer> entry : fieldConceptIds.entrySet()) {
+				conceptIds[i] = entry.getValue();
+				fields[i] = entry.getKey();
+				i++;
+			}
+		}
+
+		/**
+		 * @return the field of the concept, or null if the concept is not configured for any field
+		 */
+		public String getField(int conceptId) {
+			for (int i = 0; i < conceptIds.length; i++) {
+				if (conceptIds[i] == conceptId) {
+					return fields[i];
+				}
+			}
+			return null;
+		}
+	}
+}
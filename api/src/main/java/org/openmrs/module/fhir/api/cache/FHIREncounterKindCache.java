@@ -0,0 +1,76 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers whether the uuid of an Encounter resource belongs to an OpenMRS encounter or to an OpenMRS visit, so that
+ * reading a known Encounter resource costs a single lookup instead of trying the encounter table before the visit
+ * table.
+ * <p>
+ * The kind of an entity never changes, so entries are not invalidated. A lookup which finds nothing for a cached
+ * kind should {@link #remove(String)} the entry and fall back to trying both kinds.
+ */
+public class FHIREncounterKindCache {
+
+	public static final int MAX_ENTRIES = 10000;
+
+	private static final FHIREncounterKindCache instance = new FHIREncounterKindCache(MAX_ENTRIES);
+
+	public enum Kind {
+		ENCOUNTER, VISIT
+	}
+
+	private final Map<String, Kind> entries;
+
+	public FHIREncounterKindCache(final int maxEntries) {
+		entries = new LinkedHashMap<String, Kind>(64, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Kind> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	public static FHIREncounterKindCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param uuid uuid of the Encounter resource
+	 * @return kind of the entity behind the uuid, or null if it is not known
+	 */
+	public synchronized Kind get(String uuid) {
+		return entries.get(uuid);
+	}
+
+	public synchronized void put(String uuid, Kind kind) {
+		entries.put(uuid, kind);
+	}
+
+	public synchronized void remove(String uuid) {
+		entries.remove(uuid);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+}
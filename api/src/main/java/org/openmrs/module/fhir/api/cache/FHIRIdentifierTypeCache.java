@@ -0,0 +1,97 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the system of a FHIR patient identifier to the id of a patient identifier type, without loading all the
+ * identifier types on every search. A system is either the name of the identifier type, its uuid, or its uuid as an
+ * urn as written by {@link org.openmrs.module.fhir.api.util.FHIRPatientUtil}.
+ * <p>
+ * The identifier types are loaded on first use and dropped by {@link ResourceCacheInvalidationAdvice} when one of them
+ * is saved, retired or purged. Until the module is started the cache is disabled and every call reads the database.
+ */
+public class FHIRIdentifierTypeCache {
+
+	private static final FHIRIdentifierTypeCache instance = new FHIRIdentifierTypeCache();
+
+	private static final String UUID_URN_PREFIX = "urn:" + FHIRConstants.UUID + ":";
+
+	private boolean enabled = false;
+
+	private Map<String, Integer> idsByName;
+
+	private Map<String, Integer> idsByUuid;
+
+	public static FHIRIdentifierTypeCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param system system of a FHIR identifier
+	 * @return id of the matching patient identifier type, or null if there is none
+	 */
+	public Integer getIdentifierTypeId(String system) {
+		if (StringUtils.isBlank(system)) {
+			return null;
+		}
+		Map<String, Integer> byName;
+		Map<String, Integer> byUuid;
+		synchronized (this) {
+			if (idsByName == null || !enabled) {
+				load();
+			}
+			byName = idsByName;
+			byUuid = idsByUuid;
+		}
+		String uuid = StringUtils.startsWithIgnoreCase(system, UUID_URN_PREFIX) ?
+				system.substring(UUID_URN_PREFIX.length()) : system;
+		Integer id = byUuid.get(uuid);
+		return id != null ? id : byName.get(system.toLowerCase());
+	}
+
+	private void load() {
+		Map<String, Integer> byName = new HashMap<String, Integer>();
+		Map<String, Integer> byUuid = new HashMap<String, Integer>();
+		List<Object[]> types = FHIRUtils.getFHIRDAO().getPatientIdentifierTypes();
+		for (Object[] type : types) {
+			Integer id = (Integer) type[0];
+			byUuid.put((String) type[1], id);
+			byName.put(((String) type[2]).toLowerCase(), id);
+		}
+		idsByName = byName;
+		idsByUuid = byUuid;
+	}
+
+	public synchronized void clear() {
+		idsByName = null;
+		idsByUuid = null;
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+}
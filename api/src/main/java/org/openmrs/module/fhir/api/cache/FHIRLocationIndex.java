@@ -0,0 +1,283 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Location;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRLocationUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the location tree. Every location is mapped by id and uuid to its name, parent and children,
+ * so location references, partOf chains and partof searches are resolved without Hibernate. The FHIR resource of a
+ * location is generated on first use and kept until the location changes.
+ * <p>
+ * The index is empty and disabled until {@link #load(List)} is called, which is done when the module starts. It is
+ * kept up to date by {@link ResourceCacheInvalidationAdvice} when locations are saved, retired or purged.
+ */
+public class FHIRLocationIndex {
+
+	protected static final Log log = LogFactory.getLog(FHIRLocationIndex.class);
+
+	private static final FHIRLocationIndex instance = new FHIRLocationIndex();
+
+	private final Map<Integer, Node> nodesById = new ConcurrentHashMap<Integer, Node>();
+
+	private final Map<String, Node> nodesByUuid = new ConcurrentHashMap<String, Node>();
+
+	private volatile boolean loaded = false;
+
+	public static FHIRLocationIndex getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Replace the content of the index
+	 *
+	 * @param rows location id, uuid, name, retired flag and parent location id of every location
+	 */
+	public synchronized void load(List<Object[]> rows) {
+		nodesById.clear();
+		nodesByUuid.clear();
+		for (Object[] row : rows) {
+			put(new Node((Integer) row[0], (String) row[1], (String) row[2], Boolean.TRUE.equals(row[3]),
+					(Integer) row[4]));
+		}
+		for (Node node : nodesById.values()) {
+			Node parent = node.parentId != null ? nodesById.get(node.parentId) : null;
+			if (parent != null) {
+				parent.childIds.add(node.id);
+			}
+		}
+		loaded = true;
+		log.info("Indexed " + nodesById.size() + " locations");
+	}
+
+	public synchronized void clear() {
+		loaded = false;
+		nodesById.clear();
+		nodesByUuid.clear();
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Add or refresh a location after it was saved, retired or unretired
+	 *
+	 * @param location changed location
+	 */
+	public synchronized void update(org.openmrs.Location location) {
+		if (!loaded || location.getLocationId() == null) {
+			return;
+		}
+		Node previous = nodesById.get(location.getLocationId());
+		Integer parentId = location.getParentLocation() != null ? location.getParentLocation().getLocationId() : null;
+		Node node = new Node(location.getLocationId(), location.getUuid(), location.getName(), location.isRetired(),
+				parentId);
+		if (previous != null) {
+			detach(previous);
+			node.childIds.addAll(previous.childIds);
+			if (!previous.name.equals(node.name)) {
+				// Children carry the name of their parent in partOf
+				for (Integer childId : node.childIds) {
+					Node child = nodesById.get(childId);
+					if (child != null) {
+						child.resource = null;
+					}
+				}
+			}
+		}
+		put(node);
+		Node parent = parentId != null ? nodesById.get(parentId) : null;
+		if (parent != null) {
+			parent.childIds.add(node.id);
+		}
+	}
+
+	/**
+	 * Remove a purged location
+	 *
+	 * @param location purged location
+	 */
+	public synchronized void remove(org.openmrs.Location location) {
+		Node node = location.getLocationId() != null ? nodesById.get(location.getLocationId()) : null;
+		if (node != null) {
+			detach(node);
+		}
+	}
+
+	/**
+	 * Get the FHIR resource of a location which is not retired
+	 *
+	 * @param uuid uuid of the location
+	 * @return a copy of the indexed resource, or null if the location is not indexed or is retired
+	 */
+	public Location getLocation(String uuid) {
+		Node node = uuid != null ? nodesByUuid.get(uuid) : null;
+		if (node == null || node.retired) {
+			return null;
+		}
+		Location resource = node.resource;
+		if (resource == null) {
+			org.openmrs.Location omrsLocation = Context.getLocationService().getLocation(node.id);
+			if (omrsLocation == null) {
+				return null;
+			}
+			resource = FHIRLocationUtil.generateLocation(omrsLocation);
+			node.resource = resource;
+		}
+		return resource.copy();
+	}
+
+	public boolean contains(String uuid) {
+		return uuid != null && nodesByUuid.containsKey(uuid);
+	}
+
+	/**
+	 * @param locationId id of the location
+	 * @return uuid of the location, or null if it is not indexed
+	 */
+	public String getUuid(Integer locationId) {
+		Node node = locationId != null ? nodesById.get(locationId) : null;
+		return node != null ? node.uuid : null;
+	}
+
+	/**
+	 * @param locationId id of the location
+	 * @return name of the location, or null if it is not indexed
+	 */
+	public String getName(Integer locationId) {
+		Node node = locationId != null ? nodesById.get(locationId) : null;
+		return node != null ? node.name : null;
+	}
+
+	/**
+	 * @param uuid uuid of the location
+	 * @return uuid of the parent location, or null if there is none
+	 */
+	public String getParentUuid(String uuid) {
+		Node node = uuid != null ? nodesByUuid.get(uuid) : null;
+		return node != null ? getUuid(node.parentId) : null;
+	}
+
+	/**
+	 * @param uuid uuid of the location
+	 * @return uuids of the ancestors of the location, the parent first
+	 */
+	public List<String> getAncestorUuids(String uuid) {
+		List<String> ancestors = new ArrayList<String>();
+		Set<Integer> visited = new LinkedHashSet<Integer>();
+		Node node = uuid != null ? nodesByUuid.get(uuid) : null;
+		while (node != null && node.parentId != null && visited.add(node.parentId)) {
+			node = nodesById.get(node.parentId);
+			if (node != null) {
+				ancestors.add(node.uuid);
+			}
+		}
+		return ancestors;
+	}
+
+	/**
+	 * @param uuid uuid of the location
+	 * @return uuids of the direct children of the location, ordered by name
+	 */
+	public List<String> getChildUuids(String uuid) {
+		Node node = uuid != null ? nodesByUuid.get(uuid) : null;
+		if (node == null) {
+			return Collections.emptyList();
+		}
+		List<Node> children = new ArrayList<Node>();
+		for (Integer childId : node.childIds) {
+			Node child = nodesById.get(childId);
+			if (child != null) {
+				children.add(child);
+			}
+		}
+		Collections.sort(children);
+		List<String> childUuids = new ArrayList<String>();
+		for (Node child : children) {
+			childUuids.add(child.uuid);
+		}
+		return childUuids;
+	}
+
+	/**
+	 * @param uuid uuid of the location
+	 * @return true if the location is retired, false if it is active or not indexed
+	 */
+	public boolean isRetired(String uuid) {
+		Node node = uuid != null ? nodesByUuid.get(uuid) : null;
+		return node != null && node.retired;
+	}
+
+	public int size() {
+		return nodesById.size();
+	}
+
+	private void put(Node node) {
+		nodesById.put(node.id, node);
+		nodesByUuid.put(node.uuid, node);
+	}
+
+	private void detach(Node node) {
+		nodesById.remove(node.id);
+		nodesByUuid.remove(node.uuid);
+		Node parent = node.parentId != null ? nodesById.get(node.parentId) : null;
+		if (parent != null) {
+			parent.childIds.remove(node.id);
+		}
+	}
+
+	private static class Node implements Comparable<Node> {
+
+		private final Integer id;
+
+		private final String uuid;
+
+		private final String name;
+
+		private final boolean retired;
+
+		private final Integer parentId;
+
+		private final Set<Integer> childIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+		private volatile Location resource;
+
+		private Node(Integer id, String uuid, String name, boolean retired, Integer parentId) {
+			this.id = id;
+			this.uuid = uuid;
+			this.name = name != null ? name : "";
+			this.retired = retired;
+			this.parentId = parentId;
+		}
+
+		@Override
+		public int compareTo(Node other) {
+			int result = name.compareToIgnoreCase(other.name);
+			return result != 0 ? result : id.compareTo(other.id);
+		}
+	}
+}
@@ -0,0 +1,687 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the non voided person names, for phonetic and misspelling tolerant searches which cannot be
+ * answered by LIKE queries on person_name.
+ * <p>
+ * Every distinct name token (a word of a given, middle, family or second family name) is stored once in a dictionary,
+ * along with its Soundex code and its trigrams. Persons are posted under the tokens of their given and middle names
+ * and, separately, under the tokens of their family names, as compact int arrays. A phonetic search looks up the
+ * tokens sharing the Soundex code of the query, a fuzzy search looks up the tokens sharing a trigram with the query
+ * and keeps those within a small edit distance of it.
+ * <p>
+ * The index is empty and disabled until {@link #load(Iterator, Iterator)} is called, which is done when the module
+ * starts. It is kept up to date by {@link ResourceCacheInvalidationAdvice} when persons, patients and names are saved,
+ * voided or purged, also while it is being loaded.
+ */
+public class FHIRNameIndex {
+
+	protected static final Log log = LogFactory.getLog(FHIRNameIndex.class);
+
+	private static final FHIRNameIndex instance = new FHIRNameIndex();
+
+	public enum Field {
+		/**
+		 * Given and middle names
+		 */
+		GIVEN,
+		/**
+		 * Family names
+		 */
+		FAMILY,
+		/**
+		 * Any part of the name
+		 */
+		ANY
+	}
+
+	public enum Mode {
+		EXACT, START, CONTAINS, PHONETIC, FUZZY
+	}
+
+	/**
+	 * One filter of a search. All the words of the text must match a token of the field.
+	 */
+	public static class Query {
+
+		private final Field field;
+
+		private final String text;
+
+		private final Mode mode;
+
+		public Query(Field field, String text, Mode mode) {
+			this.field = field;
+			this.text = text;
+			this.mode = mode;
+		}
+	}
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Object loadLock = new Object();
+
+	/**
+	 * Current content of the index, replaced as a whole by {@link #load(Iterator, Iterator)}
+	 */
+	private Content content = new Content();
+
+	/**
+	 * Changes made while a load is building the next content, applied to it before it is published. Null when no load
+	 * is running.
+	 */
+	private List<NameChange> pendingChanges;
+
+	private volatile boolean loading = false;
+
+	/**
+	 * Incremented by every clear, so that a load which started before does not publish its content afterwards
+	 */
+	private long generation;
+
+	private volatile boolean loaded = false;
+
+	public static FHIRNameIndex getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Replace the content of the index. The new content is built without holding the lock, searches keep using the
+	 * previous content meanwhile, and changes made during the build are applied to it before it is swapped in.
+	 *
+	 * @param names      person id, given name, middle name, family name and second family name of every non voided
+	 *                   name of a non voided person, the names of a person one after the other, read one at a time so
+	 *                   that they can be fetched in pages
+	 * @param patientIds ids of the non voided patients
+	 */
+	public void load(Iterator<Object[]> names, Iterator<Integer> patientIds) {
+		synchronized (loadLock) {
+			long loadGeneration;
+			lock.writeLock().lock();
+			try {
+				loadGeneration = generation;
+				pendingChanges = new ArrayList<NameChange>();
+				loading = true;
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+			Content built;
+			try {
+				built = build(names, patientIds);
+			}
+			catch (RuntimeException e) {
+				discardPendingChanges();
+				throw e;
+			}
+			lock.writeLock().lock();
+			try {
+				for (NameChange change : pendingChanges) {
+					built.apply(change);
+				}
+				pendingChanges = null;
+				loading = false;
+				if (generation != loadGeneration) {
+					return;
+				}
+				content = built;
+				loaded = true;
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+			log.info("Indexed " + built.tokensByPerson.size() + " persons with " + built.tokens.size()
+					+ " distinct name tokens");
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			loaded = false;
+			generation++;
+			content = new Content();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return true if changes of persons are indexed, which is the case once the index is loaded and while it is
+	 * loading
+	 */
+	public boolean isUpdated() {
+		return loaded || loading;
+	}
+
+	/**
+	 * Re-index the names of a person after it, one of its names or its patient was saved, voided or unvoided
+	 *
+	 * @param person changed person
+	 */
+	public void update(Person person) {
+		if (!isUpdated() || person.getPersonId() == null) {
+			return;
+		}
+		NameChange change = new NameChange(person.getPersonId());
+		if (!person.isVoided()) {
+			for (PersonName name : person.getNames()) {
+				if (!name.isVoided()) {
+					change.names.add(new String[] { name.getGivenName(), name.getMiddleName(), name.getFamilyName(),
+							name.getFamilyName2() });
+				}
+			}
+			change.patient = person instanceof Patient || person.getIsPatient();
+		}
+		apply(change);
+	}
+
+	/**
+	 * Remove a purged person
+	 *
+	 * @param person purged person
+	 */
+	public void remove(Person person) {
+		if (!isUpdated() || person.getPersonId() == null) {
+			return;
+		}
+		apply(new NameChange(person.getPersonId()));
+	}
+
+	/**
+	 * Search the persons matching all the queries, the best matches first. A person scores 1 for every word matching
+	 * one of its tokens exactly, and less for a fuzzy match.
+	 *
+	 * @param queries      filters of the search
+	 * @param patientsOnly true to only return patients
+	 * @return ids of the matching persons
+	 */
+	public List<Integer> search(List<Query> queries, boolean patientsOnly) {
+		lock.readLock().lock();
+		try {
+			Map<Integer, Double> scores = null;
+			for (Query query : queries) {
+				for (String word : tokenize(query.text)) {
+					Map<Integer, Double> wordScores = content.scorePersons(query.field, word, query.mode);
+					if (scores == null) {
+						scores = wordScores;
+					} else {
+						scores.keySet().retainAll(wordScores.keySet());
+						for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+							entry.setValue(entry.getValue() + wordScores.get(entry.getKey()));
+						}
+					}
+					if (scores.isEmpty()) {
+						return new ArrayList<Integer>();
+					}
+				}
+			}
+			if (scores == null) {
+				return new ArrayList<Integer>();
+			}
+			List<Map.Entry<Integer, Double>> ranked = new ArrayList<Map.Entry<Integer, Double>>();
+			for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+				if (!patientsOnly || content.patients.get(entry.getKey())) {
+					ranked.add(entry);
+				}
+			}
+			Collections.sort(ranked, new Comparator<Map.Entry<Integer, Double>>() {
+
+				@Override
+				public int compare(Map.Entry<Integer, Double> a, Map.Entry<Integer, Double> b) {
+					int byScore = Double.compare(b.getValue(), a.getValue());
+					return byScore != 0 ? byScore : a.getKey().compareTo(b.getKey());
+				}
+			});
+			List<Integer> personIds = new ArrayList<Integer>(ranked.size());
+			for (Map.Entry<Integer, Double> entry : ranked) {
+				personIds.add(entry.getKey());
+			}
+			return personIds;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return content.tokensByPerson.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void apply(NameChange change) {
+		lock.writeLock().lock();
+		try {
+			if (loaded) {
+				content.apply(change);
+			}
+			if (pendingChanges != null) {
+				pendingChanges.add(change);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void discardPendingChanges() {
+		lock.writeLock().lock();
+		try {
+			pendingChanges = null;
+			loading = false;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Only the tokens of the person being read are held apart from the content, the rows of a person come one after
+	 * the other
+	 */
+	private static Content build(Iterator<Object[]> names, Iterator<Integer> patientIds) {
+		Content built = new Content();
+		Integer personId = null;
+		Set<Integer> personTokens = new LinkedHashSet<Integer>();
+		while (names.hasNext()) {
+			Object[] name = names.next();
+			if (!name[0].equals(personId)) {
+				if (personId != null) {
+					built.post(personId, toArray(personTokens));
+				}
+				personId = (Integer) name[0];
+				personTokens.clear();
+			}
+			built.addTokens(personTokens, (String) name[1], false);
+			built.addTokens(personTokens, (String) name[2], false);
+			built.addTokens(personTokens, (String) name[3], true);
+			built.addTokens(personTokens, (String) name[4], true);
+		}
+		if (personId != null) {
+			built.post(personId, toArray(personTokens));
+		}
+		while (patientIds.hasNext()) {
+			built.patients.set(patientIds.next());
+		}
+		return built;
+	}
+
+	private static int[] toArray(Set<Integer> values) {
+		int[] array = new int[values.size()];
+		int i = 0;
+		for (Integer value : values) {
+			array[i++] = value;
+		}
+		return array;
+	}
+
+	/**
+	 * The names of a changed person, no names for a voided or purged person
+	 */
+	private static final class NameChange {
+
+		private final Integer personId;
+
+		private final List<String[]> names = new ArrayList<String[]>();
+
+		private boolean patient;
+
+		private NameChange(Integer personId) {
+			this.personId = personId;
+		}
+	}
+
+	/**
+	 * Dictionary and postings of the index, guarded by the lock of the index once published
+	 */
+	private static final class Content {
+
+		private final List<String> tokens = new ArrayList<String>();
+
+		private final Map<String, Integer> tokenIds = new HashMap<String, Integer>();
+
+		private final List<Postings> givenPostings = new ArrayList<Postings>();
+
+		private final List<Postings> familyPostings = new ArrayList<Postings>();
+
+		private final Map<String, Postings> tokensBySoundex = new HashMap<String, Postings>();
+
+		private final Map<String, Postings> tokensByTrigram = new HashMap<String, Postings>();
+
+		/**
+		 * Token ids of every indexed person, family name tokens are stored as -(id + 1)
+		 */
+		private final Map<Integer, int[]> tokensByPerson = new HashMap<Integer, int[]>();
+
+		private final BitSet patients = new BitSet();
+
+		private void apply(NameChange change) {
+			unpost(change.personId);
+			Set<Integer> personTokens = new LinkedHashSet<Integer>();
+			for (String[] name : change.names) {
+				addTokens(personTokens, name[0], false);
+				addTokens(personTokens, name[1], false);
+				addTokens(personTokens, name[2], true);
+				addTokens(personTokens, name[3], true);
+			}
+			if (!personTokens.isEmpty()) {
+				post(change.personId, toArray(personTokens));
+			}
+			patients.set(change.personId, change.patient);
+		}
+
+		/**
+		 * @return best score of every person having a token of the field which matches the word
+		 */
+		private Map<Integer, Double> scorePersons(Field field, String word, Mode mode) {
+			Map<Integer, Double> scores = new HashMap<Integer, Double>();
+			for (Map.Entry<Integer, Double> token : matchTokens(word, mode).entrySet()) {
+				if (field != Field.FAMILY) {
+					addScores(scores, givenPostings.get(token.getKey()), token.getValue());
+				}
+				if (field != Field.GIVEN) {
+					addScores(scores, familyPostings.get(token.getKey()), token.getValue());
+				}
+			}
+			return scores;
+		}
+
+		private static void addScores(Map<Integer, Double> scores, Postings persons, double score) {
+			for (int i = 0; i < persons.size; i++) {
+				Double previous = scores.get(persons.values[i]);
+				if (previous == null || previous < score) {
+					scores.put(persons.values[i], score);
+				}
+			}
+		}
+
+		/**
+		 * @return ids of the dictionary tokens matching the word, with the quality of the match between 0 and 1
+		 */
+		private Map<Integer, Double> matchTokens(String word, Mode mode) {
+			Map<Integer, Double> matches = new HashMap<Integer, Double>();
+			Integer exact = tokenIds.get(word);
+			if (exact != null) {
+				matches.put(exact, 1.0);
+			}
+			if (mode == Mode.START || mode == Mode.CONTAINS) {
+				for (int id = 0; id < tokens.size(); id++) {
+					String token = tokens.get(id);
+					if (mode == Mode.START ? token.startsWith(word) : token.contains(word)) {
+						matches.put(id, id == (exact == null ? -1 : exact) ? 1.0 : (double) word.length() / token.length());
+					}
+				}
+			} else if (mode == Mode.PHONETIC) {
+				Postings similar = tokensBySoundex.get(soundex(word));
+				if (similar != null) {
+					for (int i = 0; i < similar.size; i++) {
+						if (!matches.containsKey(similar.values[i])) {
+							matches.put(similar.values[i], 0.8);
+						}
+					}
+				}
+			} else if (mode == Mode.FUZZY) {
+				int maxEdits = word.length() <= 4 ? 1 : 2;
+				Set<String> wordTrigrams = trigrams(word);
+				Map<Integer, Integer> sharedTrigrams = new HashMap<Integer, Integer>();
+				for (String trigram : wordTrigrams) {
+					Postings sharing = tokensByTrigram.get(trigram);
+					if (sharing != null) {
+						for (int i = 0; i < sharing.size; i++) {
+							Integer count = sharedTrigrams.get(sharing.values[i]);
+							sharedTrigrams.put(sharing.values[i], count == null ? 1 : count + 1);
+						}
+					}
+				}
+				// An edit changes at most three trigrams and a transposition four, tokens sharing fewer cannot be
+				// close enough
+				int minShared = Math.max(1, wordTrigrams.size() - 4 * maxEdits);
+				for (Map.Entry<Integer, Integer> candidate : sharedTrigrams.entrySet()) {
+					String token = tokens.get(candidate.getKey());
+					if (candidate.getValue() < minShared || Math.abs(token.length() - word.length()) > maxEdits
+							|| matches.containsKey(candidate.getKey())) {
+						continue;
+					}
+					int edits = editDistance(word, token);
+					if (edits <= maxEdits) {
+						matches.put(candidate.getKey(), 1.0 - (double) edits / Math.max(word.length(), token.length()));
+					}
+				}
+			}
+			return matches;
+		}
+
+		private void addTokens(Set<Integer> personTokens, String name, boolean family) {
+			for (String token : tokenize(name)) {
+				int id = getOrCreateTokenId(token);
+				personTokens.add(family ? -(id + 1) : id);
+			}
+		}
+
+		private int getOrCreateTokenId(String token) {
+			Integer id = tokenIds.get(token);
+			if (id == null) {
+				id = tokens.size();
+				tokens.add(token);
+				tokenIds.put(token, id);
+				givenPostings.add(new Postings());
+				familyPostings.add(new Postings());
+				String code = soundex(token);
+				if (code != null) {
+					getPostings(tokensBySoundex, code).add(id);
+				}
+				for (String trigram : trigrams(token)) {
+					getPostings(tokensByTrigram, trigram).add(id);
+				}
+			}
+			return id;
+		}
+
+		private static Postings getPostings(Map<String, Postings> map, String key) {
+			Postings postings = map.get(key);
+			if (postings == null) {
+				postings = new Postings();
+				map.put(key, postings);
+			}
+			return postings;
+		}
+
+		private void post(Integer personId, int[] personTokens) {
+			// A person whose names were not read one after the other is posted once with all its tokens
+			int[] previous = tokensByPerson.get(personId);
+			if (previous != null) {
+				Set<Integer> merged = new LinkedHashSet<Integer>();
+				for (int token : previous) {
+					merged.add(token);
+				}
+				for (int token : personTokens) {
+					merged.add(token);
+				}
+				unpost(personId);
+				personTokens = toArray(merged);
+			}
+			for (int token : personTokens) {
+				if (token >= 0) {
+					givenPostings.get(token).add(personId);
+				} else {
+					familyPostings.get(-token - 1).add(personId);
+				}
+			}
+			tokensByPerson.put(personId, personTokens);
+		}
+
+		private void unpost(Integer personId) {
+			int[] personTokens = tokensByPerson.remove(personId);
+			if (personTokens == null) {
+				return;
+			}
+			for (int token : personTokens) {
+				if (token >= 0) {
+					givenPostings.get(token).remove(personId);
+				} else {
+					familyPostings.get(-token - 1).remove(personId);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Split a name into lower case words without diacritics
+	 */
+	static List<String> tokenize(String name) {
+		List<String> words = new ArrayList<String>();
+		if (name == null) {
+			return words;
+		}
+		String normalized = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}", "").toLowerCase();
+		for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+			if (word.length() > 0) {
+				words.add(word);
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * American Soundex code of a word, e.g. R163 for both Robert and Rupert
+	 *
+	 * @param word the word
+	 * @return the four character code, or null if the word has no latin letter
+	 */
+	static String soundex(String word) {
+		StringBuilder code = new StringBuilder(4);
+		char previous = 0;
+		for (int i = 0; i < word.length() && code.length() < 4; i++) {
+			char letter = Character.toUpperCase(word.charAt(i));
+			if (letter < 'A' || letter > 'Z') {
+				continue;
+			}
+			char digit = "01230120022455012623010202".charAt(letter - 'A');
+			if (code.length() == 0) {
+				code.append(letter);
+			} else if (digit != '0' && digit != previous) {
+				code.append(digit);
+			}
+			// H and W do not separate letters with the same code, vowels do
+			if (letter != 'H' && letter != 'W') {
+				previous = digit;
+			}
+		}
+		if (code.length() == 0) {
+			return null;
+		}
+		while (code.length() < 4) {
+			code.append('0');
+		}
+		return code.toString();
+	}
+
+	/**
+	 * Trigrams of a word padded with two leading and trailing markers, so that a single edit leaves at least one
+	 * trigram in common with words of two letters or more
+	 */
+	static Set<String> trigrams(String word) {
+		String padded = "$$" + word + "$$";
+		Set<String> trigrams = new LinkedHashSet<String>();
+		for (int i = 0; i + 3 <= padded.length(); i++) {
+			trigrams.add(padded.substring(i, i + 3));
+		}
+		return trigrams;
+	}
+
+	/**
+	 * Number of insertions, deletions, substitutions and transpositions of adjacent letters between two words
+	 */
+	static int editDistance(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			d[i][0] = i;
+		}
+		for (int j = 0; j <= b.length(); j++) {
+			d[0][j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			for (int j = 1; j <= b.length(); j++) {
+				int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+				d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+				if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+					d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+
+	/**
+	 * Growable set of ints, much smaller than a set of Integers for the millions of postings of a large database
+	 */
+	private static final class Postings {
+
+		private int[] values = new int[2];
+
+		private int size = 0;
+
+		/**
+		 * Callers never add a value twice, the tokens of a person are de-duplicated and its previous postings removed
+		 */
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		void remove(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					values[i] = values[--size];
+					return;
+				}
+			}
+		}
+	}
+}
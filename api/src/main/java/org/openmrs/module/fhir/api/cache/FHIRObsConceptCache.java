@@ -0,0 +1,129 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Ids of the concepts whose obs are served as Conditions, configured by
+ * {@link FHIRConstants#CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS}, and as AllergyIntolerances, configured by
+ * {@link FHIRConstants#OBS_ALLERGY_STRATEGY_CONCEPT_UUID}. The global properties are parsed on first use rather than on
+ * every request.
+ * <p>
+ * The module activator clears the cache when one of the global properties changes. Until the module is started the
+ * cache is disabled and every call reads the global properties.
+ */
+public class FHIRObsConceptCache {
+
+	private static final Log log = LogFactory.getLog(FHIRObsConceptCache.class);
+
+	private static final FHIRObsConceptCache instance = new FHIRObsConceptCache();
+
+	private boolean enabled = false;
+
+	private Set<Integer> conditionConceptIds;
+
+	private Set<Integer> allergyConceptIds;
+
+	public static FHIRObsConceptCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return ids of the concepts of the obs which are Conditions, empty if none is configured
+	 */
+	public Set<Integer> getConditionConceptIds() {
+		synchronized (this) {
+			if (conditionConceptIds != null && enabled) {
+				return conditionConceptIds;
+			}
+		}
+		Set<Integer> conceptIds = parseConceptIds(Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS));
+		synchronized (this) {
+			conditionConceptIds = conceptIds;
+		}
+		return conceptIds;
+	}
+
+	/**
+	 * @return id of the concept of the obs which are AllergyIntolerances, or an empty set if it is not configured
+	 */
+	public Set<Integer> getAllergyConceptIds() {
+		synchronized (this) {
+			if (allergyConceptIds != null && enabled) {
+				return allergyConceptIds;
+			}
+		}
+		Set<Integer> conceptIds = Collections.emptySet();
+		String uuid = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.OBS_ALLERGY_STRATEGY_CONCEPT_UUID);
+		if (StringUtils.isNotBlank(uuid)) {
+			Concept concept = Context.getConceptService().getConceptByUuid(uuid.trim());
+			if (concept != null) {
+				conceptIds = Collections.singleton(concept.getConceptId());
+			} else {
+				log.warn("No concept found for " + FHIRConstants.OBS_ALLERGY_STRATEGY_CONCEPT_UUID + " " + uuid);
+			}
+		}
+		synchronized (this) {
+			allergyConceptIds = conceptIds;
+		}
+		return conceptIds;
+	}
+
+	/**
+	 * @param conceptIds comma separated concept ids
+	 * @return the valid ids, in the order of the list
+	 */
+	static Set<Integer> parseConceptIds(String conceptIds) {
+		if (StringUtils.isBlank(conceptIds)) {
+			return Collections.emptySet();
+		}
+		Set<Integer> ids = new LinkedHashSet<Integer>();
+		for (String id : conceptIds.split(",")) {
+			String trimmed = id.trim();
+			if (StringUtils.isNumeric(trimmed) && !trimmed.isEmpty()) {
+				ids.add(Integer.valueOf(trimmed));
+			} else if (!trimmed.isEmpty()) {
+				log.warn("Ignoring " + trimmed + " in " + FHIRConstants.CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS
+						+ ", it is not a concept id");
+			}
+		}
+		return Collections.unmodifiableSet(ids);
+	}
+
+	public synchronized void clear() {
+		conditionConceptIds = null;
+		allergyConceptIds = null;
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+}
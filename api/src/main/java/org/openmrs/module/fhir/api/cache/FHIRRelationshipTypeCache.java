@@ -0,0 +1,113 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves the code of a FHIR relationship coding to an OpenMRS relationship type, without loading and scanning all
+ * the relationship types on every write. A code is either the A is to B or the B is to A name of the type, and the
+ * cache tells which of the two it matched.
+ * <p>
+ * The relationship types are loaded on first use and dropped by {@link ResourceCacheInvalidationAdvice} when one of
+ * them is saved, retired or purged. Until the module is started the cache is disabled and every call reads the
+ * database.
+ */
+public class FHIRRelationshipTypeCache {
+
+	private static final FHIRRelationshipTypeCache instance = new FHIRRelationshipTypeCache();
+
+	private boolean enabled = false;
+
+	private Map<String, Direction> directionsByCode;
+
+	public static FHIRRelationshipTypeCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param code A is to B or B is to A name of a relationship type
+	 * @return id of the matching relationship type and whether the code is its A is to B name, or null if there is none
+	 */
+	public Direction getDirection(String code) {
+		if (StringUtils.isEmpty(code)) {
+			return null;
+		}
+		Map<String, Direction> byCode;
+		synchronized (this) {
+			if (directionsByCode == null || !enabled) {
+				load();
+			}
+			byCode = directionsByCode;
+		}
+		return byCode.get(code);
+	}
+
+	private void load() {
+		// Types are scanned in id order and A is to B names come first, like a linear scan of the types would
+		Map<String, Direction> byCode = new HashMap<String, Direction>();
+		List<Object[]> types = FHIRUtils.getFHIRDAO().getRelationshipTypes();
+		for (Object[] type : types) {
+			Integer id = (Integer) type[0];
+			if (type[1] != null && !byCode.containsKey(type[1])) {
+				byCode.put((String) type[1], new Direction(id, true));
+			}
+			if (type[2] != null && !byCode.containsKey(type[2])) {
+				byCode.put((String) type[2], new Direction(id, false));
+			}
+		}
+		directionsByCode = byCode;
+	}
+
+	public synchronized void clear() {
+		directionsByCode = null;
+	}
+
+	public synchronized boolean isEnabled() {
+		return enabled;
+	}
+
+	public synchronized void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		clear();
+	}
+
+	public static class Direction {
+
+		private final Integer relationshipTypeId;
+
+		private final boolean aIsToB;
+
+		public Direction(Integer relationshipTypeId, boolean aIsToB) {
+			this.relationshipTypeId = relationshipTypeId;
+			this.aIsToB = aIsToB;
+		}
+
+		public Integer getRelationshipTypeId() {
+			return relationshipTypeId;
+		}
+
+		/**
+		 * @return true if the code is the A is to B name of the type, false if it is the B is to A name
+		 */
+		public boolean isAIsToB() {
+			return aIsToB;
+		}
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.openmrs.module.fhir.api.util.FHIRFieldMask;
+
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of generated FHIR resources, so that popular resources are not hydrated and mapped from
+ * OpenMRS entities on every read.
+ * <p>
+ * Resources are held as serialized JSON, keyed by resource type and uuid, and every read returns a fresh copy which
+ * the caller is free to modify. The cache is a LRU bounded by the total size of the serialized resources. Entries are
+ * invalidated by {@link ResourceCacheInvalidationAdvice} when the underlying OpenMRS entities are saved, voided,
+ * retired or purged.
+ */
+public class FHIRResourceCache {
+
+	protected static final Log log = LogFactory.getLog(FHIRResourceCache.class);
+
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final FhirContext ctx = FhirContext.forDstu3();
+
+	/**
+	 * Disabled until the module is started and the configured size is applied
+	 */
+	private static final FHIRResourceCache instance = new FHIRResourceCache(0);
+
+	/**
+	 * Loads a resource from OpenMRS when it is not cached
+	 */
+	public interface ResourceLoader<T extends Resource> {
+
+		/**
+		 * @return the generated resource, or null if there is no resource for the uuid
+		 */
+		T load();
+	}
+
+	/**
+	 * Builds the display string of a reference to a resource when it is not cached
+	 */
+	public interface DisplayLoader {
+
+		/**
+		 * @return the display string of the reference
+		 */
+		String load();
+	}
+
+	/**
+	 * Maximum number of cached reference display strings
+	 */
+	public static final int MAX_CACHED_DISPLAYS = 10000;
+
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(64, 0.75f, true);
+
+	/**
+	 * Display strings of references, keyed like the resources and invalidated along with them
+	 */
+	private final LinkedHashMap<String, String> displays = new LinkedHashMap<String, String>(64, 0.75f, true) {
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_CACHED_DISPLAYS;
+		}
+	};
+
+	/**
+	 * Names of the resource types which were ever cached, so that the entries of a uuid are looked up by key
+	 */
+	private final Set<String> typeNames = new HashSet<String>();
+
+	private long maxSizeInBytes;
+
+	private long sizeInBytes = 0;
+
+	/**
+	 * Incremented by every invalidation, so that a resource loaded before an invalidation is not cached after it
+	 */
+	private long generation = 0;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	FHIRResourceCache(long maxSizeInBytes) {
+		this.maxSizeInBytes = maxSizeInBytes;
+	}
+
+	public static FHIRResourceCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Get a resource from the cache, loading and caching it if it is not present
+	 *
+	 * @param type   resource type
+	 * @param uuid   uuid of the resource
+	 * @param loader generates the resource on a cache miss
+	 * @return a copy of the cached resource, or the loaded resource
+	 */
+	public <T extends Resource> T get(Class<T> type, String uuid, ResourceLoader<T> loader) {
+		if (uuid == null || !isEnabled()) {
+			return loader.load();
+		}
+		String key = getKey(type, uuid);
+		byte[] cached;
+		long loadGeneration;
+		synchronized (this) {
+			cached = entries.get(key);
+			loadGeneration = generation;
+		}
+		if (cached != null) {
+			hits.incrementAndGet();
+			return parse(type, cached);
+		}
+
+		misses.incrementAndGet();
+		T resource = loader.load();
+		// Resources generated for a request which masks some of their elements are incomplete, they are not kept
+		if (resource != null && FHIRFieldMask.isComplete(type.getSimpleName())) {
+			put(type, key, serialize(resource), loadGeneration);
+		}
+		return resource;
+	}
+
+	/**
+	 * Get the display string of a reference to a resource, building and caching it if it is not present
+	 *
+	 * @param type   resource type
+	 * @param uuid   uuid of the resource
+	 * @param loader builds the display string on a cache miss
+	 * @return the display string
+	 */
+	public String getDisplay(Class<? extends Resource> type, String uuid, DisplayLoader loader) {
+		if (uuid == null || !isEnabled()) {
+			return loader.load();
+		}
+		String key = getKey(type, uuid);
+		long loadGeneration;
+		synchronized (this) {
+			String cached = displays.get(key);
+			if (cached != null) {
+				return cached;
+			}
+			loadGeneration = generation;
+		}
+		String display = loader.load();
+		synchronized (this) {
+			if (display != null && loadGeneration == generation) {
+				typeNames.add(type.getSimpleName());
+				displays.put(key, display);
+			}
+		}
+		return display;
+	}
+
+	private synchronized void put(Class<? extends Resource> type, String key, byte[] serialized, long loadGeneration) {
+		if (loadGeneration != generation || serialized.length > maxSizeInBytes) {
+			return;
+		}
+		typeNames.add(type.getSimpleName());
+		byte[] previous = entries.put(key, serialized);
+		if (previous != null) {
+			sizeInBytes -= previous.length;
+		}
+		sizeInBytes += serialized.length;
+		evict();
+	}
+
+	private void evict() {
+		Iterator<byte[]> eldest = entries.values().iterator();
+		while (sizeInBytes > maxSizeInBytes && eldest.hasNext()) {
+			sizeInBytes -= eldest.next().length;
+			eldest.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Remove the cached resources of any type which have the given uuid
+	 *
+	 * @param uuid uuid of the resources
+	 */
+	public synchronized void invalidate(String uuid) {
+		generation++;
+		for (String typeName : typeNames) {
+			String key = typeName + "/" + uuid;
+			byte[] removed = entries.remove(key);
+			if (removed != null) {
+				sizeInBytes -= removed.length;
+				invalidations.incrementAndGet();
+			}
+			displays.remove(key);
+		}
+	}
+
+	/**
+	 * Remove all the cached resources of a type
+	 *
+	 * @param type resource type
+	 */
+	public synchronized void invalidateAll(Class<? extends Resource> type) {
+		generation++;
+		String prefix = type.getSimpleName() + "/";
+		Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<String, byte[]> entry = iterator.next();
+			if (entry.getKey().startsWith(prefix)) {
+				sizeInBytes -= entry.getValue().length;
+				iterator.remove();
+				invalidations.incrementAndGet();
+			}
+		}
+		Iterator<String> keys = displays.keySet().iterator();
+		while (keys.hasNext()) {
+			if (keys.next().startsWith(prefix)) {
+				keys.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		generation++;
+		invalidations.addAndGet(entries.size());
+		entries.clear();
+		displays.clear();
+		sizeInBytes = 0;
+	}
+
+	/**
+	 * Change the maximum size of the cache, evicting resources if needed. A size of zero disables the cache.
+	 *
+	 * @param maxSizeInBytes maximum total size of the serialized resources
+	 */
+	public synchronized void setMaxSizeInBytes(long maxSizeInBytes) {
+		this.maxSizeInBytes = Math.max(0, maxSizeInBytes);
+		evict();
+		if (this.maxSizeInBytes == 0) {
+			displays.clear();
+		}
+	}
+
+	public synchronized long getMaxSizeInBytes() {
+		return maxSizeInBytes;
+	}
+
+	public synchronized boolean isEnabled() {
+		return maxSizeInBytes > 0;
+	}
+
+	public synchronized long getSizeInBytes() {
+		return sizeInBytes;
+	}
+
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	public long getInvalidations() {
+		return invalidations.get();
+	}
+
+	/**
+	 * @return share of the reads which were served from the cache, between 0 and 1
+	 */
+	public double getHitRatio() {
+		long hitCount = hits.get();
+		long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	public String getSummary() {
+		return String.format("FHIR resource cache: %d resources, %d/%d bytes, hit ratio %.2f (%d hits, %d misses), "
+						+ "%d evictions, %d invalidations", getSize(), getSizeInBytes(), getMaxSizeInBytes(), getHitRatio(),
+				getHits(), getMisses(), getEvictions(), getInvalidations());
+	}
+
+	private static String getKey(Class<? extends Resource> type, String uuid) {
+		return type.getSimpleName() + "/" + uuid;
+	}
+
+	private static byte[] serialize(Resource resource) {
+		return newParser().encodeResourceToString(resource).getBytes(UTF_8);
+	}
+
+	private static <T extends Resource> T parse(Class<T> type, byte[] serialized) {
+		return newParser().parseResource(type, new String(serialized, UTF_8));
+	}
+
+	private static IParser newParser() {
+		// Parsers are not thread safe, but cheap to create
+		return ctx.newJsonParser();
+	}
+}
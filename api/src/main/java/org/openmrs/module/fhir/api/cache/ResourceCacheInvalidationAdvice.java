@@ -0,0 +1,200 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Location;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.EncounterType;
+import org.openmrs.LocationAttribute;
+import org.openmrs.LocationTag;
+import org.openmrs.OpenmrsObject;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.Person;
+import org.openmrs.PersonAddress;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonName;
+import org.openmrs.Provider;
+import org.openmrs.RelationshipType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandlerRegistry;
+import org.springframework.aop.AfterReturningAdvice;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * Invalidates {@link FHIRResourceCache} entries, {@link FHIRIdentifierTypeCache}, {@link FHIRRelationshipTypeCache},
+ * {@link FHIRConceptCache}, the encounter type index of {@link DiagnosticReportHandlerRegistry} and updates
+ * {@link FHIRLocationIndex} and {@link FHIRNameIndex} when OpenMRS entities are changed through the core services.
+ * Registered in config.xml on the services which manage the cached resources. Within a transaction the changes are
+ * applied once it has committed, and dropped if it is rolled back.
+ */
+public class ResourceCacheInvalidationAdvice implements AfterReturningAdvice {
+
+	private static final Log log = LogFactory.getLog(ResourceCacheInvalidationAdvice.class);
+
+	private static final String[] MODIFYING_METHOD_PREFIXES = { "save", "void", "unvoid", "retire", "unretire",
+			"purge", "delete", "merge", "update", "change" };
+
+	@Override
+	public void afterReturning(Object returnValue, Method method, Object[] args, Object target) {
+		if (!isModifyingMethod(method.getName()) || args == null) {
+			return;
+		}
+		final boolean purged = method.getName().startsWith("purge") || method.getName().startsWith("delete");
+		final Object[] changes = args.clone();
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			apply(changes, purged);
+			return;
+		}
+		// Until the transaction commits, a concurrent read would cache the old state again, and a rollback would leave
+		// the indexes ahead of the database
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+			@Override
+			public void afterCommit() {
+				apply(changes, purged);
+			}
+		});
+	}
+
+	private void apply(Object[] changes, boolean purged) {
+		FHIRResourceCache cache = FHIRResourceCache.getInstance();
+		for (Object arg : changes) {
+			if (arg instanceof Collection) {
+				for (Object element : (Collection<?>) arg) {
+					invalidate(cache, element);
+					updateLocationIndex(element, purged);
+					updateNameIndex(element, purged);
+				}
+			} else {
+				invalidate(cache, arg);
+				updateLocationIndex(arg, purged);
+				updateNameIndex(arg, purged);
+			}
+		}
+	}
+
+	private void updateLocationIndex(Object changed, boolean purged) {
+		FHIRLocationIndex index = FHIRLocationIndex.getInstance();
+		if (changed instanceof org.openmrs.Location) {
+			if (purged) {
+				index.remove((org.openmrs.Location) changed);
+			} else {
+				index.update((org.openmrs.Location) changed);
+			}
+		} else if (changed instanceof LocationAttribute && ((LocationAttribute) changed).getLocation() != null) {
+			index.update(((LocationAttribute) changed).getLocation());
+		} else if (changed instanceof LocationTag && index.isLoaded() && ((LocationTag) changed).getId() != null) {
+			// Tags are part of the indexed resources of the locations which carry them
+			for (org.openmrs.Location location : Context.getLocationService().getLocationsByTag((LocationTag) changed)) {
+				index.update(location);
+			}
+		}
+	}
+
+	private void updateNameIndex(Object changed, boolean purged) {
+		FHIRNameIndex index = FHIRNameIndex.getInstance();
+		if (!index.isUpdated()) {
+			return;
+		}
+		if (changed instanceof Person) {
+			if (purged) {
+				index.remove((Person) changed);
+			} else {
+				index.update((Person) changed);
+			}
+		} else if (changed instanceof PersonName && ((PersonName) changed).getPerson() != null) {
+			index.update(((PersonName) changed).getPerson());
+		}
+	}
+
+	private void invalidate(FHIRResourceCache cache, Object changed) {
+		if (!(changed instanceof OpenmrsObject)) {
+			return;
+		}
+		if (changed instanceof PatientIdentifierType) {
+			FHIRIdentifierTypeCache.getInstance().clear();
+		}
+		if (changed instanceof RelationshipType) {
+			FHIRRelationshipTypeCache.getInstance().clear();
+		}
+		if (changed instanceof EncounterType) {
+			// Handlers are matched by the name of the encounter type
+			DiagnosticReportHandlerRegistry.getInstance().clearEncounterTypeIndex();
+		}
+		if (changed instanceof Concept || changed instanceof ConceptName || changed instanceof ConceptMap
+				|| changed instanceof ConceptReferenceTerm || changed instanceof ConceptSource) {
+			// A renamed or remapped concept can change the concept of any cached code or name
+			FHIRConceptCache.getInstance().clear();
+		}
+		Person person = getPerson(changed);
+		if (person != null) {
+			cache.invalidate(person.getUuid());
+			// Practitioners are keyed by provider uuid, but carry the name and identifiers of the person
+			if (person.getId() != null) {
+				for (Provider provider : Context.getProviderService().getProvidersByPerson(person, true)) {
+					cache.invalidate(provider.getUuid());
+				}
+			}
+		}
+		if (changed instanceof LocationTag) {
+			cache.invalidateAll(Location.class);
+		} else if (changed instanceof LocationAttribute && ((LocationAttribute) changed).getLocation() != null) {
+			cache.invalidate(((LocationAttribute) changed).getLocation().getUuid());
+		} else if (changed instanceof Provider && ((Provider) changed).getPerson() != null) {
+			cache.invalidate(((Provider) changed).getPerson().getUuid());
+		}
+		String uuid = ((OpenmrsObject) changed).getUuid();
+		if (uuid != null) {
+			cache.invalidate(uuid);
+		}
+		if (log.isDebugEnabled()) {
+			log.debug("Invalidated cached FHIR resources of " + changed.getClass().getSimpleName() + " " + uuid);
+		}
+	}
+
+	private Person getPerson(Object changed) {
+		if (changed instanceof Person) {
+			return (Person) changed;
+		} else if (changed instanceof PersonName) {
+			return ((PersonName) changed).getPerson();
+		} else if (changed instanceof PersonAddress) {
+			return ((PersonAddress) changed).getPerson();
+		} else if (changed instanceof PersonAttribute) {
+			return ((PersonAttribute) changed).getPerson();
+		} else if (changed instanceof PatientIdentifier) {
+			return ((PatientIdentifier) changed).getPatient();
+		}
+		return null;
+	}
+
+	private boolean isModifyingMethod(String methodName) {
+		for (String prefix : MODIFYING_METHOD_PREFIXES) {
+			if (methodName.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
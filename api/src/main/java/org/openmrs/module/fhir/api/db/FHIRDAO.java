@@ -13,6 +13,27 @@
  */
 package org.openmrs.module.fhir.api.db;
 
+import org.openmrs.Allergy;
+import org.openmrs.DrugOrder;
+import org.openmrs.Encounter;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.Relationship;
+import org.openmrs.Visit;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * Database methods for FHIR Module
  */
@@ -21,4 +42,247 @@ public interface FHIRDAO {
 	/*
 	 * Add DAO methods here
 	 */
+
+	/**
+	 * Search locations, ordered by name
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first location to return, starting at 0
+	 * @param maxResults  maximum number of locations to return, or null for all of them
+	 * @return matching locations
+	 */
+	List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of locations matching the criteria
+	 */
+	long getLocationCount(LocationSearchCriteria criteria);
+
+	/**
+	 * Get the location tree without loading the locations
+	 *
+	 * @return location id, uuid, name, retired flag and parent location id of every location
+	 */
+	List<Object[]> getLocationTree();
+
+	/**
+	 * Search visits, the most recently started first
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first visit to return, starting at 0
+	 * @param maxResults  maximum number of visits to return, or null for all of them
+	 * @return matching visits
+	 */
+	List<Visit> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of visits matching the criteria
+	 */
+	long getVisitCount(VisitSearchCriteria criteria);
+
+	/**
+	 * Get the non voided encounters of many patients in one query. Locations and encounter providers of the
+	 * encounters are fetched along with them.
+	 *
+	 * @param patientIds ids of the patients
+	 * @param partOf     uuid of the visit the encounters belong to, {@link org.openmrs.module.fhir.api.util.FHIRConstants#NONE}
+	 *                   for encounters without a visit, or null for all encounters
+	 * @return encounters ordered by patient and encounter date
+	 */
+	List<Encounter> getEncountersByPatientIds(Collection<Integer> patientIds, String partOf);
+
+	/**
+	 * Get the non voided visits of many patients in one query. Locations of the visits are fetched along with them.
+	 *
+	 * @param patientIds ids of the patients
+	 * @return visits ordered by patient, the most recently started first
+	 */
+	List<Visit> getVisitsByPatientIds(Collection<Integer> patientIds);
+
+	/**
+	 * Search providers whose person has a non voided name with the given given name and/or family name. Names are
+	 * compared with the collation of the person_name columns, which is case insensitive on the default OpenMRS
+	 * database, so that the indexes on given_name and family_name can be used. Retired providers are excluded.
+	 *
+	 * @param givenName   given name, or null to match any given name
+	 * @param familyName  family name, or null to match any family name
+	 * @param firstResult index of the first provider to return, starting at 0
+	 * @param maxResults  maximum number of providers to return, or null for all of them
+	 * @return uuids of the matching providers, each at most once, ordered by provider id
+	 */
+	List<String> searchProviderUuidsByPersonName(String givenName, String familyName, Integer firstResult,
+	                                             Integer maxResults);
+
+	/**
+	 * @param givenName  given name, or null to match any given name
+	 * @param familyName family name, or null to match any family name
+	 * @return number of providers matched by {@link #searchProviderUuidsByPersonName(String, String, Integer, Integer)}
+	 */
+	long getProviderCountByPersonName(String givenName, String familyName);
+
+	/**
+	 * @return rows of (patientIdentifierTypeId, uuid, name) of all the patient identifier types, retired ones included
+	 */
+	List<Object[]> getPatientIdentifierTypes();
+
+	/**
+	 * @return rows of (relationshipTypeId, aIsToB, bIsToA) of the relationship types which are not retired, ordered by id
+	 */
+	List<Object[]> getRelationshipTypes();
+
+	/**
+	 * Get the relationships of many persons in a constant number of queries. The relationship types and both persons
+	 * of every relationship are fetched in the same query, and the names of the persons are loaded in bulk.
+	 *
+	 * @param personIds ids of the persons, either as person A or person B
+	 * @param activeOn  relationships which have not started yet or have ended at this instant are excluded, null to
+	 *                  include all of them
+	 * @return non voided relationships of the persons, ordered by id
+	 */
+	List<Relationship> getRelationshipsByPersons(Collection<Integer> personIds, Date activeOn);
+
+	/**
+	 * Get the non voided patients having a non voided identifier with exactly the given value. The lookup uses the
+	 * index on patient_identifier.identifier.
+	 *
+	 * @param identifier       identifier value
+	 * @param identifierTypeId id of the identifier type, or null for any type
+	 * @return matching patients, each at most once, ordered by patient id
+	 */
+	List<Patient> getPatientsByIdentifier(String identifier, Integer identifierTypeId);
+
+	/**
+	 * Search non voided patients having a non voided name which matches the criteria. Names are compared with the
+	 * collation of the person_name columns, which is case insensitive on the default OpenMRS database.
+	 *
+	 * @param criteria    name filters
+	 * @param firstResult index of the first patient to return, starting at 0
+	 * @param maxResults  maximum number of patients to return, or null for all of them
+	 * @return matching patients, each at most once, ordered by patient id
+	 */
+	List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria name filters
+	 * @return number of patients matching the criteria
+	 */
+	long getPatientCountByName(PatientNameSearchCriteria criteria);
+
+	/**
+	 * The rows are read from the database a page at a time while iterating, rather than loaded at once, so the
+	 * iterator has to be consumed within the calling transaction.
+	 *
+	 * @return rows of (personId, givenName, middleName, familyName, familyName2, personNameId) of the non voided names
+	 * of the non voided persons, ordered by person
+	 */
+	Iterator<Object[]> getPersonNameRows();
+
+	/**
+	 * Like {@link #getPersonNameRows()}, the ids are read a page at a time while iterating.
+	 *
+	 * @return ids of the non voided patients
+	 */
+	Iterator<Integer> getPatientIds();
+
+	/**
+	 * @param patientIds ids of the patients
+	 * @return the non voided patients among them, in the order of the ids
+	 */
+	List<Patient> getPatientsByIds(Collection<Integer> patientIds);
+
+	/**
+	 * @param personIds ids of the persons
+	 * @return the non voided persons among them, in the order of the ids
+	 */
+	List<Person> getPersonsByIds(Collection<Integer> personIds);
+
+	/**
+	 * Search allergies, ordered by patient id. The patients, reactions, allergen and reaction concepts of the returned
+	 * allergies are fetched in bulk, along with the names and mappings of the concepts, so that they can be converted
+	 * without a query per allergy.
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first allergy to return, starting at 0
+	 * @param maxResults  maximum number of allergies to return, or null for all of them
+	 * @return matching allergies
+	 */
+	List<Allergy> searchAllergies(AllergySearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of allergies matching the criteria
+	 */
+	long getAllergyCount(AllergySearchCriteria criteria);
+
+	/**
+	 * Search obs of a set of concepts, most recent first. The restriction on the concepts is applied by the database,
+	 * so the other obs of the patients are not read. The persons, encounters and concepts of the returned obs are
+	 * fetched in bulk, along with the names and mappings of their concepts and coded values.
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first obs to return, starting at 0
+	 * @param maxResults  maximum number of obs to return, or null for all of them
+	 * @return matching obs
+	 */
+	List<Obs> searchObs(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of obs matching the criteria
+	 */
+	long getObsCount(ObsSearchCriteria criteria);
+
+	/**
+	 * Search drug orders, most recently activated first. Other order types are not read. The patient, encounter,
+	 * orderer, drug, route, frequency and unit concepts of the returned orders are fetched in the same query, along
+	 * with the names and mappings of their concepts.
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first order to return, starting at 0
+	 * @param maxResults  maximum number of orders to return, or null for all of them
+	 * @return matching drug orders
+	 */
+	List<DrugOrder> searchDrugOrders(DrugOrderSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	/**
+	 * @param criteria filters of the search
+	 * @return number of drug orders matching the criteria
+	 */
+	long getDrugOrderCount(DrugOrderSearchCriteria criteria);
+
+	/**
+	 * @param uuid uuid of an encounter
+	 * @return id of the encounter type of the encounter, or null if there is no encounter with the uuid
+	 */
+	Integer getEncounterTypeIdByEncounterUuid(String uuid);
+
+	/**
+	 * Load what DiagnosticReports are built from for many report encounters in a constant number of queries: the
+	 * encounter types and providers, the obs and their group members, and the names and identifiers of the patients.
+	 *
+	 * @param encounterIds ids of the report encounters
+	 * @param withConcepts whether to load the names and mappings of the concepts of the obs as well
+	 */
+	void initializeReportEncounters(Collection<Integer> encounterIds, boolean withConcepts);
+
+	/**
+	 * @param encounterUuid uuid of the local copy of a report of a third party server
+	 * @return version of the remote report the local copy was last populated from, or null if it was never synced
+	 */
+	String getRemoteReportVersion(String encounterUuid);
+
+	/**
+	 * @param encounterUuid uuid of the local copy of a report of a third party server
+	 * @param version       version of the remote report the local copy was populated from
+	 */
+	void saveRemoteReportVersion(String encounterUuid, String version);
+
+	/**
+	 * @param encounterUuid uuid of the local copy of a report of a third party server
+	 * @param version       version of the remote report which failed to sync, may be null
+	 * @return number of consecutive failed attempts to sync this version of the report
+	 */
+	int saveRemoteReportFailure(String encounterUuid, String version);
 }
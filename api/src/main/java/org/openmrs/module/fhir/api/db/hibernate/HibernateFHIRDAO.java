@@ -13,10 +13,52 @@
  */
 package org.openmrs.module.fhir.api.db.hibernate;
 
+import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.StringType;
+import org.openmrs.Allergy;
+import org.openmrs.AllergyReaction;
+import org.openmrs.DrugOrder;
+import org.openmrs.Encounter;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.Relationship;
+import org.openmrs.Visit;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * It is a default implementation of  {@link FHIRDAO}.
@@ -24,6 +66,22 @@ import org.openmrs.module.fhir.api.db.FHIRDAO;
 public class HibernateFHIRDAO implements FHIRDAO {
 
 	protected final Log log = LogFactory.getLog(this.getClass());
+
+	/**
+	 * Maximum number of ids bound to a single IN restriction
+	 */
+	private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+	/**
+	 * Escape character of the like patterns, declared in every like clause rather than relying on the default of the
+	 * database. A backslash would need escaping itself in MySQL string literals.
+	 */
+	private static final char LIKE_ESCAPE = '!';
+
+	/**
+	 * Number of person name and patient id rows fetched from the database by one keyset paged query
+	 */
+	private static final int NAME_ROWS_PAGE_SIZE = 10000;
 	
 	private SessionFactory sessionFactory;
 	
@@ -40,4 +98,986 @@ public class HibernateFHIRDAO implements FHIRDAO {
 	public void setSessionFactory(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
+
+	/**
+	 * @see FHIRDAO#searchLocations(LocationSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		Criteria query = createLocationCriteria(criteria);
+		query.addOrder(Order.asc("name")).addOrder(Order.asc("locationId"));
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		return query.list();
+	}
+
+	/**
+	 * @see FHIRDAO#getLocationCount(LocationSearchCriteria)
+	 */
+	@Override
+	public long getLocationCount(LocationSearchCriteria criteria) {
+		Criteria query = createLocationCriteria(criteria);
+		query.setProjection(Projections.rowCount());
+		return ((Number) query.uniqueResult()).longValue();
+	}
+
+	/**
+	 * @see FHIRDAO#getLocationTree()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getLocationTree() {
+		return sessionFactory.getCurrentSession().createQuery(
+				"select l.locationId, l.uuid, l.name, l.retired, p.locationId from Location l left join l.parentLocation p")
+				.list();
+	}
+
+	private Criteria createLocationCriteria(LocationSearchCriteria criteria) {
+		Criteria query = sessionFactory.getCurrentSession().createCriteria(Location.class);
+		if (criteria.getActive() != null) {
+			query.add(Restrictions.eq("retired", !criteria.getActive()));
+		}
+		if (StringUtils.isNotBlank(criteria.getName())) {
+			query.add(Restrictions.ilike("name", criteria.getName(), MatchMode.START));
+		}
+		if (StringUtils.isNotBlank(criteria.getPartOf())) {
+			query.createAlias("parentLocation", "parent").add(Restrictions.eq("parent.uuid", criteria.getPartOf()));
+		}
+		if (StringUtils.isNotBlank(criteria.getCity())) {
+			query.add(Restrictions.ilike("cityVillage", criteria.getCity(), MatchMode.START));
+		}
+		if (StringUtils.isNotBlank(criteria.getState())) {
+			query.add(Restrictions.ilike("stateProvince", criteria.getState(), MatchMode.START));
+		}
+		if (StringUtils.isNotBlank(criteria.getCountry())) {
+			query.add(Restrictions.ilike("country", criteria.getCountry(), MatchMode.START));
+		}
+		if (StringUtils.isNotBlank(criteria.getPostalCode())) {
+			query.add(Restrictions.ilike("postalCode", criteria.getPostalCode(), MatchMode.START));
+		}
+		return query;
+	}
+
+	/**
+	 * @see FHIRDAO#searchVisits(VisitSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Visit> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		Criteria query = createVisitCriteria(criteria);
+		query.addOrder(Order.desc("startDatetime")).addOrder(Order.desc("visitId"));
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		return query.list();
+	}
+
+	/**
+	 * @see FHIRDAO#getVisitCount(VisitSearchCriteria)
+	 */
+	@Override
+	public long getVisitCount(VisitSearchCriteria criteria) {
+		Criteria query = createVisitCriteria(criteria);
+		query.setProjection(Projections.rowCount());
+		return ((Number) query.uniqueResult()).longValue();
+	}
+
+	private Criteria createVisitCriteria(VisitSearchCriteria criteria) {
+		Criteria query = sessionFactory.getCurrentSession().createCriteria(Visit.class);
+		if (criteria.getVoided() != null) {
+			query.add(Restrictions.eq("voided", criteria.getVoided()));
+		}
+		if (criteria.getInProgress() != null) {
+			query.add(criteria.getInProgress() ? Restrictions.isNull("stopDatetime")
+					: Restrictions.isNotNull("stopDatetime"));
+		}
+		if (StringUtils.isNotBlank(criteria.getPatient())) {
+			query.createAlias("patient", "patient").add(Restrictions.eq("patient.uuid", criteria.getPatient()));
+		}
+		if (StringUtils.isNotBlank(criteria.getLocation())) {
+			query.createAlias("location", "location").add(Restrictions.eq("location.uuid", criteria.getLocation()));
+		}
+		if (criteria.getFrom() != null) {
+			query.add(Restrictions.or(Restrictions.isNull("stopDatetime"),
+					Restrictions.ge("stopDatetime", criteria.getFrom())));
+		}
+		if (criteria.getTo() != null) {
+			query.add(Restrictions.le("startDatetime", criteria.getTo()));
+		}
+		return query;
+	}
+
+	/**
+	 * @see FHIRDAO#getEncountersByPatientIds(Collection, String)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Encounter> getEncountersByPatientIds(Collection<Integer> patientIds, String partOf) {
+		List<Encounter> encounters = new ArrayList<Encounter>();
+		for (List<Integer> chunk : partition(patientIds)) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Encounter.class);
+			query.add(Restrictions.in("patient.patientId", chunk));
+			query.add(Restrictions.eq("voided", false));
+			if (FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
+				query.add(Restrictions.isNull("visit"));
+			} else if (partOf != null) {
+				query.createAlias("visit", "visit").add(Restrictions.eq("visit.uuid", partOf));
+			}
+			query.setFetchMode("location", FetchMode.JOIN);
+			query.setFetchMode("encounterProviders", FetchMode.JOIN);
+			query.setFetchMode("encounterProviders.provider", FetchMode.JOIN);
+			query.setFetchMode("encounterProviders.encounterRole", FetchMode.JOIN);
+			query.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+			query.addOrder(Order.asc("patient.patientId")).addOrder(Order.asc("encounterDatetime"))
+					.addOrder(Order.asc("encounterId"));
+			encounters.addAll(query.list());
+		}
+		return encounters;
+	}
+
+	/**
+	 * @see FHIRDAO#getVisitsByPatientIds(Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Visit> getVisitsByPatientIds(Collection<Integer> patientIds) {
+		List<Visit> visits = new ArrayList<Visit>();
+		for (List<Integer> chunk : partition(patientIds)) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Visit.class);
+			query.add(Restrictions.in("patient.patientId", chunk));
+			query.add(Restrictions.eq("voided", false));
+			query.setFetchMode("location", FetchMode.JOIN);
+			query.addOrder(Order.asc("patient.patientId")).addOrder(Order.desc("startDatetime"))
+					.addOrder(Order.desc("visitId"));
+			visits.addAll(query.list());
+		}
+		return visits;
+	}
+
+	/**
+	 * @see FHIRDAO#searchProviderUuidsByPersonName(String, String, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<String> searchProviderUuidsByPersonName(String givenName, String familyName, Integer firstResult,
+	                                                    Integer maxResults) {
+		Query query = createProviderByPersonNameQuery("select p.uuid", givenName, familyName, " order by p.providerId");
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		return query.list();
+	}
+
+	/**
+	 * @see FHIRDAO#getProviderCountByPersonName(String, String)
+	 */
+	@Override
+	public long getProviderCountByPersonName(String givenName, String familyName) {
+		Query query = createProviderByPersonNameQuery("select count(p)", givenName, familyName, "");
+		return ((Number) query.uniqueResult()).longValue();
+	}
+
+	/**
+	 * The names are matched in an exists sub query, so a provider with several matching names is returned once. Names
+	 * are compared lower cased, as the default collation of MySQL would, so that the match does not depend on the
+	 * collation of the database.
+	 */
+	private Query createProviderByPersonNameQuery(String select, String givenName, String familyName, String orderBy) {
+		StringBuilder hql = new StringBuilder(select);
+		hql.append(" from Provider p where p.retired = false and exists (select pn.personNameId from PersonName pn")
+				.append(" where pn.person = p.person and pn.voided = false");
+		if (givenName != null) {
+			hql.append(" and lower(pn.givenName) = :givenName");
+		}
+		if (familyName != null) {
+			hql.append(" and lower(pn.familyName) = :familyName");
+		}
+		hql.append(")").append(orderBy);
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		if (givenName != null) {
+			query.setParameter("givenName", givenName.toLowerCase());
+		}
+		if (familyName != null) {
+			query.setParameter("familyName", familyName.toLowerCase());
+		}
+		return query;
+	}
+
+	/**
+	 * @see FHIRDAO#getPatientIdentifierTypes()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getPatientIdentifierTypes() {
+		return sessionFactory.getCurrentSession().createQuery(
+				"select t.patientIdentifierTypeId, t.uuid, t.name from PatientIdentifierType t").list();
+	}
+
+	/**
+	 * @see FHIRDAO#getRelationshipTypes()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getRelationshipTypes() {
+		return sessionFactory.getCurrentSession().createQuery("select t.relationshipTypeId, t.aIsToB, t.bIsToA"
+				+ " from RelationshipType t where t.retired = false order by t.relationshipTypeId").list();
+	}
+
+	/**
+	 * @see FHIRDAO#getRelationshipsByPersons(Collection, Date)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Relationship> getRelationshipsByPersons(Collection<Integer> personIds, Date activeOn) {
+		StringBuilder hql = new StringBuilder("select r from Relationship r join fetch r.relationshipType")
+				.append(" join fetch r.personA a join fetch r.personB b where r.voided = false")
+				.append(" and (a.personId in (:ids) or b.personId in (:ids))");
+		if (activeOn != null) {
+			hql.append(" and (r.startDate is null or r.startDate <= :activeOn)")
+					.append(" and (r.endDate is null or r.endDate >= :activeOn)");
+		}
+		Map<Integer, Relationship> relationships = new HashMap<Integer, Relationship>();
+		Set<Integer> relatedPersonIds = new HashSet<Integer>();
+		for (List<Integer> chunk : partition(personIds)) {
+			Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+			query.setParameterList("ids", chunk);
+			if (activeOn != null) {
+				query.setParameter("activeOn", activeOn);
+			}
+			for (Relationship relationship : (List<Relationship>) query.list()) {
+				relationships.put(relationship.getRelationshipId(), relationship);
+				relatedPersonIds.add(relationship.getPersonA().getPersonId());
+				relatedPersonIds.add(relationship.getPersonB().getPersonId());
+			}
+		}
+		// The names of both sides are loaded separately, to avoid a cartesian product of the two name collections
+		for (List<Integer> chunk : partition(relatedPersonIds)) {
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct p from Person p left join fetch p.names where p.personId in (:ids)")
+					.setParameterList("ids", chunk).list();
+		}
+		return inOrderOf(new TreeSet<Integer>(relationships.keySet()), relationships);
+	}
+
+	/**
+	 * @see FHIRDAO#getPatientsByIdentifier(String, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Patient> getPatientsByIdentifier(String identifier, Integer identifierTypeId) {
+		StringBuilder hql = new StringBuilder("select p from Patient p where p.voided = false and exists (")
+				.append("select pi.patientIdentifierId from PatientIdentifier pi where pi.patient = p")
+				.append(" and pi.identifier = :identifier and pi.voided = false");
+		if (identifierTypeId != null) {
+			hql.append(" and pi.identifierType.patientIdentifierTypeId = :identifierTypeId");
+		}
+		hql.append(") order by p.patientId");
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		query.setParameter("identifier", identifier);
+		if (identifierTypeId != null) {
+			query.setParameter("identifierTypeId", identifierTypeId);
+		}
+		return query.list();
+	}
+
+	/**
+	 * @see FHIRDAO#searchPatientsByName(PatientNameSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult,
+	                                          Integer maxResults) {
+		Query query = createPatientByNameQuery("select p", criteria, " order by p.patientId");
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		return query.list();
+	}
+
+	/**
+	 * @see FHIRDAO#getPatientCountByName(PatientNameSearchCriteria)
+	 */
+	@Override
+	public long getPatientCountByName(PatientNameSearchCriteria criteria) {
+		Query query = createPatientByNameQuery("select count(p)", criteria, "");
+		return ((Number) query.uniqueResult()).longValue();
+	}
+
+	/**
+	 * The names are matched in an exists sub query, so a patient with several matching names is returned once
+	 */
+	private Query createPatientByNameQuery(String select, PatientNameSearchCriteria criteria, String orderBy) {
+		StringBuilder hql = new StringBuilder(select);
+		hql.append(" from Patient p where p.voided = false and exists (select pn.personNameId from PersonName pn")
+				.append(" where pn.person.personId = p.patientId and pn.voided = false");
+		if (criteria.getGivenName() != null) {
+			hql.append(" and pn.givenName").append(getOperator(criteria.getGivenNameMatch())).append(":givenName")
+					.append(getEscapeClause(criteria.getGivenNameMatch()));
+		}
+		if (criteria.getFamilyName() != null) {
+			hql.append(" and pn.familyName").append(getOperator(criteria.getFamilyNameMatch())).append(":familyName")
+					.append(getEscapeClause(criteria.getFamilyNameMatch()));
+		}
+		hql.append(")").append(orderBy);
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		if (criteria.getGivenName() != null) {
+			query.setParameter("givenName", toNamePattern(criteria.getGivenName(), criteria.getGivenNameMatch()));
+		}
+		if (criteria.getFamilyName() != null) {
+			query.setParameter("familyName", toNamePattern(criteria.getFamilyName(), criteria.getFamilyNameMatch()));
+		}
+		return query;
+	}
+
+	private static String getOperator(PatientNameSearchCriteria.Match match) {
+		return match == PatientNameSearchCriteria.Match.EXACT ? " = " : " like ";
+	}
+
+	private static String getEscapeClause(PatientNameSearchCriteria.Match match) {
+		return match == PatientNameSearchCriteria.Match.EXACT ? "" : " escape '" + LIKE_ESCAPE + "'";
+	}
+
+	private static String toNamePattern(String name, PatientNameSearchCriteria.Match match) {
+		if (match == PatientNameSearchCriteria.Match.EXACT) {
+			return name;
+		}
+		// Names are bound as parameters, but like wildcards in them must not widen the match
+		String escaped = name.replace(String.valueOf(LIKE_ESCAPE), LIKE_ESCAPE + "" + LIKE_ESCAPE)
+				.replace("%", LIKE_ESCAPE + "%").replace("_", LIKE_ESCAPE + "_");
+		return match == PatientNameSearchCriteria.Match.CONTAINS ? "%" + escaped + "%" : escaped + "%";
+	}
+
+	/**
+	 * @see FHIRDAO#getPersonNameRows()
+	 */
+	@Override
+	public Iterator<Object[]> getPersonNameRows() {
+		// Each page continues after the last row of the previous one, rather than at an offset, so that it is read
+		// from the primary key and person_id indexes. JDBC drivers such as MySQL Connector/J buffer a whole result
+		// set, even with a fetch size, which these bounded queries avoid.
+		return new KeysetIterator<Object[]>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			protected List<Object[]> nextPage(Object[] last) {
+				Query query = sessionFactory.getCurrentSession().createQuery(
+						"select pn.person.personId, pn.givenName, pn.middleName, pn.familyName, pn.familyName2,"
+								+ " pn.personNameId from PersonName pn where pn.voided = false and pn.person.voided = false"
+								+ (last == null ? "" : " and (pn.person.personId > :personId or (pn.person.personId"
+								+ " = :personId and pn.personNameId > :personNameId))")
+								+ " order by pn.person.personId, pn.personNameId");
+				if (last != null) {
+					query.setParameter("personId", last[0]).setParameter("personNameId", last[5]);
+				}
+				return query.setMaxResults(NAME_ROWS_PAGE_SIZE).list();
+			}
+		};
+	}
+
+	/**
+	 * @see FHIRDAO#getPatientIds()
+	 */
+	@Override
+	public Iterator<Integer> getPatientIds() {
+		return new KeysetIterator<Integer>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			protected List<Integer> nextPage(Integer last) {
+				Query query = sessionFactory.getCurrentSession().createQuery(
+						"select p.patientId from Patient p where p.voided = false"
+								+ (last == null ? "" : " and p.patientId > :patientId") + " order by p.patientId");
+				if (last != null) {
+					query.setParameter("patientId", last);
+				}
+				return query.setMaxResults(NAME_ROWS_PAGE_SIZE).list();
+			}
+		};
+	}
+
+	/**
+	 * @see FHIRDAO#getPatientsByIds(Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Patient> getPatientsByIds(Collection<Integer> patientIds) {
+		Map<Integer, Patient> patients = new HashMap<Integer, Patient>();
+		for (List<Integer> chunk : partition(patientIds)) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Patient.class);
+			query.add(Restrictions.in("patientId", chunk));
+			query.add(Restrictions.eq("voided", false));
+			for (Patient patient : (List<Patient>) query.list()) {
+				patients.put(patient.getPatientId(), patient);
+			}
+		}
+		return inOrderOf(patientIds, patients);
+	}
+
+	/**
+	 * @see FHIRDAO#getPersonsByIds(Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Person> getPersonsByIds(Collection<Integer> personIds) {
+		Map<Integer, Person> persons = new HashMap<Integer, Person>();
+		for (List<Integer> chunk : partition(personIds)) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Person.class);
+			query.add(Restrictions.in("personId", chunk));
+			query.add(Restrictions.eq("voided", false));
+			for (Person person : (List<Person>) query.list()) {
+				persons.put(person.getPersonId(), person);
+			}
+		}
+		return inOrderOf(personIds, persons);
+	}
+
+	/**
+	 * @see FHIRDAO#searchAllergies(AllergySearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Allergy> searchAllergies(AllergySearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		// Allergies are paged by id first, fetch joins with a collection cannot be limited by the database
+		List<Query> queries = createAllergyQueries("select a.allergyId", criteria,
+				" order by a.patient.patientId, a.allergyId");
+		List<Integer> allergyIds = new ArrayList<Integer>();
+		if (queries.size() == 1) {
+			Query query = queries.get(0);
+			if (firstResult != null) {
+				query.setFirstResult(firstResult);
+			}
+			if (maxResults != null) {
+				query.setMaxResults(maxResults);
+			}
+			allergyIds.addAll(query.list());
+		} else {
+			// The chunks follow each other in patient order, so only the rows up to the end of the page are read
+			int end = maxResults == null ? Integer.MAX_VALUE : (firstResult == null ? 0 : firstResult) + maxResults;
+			for (Query query : queries) {
+				if (allergyIds.size() >= end) {
+					break;
+				}
+				if (maxResults != null) {
+					query.setMaxResults(end - allergyIds.size());
+				}
+				allergyIds.addAll(query.list());
+			}
+			int from = firstResult == null ? 0 : Math.min(firstResult, allergyIds.size());
+			allergyIds = allergyIds.subList(from, allergyIds.size());
+		}
+
+		Map<Integer, Allergy> allergies = new HashMap<Integer, Allergy>();
+		Set<Integer> conceptIds = new HashSet<Integer>();
+		for (List<Integer> chunk : partition(allergyIds)) {
+			Query query = sessionFactory.getCurrentSession().createQuery(
+					"select distinct a from Allergy a join fetch a.patient left join fetch a.allergen.codedAllergen"
+							+ " left join fetch a.reactions r left join fetch r.reaction where a.allergyId in (:ids)");
+			query.setParameterList("ids", chunk);
+			for (Allergy allergy : (List<Allergy>) query.list()) {
+				allergies.put(allergy.getAllergyId(), allergy);
+				if (allergy.getAllergen() != null && allergy.getAllergen().getCodedAllergen() != null) {
+					conceptIds.add(allergy.getAllergen().getCodedAllergen().getConceptId());
+				}
+				for (AllergyReaction reaction : allergy.getReactions()) {
+					if (reaction.getReaction() != null) {
+						conceptIds.add(reaction.getReaction().getConceptId());
+					}
+				}
+			}
+		}
+		initializeConcepts(conceptIds);
+		return inOrderOf(allergyIds, allergies);
+	}
+
+	/**
+	 * @see FHIRDAO#getAllergyCount(AllergySearchCriteria)
+	 */
+	@Override
+	public long getAllergyCount(AllergySearchCriteria criteria) {
+		long count = 0;
+		for (Query query : createAllergyQueries("select count(a)", criteria, "")) {
+			count += ((Number) query.uniqueResult()).longValue();
+		}
+		return count;
+	}
+
+	/**
+	 * @return one query per chunk of patient ids, or a single query if the search is not restricted to patient ids
+	 */
+	private List<Query> createAllergyQueries(String select, AllergySearchCriteria criteria, String orderBy) {
+		List<String> conditions = new ArrayList<String>();
+		if (criteria.getPatientIds() != null) {
+			conditions.add("a.patient.patientId in (:patientIds)");
+		}
+		if (criteria.getPatient() != null) {
+			conditions.add("a.patient.uuid = :patient");
+		}
+		if (criteria.getVoided() != null) {
+			conditions.add("a.voided = :voided");
+		}
+		StringBuilder hql = new StringBuilder(select).append(" from Allergy a");
+		if (!conditions.isEmpty()) {
+			hql.append(" where ").append(StringUtils.join(conditions, " and "));
+		}
+		hql.append(orderBy);
+
+		List<Query> queries = new ArrayList<Query>();
+		List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+		if (criteria.getPatientIds() != null) {
+			// Sorted, so that the allergies of the chunks follow each other in patient order
+			chunks.addAll(partition(new TreeSet<Integer>(criteria.getPatientIds())));
+		} else {
+			chunks.add(null);
+		}
+		for (List<Integer> chunk : chunks) {
+			Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+			if (chunk != null) {
+				query.setParameterList("patientIds", chunk);
+			}
+			if (criteria.getPatient() != null) {
+				query.setParameter("patient", criteria.getPatient());
+			}
+			if (criteria.getVoided() != null) {
+				query.setParameter("voided", criteria.getVoided());
+			}
+			queries.add(query);
+		}
+		return queries;
+	}
+
+	/**
+	 * @see FHIRDAO#searchObs(ObsSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Obs> searchObs(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		List<Criteria> queries = createObsCriteria(criteria);
+		List<Integer> obsIds = new ArrayList<Integer>();
+		if (queries.size() == 1) {
+			Criteria query = queries.get(0);
+			query.setProjection(Projections.property("obsId"));
+			query.addOrder(Order.desc("obsDatetime")).addOrder(Order.desc("obsId"));
+			if (firstResult != null) {
+				query.setFirstResult(firstResult);
+			}
+			if (maxResults != null) {
+				query.setMaxResults(maxResults);
+			}
+			obsIds.addAll(query.list());
+		} else {
+			// The obs of every chunk of patients are merged, each chunk contributes at most the rows up to the end of
+			// the page and the merged (obsDatetime, obsId) rows are sorted in memory
+			Integer end = maxResults == null ? null : (firstResult == null ? 0 : firstResult) + maxResults;
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for (Criteria query : queries) {
+				query.setProjection(Projections.projectionList().add(Projections.property("obsId")).add(
+						Projections.property("obsDatetime")));
+				query.addOrder(Order.desc("obsDatetime")).addOrder(Order.desc("obsId"));
+				if (end != null) {
+					query.setMaxResults(end);
+				}
+				rows.addAll(query.list());
+			}
+			Collections.sort(rows, new Comparator<Object[]>() {
+
+				@Override
+				public int compare(Object[] a, Object[] b) {
+					int byDate = ((Date) b[1]).compareTo((Date) a[1]);
+					return byDate != 0 ? byDate : ((Integer) b[0]).compareTo((Integer) a[0]);
+				}
+			});
+			int from = firstResult == null ? 0 : Math.min(firstResult, rows.size());
+			int to = end == null ? rows.size() : Math.min(end, rows.size());
+			for (Object[] row : rows.subList(from, to)) {
+				obsIds.add((Integer) row[0]);
+			}
+		}
+
+		Map<Integer, Obs> obs = new HashMap<Integer, Obs>();
+		Set<Integer> conceptIds = new HashSet<Integer>();
+		for (List<Integer> chunk : partition(obsIds)) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Obs.class);
+			query.add(Restrictions.in("obsId", chunk));
+			query.setFetchMode("person", FetchMode.JOIN);
+			query.setFetchMode("encounter", FetchMode.JOIN);
+			query.setFetchMode("concept", FetchMode.JOIN);
+			query.setFetchMode("valueCoded", FetchMode.JOIN);
+			for (Obs o : (List<Obs>) query.list()) {
+				obs.put(o.getObsId(), o);
+				conceptIds.add(o.getConcept().getConceptId());
+				if (o.getValueCoded() != null) {
+					conceptIds.add(o.getValueCoded().getConceptId());
+				}
+			}
+		}
+		initializeConcepts(conceptIds);
+		return inOrderOf(obsIds, obs);
+	}
+
+	/**
+	 * @see FHIRDAO#getObsCount(ObsSearchCriteria)
+	 */
+	@Override
+	public long getObsCount(ObsSearchCriteria criteria) {
+		long count = 0;
+		for (Criteria query : createObsCriteria(criteria)) {
+			query.setProjection(Projections.rowCount());
+			count += ((Number) query.uniqueResult()).longValue();
+		}
+		return count;
+	}
+
+	/**
+	 * @return one query per chunk of patient ids, or a single query if the search is not restricted to patient ids.
+	 * No query when no concept or patient id is given.
+	 */
+	private List<Criteria> createObsCriteria(ObsSearchCriteria criteria) {
+		List<Criteria> queries = new ArrayList<Criteria>();
+		if (criteria.getConceptIds() != null && criteria.getConceptIds().isEmpty()) {
+			return queries;
+		}
+		List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+		if (criteria.getPatientIds() != null) {
+			chunks.addAll(partition(criteria.getPatientIds()));
+		} else {
+			chunks.add(null);
+		}
+		for (List<Integer> chunk : chunks) {
+			Criteria query = sessionFactory.getCurrentSession().createCriteria(Obs.class);
+			if (criteria.getConceptIds() != null) {
+				query.add(Restrictions.in("concept.conceptId", criteria.getConceptIds()));
+			}
+			if (chunk != null) {
+				query.add(Restrictions.in("person.personId", chunk));
+			}
+			if (StringUtils.isNotBlank(criteria.getPatient())) {
+				query.createAlias("person", "person").add(Restrictions.eq("person.uuid", criteria.getPatient()));
+			}
+			if (criteria.getVoided() != null) {
+				query.add(Restrictions.eq("voided", criteria.getVoided()));
+			}
+			if (criteria.getFrom() != null) {
+				query.add(Restrictions.ge("obsDatetime", criteria.getFrom()));
+			}
+			if (criteria.getTo() != null) {
+				query.add(Restrictions.le("obsDatetime", criteria.getTo()));
+			}
+			queries.add(query);
+		}
+		return queries;
+	}
+
+	/**
+	 * @see FHIRDAO#searchDrugOrders(DrugOrderSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<DrugOrder> searchDrugOrders(DrugOrderSearchCriteria criteria, Integer firstResult,
+	                                        Integer maxResults) {
+		// Only single valued associations are fetched, so the database can page the rows
+		Query query = createDrugOrderQuery("select o from DrugOrder o join fetch o.patient"
+				+ " left join fetch o.encounter left join fetch o.orderer pr left join fetch pr.person"
+				+ " left join fetch o.drug d left join fetch d.concept left join fetch o.route"
+				+ " left join fetch o.frequency f left join fetch f.concept left join fetch o.doseUnits"
+				+ " left join fetch o.durationUnits left join fetch o.quantityUnits", criteria,
+				" order by o.dateActivated desc, o.orderId desc");
+		if (firstResult != null) {
+			query.setFirstResult(firstResult);
+		}
+		if (maxResults != null) {
+			query.setMaxResults(maxResults);
+		}
+		List<DrugOrder> drugOrders = query.list();
+
+		Set<Integer> conceptIds = new HashSet<Integer>();
+		for (DrugOrder drugOrder : drugOrders) {
+			if (drugOrder.getDrug() != null) {
+				conceptIds.add(drugOrder.getDrug().getConcept().getConceptId());
+			}
+			if (drugOrder.getFrequency() != null) {
+				conceptIds.add(drugOrder.getFrequency().getConcept().getConceptId());
+			}
+			if (drugOrder.getRoute() != null) {
+				conceptIds.add(drugOrder.getRoute().getConceptId());
+			}
+			if (drugOrder.getDoseUnits() != null) {
+				conceptIds.add(drugOrder.getDoseUnits().getConceptId());
+			}
+			if (drugOrder.getDurationUnits() != null) {
+				conceptIds.add(drugOrder.getDurationUnits().getConceptId());
+			}
+			if (drugOrder.getQuantityUnits() != null) {
+				conceptIds.add(drugOrder.getQuantityUnits().getConceptId());
+			}
+		}
+		initializeConcepts(conceptIds);
+		return drugOrders;
+	}
+
+	/**
+	 * @see FHIRDAO#getDrugOrderCount(DrugOrderSearchCriteria)
+	 */
+	@Override
+	public long getDrugOrderCount(DrugOrderSearchCriteria criteria) {
+		return ((Number) createDrugOrderQuery("select count(o) from DrugOrder o", criteria, "").uniqueResult())
+				.longValue();
+	}
+
+	private Query createDrugOrderQuery(String select, DrugOrderSearchCriteria criteria, String orderBy) {
+		List<String> conditions = new ArrayList<String>();
+		if (criteria.getPatient() != null) {
+			conditions.add("o.patient.uuid = :patient");
+		}
+		if (criteria.getVoided() != null) {
+			conditions.add("o.voided = :voided");
+		}
+		if (criteria.getActiveOn() != null) {
+			conditions.add(activeOn(":activeOn"));
+		}
+		if (criteria.getStatus() == DrugOrderSearchCriteria.Status.ACTIVE) {
+			conditions.add(activeOn(":now"));
+		} else if (criteria.getStatus() == DrugOrderSearchCriteria.Status.STOPPED) {
+			conditions.add("o.dateStopped <= :now");
+		} else if (criteria.getStatus() == DrugOrderSearchCriteria.Status.COMPLETED) {
+			conditions.add("(o.dateStopped is null or o.dateStopped > :now) and (o.action = :discontinue"
+					+ " or o.dateActivated > :now or o.autoExpireDate <= :now)");
+		}
+		if (criteria.getAuthoredFrom() != null) {
+			conditions.add("o.dateCreated >= :authoredFrom");
+		}
+		if (criteria.getAuthoredTo() != null) {
+			conditions.add("o.dateCreated <= :authoredTo");
+		}
+		StringBuilder hql = new StringBuilder(select);
+		if (!conditions.isEmpty()) {
+			hql.append(" where ").append(StringUtils.join(conditions, " and "));
+		}
+		hql.append(orderBy);
+
+		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+		if (criteria.getPatient() != null) {
+			query.setParameter("patient", criteria.getPatient());
+		}
+		if (criteria.getVoided() != null) {
+			query.setParameter("voided", criteria.getVoided());
+		}
+		if (criteria.getActiveOn() != null) {
+			query.setParameter("activeOn", criteria.getActiveOn());
+		}
+		if (criteria.getStatus() != null) {
+			query.setParameter("now", new Date());
+		}
+		if (criteria.getActiveOn() != null || criteria.getStatus() == DrugOrderSearchCriteria.Status.ACTIVE
+				|| criteria.getStatus() == DrugOrderSearchCriteria.Status.COMPLETED) {
+			query.setParameter("discontinue", org.openmrs.Order.Action.DISCONTINUE);
+		}
+		if (criteria.getAuthoredFrom() != null) {
+			query.setParameter("authoredFrom", criteria.getAuthoredFrom());
+		}
+		if (criteria.getAuthoredTo() != null) {
+			query.setParameter("authoredTo", criteria.getAuthoredTo());
+		}
+		return query;
+	}
+
+	/**
+	 * Same rules as {@link org.openmrs.Order#isActive(Date)}: an order is active once activated, until it is stopped
+	 * or expires. Discontinuation orders are never active.
+	 */
+	private static String activeOn(String date) {
+		return "(o.action <> :discontinue and o.dateActivated <= " + date + " and (o.dateStopped is null or"
+				+ " o.dateStopped > " + date + ") and (o.autoExpireDate is null or o.autoExpireDate > " + date + "))";
+	}
+
+	/**
+	 * @see FHIRDAO#getEncounterTypeIdByEncounterUuid(String)
+	 */
+	@Override
+	public Integer getEncounterTypeIdByEncounterUuid(String uuid) {
+		return (Integer) sessionFactory.getCurrentSession().createQuery(
+				"select e.encounterType.encounterTypeId from Encounter e where e.uuid = :uuid")
+				.setParameter("uuid", uuid).uniqueResult();
+	}
+
+	/**
+	 * @see FHIRDAO#initializeReportEncounters(Collection, boolean)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void initializeReportEncounters(Collection<Integer> encounterIds, boolean withConcepts) {
+		Set<Integer> conceptIds = new HashSet<Integer>();
+		for (List<Integer> chunk : partition(encounterIds)) {
+			// Every collection is fetched by its own query, to avoid cartesian products
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct e from Encounter e join fetch e.encounterType left join fetch e.encounterProviders ep"
+							+ " left join fetch ep.provider left join fetch ep.encounterRole where e.encounterId in (:ids)")
+					.setParameterList("ids", chunk).list();
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct e from Encounter e left join fetch e.obs where e.encounterId in (:ids)")
+					.setParameterList("ids", chunk).list();
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct o from Obs o left join fetch o.groupMembers where o.encounter.encounterId in (:ids)"
+							+ " and o.obsGroup is null").setParameterList("ids", chunk).list();
+			String patients = "select distinct p from Patient p left join fetch p.%s where p.patientId in ("
+					+ "select e.patient.patientId from Encounter e where e.encounterId in (:ids))";
+			sessionFactory.getCurrentSession().createQuery(String.format(patients, "names"))
+					.setParameterList("ids", chunk).list();
+			sessionFactory.getCurrentSession().createQuery(String.format(patients, "identifiers"))
+					.setParameterList("ids", chunk).list();
+			if (withConcepts) {
+				conceptIds.addAll(sessionFactory.getCurrentSession().createQuery(
+						"select distinct o.concept.conceptId from Obs o where o.encounter.encounterId in (:ids)")
+						.setParameterList("ids", chunk).list());
+			}
+		}
+		initializeConcepts(conceptIds);
+	}
+
+	/**
+	 * @see FHIRDAO#getRemoteReportVersion(String)
+	 */
+	@Override
+	public String getRemoteReportVersion(String encounterUuid) {
+		return (String) sessionFactory.getCurrentSession().createSQLQuery(
+				"select remote_version from fhir_remote_diagnostic_report where encounter_uuid = :uuid")
+				.setParameter("uuid", encounterUuid).uniqueResult();
+	}
+
+	/**
+	 * @see FHIRDAO#saveRemoteReportVersion(String, String)
+	 */
+	@Override
+	public void saveRemoteReportVersion(String encounterUuid, String version) {
+		int updated = sessionFactory.getCurrentSession().createSQLQuery(
+				"update fhir_remote_diagnostic_report set remote_version = :version, failed_version = null,"
+						+ " failed_attempts = 0 where encounter_uuid = :uuid")
+				.setParameter("version", version).setParameter("uuid", encounterUuid).executeUpdate();
+		if (updated == 0) {
+			sessionFactory.getCurrentSession().createSQLQuery(
+					"insert into fhir_remote_diagnostic_report (encounter_uuid, remote_version) values (:uuid, :version)")
+					.setParameter("uuid", encounterUuid).setParameter("version", version).executeUpdate();
+		}
+	}
+
+	/**
+	 * @see FHIRDAO#saveRemoteReportFailure(String, String)
+	 */
+	@Override
+	public int saveRemoteReportFailure(String encounterUuid, String version) {
+		Object[] failure = (Object[]) sessionFactory.getCurrentSession().createSQLQuery(
+				"select failed_version, failed_attempts from fhir_remote_diagnostic_report where encounter_uuid = :uuid")
+				.setParameter("uuid", encounterUuid).uniqueResult();
+		if (failure == null) {
+			sessionFactory.getCurrentSession().createSQLQuery(
+					"insert into fhir_remote_diagnostic_report (encounter_uuid, failed_version, failed_attempts)"
+							+ " values (:uuid, :version, 1)")
+					.setParameter("uuid", encounterUuid).setParameter("version", version, StringType.INSTANCE)
+					.executeUpdate();
+			return 1;
+		}
+		// Attempts are counted per version, a newer version of the report is tried again
+		int attempts = 1;
+		if (ObjectUtils.equals(version, failure[0])) {
+			attempts += ((Number) failure[1]).intValue();
+		}
+		sessionFactory.getCurrentSession().createSQLQuery(
+				"update fhir_remote_diagnostic_report set failed_version = :version, failed_attempts = :attempts"
+						+ " where encounter_uuid = :uuid")
+				.setParameter("version", version, StringType.INSTANCE).setParameter("attempts", attempts)
+				.setParameter("uuid", encounterUuid).executeUpdate();
+		return attempts;
+	}
+
+	/**
+	 * Load the names and mappings of concepts in two queries, rather than two lazy loads per concept. Names and
+	 * mappings are fetched separately to avoid a cartesian product of both collections.
+	 */
+	private void initializeConcepts(Collection<Integer> conceptIds) {
+		for (List<Integer> chunk : partition(conceptIds)) {
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct c from Concept c left join fetch c.names where c.conceptId in (:ids)")
+					.setParameterList("ids", chunk).list();
+			sessionFactory.getCurrentSession().createQuery(
+					"select distinct c from Concept c left join fetch c.conceptMappings m"
+							+ " left join fetch m.conceptReferenceTerm t left join fetch t.conceptSource"
+							+ " where c.conceptId in (:ids)").setParameterList("ids", chunk).list();
+		}
+	}
+
+	private static <T> List<T> inOrderOf(Collection<Integer> ids, Map<Integer, T> byId) {
+		List<T> ordered = new ArrayList<T>(byId.size());
+		for (Integer id : new LinkedHashSet<Integer>(ids)) {
+			T value = byId.get(id);
+			if (value != null) {
+				ordered.add(value);
+			}
+		}
+		return ordered;
+	}
+
+	private static List<List<Integer>> partition(Collection<Integer> ids) {
+		List<Integer> uniqueIds = new ArrayList<Integer>(new LinkedHashSet<Integer>(ids));
+		List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+		for (int i = 0; i < uniqueIds.size(); i += MAX_IN_CLAUSE_SIZE) {
+			chunks.add(uniqueIds.subList(i, Math.min(i + MAX_IN_CLAUSE_SIZE, uniqueIds.size())));
+		}
+		return chunks;
+	}
+
+	/**
+	 * Iterates over the rows of a query a page at a time, each page starting after the last row of the previous one.
+	 * Scalar rows are not attached to the session, so the session does not grow while iterating.
+	 */
+	private abstract static class KeysetIterator<T> implements Iterator<T> {
+
+		private Iterator<T> page = Collections.<T>emptyList().iterator();
+
+		private T last;
+
+		private boolean lastPage = false;
+
+		/**
+		 * @param last last row of the previous page, null for the first page
+		 * @return at most NAME_ROWS_PAGE_SIZE rows following the last one, ordered like the rows of the query
+		 */
+		protected abstract List<T> nextPage(T last);
+
+		@Override
+		public boolean hasNext() {
+			while (!page.hasNext() && !lastPage) {
+				List<T> rows = nextPage(last);
+				lastPage = rows.size() < NAME_ROWS_PAGE_SIZE;
+				page = rows.iterator();
+			}
+			return page.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = page.next();
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -1,6 +1,7 @@
 package org.openmrs.module.fhir.api.diagnosticreport;
 
 import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.openmrs.Encounter;
 
 import java.util.List;
 
@@ -12,6 +13,14 @@ public interface DiagnosticReportHandler {
 
 	List<DiagnosticReport> getFHIRDiagnosticReportBySubjectName(String name);
 
+	/**
+	 * Convert many report encounters at once, sharing what the reports have in common, e.g. the loading of their obs
+	 *
+	 * @param encounters report encounters of the service category of the handler
+	 * @return the reports, in the order of the encounters
+	 */
+	List<DiagnosticReport> getReports(List<Encounter> encounters);
+
 	DiagnosticReport saveFHIRDiagnosticReport(DiagnosticReport diagnosticReport);
 
 	DiagnosticReport updateFHIRDiagnosticReport(DiagnosticReport diagnosticReport, String theId);
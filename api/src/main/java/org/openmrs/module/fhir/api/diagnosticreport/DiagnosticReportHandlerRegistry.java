@@ -0,0 +1,119 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.diagnosticreport;
+
+import org.openmrs.EncounterType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.diagnosticreport.handler.DefaultDiagnosticReportHandler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registered DiagnosticReport handlers, keyed by service category. A report encounter is handled by the handler whose
+ * service category is the name of its encounter type, that lookup is indexed by encounter type id.
+ * <p>
+ * Registrations replace the map with an updated copy, so lookups read an immutable map without locking and never see
+ * a registration half applied. The encounter type index is rebuilt lazily after every registration and cleared when
+ * an encounter type changes.
+ */
+public class DiagnosticReportHandlerRegistry {
+
+	private static final DiagnosticReportHandlerRegistry instance = new DiagnosticReportHandlerRegistry();
+
+	/**
+	 * Indexed for the encounter types without a handler, so that their reports do not load the encounter type again.
+	 * Only compared by identity, never returned.
+	 */
+	private static final DiagnosticReportHandler NO_HANDLER = new DefaultDiagnosticReportHandler();
+
+	private volatile Map<String, DiagnosticReportHandler> handlers = Collections.emptyMap();
+
+	private volatile ConcurrentMap<Integer, DiagnosticReportHandler> handlersByEncounterType =
+			new ConcurrentHashMap<Integer, DiagnosticReportHandler>();
+
+	public static DiagnosticReportHandlerRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return unmodifiable map of the service categories to their handlers, in the order of registration
+	 */
+	public Map<String, DiagnosticReportHandler> getHandlers() {
+		return handlers;
+	}
+
+	/**
+	 * @param serviceCategory service category, e.g. LAB
+	 * @return the handler of the category, or null if none is registered
+	 */
+	public DiagnosticReportHandler getHandler(String serviceCategory) {
+		return serviceCategory == null ? null : handlers.get(serviceCategory);
+	}
+
+	/**
+	 * @param encounterTypeId id of the encounter type of a report encounter
+	 * @return the handler of the category named after the encounter type, or null if none is registered
+	 */
+	public DiagnosticReportHandler getHandler(Integer encounterTypeId) {
+		if (encounterTypeId == null) {
+			return null;
+		}
+		ConcurrentMap<Integer, DiagnosticReportHandler> index = handlersByEncounterType;
+		DiagnosticReportHandler handler = index.get(encounterTypeId);
+		if (handler == null) {
+			EncounterType encounterType = Context.getEncounterService().getEncounterType(encounterTypeId);
+			handler = encounterType == null ? null : getHandler(encounterType.getName());
+			index.putIfAbsent(encounterTypeId, handler == null ? NO_HANDLER : handler);
+		}
+		return handler == NO_HANDLER ? null : handler;
+	}
+
+	/**
+	 * Registers the handler for the service category, replacing the handler registered for it before
+	 */
+	public synchronized void register(String serviceCategory, DiagnosticReportHandler handler) {
+		Map<String, DiagnosticReportHandler> updated = new LinkedHashMap<String, DiagnosticReportHandler>(handlers);
+		updated.put(serviceCategory, handler);
+		publish(updated);
+	}
+
+	public synchronized void remove(String serviceCategory) {
+		if (!handlers.containsKey(serviceCategory)) {
+			return;
+		}
+		Map<String, DiagnosticReportHandler> updated = new LinkedHashMap<String, DiagnosticReportHandler>(handlers);
+		updated.remove(serviceCategory);
+		publish(updated);
+	}
+
+	public synchronized void clear() {
+		publish(new LinkedHashMap<String, DiagnosticReportHandler>());
+	}
+
+	/**
+	 * Drops the encounter type index, called when an encounter type is renamed or removed
+	 */
+	public void clearEncounterTypeIndex() {
+		handlersByEncounterType = new ConcurrentHashMap<Integer, DiagnosticReportHandler>();
+	}
+
+	private void publish(Map<String, DiagnosticReportHandler> updated) {
+		handlers = Collections.unmodifiableMap(updated);
+		clearEncounterTypeIndex();
+	}
+}
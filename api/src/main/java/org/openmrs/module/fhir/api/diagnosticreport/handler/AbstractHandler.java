@@ -1,11 +1,105 @@
 package org.openmrs.module.fhir.api.diagnosticreport.handler;
 
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRObsUtil;
+import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public abstract class AbstractHandler {
-	
+
 	private String id = null;
-	
+
 	public AbstractHandler() {
 		//Leave blank for first draft
 	}
 
+	/**
+	 * Load the obs, providers and patients of many report encounters in bulk, rather than lazily report by report
+	 *
+	 * @param encounters report encounters
+	 * @param contained  whether the result Observations are contained, so the concepts of the obs are needed too
+	 */
+	protected void prefetch(List<Encounter> encounters, boolean contained) {
+		if (encounters.size() < 2) {
+			return;
+		}
+		List<Integer> encounterIds = new ArrayList<Integer>(encounters.size());
+		for (Encounter encounter : encounters) {
+			encounterIds.add(encounter.getEncounterId());
+		}
+		FHIRUtils.getFHIRDAO().initializeReportEncounters(encounterIds, contained);
+	}
+
+	/**
+	 * @return map collecting the Patients contained by the reports of a bundle, null if reports only refer to them
+	 */
+	protected Map<String, Patient> getContainedPatients() {
+		return FHIRUtils.isDiagnosticReportSubjectContained() ? new HashMap<String, Patient>() : null;
+	}
+
+	/**
+	 * Set the `Subject` of a report. In the reference mode only a reference to the Patient is set. In the contained
+	 * mode the Patient is contained in the report, it is generated once and shared by all the reports of a bundle.
+	 *
+	 * @param diagnosticReport  report being generated
+	 * @param omrsPatient       patient of the report encounter
+	 * @param containedPatients Patients already generated for the bundle keyed by uuid, null in the reference mode
+	 */
+	protected void setSubject(DiagnosticReport diagnosticReport, org.openmrs.Patient omrsPatient,
+	                          Map<String, Patient> containedPatients) {
+		Reference subject = FHIRPatientUtil.buildPatientReference(omrsPatient);
+		if (containedPatients != null) {
+			Patient patient = containedPatients.get(omrsPatient.getUuid());
+			if (patient == null) {
+				patient = FHIRPatientUtil.generatePatient(omrsPatient);
+				// Contained ids are local to the containing resource, so the same id is valid in every report
+				patient.setId(new IdType("#" + omrsPatient.getUuid()));
+				containedPatients.put(omrsPatient.getUuid(), patient);
+			}
+			diagnosticReport.getContained().add(patient);
+			subject.setReference("#" + omrsPatient.getUuid());
+		}
+		diagnosticReport.setSubject(subject);
+	}
+
+	/**
+	 * Set the `Result` of a report from the members of the result obs groups. In the reference mode the Observations
+	 * are referred to and clients include them on demand, in the contained mode they are generated and contained.
+	 *
+	 * @param diagnosticReport report being generated
+	 * @param resultObsGroups  result obs groups of the report encounter
+	 * @param contained        whether to contain the Observations
+	 */
+	protected void setResults(DiagnosticReport diagnosticReport, Set<Obs> resultObsGroups, boolean contained) {
+		List<Reference> resultReferenceDtList = new ArrayList<Reference>();
+		for (Obs resultObs : resultObsGroups) {
+			for (Obs obs : resultObs.getGroupMembers()) {
+				if (contained) {
+					Observation observation = FHIRObsUtil.generateObs(obs);
+					// To make it contained in side Diagnostic Report
+					observation.setId(new IdType());
+					resultReferenceDtList.add(new Reference(observation));
+				} else {
+					resultReferenceDtList.add(new Reference(FHIRConstants.OBSERVATION + "/" + obs.getUuid()));
+				}
+			}
+		}
+		if (!resultReferenceDtList.isEmpty()) {
+			diagnosticReport.setResult(resultReferenceDtList);
+		}
+	}
+
 }
@@ -48,6 +48,15 @@ public class DefaultDiagnosticReportHandler extends AbstractHandler implements D
 		return new ArrayList<DiagnosticReport>();
 	}
 
+	@Override
+	public List<DiagnosticReport> getReports(List<Encounter> encounters) {
+		List<DiagnosticReport> diagnosticReports = new ArrayList<DiagnosticReport>(encounters.size());
+		for (Encounter encounter : encounters) {
+			diagnosticReports.add(getFHIRDiagnosticReportById(encounter.getUuid()));
+		}
+		return diagnosticReports;
+	}
+
 	@Override
 	public DiagnosticReport saveFHIRDiagnosticReport(DiagnosticReport diagnosticReport) {
 		if (log.isDebugEnabled()) {
@@ -12,6 +12,7 @@ import org.hl7.fhir.dstu3.model.DiagnosticReport;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Identifier;
 import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.openmrs.Concept;
 import org.openmrs.ConceptComplex;
@@ -24,10 +25,11 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.ObsService;
+import org.openmrs.module.fhir.api.cache.FHIRDiagnosticReportFieldCache;
 import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandler;
+import org.openmrs.module.fhir.api.util.FHIRAttachmentUtil;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRObsUtil;
-import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
 import org.openmrs.obs.ComplexData;
 
@@ -55,7 +57,7 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 
 	@Override
 	public DiagnosticReport getFHIRDiagnosticReportById(String id) {
-		return getFHIRDiagnosticReport(Context.getEncounterService().getEncounterByUuid(id));
+		return getFHIRDiagnosticReport(Context.getEncounterService().getEncounterByUuid(id), getContainedPatients());
 	}
 
 	@Override
@@ -63,7 +65,23 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 		return null;
 	}
 
-	private DiagnosticReport getFHIRDiagnosticReport(Encounter omrsDiagnosticReport) {
+	@Override
+	public List<DiagnosticReport> getReports(List<Encounter> encounters) {
+		Map<String, Patient> containedPatients = getContainedPatients();
+		prefetch(encounters, containedPatients != null);
+		List<DiagnosticReport> diagnosticReports = new ArrayList<DiagnosticReport>(encounters.size());
+		for (Encounter omrsDiagnosticReport : encounters) {
+			diagnosticReports.add(getFHIRDiagnosticReport(omrsDiagnosticReport, containedPatients));
+		}
+		return diagnosticReports;
+	}
+
+	/**
+	 * @param containedPatients Patients contained by the reports of the bundle keyed by uuid, null to only refer to
+	 *                          the Patient and the result Observations
+	 */
+	private DiagnosticReport getFHIRDiagnosticReport(Encounter omrsDiagnosticReport,
+	                                                 Map<String, Patient> containedPatients) {
 		log.debug("Laboratory Handler : GetFHIRDiagnosticReport");
 		DiagnosticReport diagnosticReport = new DiagnosticReport();
 
@@ -80,8 +98,7 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 		diagnosticReport.setIssued(omrsDiagnosticReport.getEncounterDatetime());
 
 		// @required: Get Encounter Patient and set as `Subject`
-		org.openmrs.Patient omrsPatient = omrsDiagnosticReport.getPatient();
-		diagnosticReport.getSubject().setResource(FHIRPatientUtil.generatePatient(omrsPatient));
+		setSubject(diagnosticReport, omrsDiagnosticReport.getPatient(), containedPatients);
 
 		// Get Encounter Provider and set as `Performer`
 		EncounterRole omrsEncounterRole = FHIRUtils.getEncounterRole();
@@ -112,18 +129,7 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 		// Get valueDateTime in Obs and Set `Diagnosis[x]->Period`
 
 		// ObsSet set as `Result`
-		List<Reference> resultReferenceDtList = new ArrayList<Reference>();
-		for (Obs resultObs : obsSetsMap.get(FHIRConstants.DIAGNOSTIC_REPORT_RESULT)) {
-			for (Obs obs : resultObs.getGroupMembers()) {
-				Observation observation = FHIRObsUtil.generateObs(obs);
-				// To make it contained in side Diagnostic Report
-				observation.setId(new IdType());
-				resultReferenceDtList.add(new Reference(observation));
-			}
-		}
-		if (!resultReferenceDtList.isEmpty()) {
-			diagnosticReport.setResult(resultReferenceDtList);
-		}
+		setResults(diagnosticReport, obsSetsMap.get(FHIRConstants.DIAGNOSTIC_REPORT_RESULT), containedPatients != null);
 
 		// Binary Obs Handler `PresentedForm`
 		List<Attachment> attachmentDtList = new ArrayList<Attachment>();
@@ -144,46 +150,29 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 		obsSetsMap.put(FHIRConstants.DIAGNOSTIC_REPORT_RESULT, new HashSet<Obs>());
 		obsSetsMap.put(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM, new HashSet<Obs>());
 
+		FHIRDiagnosticReportFieldCache.FieldTable fieldTable = FHIRDiagnosticReportFieldCache.getInstance().getTable();
 		for (Obs obs : obsSet) {
-			try {
-				obsSetsMap.get(getFieldName(obs.getConcept())).add(obs);
-			}
-			catch (NoSuchFieldException e) {
-				log.error(e.getMessage());
+			Set<Obs> fieldObs = obsSetsMap.get(fieldTable.getField(obs.getConcept().getConceptId()));
+			if (fieldObs != null) {
+				fieldObs.add(obs);
+			} else {
+				log.error("Can't find a concept for " + obs.getConcept().getConceptId());
 			}
 		}
 		return obsSetsMap;
 	}
 
 	public String getFieldName(Concept concept) throws NoSuchFieldException {
-		if (FHIRUtils.getDiagnosticReportResultConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_RESULT;
-		} else if (FHIRUtils.getDiagnosticReportStatusConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_STATUS;
-		} else if (FHIRUtils.getDiagnosticReportNameConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_NAME;
-		} else if (FHIRUtils.getDiagnosticReportPresentedFormConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM;
-		} else {
+		String fieldName = FHIRDiagnosticReportFieldCache.getInstance().getField(concept.getConceptId());
+		if (fieldName == null) {
 			throw new NoSuchFieldException("Can't find a concept for " + concept.getConceptId());
 		}
+		return fieldName;
 	}
 
 	public Attachment getAttachmentDt(Obs attachmentObs) {
-		Attachment attachmentDt = new Attachment();
-		int obsId = attachmentObs.getObsId();
-
-		Obs complexObs = Context.getObsService().getComplexObs(obsId, "RAW_VIEW");
-		ComplexData complexData = complexObs.getComplexData();
-		attachmentDt.setTitle(complexData.getTitle());
-		attachmentDt.setData((byte[]) complexData.getData());
-		attachmentDt.setCreation(attachmentObs.getObsDatetime());
-		/**
-		 * TODO: Not available in OpenMRS 1.10.0 version
-		 * attachmentDt.setContentType(complexData.getMimeType());
-		 * attachmentDt.setSize(complexData.getLength());
-		 */
-		return attachmentDt;
+		// Only a reference to the content is returned, the content is served through the Binary resource
+		return FHIRAttachmentUtil.generateAttachment(attachmentObs);
 	}
 
 	@Override
@@ -349,10 +338,8 @@ public class LaboratoryHandler extends AbstractHandler implements DiagnosticRepo
 		 * complexData.setLength(attachment.getSize().longValue());
 		 */
 		complexObs.setComplexData(complexData);
-		Context.getObsService().saveObs(complexObs, null);
-
-		Integer obsId = complexObs.getObsId();
-		return Context.getObsService().getComplexObs(obsId, "RAW_VIEW");
+		// The saved obs is returned as is, reloading it with the RAW_VIEW would read the whole content into memory
+		return Context.getObsService().saveObs(complexObs, null);
 	}
 
 	public Observation prepareForGenerateOpenMRSObs(Observation observation, DiagnosticReport diagnosticReport) {
@@ -1,14 +1,10 @@
 package org.openmrs.module.fhir.api.diagnosticreport.handler;
 
-import ca.uhn.fhir.rest.gclient.ICriterion;
-import ca.uhn.fhir.rest.gclient.ReferenceClientParam;
-import ca.uhn.fhir.rest.gclient.TokenClientParam;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Attachment;
-import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
 import org.hl7.fhir.dstu3.model.DiagnosticReport;
@@ -20,19 +16,22 @@ import org.hl7.fhir.dstu3.model.Observation;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.Practitioner;
 import org.hl7.fhir.dstu3.model.Reference;
-import org.hl7.fhir.dstu3.model.Resource;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.openmrs.Concept;
 import org.openmrs.ConceptComplex;
 import org.openmrs.Encounter;
+import org.openmrs.EncounterProvider;
 import org.openmrs.EncounterRole;
+import org.openmrs.EncounterType;
 import org.openmrs.Obs;
 import org.openmrs.Person;
 import org.openmrs.Provider;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.ObsService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRDiagnosticReportFieldCache;
 import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandler;
+import org.openmrs.module.fhir.api.util.FHIRAttachmentUtil;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRImagingStudyUtil;
 import org.openmrs.module.fhir.api.util.FHIRObsUtil;
@@ -41,13 +40,19 @@ import org.openmrs.module.fhir.api.util.FHIRPractitionerUtil;
 import org.openmrs.module.fhir.api.util.FHIRRESTfulGenericClient;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
 import org.openmrs.obs.ComplexData;
+import org.openmrs.parameter.EncounterSearchCriteria;
+import org.openmrs.parameter.EncounterSearchCriteriaBuilder;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 import static java.lang.String.valueOf;
 
@@ -68,11 +73,13 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 
 	@Override
 	public DiagnosticReport getFHIRDiagnosticReportById(String id) {
-		return getFHIRDiagnosticReport(Context.getEncounterService().getEncounterByUuid(id));
+		return getFHIRDiagnosticReport(Context.getEncounterService().getEncounterByUuid(id), getContainedPatients());
 	}
 
 	/**
-	 * Getting the data from a third party server, storing metadata in OpenMRS and passing on the bundle to the requester.
+	 * Search the Radiology DiagnosticReports of the Subjects/Patients matching the given name. Reports of the third
+	 * party server are pulled into OpenMRS in the background by
+	 * {@link org.openmrs.module.fhir.api.scheduler.RadiologyReportSyncTask}, so searches are served from local data.
 	 *
 	 * @param name Given Name of the Subject/Patient
 	 * @return A bundle of DiagnosticReport which is matching with Given Name
@@ -82,37 +89,125 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		if (log.isDebugEnabled()) {
 			log.debug("GetFHIRDiagnosticReportBySubjectName : " + name);
 		}
-		List<DiagnosticReport> diagnosticReports = new ArrayList<DiagnosticReport>();
-
-		String serverBase = FHIRUtils.getDiagnosticReportRadiologyBaseServerURL();
-		ICriterion<ReferenceClientParam> diagnosticReportBySubject = DiagnosticReport.SUBJECT.hasChainedProperty(
-				Patient.GIVEN.matches().value(name));
-		ICriterion<TokenClientParam> diagnosticReportByService = DiagnosticReport.CATEGORY.exactly().code("RAD");
-		Bundle bundle = FHIRRESTfulGenericClient.searchWhereReferenceAndToken(serverBase, DiagnosticReport.class,
-				diagnosticReportBySubject,
-				diagnosticReportByService);
-		if (log.isDebugEnabled()) {
-			log.debug("Bundle size : " + bundle.getTotal());
+		List<Encounter> encounters = new ArrayList<Encounter>();
+		List<EncounterType> encounterTypes = Collections.singletonList(FHIRUtils.getEncounterType(ServiceCategory));
+		EncounterService encounterService = Context.getEncounterService();
+		for (org.openmrs.Patient omrsPatient : Context.getPatientService().getPatients(name)) {
+			EncounterSearchCriteria searchCriteria = new EncounterSearchCriteriaBuilder()
+					.setPatient(omrsPatient)
+					.setEncounterTypes(encounterTypes)
+					.setIncludeVoided(false)
+					.createEncounterSearchCriteria();
+			encounters.addAll(encounterService.getEncounters(searchCriteria));
 		}
 
-		for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-			Resource resource = entry.getResource();
-			if (log.isDebugEnabled()) {
-				log.debug("Resource Type : " + resource.getResourceType().name());
-			}
-			if (FHIRConstants.DIAGNOSTIC_REPORT.equals(resource.getResourceType().name())) {
-				DiagnosticReport diagnosticReport = (DiagnosticReport) resource;
-				diagnosticReport = this.saveFHIRDiagnosticReport(diagnosticReport);
-				diagnosticReport = this.getFHIRDiagnosticReportById(diagnosticReport.getId());
+		return getReports(encounters);
+	}
 
-				diagnosticReports.add(diagnosticReport);
+	/**
+	 * Insert or update a DiagnosticReport pulled from the third party radiology server. The uuid of the local
+	 * Encounter is derived from the remote id, so syncing the same report again never creates a duplicate. The remote
+	 * version the copy was populated from is stored with it, so an unchanged report is not populated again.
+	 *
+	 * @param serverBase       Base URL of the third party server
+	 * @param diagnosticReport DiagnosticReport retrieved from the third party server
+	 * @return true if the report was created or updated, false if the local copy is already up to date
+	 */
+	public boolean upsertRemoteDiagnosticReport(String serverBase, DiagnosticReport diagnosticReport) {
+		String uuid = getLocalUuidOfRemoteReport(serverBase, diagnosticReport.getIdElement().getIdPart());
+		String remoteVersion = getRemoteVersion(diagnosticReport);
+		Encounter omrsDiagnosticReport = Context.getEncounterService().getEncounterByUuid(uuid);
+		if (omrsDiagnosticReport == null) {
+			omrsDiagnosticReport = new Encounter();
+			omrsDiagnosticReport.setUuid(uuid);
+		} else {
+			// Reports voided in OpenMRS are not brought back by the sync
+			if (omrsDiagnosticReport.isVoided()) {
+				return false;
+			}
+			// Versions are compared with versions of the same server, the local clock does not matter
+			if (remoteVersion == null || remoteVersion.equals(FHIRUtils.getFHIRDAO().getRemoteReportVersion(uuid))) {
+				return false;
 			}
+			clearDiagnosticReport(omrsDiagnosticReport);
+		}
+		saveFHIRDiagnosticReport(diagnosticReport, omrsDiagnosticReport);
+		if (remoteVersion != null) {
+			FHIRUtils.getFHIRDAO().saveRemoteReportVersion(uuid, remoteVersion);
+		}
+		return true;
+	}
+
+	/**
+	 * Record a failed attempt to sync a DiagnosticReport pulled from the third party radiology server
+	 *
+	 * @param serverBase       Base URL of the third party server
+	 * @param diagnosticReport DiagnosticReport which failed to sync
+	 * @return number of consecutive failed attempts to sync this version of the report
+	 */
+	public int recordRemoteDiagnosticReportFailure(String serverBase, DiagnosticReport diagnosticReport) {
+		String uuid = getLocalUuidOfRemoteReport(serverBase, diagnosticReport.getIdElement().getIdPart());
+		return FHIRUtils.getFHIRDAO().saveRemoteReportFailure(uuid, getRemoteVersion(diagnosticReport));
+	}
+
+	/**
+	 * @param diagnosticReport DiagnosticReport retrieved from the third party server
+	 * @return the version id of the report, its last update time if the server does not version resources, or null
+	 * if the server provides neither
+	 */
+	private static String getRemoteVersion(DiagnosticReport diagnosticReport) {
+		if (diagnosticReport.getMeta().hasVersionId()) {
+			return diagnosticReport.getMeta().getVersionId();
+		}
+		Date lastUpdated = diagnosticReport.getMeta().getLastUpdated();
+		return lastUpdated == null ? null : valueOf(lastUpdated.getTime());
+	}
+
+	/**
+	 * Builds a stable uuid for the local copy of a report of a third party server
+	 *
+	 * @param serverBase Base URL of the third party server
+	 * @param remoteId   Logical id of the report on the third party server
+	 * @return uuid of the local Encounter
+	 */
+	public static String getLocalUuidOfRemoteReport(String serverBase, String remoteId) {
+		String remoteUrl = serverBase + "/" + FHIRConstants.DIAGNOSTIC_REPORT + "/" + remoteId;
+		return UUID.nameUUIDFromBytes(remoteUrl.getBytes(Charset.forName("UTF-8"))).toString();
+	}
+
+	/**
+	 * Void the values of a synced report, so that it can be populated again from a newer remote version
+	 *
+	 * @param omrsDiagnosticReport Encounter of the report
+	 */
+	private void clearDiagnosticReport(Encounter omrsDiagnosticReport) {
+		ObsService obsService = Context.getObsService();
+		for (Obs obs : omrsDiagnosticReport.getObsAtTopLevel(false)) {
+			obsService.voidObs(obs, "Superseded by a newer version of the Radiology DiagnosticReport");
 		}
+		for (EncounterProvider encounterProvider : new ArrayList<EncounterProvider>(
+				omrsDiagnosticReport.getActiveEncounterProviders())) {
+			omrsDiagnosticReport.removeProvider(encounterProvider.getEncounterRole(), encounterProvider.getProvider());
+		}
+	}
 
+	@Override
+	public List<DiagnosticReport> getReports(List<Encounter> encounters) {
+		Map<String, Patient> containedPatients = getContainedPatients();
+		prefetch(encounters, containedPatients != null);
+		List<DiagnosticReport> diagnosticReports = new ArrayList<DiagnosticReport>(encounters.size());
+		for (Encounter omrsDiagnosticReport : encounters) {
+			diagnosticReports.add(getFHIRDiagnosticReport(omrsDiagnosticReport, containedPatients));
+		}
 		return diagnosticReports;
 	}
 
-	private DiagnosticReport getFHIRDiagnosticReport(Encounter omrsDiagnosticReport) {
+	/**
+	 * @param containedPatients Patients contained by the reports of the bundle keyed by uuid, null to only refer to
+	 *                          the Patient and the result Observations
+	 */
+	private DiagnosticReport getFHIRDiagnosticReport(Encounter omrsDiagnosticReport,
+	                                                 Map<String, Patient> containedPatients) {
 		DiagnosticReport diagnosticReport = new DiagnosticReport();
 
 		// Separate Obs into different field based on Concept Id
@@ -128,8 +223,7 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		diagnosticReport.setIssued(omrsDiagnosticReport.getEncounterDatetime());
 
 		// @required: Get Encounter Patient and set as `Subject`
-		org.openmrs.Patient omrsPatient = omrsDiagnosticReport.getPatient();
-		diagnosticReport.getSubject().setResource(FHIRPatientUtil.generatePatient(omrsPatient));
+		setSubject(diagnosticReport, omrsDiagnosticReport.getPatient(), containedPatients);
 
 		// Get Encounter Provider and set as `Performer`
 		EncounterRole omrsEncounterRole = FHIRUtils.getEncounterRole();
@@ -159,18 +253,7 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		// Get valueDateTime in Obs and Set `Diagnosis[x]->Period`
 
 		// ObsSet set as `Result`
-		List<Reference> resultReferenceDtList = new ArrayList<Reference>();
-		for (Obs resultObs : obsSetsMap.get(FHIRConstants.DIAGNOSTIC_REPORT_RESULT)) {
-			for (Obs obs : resultObs.getGroupMembers()) {
-				Observation observation = FHIRObsUtil.generateObs(obs);
-				// To make it contained in side Diagnostic Report
-				observation.setId(new IdType());
-				resultReferenceDtList.add(new Reference(observation));
-			}
-		}
-		if (!resultReferenceDtList.isEmpty()) {
-			diagnosticReport.setResult(resultReferenceDtList);
-		}
+		setResults(diagnosticReport, obsSetsMap.get(FHIRConstants.DIAGNOSTIC_REPORT_RESULT), containedPatients != null);
 
 		// Binary Obs Handler `PresentedForm`
 		List<Attachment> attachmentDtList = new ArrayList<Attachment>();
@@ -192,46 +275,21 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		obsSetsMap.put(FHIRConstants.DIAGNOSTIC_REPORT_IMAGING_STUDY, new HashSet<Obs>());
 		obsSetsMap.put(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM, new HashSet<Obs>());
 
+		FHIRDiagnosticReportFieldCache.FieldTable fieldTable = FHIRDiagnosticReportFieldCache.getInstance().getTable();
 		for (Obs obs : obsSet) {
-			try {
-				obsSetsMap.get(this.getFieldName(obs.getConcept())).add(obs);
-			}
-			catch (NoSuchFieldException e) {
-				log.error(e.getMessage());
+			Set<Obs> fieldObs = obsSetsMap.get(fieldTable.getField(obs.getConcept().getConceptId()));
+			if (fieldObs != null) {
+				fieldObs.add(obs);
+			} else {
+				log.error("Can't find a concept for " + obs.getConcept().getConceptId());
 			}
 		}
 		return obsSetsMap;
 	}
 
-	private String getFieldName(Concept concept) throws NoSuchFieldException {
-		if (FHIRUtils.getDiagnosticReportResultConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_RESULT;
-		} else if (FHIRUtils.getDiagnosticReportStatusConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_STATUS;
-		} else if (FHIRUtils.getDiagnosticReportNameConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_NAME;
-		} else if (FHIRUtils.getDiagnosticReportPresentedFormConcept().getConceptId().equals(concept.getConceptId())) {
-			return FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM;
-		} else {
-			throw new NoSuchFieldException("Can't find a concept for " + concept.getConceptId());
-		}
-	}
-
 	private Attachment getAttachmentDt(Obs attachmentObs) {
-		Attachment attachmentDt = new Attachment();
-		int obsId = attachmentObs.getObsId();
-
-		Obs complexObs = Context.getObsService().getComplexObs(obsId, "RAW_VIEW");
-		ComplexData complexData = complexObs.getComplexData();
-		attachmentDt.setTitle(complexData.getTitle());
-		attachmentDt.setData((byte[]) complexData.getData());
-		attachmentDt.setCreation(attachmentObs.getObsDatetime());
-		/**
-		 * TODO: Not available in OpenMRS 1.10.0 version
-		 * attachmentDt.setContentType(complexData.getMimeType());
-		 * attachmentDt.setSize(complexData.getLength());
-		 */
-		return attachmentDt;
+		// Only a reference to the content is returned, the content is served through the Binary resource
+		return FHIRAttachmentUtil.generateAttachment(attachmentObs);
 	}
 
 	@Override
@@ -239,9 +297,13 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		if (log.isDebugEnabled()) {
 			log.debug("Saving FHIR DiagnosticReport " + diagnosticReport.getId());
 		}
+		return saveFHIRDiagnosticReport(diagnosticReport, new Encounter());
+	}
+
+	private DiagnosticReport saveFHIRDiagnosticReport(DiagnosticReport diagnosticReport,
+	                                                  Encounter omrsDiagnosticReport) {
 		EncounterService encounterService = Context.getEncounterService();
 		ObsService obsService = Context.getObsService();
-		Encounter omrsDiagnosticReport = new Encounter();
 
 		// Set `Name` as a Obs
 		// Set `Status` as a Obs
@@ -261,16 +323,19 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 				// Get Id of the Patient
 				Identifier patientIdentifier = subjectReference.getIdentifier();
 				String patientId = "";
-				if(patientIdentifier != null) {
+				if(patientIdentifier != null && !patientIdentifier.isEmpty()) {
 					// Assume that Patient is stored in the OpenMRS database
 					patientId = patientIdentifier.getId();
 				} else {
 					String patientIdReference = subjectReference.getReference();
-					if(!StringUtils.isEmpty(patientIdReference) && "/".contains(patientIdReference)) {
+					if(!StringUtils.isEmpty(patientIdReference) && patientIdReference.contains("/")) {
 						patientId = patientIdReference.split("/")[1];
 					}
 				}
-				omrsPatient = Context.getPatientService().getPatientByUuid(patientId);
+				// Patients which are only known by the third party server are retrieved from there
+				if (!StringUtils.isEmpty(patientId)) {
+					omrsPatient = this.getOpenMRSPatient(patientId);
+				}
 				omrsDiagnosticReport.setPatient(omrsPatient);
 			}
 		} else {
@@ -291,19 +356,21 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 					// Get Id of the Performer
 					Identifier practitionerIdentifier = performerComponent.getActor().getIdentifier();
 					String practitionerId = "";
-					if (practitionerIdentifier != null) {
+					if (practitionerIdentifier != null && !practitionerIdentifier.isEmpty()) {
 						// Assume that Performer is stored in the OpenMRS database
 						//TODO: org.openmrs.Provider omrsProvider = FHIRPractitionerUtil.generateOpenMRSPractitioner();
 						practitionerId = practitionerIdentifier.getId();
 						//TODO: Get EncounterRole from DiagnosticReport (remove hard coded value)
 					} else {
 						String practitionerIdReference = performerComponent.getActor().getReference();
-						if (!StringUtils.isEmpty(practitionerIdReference) && "/".contains(practitionerIdReference)) {
+						if (!StringUtils.isEmpty(practitionerIdReference) && practitionerIdReference.contains("/")) {
 							practitionerId = practitionerIdReference.split("/")[1];
 						}
 					}
 					omrsProvider = Context.getProviderService().getProviderByUuid(practitionerId);
-					omrsDiagnosticReport.addProvider(encounterRole, omrsProvider);
+					if (omrsProvider != null) {
+						omrsDiagnosticReport.addProvider(encounterRole, omrsProvider);
+					}
 				}
 			}
 		}
@@ -313,7 +380,7 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		String encounterType = FHIRConstants.DEFAULT; // If serviceCategory is not present in the DiagnosticReport, then use "DEFAULT"
 		if (!codingList.isEmpty()) {
 			//TODO: Need to fix. multiple codes
-			encounterType = codingList.get(1).getCode();
+			encounterType = codingList.get(0).getCode();
 		}
 		omrsDiagnosticReport.setEncounterType(FHIRUtils.getEncounterType(encounterType));
 
@@ -382,6 +449,8 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 
 		/****************************** Set `ImagingStudy` as a set of Obs *********************************/
 		Set<Obs> imagingStudyObsGroupMembersSet = new HashSet<Obs>();
+		// Retrieve all ImagingStudies which are not yet stored in OpenMRS with batched requests
+		Map<String, ImagingStudy> remoteImagingStudies = this.readRemoteImagingStudies(diagnosticReport.getImagingStudy());
 		// Iterate through 'ImagingStudy', convert to the OpenMRS Obs group
 		for (Reference referenceDt : diagnosticReport.getImagingStudy()) {
 			Obs obs;
@@ -400,7 +469,7 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 				// Get Id of the ImagingStudy
 				String imagingStudyId = referenceDt.getId();
 				// Get `ImagingStudy` Obs from external server
-				obs = this.getOpenMRSImagingStudyObs(imagingStudyId);
+				obs = this.getOpenMRSImagingStudyObs(imagingStudyId, remoteImagingStudies);
 			}
 			obs = obsService.saveObs(obs, null);
 			imagingStudyObsGroupMembersSet.add(obs);
@@ -450,10 +519,8 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		 * complexData.setLength(attachment.getSize().longValue());
 		 */
 		complexObs.setComplexData(complexData);
-		Context.getObsService().saveObs(complexObs, null);
-
-		Integer obsId = complexObs.getObsId();
-		return Context.getObsService().getComplexObs(obsId, "RAW_VIEW");
+		// The saved obs is returned as is, reloading it with the RAW_VIEW would read the whole content into memory
+		return Context.getObsService().saveObs(complexObs, null);
 	}
 
 	/**
@@ -541,16 +608,20 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 	 * retrieve from third party server, generate Obs group which represent given ImangingStudy and return it back.
 	 * NOTE: This method is not saving the Obs
 	 *
-	 * @param imagingStudyId FHIR ImagingStudy resource
+	 * @param imagingStudyId       FHIR ImagingStudy resource
+	 * @param remoteImagingStudies ImagingStudies already retrieved from the third party server, keyed by id
 	 * @return A OpenMRS Obs group
 	 */
-	private Obs getOpenMRSImagingStudyObs(String imagingStudyId) {
+	private Obs getOpenMRSImagingStudyObs(String imagingStudyId, Map<String, ImagingStudy> remoteImagingStudies) {
 		// Check whether ImagingStudy Obs is already exist
 		Obs imagingStudyObs = Context.getObsService().getObsByUuid(imagingStudyId);
 		if (imagingStudyObs == null) {
-			// ImagingStudy isn't in the database, then retrieve it
-			String serverBase = FHIRUtils.getDiagnosticReportRadiologyBaseServerURL();
-			ImagingStudy imagingStudy = FHIRRESTfulGenericClient.readImagingStudyById(serverBase, imagingStudyId);
+			// ImagingStudy isn't in the database, then retrieve it unless it was already prefetched
+			ImagingStudy imagingStudy = remoteImagingStudies.get(imagingStudyId);
+			if (imagingStudy == null) {
+				String serverBase = FHIRUtils.getDiagnosticReportRadiologyBaseServerURL();
+				imagingStudy = FHIRRESTfulGenericClient.readImagingStudyById(serverBase, imagingStudyId);
+			}
 			// Generate OpenMRS Obs from ImagingStudy Resource
 			List<String> errors = new ArrayList<String>();
 			imagingStudyObs = FHIRImagingStudyUtil.generateOpenMRSImagingStudy(imagingStudy, errors);
@@ -572,6 +643,30 @@ public class RadiologyHandler extends AbstractHandler implements DiagnosticRepor
 		}
 	}
 
+	/**
+	 * Retrieve all referenced ImagingStudies which are neither contained in the DiagnosticReport nor stored in the
+	 * OpenMRS database from the third party server, using batched requests instead of one request per reference.
+	 *
+	 * @param imagingStudyReferences ImagingStudy references of a DiagnosticReport
+	 * @return Retrieved ImagingStudies keyed by id
+	 */
+	private Map<String, ImagingStudy> readRemoteImagingStudies(List<Reference> imagingStudyReferences) {
+		List<String> missingIds = new ArrayList<String>();
+		for (Reference referenceDt : imagingStudyReferences) {
+			if (referenceDt.getReference().isEmpty()) {
+				String imagingStudyId = referenceDt.getId();
+				if (!StringUtils.isEmpty(imagingStudyId) && Context.getObsService().getObsByUuid(imagingStudyId) == null) {
+					missingIds.add(imagingStudyId);
+				}
+			}
+		}
+		if (missingIds.isEmpty()) {
+			return new HashMap<String, ImagingStudy>();
+		}
+		String serverBase = FHIRUtils.getDiagnosticReportRadiologyBaseServerURL();
+		return FHIRRESTfulGenericClient.readImagingStudiesByIds(serverBase, missingIds);
+	}
+
 	/**
 	 * Create a OpenMRS from a FHIR Practitioner resource
 	 *
@@ -18,6 +18,7 @@ import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.AllergyIntoleranceService;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
 import org.openmrs.module.fhir.api.strategies.allergy.AllergyStrategyUtil;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 
@@ -77,4 +78,19 @@ public class AllergyIntoleranceServiceImpl extends BaseOpenmrsService implements
 	public List<AllergyIntolerance> getAllergiesByPersonId(String personId) {
 		return AllergyStrategyUtil.getAllergyStrategy().searchAllergiesByPatientName(personId);
 	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.AllergyIntoleranceService#searchAllergies(AllergySearchCriteria, Integer, Integer)
+	 */
+	public List<AllergyIntolerance> searchAllergies(AllergySearchCriteria criteria, Integer firstResult,
+	                                                Integer maxResults) {
+		return AllergyStrategyUtil.getAllergyStrategy().searchAllergies(criteria, firstResult, maxResults);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.AllergyIntoleranceService#getAllergyCount(AllergySearchCriteria)
+	 */
+	public long getAllergyCount(AllergySearchCriteria criteria) {
+		return AllergyStrategyUtil.getAllergyStrategy().getAllergyCount(criteria);
+	}
 }
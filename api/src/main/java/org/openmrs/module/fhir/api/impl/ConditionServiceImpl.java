@@ -20,6 +20,7 @@ import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Condition;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.ConditionService;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 import org.openmrs.module.fhir.api.strategies.condition.ConditionStrategyUtil;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.util.FHIRConditionUtil;
@@ -74,7 +75,19 @@ public class ConditionServiceImpl implements ConditionService {
 
 	@Override
 	public List<Condition> searchConditionsByPatient(String patientUuid) {
-		return null;
+		ObsSearchCriteria criteria = new ObsSearchCriteria();
+		criteria.setPatient(patientUuid);
+		return searchObsConditions(criteria, null, null);
+	}
+
+	@Override
+	public List<Condition> searchObsConditions(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		return ConditionStrategyUtil.getConditionStrategy().searchConditions(criteria, firstResult, maxResults);
+	}
+
+	@Override
+	public long getObsConditionCount(ObsSearchCriteria criteria) {
+		return ConditionStrategyUtil.getConditionStrategy().getConditionCount(criteria);
 	}
 
 	@Override
@@ -13,23 +13,21 @@
  */
 package org.openmrs.module.fhir.api.impl;
 
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Coding;
 import org.hl7.fhir.dstu3.model.DiagnosticReport;
-import org.openmrs.Encounter;
 import org.openmrs.api.APIException;
-import org.openmrs.api.EncounterService;
-import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.DiagnosticReportService;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandler;
+import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandlerRegistry;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRDiagnosticReportUtil;
 import org.openmrs.util.OpenmrsClassLoader;
 
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -42,7 +40,7 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 
 	private FHIRDAO dao;
 
-	private static Map<String, DiagnosticReportHandler> handlers = null;
+	private final DiagnosticReportHandlerRegistry registry = DiagnosticReportHandlerRegistry.getInstance();
 
 	/**
 	 * @return the dao
@@ -60,13 +58,12 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 
 	@Override
 	public DiagnosticReport getDiagnosticReport(String id) {
-		// Find Diagnostic Report (Encounter) in OpenMRS database
-		EncounterService encounterService = Context.getEncounterService();
-		Encounter omrsDiagnosticReport = encounterService.getEncounterByUuid(id);
-		// Get corresponding Handler
-		String handlerName = omrsDiagnosticReport.getEncounterType().getName();
-
-		return FHIRDiagnosticReportUtil.getFHIRDiagnosticReport(id, getHandler(handlerName));
+		// The handler is found from the encounter type id, the handler loads the Diagnostic Report (Encounter) itself
+		Integer encounterTypeId = dao.getEncounterTypeIdByEncounterUuid(id);
+		if (encounterTypeId == null) {
+			return null;
+		}
+		return FHIRDiagnosticReportUtil.getFHIRDiagnosticReport(id, registry.getHandler(encounterTypeId));
 	}
 
 	@Override
@@ -86,14 +83,7 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 	@Override
 	public DiagnosticReport updateFHIRDiagnosticReport(DiagnosticReport diagnosticReport, String theId) {
 		log.debug("DiagnosticReportServiceImpl : updateFHIRDiagnosticReport with ID " + theId);
-		// Find Diagnostic Report (Encounter) in OpenMRS database
-		EncounterService encounterService = Context.getEncounterService();
-		Encounter omrsDiagnosticReport = encounterService.getEncounterByUuid(theId);
-		// Get corresponding Handler
-		String handlerName = omrsDiagnosticReport.getEncounterType().getName();
-
-		return FHIRDiagnosticReportUtil.updateDiagnosticReport(diagnosticReport, theId, getHandler(
-				handlerName));
+		return FHIRDiagnosticReportUtil.updateDiagnosticReport(diagnosticReport, theId, getHandlerOfReport(theId));
 	}
 
 	/**
@@ -101,13 +91,19 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 	 */
 	@Override
 	public void retireDiagnosticReport(String id) {
-		// Find Diagnostic Report (Encounter) in OpenMRS database
-		EncounterService encounterService = Context.getEncounterService();
-		Encounter omrsDiagnosticReport = encounterService.getEncounterByUuid(id);
-		// Get corresponding Handler
-		String handlerName = omrsDiagnosticReport.getEncounterType().getName();
+		FHIRDiagnosticReportUtil.retireDiagnosticReport(id, getHandlerOfReport(id));
+	}
 
-		FHIRDiagnosticReportUtil.retireDiagnosticReport(id, getHandler(handlerName));
+	/**
+	 * @param id uuid of the Diagnostic Report (Encounter)
+	 * @return the handler of the encounter type of the report
+	 */
+	private DiagnosticReportHandler getHandlerOfReport(String id) {
+		Integer encounterTypeId = dao.getEncounterTypeIdByEncounterUuid(id);
+		if (encounterTypeId == null) {
+			throw new ResourceNotFoundException(String.format("Diagnostic Report with id '%s' not found.", id));
+		}
+		return registry.getHandler(encounterTypeId);
 	}
 
 	/**
@@ -130,42 +126,28 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 	 ***************************************************************/
 	@Override
 	public DiagnosticReportHandler getHandler(String key) {
-		return handlers.get(key);
+		return registry.getHandler(key);
 	}
 
 	@Override
 	public void setHandlers(Map<String, DiagnosticReportHandler> newHandlers) throws APIException {
 		if (newHandlers == null) {
-			DiagnosticReportServiceImpl.setStaticHandlers(null);
+			registry.clear();
 			return;
 		}
 		for (Map.Entry<String, DiagnosticReportHandler> entry : newHandlers.entrySet()) {
 			registerHandler(entry.getValue().getServiceCategory(), entry.getValue());
-
 		}
 	}
 
-	/**
-	 * Sets handlers using static method
-	 *
-	 * @param currentHandlers
-	 */
-	private static void setStaticHandlers(Map<String, DiagnosticReportHandler> currentHandlers) {
-		DiagnosticReportServiceImpl.handlers = currentHandlers;
-	}
-
 	@Override
 	public Map<String, DiagnosticReportHandler> getHandlers() throws APIException {
-		if (handlers == null) {
-			handlers = new LinkedHashMap<String, DiagnosticReportHandler>();
-		}
-
-		return handlers;
+		return registry.getHandlers();
 	}
 
 	@Override
 	public void registerHandler(String key, DiagnosticReportHandler handler) throws APIException {
-		getHandlers().put(key, handler);
+		registry.register(key, handler);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -182,6 +164,6 @@ public class DiagnosticReportServiceImpl extends BaseOpenmrsService implements D
 
 	@Override
 	public void removeHandler(String key) {
-		handlers.remove(key);
+		registry.remove(key);
 	}
 }
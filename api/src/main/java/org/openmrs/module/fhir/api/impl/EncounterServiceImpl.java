@@ -26,20 +26,24 @@ import org.hl7.fhir.dstu3.model.Identifier;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.instance.model.api.IIdType;
+import org.openmrs.BaseOpenmrsData;
 import org.openmrs.EncounterProvider;
 import org.openmrs.Patient;
-import org.openmrs.PatientIdentifierType;
 import org.openmrs.Visit;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.EncounterService;
+import org.openmrs.module.fhir.api.cache.FHIREncounterKindCache;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
+import org.openmrs.module.fhir.api.strategies.visit.VisitStrategyUtil;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIREncounterUtil;
 import org.openmrs.module.fhir.api.util.FHIRLocationUtil;
 import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
 import org.openmrs.module.fhir.api.util.FHIRPractitionerUtil;
 import org.openmrs.module.fhir.api.util.OMRSFHIRVisitUtil;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -73,70 +77,83 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public Encounter getEncounter(String id) {
-
-		org.openmrs.Encounter omrsEncounter = Context.getEncounterService().getEncounterByUuid(id);
-
-		if (omrsEncounter == null || omrsEncounter.isVoided()) {
-			Visit visit = Context.getVisitService().getVisitByUuid(id);
-			if (visit != null && !visit.isVoided()) {
-				return OMRSFHIRVisitUtil.generateEncounter(visit);
-			} else {
-				return null;
-			}
+		BaseOpenmrsData encounterOrVisit = getEncounterOrVisit(id);
+		if (encounterOrVisit == null || encounterOrVisit.isVoided()) {
+			return null;
 		}
-		return FHIREncounterUtil.generateEncounter(omrsEncounter);
+		return generateEncounter(encounterOrVisit);
 	}
 
 	/**
 	 * @see org.openmrs.module.fhir.api.EncounterService#searchEncounterById(String)
 	 */
 	public List<Encounter> searchEncounterById(String id) {
-		org.openmrs.Encounter omrsEncounter = Context.getEncounterService().getEncounterByUuid(id);
+		BaseOpenmrsData encounterOrVisit = getEncounterOrVisit(id);
 		List<Encounter> encounterList = new ArrayList<Encounter>();
-		if (omrsEncounter != null) {
-			encounterList.add(FHIREncounterUtil.generateEncounter(omrsEncounter));
-		} else {
-			Visit visit = Context.getVisitService().getVisitByUuid(id);
-			if (visit != null) {
-				encounterList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
-			}
+		if (encounterOrVisit != null) {
+			encounterList.add(generateEncounter(encounterOrVisit));
 		}
 		return encounterList;
 	}
 
 	/**
-	 * @see org.openmrs.module.fhir.api.EncounterService#searchEncountersByPatientIdentifier(String)
+	 * Looks up the encounter or the visit with the given uuid. When the kind of the uuid is known from an earlier
+	 * lookup only that kind is queried, otherwise encounters are tried before visits.
+	 *
+	 * @param uuid uuid of the Encounter resource
+	 * @return the {@link org.openmrs.Encounter} or {@link Visit}, or null if there is neither
 	 */
-	public List<Encounter> searchEncountersByPatientIdentifier(String identifier) {
-		org.openmrs.api.PatientService patientService = Context.getPatientService();
-		List<PatientIdentifierType> allPatientIdentifierTypes = patientService.getAllPatientIdentifierTypes();
-		List<org.openmrs.Patient> patientList = patientService
-		        .getPatients(identifier, null, allPatientIdentifierTypes, true);
-
-		// In case the "encounter id" is actually the encounter uuid, take this step
-		if(patientList.isEmpty()){
-			Patient patient = patientService.getPatientByUuid(identifier);
-			if(patient != null){
-				patientList.add(patient);
+	private BaseOpenmrsData getEncounterOrVisit(String uuid) {
+		FHIREncounterKindCache kinds = FHIREncounterKindCache.getInstance();
+		FHIREncounterKindCache.Kind kind = kinds.get(uuid);
+		if (kind == FHIREncounterKindCache.Kind.ENCOUNTER) {
+			org.openmrs.Encounter encounter = Context.getEncounterService().getEncounterByUuid(uuid);
+			if (encounter != null) {
+				return encounter;
+			}
+		} else if (kind == FHIREncounterKindCache.Kind.VISIT) {
+			Visit visit = Context.getVisitService().getVisitByUuid(uuid);
+			if (visit != null) {
+				return visit;
 			}
 		}
+		if (kind != null) {
+			kinds.remove(uuid);
+		}
 
-		List<Encounter> fhirEncountersList = new ArrayList<Encounter>();
+		org.openmrs.Encounter encounter = Context.getEncounterService().getEncounterByUuid(uuid);
+		if (encounter != null) {
+			kinds.put(uuid, FHIREncounterKindCache.Kind.ENCOUNTER);
+			return encounter;
+		}
+		Visit visit = Context.getVisitService().getVisitByUuid(uuid);
+		if (visit != null) {
+			kinds.put(uuid, FHIREncounterKindCache.Kind.VISIT);
+		}
+		return visit;
+	}
 
-		for (Patient patient : patientList) {
-			List<org.openmrs.Encounter> encounters = Context.getEncounterService().getEncountersByPatient(patient);
-			for (org.openmrs.Encounter encounter : encounters) {
-				fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
-			}
+	private Encounter generateEncounter(BaseOpenmrsData encounterOrVisit) {
+		if (encounterOrVisit instanceof Visit) {
+			return OMRSFHIRVisitUtil.generateEncounter((Visit) encounterOrVisit);
 		}
+		return FHIREncounterUtil.generateEncounter((org.openmrs.Encounter) encounterOrVisit);
+	}
 
-		for (Patient patient : patientList) {
-			List<Visit> visits = Context.getVisitService().getVisitsByPatient(patient);
-			for (Visit visit : visits) {
-				fhirEncountersList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
+	/**
+	 * @see org.openmrs.module.fhir.api.EncounterService#searchEncountersByPatientIdentifier(String)
+	 */
+	public List<Encounter> searchEncountersByPatientIdentifier(String identifier) {
+		List<Integer> patientIds = getPatientIds(identifier);
+
+		// In case the "encounter id" is actually the encounter uuid, take this step
+		if (patientIds.isEmpty()) {
+			Patient patient = Context.getPatientService().getPatientByUuid(identifier);
+			if (patient != null) {
+				patientIds.add(patient.getPatientId());
 			}
 		}
-		return fhirEncountersList;
+		return searchEncountersByPatientIds(patientIds, null);
 	}
 
 	/**
@@ -229,7 +246,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			Bundle.BundleEntryComponent provider;
 			for (EncounterProvider encounterProvider : omsrEncounter.getEncounterProviders()) {
 				provider = bundle.addEntry();
-				provider.setResource(FHIRPractitionerUtil.generatePractitioner(encounterProvider.getProvider()));
+				provider.setResource(FHIRPractitionerUtil.getPractitioner(encounterProvider.getProvider()));
 			}
 		}
 		return bundle;
@@ -240,19 +257,17 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public void deleteEncounter(String id) {
-		org.openmrs.Encounter encounter = Context.getEncounterService().getEncounterByUuid(id);
-		if (encounter == null) {
-			Visit visit = Context.getVisitService().getVisitByUuid(id);
-			if (visit == null) {
-				//Jira related https://issues.openmrs.org/browse/FM-194
-				IIdType idType = new IdType();
-				idType.setValue(id);
-				throw new ResourceNotFoundException(idType);
-			} else {
-				Context.getVisitService().voidVisit(visit, FHIRConstants.ENCOUNTER_DELETE_MESSAGE);
-			}
+		BaseOpenmrsData encounterOrVisit = getEncounterOrVisit(id);
+		if (encounterOrVisit == null) {
+			//Jira related https://issues.openmrs.org/browse/FM-194
+			IIdType idType = new IdType();
+			idType.setValue(id);
+			throw new ResourceNotFoundException(idType);
+		} else if (encounterOrVisit instanceof Visit) {
+			Context.getVisitService().voidVisit((Visit) encounterOrVisit, FHIRConstants.ENCOUNTER_DELETE_MESSAGE);
 		} else {
-			Context.getEncounterService().voidEncounter(encounter, FHIRConstants.ENCOUNTER_DELETE_MESSAGE);
+			Context.getEncounterService().voidEncounter((org.openmrs.Encounter) encounterOrVisit,
+					FHIRConstants.ENCOUNTER_DELETE_MESSAGE);
 		}
 	}
 
@@ -262,33 +277,37 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public List<Encounter> searchEncountersByPatientIdentifierAndPartOf(String patientIdentifier, String partOf) {
-		org.openmrs.api.PatientService patientService = Context.getPatientService();
-		List<PatientIdentifierType> allPatientIdentifierTypes = patientService.getAllPatientIdentifierTypes();
-		List<org.openmrs.Patient> patientList = patientService.getPatients(patientIdentifier, null,
-		    allPatientIdentifierTypes, true);
-		List<Encounter> fhirEncountersList = new ArrayList<Encounter>();
+		return searchEncountersByPatientIds(getPatientIds(patientIdentifier), partOf);
+	}
 
-		for (Patient patient : patientList) {
-			List<org.openmrs.Encounter> encounters = Context.getEncounterService().getEncountersByPatient(patient);
-			for (org.openmrs.Encounter encounter : encounters) {
-				if (encounter.getVisit() == null) {
-					if (FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
-						fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
-					}
-				} else {
-					if (encounter.getVisit().getUuid().equals(partOf)) {
-						fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
-					}
-				}
-			}
+	private List<Integer> getPatientIds(String identifier) {
+		List<Integer> patientIds = new ArrayList<Integer>();
+		for (Patient patient : FHIRPatientUtil.getPatientsByIdentifier(identifier, null)) {
+			patientIds.add(patient.getPatientId());
 		}
+		return patientIds;
+	}
 
-		for (Patient patient : patientList) {
-			List<Visit> visits = Context.getVisitService().getVisitsByPatient(patient);
-			if (FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
-				for (Visit visit : visits) {
-					fhirEncountersList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
-				}
+	/**
+	 * Encounters and visits of all the given patients are fetched with one query each, instead of two queries per
+	 * patient. Visits are only returned when partOf is null or {@link FHIRConstants#NONE}.
+	 */
+	private List<Encounter> searchEncountersByPatientIds(List<Integer> patientIds, String partOf) {
+		List<Encounter> fhirEncountersList = new ArrayList<Encounter>();
+		if (patientIds.isEmpty()) {
+			return fhirEncountersList;
+		}
+		Context.requirePrivilege(PrivilegeConstants.GET_ENCOUNTERS);
+		List<org.openmrs.Encounter> encounters = Context.getEncounterService().filterEncountersByViewPermissions(
+				dao.getEncountersByPatientIds(patientIds, partOf), null);
+		for (org.openmrs.Encounter encounter : encounters) {
+			fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
+		}
+
+		if (partOf == null || FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
+			Context.requirePrivilege(PrivilegeConstants.GET_VISITS);
+			for (Visit visit : dao.getVisitsByPatientIds(patientIds)) {
+				fhirEncountersList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
 			}
 		}
 		return fhirEncountersList;
@@ -300,27 +319,15 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	 */
 	@Override
 	public List<Encounter> searchEncountersByEncounterIdAndPartOf(String encounterId, String partOf) {
-		org.openmrs.Encounter encounter = Context.getEncounterService().getEncounterByUuid(encounterId);
+		BaseOpenmrsData encounterOrVisit = getEncounterOrVisit(encounterId);
 		List<Encounter> fhirEncountersList = new ArrayList<Encounter>();
-		if (encounter != null) {
-			if (encounter.getVisit() == null) {
-				if (FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
-					fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
-				}
-			} else {
-				if (encounter.getVisit().getUuid().equals(partOf)) {
-					fhirEncountersList.add(FHIREncounterUtil.generateEncounter(encounter));
-				}
-			}
-		}
-
-		if (fhirEncountersList.size() == 0) {
-			Visit visit = Context.getVisitService().getVisitByUuid(encounterId);
-			if (visit != null) {
-				if (FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
-					fhirEncountersList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
-				}
+		if (encounterOrVisit instanceof org.openmrs.Encounter) {
+			Visit visit = ((org.openmrs.Encounter) encounterOrVisit).getVisit();
+			if (visit == null ? FHIRConstants.NONE.equalsIgnoreCase(partOf) : visit.getUuid().equals(partOf)) {
+				fhirEncountersList.add(generateEncounter(encounterOrVisit));
 			}
+		} else if (encounterOrVisit != null && FHIRConstants.NONE.equalsIgnoreCase(partOf)) {
+			fhirEncountersList.add(generateEncounter(encounterOrVisit));
 		}
 		return fhirEncountersList;
 	}
@@ -407,4 +414,20 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 			return OMRSFHIRVisitUtil.generateEncounter(visit);
 		}
 	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.EncounterService#searchVisits(VisitSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	public List<Encounter> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		return VisitStrategyUtil.getVisitStrategy().searchVisits(criteria, firstResult, maxResults);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.EncounterService#getVisitCount(VisitSearchCriteria)
+	 */
+	@Override
+	public long getVisitCount(VisitSearchCriteria criteria) {
+		return VisitStrategyUtil.getVisitStrategy().getVisitCount(criteria);
+	}
 }
@@ -23,8 +23,11 @@ import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.FamilyMemberHistoryService;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.util.FHIRFamilyMemberHistoryUtil;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 
@@ -56,7 +59,7 @@ public class FamilyMemberHistoryServiceImpl extends BaseOpenmrsService implement
 		List<FamilyMemberHistory> fhirFamilyHistory = new ArrayList<FamilyMemberHistory>();
 		List<Relationship> relationships = null;
 		if (person != null && !person.isVoided()) {
-			relationships = Context.getPersonService().getRelationshipsByPerson(person);
+			relationships = getRelationships(person);
 		}
 		if (relationships != null && relationships.size() > 0) {
 			for (Relationship relationship : relationships) {
@@ -81,7 +84,7 @@ public class FamilyMemberHistoryServiceImpl extends BaseOpenmrsService implement
 	public List<FamilyMemberHistory> searchRelationshipsById(String id) {
 		Person person = Context.getPersonService().getPersonByUuid(id);
 		List<FamilyMemberHistory> familyHistories = new ArrayList<FamilyMemberHistory>();
-		List<Relationship> relationships = Context.getPersonService().getRelationshipsByPerson(person);
+		List<Relationship> relationships = person == null ? null : getRelationships(person);
 		if (relationships != null) {
 			for (Relationship relationship : relationships) {
 				familyHistories.add(FHIRFamilyMemberHistoryUtil.generateFamilyHistory(relationship, person));
@@ -89,4 +92,14 @@ public class FamilyMemberHistoryServiceImpl extends BaseOpenmrsService implement
 		}
 		return familyHistories;
 	}
+
+	/**
+	 * Same relationships as {@link org.openmrs.api.PersonService#getRelationshipsByPerson(Person)}, with the
+	 * relationship types, related persons and their names fetched in bulk. The DAO skips the core service, so its
+	 * privilege check is done here.
+	 */
+	private List<Relationship> getRelationships(Person person) {
+		Context.requirePrivilege(PrivilegeConstants.GET_RELATIONSHIPS);
+		return dao.getRelationshipsByPersons(Collections.singleton(person.getPersonId()), new Date());
+	}
 }
@@ -18,7 +18,9 @@ import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Location;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.LocationService;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
 import org.openmrs.module.fhir.api.strategies.location.LocationStrategyUtil;
 
 import java.util.List;
@@ -78,6 +80,30 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 		return LocationStrategyUtil.getLocationStrategy().searchLocationsByStatus(status);
 	}
 
+	/**
+	 * @see org.openmrs.module.fhir.api.LocationService#searchLocations(LocationSearchCriteria, Integer, Integer)
+	 */
+	@Override
+	public List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		return LocationStrategyUtil.getLocationStrategy().searchLocations(criteria, firstResult, maxResults);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.LocationService#getLocationCount(LocationSearchCriteria)
+	 */
+	@Override
+	public long getLocationCount(LocationSearchCriteria criteria) {
+		return LocationStrategyUtil.getLocationStrategy().getLocationCount(criteria);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.LocationService#rebuildLocationIndex()
+	 */
+	@Override
+	public void rebuildLocationIndex() {
+		FHIRLocationIndex.getInstance().load(dao.getLocationTree());
+	}
+
 	/**
 	 * @see org.openmrs.module.fhir.api.LocationService#deleteLocation(String)
 	 */
@@ -23,13 +23,14 @@ import org.openmrs.CareSetting;
 import org.openmrs.Drug;
 import org.openmrs.DrugOrder;
 import org.openmrs.Order;
-import org.openmrs.Patient;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.MedicationRequestService;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRMedicationRequestUtil;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,23 +79,36 @@ public class MedicationRequestServiceImpl extends BaseOpenmrsService implements
     }
 
     /**
-     * @see MedicationRequestService#searchMedicationRequestById(String)
+     * @see MedicationRequestService#searchMedicationRequestByPatientId(String)
      */
     public List<MedicationRequest> searchMedicationRequestByPatientId(String patientUuid) {
-        Patient patient = Context.getPatientService().getPatientByUuid(patientUuid);
+        DrugOrderSearchCriteria criteria = new DrugOrderSearchCriteria();
+        criteria.setPatient(patientUuid);
+        criteria.setVoided(null);
+        return searchMedicationRequests(criteria, null, null);
+    }
+
+    /**
+     * @see MedicationRequestService#searchMedicationRequests(DrugOrderSearchCriteria, Integer, Integer)
+     */
+    public List<MedicationRequest> searchMedicationRequests(DrugOrderSearchCriteria criteria, Integer firstResult,
+                                                            Integer maxResults) {
+        Context.requirePrivilege(PrivilegeConstants.GET_ORDERS);
         List<MedicationRequest> medicationRequests = new ArrayList<MedicationRequest>();
-        if (patient != null) {
-            List<Order> orders = Context.getOrderService().getAllOrdersByPatient(patient);
-            for(Order order : orders) {
-                if (order instanceof DrugOrder) {
-                    DrugOrder drugOrder = (DrugOrder) order;
-                    medicationRequests.add(FHIRMedicationRequestUtil.generateMedicationRequest(drugOrder));
-                }
-            }
+        for (DrugOrder drugOrder : dao.searchDrugOrders(criteria, firstResult, maxResults)) {
+            medicationRequests.add(FHIRMedicationRequestUtil.generateMedicationRequest(drugOrder));
         }
         return medicationRequests;
     }
 
+    /**
+     * @see MedicationRequestService#getMedicationRequestCount(DrugOrderSearchCriteria)
+     */
+    public long getMedicationRequestCount(DrugOrderSearchCriteria criteria) {
+        Context.requirePrivilege(PrivilegeConstants.GET_ORDERS);
+        return dao.getDrugOrderCount(criteria);
+    }
+
     /**
      * @see MedicationRequestService#deleteMedicationRequest(String)
      */
@@ -15,12 +15,21 @@ package org.openmrs.module.fhir.api.impl;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Binary;
 import org.hl7.fhir.dstu3.model.Observation;
+import org.openmrs.Obs;
+import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.ObsService;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 import org.openmrs.module.fhir.api.strategies.observation.ObservationStrategyUtil;
+import org.openmrs.module.fhir.api.util.FHIRAttachmentUtil;
+import org.openmrs.module.fhir.api.util.FHIRObsUtil;
+import org.openmrs.util.PrivilegeConstants;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -111,6 +120,18 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 		return ObservationStrategyUtil.getObservationStrategy().searchObservationByPatientIdentifier(identifier);
 	}
 
+	/**
+	 * @see org.openmrs.module.fhir.api.ObsService#searchObs(ObsSearchCriteria, Integer, Integer)
+	 */
+	public List<Observation> searchObs(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		Context.requirePrivilege(PrivilegeConstants.GET_OBS);
+		List<Observation> observations = new ArrayList<Observation>();
+		for (Obs obs : dao.searchObs(criteria, firstResult, maxResults)) {
+			observations.add(FHIRObsUtil.generateObs(obs));
+		}
+		return observations;
+	}
+
 	/**
 	 * @see org.openmrs.module.fhir.api.ObsService#deleteObs(String)
 	 */
@@ -134,4 +155,28 @@ public class ObsServiceImpl extends BaseOpenmrsService implements ObsService {
 	public Observation updateFHIRObservation(Observation observation, String theId) {
 		return ObservationStrategyUtil.getObservationStrategy().updateFHITObservation(observation, theId);
 	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.ObsService#getBinary(String)
+	 */
+	@Override
+	public Binary getBinary(String id) {
+		Obs obs = Context.getObsService().getObsByUuid(id);
+		if (obs == null || !obs.isComplex()) {
+			return null;
+		}
+		return FHIRAttachmentUtil.generateBinary(obs);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.ObsService#getBinaryFile(String)
+	 */
+	@Override
+	public File getBinaryFile(String id) {
+		Obs obs = Context.getObsService().getObsByUuid(id);
+		if (obs == null || !obs.isComplex()) {
+			return null;
+		}
+		return FHIRAttachmentUtil.getComplexObsFile(obs);
+	}
 }
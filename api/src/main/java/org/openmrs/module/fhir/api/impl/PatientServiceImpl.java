@@ -17,10 +17,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Patient;
+import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.PatientService;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.strategies.patient.PatientStrategyUtil;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.List;
 
@@ -50,8 +54,16 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	/**
 	 * @see org.openmrs.module.fhir.api.PatientService#getPatient(String)
 	 */
-	public Patient getPatient(String uuid) {
-		return PatientStrategyUtil.getPatientStrategy().getPatient(uuid);
+	public Patient getPatient(final String uuid) {
+		// Cache hits skip the core service, so its privilege check is done here
+		Context.requirePrivilege(PrivilegeConstants.GET_PATIENTS);
+		return FHIRResourceCache.getInstance().get(Patient.class, uuid, new FHIRResourceCache.ResourceLoader<Patient>() {
+
+			@Override
+			public Patient load() {
+				return PatientStrategyUtil.getPatientStrategy().getPatient(uuid);
+			}
+		});
 	}
 
 	/**
@@ -96,6 +108,21 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return PatientStrategyUtil.getPatientStrategy().searchPatientsByFamilyName(familyName);
 	}
 
+	/**
+	 * @see org.openmrs.module.fhir.api.PatientService#searchPatientsByName(PatientNameSearchCriteria, Integer, Integer)
+	 */
+	public List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult,
+	                                          Integer maxResults) {
+		return PatientStrategyUtil.getPatientStrategy().searchPatientsByName(criteria, firstResult, maxResults);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.PatientService#getPatientCountByName(PatientNameSearchCriteria)
+	 */
+	public long getPatientCountByName(PatientNameSearchCriteria criteria) {
+		return PatientStrategyUtil.getPatientStrategy().getPatientCountByName(criteria);
+	}
+
 	/**
 	 * @see org.openmrs.module.fhir.api.PatientService#searchPatientsByName(String) (String)
 	 */
@@ -19,7 +19,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Person;
 import org.openmrs.module.fhir.api.PersonService;
+import org.openmrs.module.fhir.api.cache.FHIRNameIndex;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.api.strategies.person.PersonStrategyUtil;
 
 import java.util.List;
@@ -76,6 +78,32 @@ public class PersonServiceImpl implements PersonService {
 		return PersonStrategyUtil.getPersonStrategy().searchPersonsByName(name);
 	}
 
+	/**
+	 * @see org.openmrs.module.fhir.api.PersonService#searchPersonsByName(String, PatientNameSearchCriteria.Match,
+	 * Integer, Integer)
+	 */
+	@Override
+	public List<Person> searchPersonsByName(String name, PatientNameSearchCriteria.Match match, Integer firstResult,
+	                                        Integer maxResults) {
+		return PersonStrategyUtil.getPersonStrategy().searchPersonsByName(name, match, firstResult, maxResults);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.PersonService#getPersonCountByName(String, PatientNameSearchCriteria.Match)
+	 */
+	@Override
+	public long getPersonCountByName(String name, PatientNameSearchCriteria.Match match) {
+		return PersonStrategyUtil.getPersonStrategy().getPersonCountByName(name, match);
+	}
+
+	/**
+	 * @see org.openmrs.module.fhir.api.PersonService#rebuildNameIndex()
+	 */
+	@Override
+	public void rebuildNameIndex() {
+		FHIRNameIndex.getInstance().load(dao.getPersonNameRows(), dao.getPatientIds());
+	}
+
 	/**
 	 * @see org.openmrs.module.fhir.api.PersonService#createFHIRPerson(Person)
 	 */
@@ -22,14 +22,15 @@ import org.hl7.fhir.dstu3.model.Identifier;
 import org.hl7.fhir.dstu3.model.Practitioner;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.openmrs.Person;
-import org.openmrs.PersonName;
 import org.openmrs.Provider;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.fhir.api.PractitionerService;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
 import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRPractitionerUtil;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -62,12 +63,21 @@ public class PractitionerServiceImpl extends BaseOpenmrsService implements Pract
 	/**
 	 * @see org.openmrs.module.fhir.api.PractitionerService#getPractitioner(String)
 	 */
-	public Practitioner getPractitioner(String id) {
-		Provider omrsProvider = Context.getProviderService().getProviderByUuid(id);
-		if (omrsProvider == null || omrsProvider.isRetired()) {
-			return null;
-		}
-		return FHIRPractitionerUtil.generatePractitioner(omrsProvider);
+	public Practitioner getPractitioner(final String id) {
+		// Cache hits skip the core service, so its privilege check is done here
+		Context.requirePrivilege(PrivilegeConstants.GET_PROVIDERS);
+		return FHIRResourceCache.getInstance().get(Practitioner.class, id,
+				new FHIRResourceCache.ResourceLoader<Practitioner>() {
+
+					@Override
+					public Practitioner load() {
+						Provider omrsProvider = Context.getProviderService().getProviderByUuid(id);
+						if (omrsProvider == null || omrsProvider.isRetired()) {
+							return null;
+						}
+						return FHIRPractitionerUtil.generatePractitioner(omrsProvider);
+					}
+				});
 	}
 
 	/**
@@ -77,7 +87,7 @@ public class PractitionerServiceImpl extends BaseOpenmrsService implements Pract
 		Provider omrsProvider = Context.getProviderService().getProviderByUuid(id);
 		List<Practitioner> practitioners = new ArrayList<Practitioner>();
 		if (omrsProvider != null && !omrsProvider.isRetired()) {
-			practitioners.add(FHIRPractitionerUtil.generatePractitioner(omrsProvider));
+			practitioners.add(FHIRPractitionerUtil.getPractitioner(omrsProvider));
 		}
 		return practitioners;
 	}
@@ -89,7 +99,7 @@ public class PractitionerServiceImpl extends BaseOpenmrsService implements Pract
 		List<Provider> omrsProviders = searchProvidersByQuery(name);
 		List<Practitioner> practitioners = new ArrayList<Practitioner>();
 		for (Provider provider : omrsProviders) {
-			practitioners.add(FHIRPractitionerUtil.generatePractitioner(provider));
+			practitioners.add(FHIRPractitionerUtil.getPractitioner(provider));
 		}
 		return practitioners;
 	}
@@ -98,50 +108,43 @@ public class PractitionerServiceImpl extends BaseOpenmrsService implements Pract
 	 * @see org.openmrs.module.fhir.api.PractitionerService#searchPractitionersByGivenName(String)
 	 */
 	public List<Practitioner> searchPractitionersByGivenName(String givenName) {
-		List<Provider> omrsProviders = searchProvidersByQuery(givenName);
-		List<Practitioner> practitioners = new ArrayList<Practitioner>();
-		for (Provider provider : omrsProviders) {
-			if (provider.getPerson() != null) {
-				//Search through the provider given name for check whether given name exist in the returned provider
-				// resource
-
-				if (givenName.equalsIgnoreCase(provider.getPerson().getGivenName())) {
-					practitioners.add(FHIRPractitionerUtil.generatePractitioner(provider));
-				} else {
-					for (PersonName personName : provider.getPerson().getNames()) {
-						if (givenName.equalsIgnoreCase(personName.getGivenName())) {
-							practitioners.add(FHIRPractitionerUtil.generatePractitioner(provider));
-						}
-					}
-				}
-			}
-		}
-		return practitioners;
+		return searchPractitionersByPersonName(givenName, null, null, null);
 	}
 
 	/**
 	 * @see org.openmrs.module.fhir.api.PractitionerService#searchPractitionersByFamilyName(String)
 	 */
 	public List<Practitioner> searchPractitionersByFamilyName(String familyName) {
-		List<Provider> omrsProviders = searchProvidersByQuery(familyName);
+		return searchPractitionersByPersonName(null, familyName, null, null);
+	}
+
+	/**
+	 * The names are matched by the database, which only returns provider uuids. The resources are then served by
+	 * {@link #getPractitioner(String)}, so only providers which are not cached are loaded.
+	 *
+	 * @see org.openmrs.module.fhir.api.PractitionerService#searchPractitionersByPersonName(String, String, Integer,
+	 *      Integer)
+	 */
+	public List<Practitioner> searchPractitionersByPersonName(String givenName, String familyName, Integer firstResult,
+	                                                          Integer maxResults) {
 		List<Practitioner> practitioners = new ArrayList<Practitioner>();
-		for (Provider provider : omrsProviders) {
-			//Search through the provider family name for check whether family name exist in the returned provider resource
-			if (provider.getPerson() != null) {
-				if (familyName.equalsIgnoreCase(provider.getPerson().getFamilyName())) {
-					practitioners.add(FHIRPractitionerUtil.generatePractitioner(provider));
-				} else {
-					for (PersonName personName : provider.getPerson().getNames()) {
-						if (familyName.equalsIgnoreCase(personName.getFamilyName())) {
-							practitioners.add(FHIRPractitionerUtil.generatePractitioner(provider));
-						}
-					}
-					}
+		for (String uuid : dao.searchProviderUuidsByPersonName(givenName, familyName, firstResult, maxResults)) {
+			Practitioner practitioner = getPractitioner(uuid);
+			if (practitioner != null) {
+				practitioners.add(practitioner);
 			}
 		}
 		return practitioners;
 	}
 
+	/**
+	 * @see org.openmrs.module.fhir.api.PractitionerService#getPractitionerCountByPersonName(String, String)
+	 */
+	public long getPractitionerCountByPersonName(String givenName, String familyName) {
+		Context.requirePrivilege(PrivilegeConstants.GET_PROVIDERS);
+		return dao.getProviderCountByPersonName(givenName, familyName);
+	}
+
 	/**
 	 * @see org.openmrs.module.fhir.api.PractitionerService#searchPractitionersByIdentifier(String)
 	 */
@@ -149,7 +152,7 @@ public class PractitionerServiceImpl extends BaseOpenmrsService implements Pract
 		Provider omrsProvider = Context.getProviderService().getProviderByIdentifier(identifier);
 		List<Practitioner> practitioners = new ArrayList<Practitioner>();
 		if (omrsProvider != null) {
-			practitioners.add(FHIRPractitionerUtil.generatePractitioner(omrsProvider));
+			practitioners.add(FHIRPractitionerUtil.getPractitioner(omrsProvider));
 		}
 		return practitioners;
 	}
@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.scheduler;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and lag of the {@link RadiologyReportSyncTask}, accumulated since the module was started.
+ */
+public class RadiologyReportSyncMetrics {
+
+	private static final AtomicLong runs = new AtomicLong();
+
+	private static final AtomicLong fetched = new AtomicLong();
+
+	private static final AtomicLong upserted = new AtomicLong();
+
+	private static final AtomicLong unchanged = new AtomicLong();
+
+	private static final AtomicLong failed = new AtomicLong();
+
+	private static final AtomicLong skipped = new AtomicLong();
+
+	private static volatile long lastRunDurationMillis = 0;
+
+	private static volatile long lastRunFetched = 0;
+
+	private static volatile Date lastRunFinished = null;
+
+	private static volatile Date checkpoint = null;
+
+	private RadiologyReportSyncMetrics() {
+	}
+
+	static void recordReport(boolean isUpserted) {
+		fetched.incrementAndGet();
+		if (isUpserted) {
+			upserted.incrementAndGet();
+		} else {
+			unchanged.incrementAndGet();
+		}
+	}
+
+	static void recordFailure() {
+		fetched.incrementAndGet();
+		failed.incrementAndGet();
+	}
+
+	static void recordSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	static void recordCheckpoint(Date newCheckpoint) {
+		checkpoint = newCheckpoint;
+	}
+
+	static void recordRun(long durationMillis, long reportsFetched) {
+		runs.incrementAndGet();
+		lastRunDurationMillis = durationMillis;
+		lastRunFetched = reportsFetched;
+		lastRunFinished = new Date();
+	}
+
+	public static long getRuns() {
+		return runs.get();
+	}
+
+	public static long getFetched() {
+		return fetched.get();
+	}
+
+	public static long getUpserted() {
+		return upserted.get();
+	}
+
+	public static long getUnchanged() {
+		return unchanged.get();
+	}
+
+	public static long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return failed reports the checkpoint was moved past once they ran out of attempts
+	 */
+	public static long getSkipped() {
+		return skipped.get();
+	}
+
+	public static long getLastRunDurationMillis() {
+		return lastRunDurationMillis;
+	}
+
+	public static Date getLastRunFinished() {
+		return lastRunFinished;
+	}
+
+	public static Date getCheckpoint() {
+		return checkpoint;
+	}
+
+	/**
+	 * @return reports processed per second during the last run
+	 */
+	public static double getLastRunThroughput() {
+		if (lastRunDurationMillis == 0) {
+			return 0;
+		}
+		return lastRunFetched * 1000.0 / lastRunDurationMillis;
+	}
+
+	/**
+	 * @return milliseconds between the last update of the newest synced report and now, or -1 if nothing was synced
+	 */
+	public static long getLagMillis() {
+		Date currentCheckpoint = checkpoint;
+		if (currentCheckpoint == null) {
+			return -1;
+		}
+		return System.currentTimeMillis() - currentCheckpoint.getTime();
+	}
+
+	public static String getSummary() {
+		return "runs=" + getRuns() + ", fetched=" + getFetched() + ", upserted=" + getUpserted() + ", unchanged="
+				+ getUnchanged() + ", failed=" + getFailed() + ", skipped=" + getSkipped() + ", lastRunThroughput="
+				+ getLastRunThroughput()
+				+ " reports/s, lagMillis=" + getLagMillis();
+	}
+}
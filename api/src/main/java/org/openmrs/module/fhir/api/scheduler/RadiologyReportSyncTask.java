@@ -0,0 +1,150 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.scheduler;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.DiagnosticReportService;
+import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandler;
+import org.openmrs.module.fhir.api.diagnosticreport.handler.RadiologyHandler;
+import org.openmrs.module.fhir.api.util.FHIRRESTfulGenericClient;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+import java.util.Date;
+
+/**
+ * Pulls Radiology DiagnosticReports from the third party radiology server into OpenMRS. Only reports updated since
+ * the last checkpoint are requested, page by page, and the checkpoint is advanced after every page so that an
+ * interrupted run continues where it stopped. The checkpoint is not advanced past a report which failed to sync,
+ * unless the same version of the report failed in {@link FHIRUtils#getRadiologySyncMaxAttempts()} runs: it is then
+ * skipped, so that a report which can never be stored does not hold the sync back forever.
+ */
+public class RadiologyReportSyncTask extends AbstractTask {
+
+	protected final Log log = LogFactory.getLog(this.getClass());
+
+	private static final String RADIOLOGY_SERVICE_CATEGORY = "RAD";
+
+	@Override
+	public void execute() {
+		if (isExecuting()) {
+			return;
+		}
+		startExecuting();
+		try {
+			String serverBase = FHIRUtils.getDiagnosticReportRadiologyBaseServerURL();
+			if (StringUtils.isBlank(serverBase)) {
+				log.warn("Radiology server is not configured, skipping Radiology DiagnosticReport sync");
+				return;
+			}
+			DiagnosticReportHandler handler = Context.getService(DiagnosticReportService.class).getHandler(
+					RADIOLOGY_SERVICE_CATEGORY);
+			if (!(handler instanceof RadiologyHandler)) {
+				log.warn("No RadiologyHandler is registered, skipping Radiology DiagnosticReport sync");
+				return;
+			}
+			sync(serverBase, (RadiologyHandler) handler);
+		}
+		finally {
+			stopExecuting();
+		}
+	}
+
+	/**
+	 * Pull all reports updated since the stored checkpoint
+	 *
+	 * @param serverBase base URL of the third party radiology server
+	 * @param handler    handler which stores the reports
+	 */
+	public void sync(String serverBase, RadiologyHandler handler) {
+		long started = System.currentTimeMillis();
+		long fetched = 0;
+		Date checkpoint = FHIRUtils.getRadiologySyncCheckpoint();
+		int maxAttempts = FHIRUtils.getRadiologySyncMaxAttempts();
+		RadiologyReportSyncMetrics.recordCheckpoint(checkpoint);
+
+		Bundle page = FHIRRESTfulGenericClient.searchDiagnosticReportsUpdatedSince(serverBase,
+				RADIOLOGY_SERVICE_CATEGORY, checkpoint, FHIRUtils.getRadiologySyncPageSize());
+		// Once a report failed, the checkpoint stays before it so that it is fetched again by the next run
+		boolean failed = false;
+		while (page != null) {
+			Date pageCheckpoint = checkpoint;
+			for (Bundle.BundleEntryComponent entry : page.getEntry()) {
+				Resource resource = entry.getResource();
+				if (!(resource instanceof DiagnosticReport)) {
+					continue;
+				}
+				DiagnosticReport diagnosticReport = (DiagnosticReport) resource;
+				fetched++;
+				try {
+					RadiologyReportSyncMetrics.recordReport(handler.upsertRemoteDiagnosticReport(serverBase,
+							diagnosticReport));
+				}
+				catch (RuntimeException e) {
+					RadiologyReportSyncMetrics.recordFailure();
+					if (recordFailure(serverBase, handler, diagnosticReport) < maxAttempts) {
+						log.error("Failed to sync Radiology DiagnosticReport " + diagnosticReport.getIdElement()
+								.getIdPart() + " from " + serverBase + ", the checkpoint is kept before it", e);
+						failed = true;
+					} else {
+						RadiologyReportSyncMetrics.recordSkipped();
+						log.error("Failed to sync Radiology DiagnosticReport " + diagnosticReport.getIdElement()
+								.getIdPart() + " from " + serverBase + " " + maxAttempts + " times, it is skipped until"
+								+ " it is updated on the server", e);
+					}
+				}
+				Date lastUpdated = diagnosticReport.getMeta().getLastUpdated();
+				if (!failed && lastUpdated != null && (pageCheckpoint == null || lastUpdated.after(pageCheckpoint))) {
+					pageCheckpoint = lastUpdated;
+				}
+			}
+			// Reports are returned oldest first, so everything up to the newest report of this page is synced. Reports
+			// after a failed one are refetched by the next run, which skips those whose remote version is unchanged.
+			if (pageCheckpoint != null && !pageCheckpoint.equals(checkpoint)) {
+				checkpoint = pageCheckpoint;
+				FHIRUtils.setRadiologySyncCheckpoint(checkpoint);
+				RadiologyReportSyncMetrics.recordCheckpoint(checkpoint);
+			}
+			Context.flushSession();
+			Context.clearSession();
+			page = FHIRRESTfulGenericClient.loadNextPage(serverBase, page);
+		}
+
+		RadiologyReportSyncMetrics.recordRun(System.currentTimeMillis() - started, fetched);
+		if (log.isInfoEnabled()) {
+			log.info("Radiology DiagnosticReport sync finished: " + RadiologyReportSyncMetrics.getSummary());
+		}
+	}
+
+	/**
+	 * @return number of consecutive failed attempts to sync this version of the report, or zero if the attempt could
+	 * not be recorded, in which case the report is retried
+	 */
+	private int recordFailure(String serverBase, RadiologyHandler handler, DiagnosticReport diagnosticReport) {
+		try {
+			return handler.recordRemoteDiagnosticReportFailure(serverBase, diagnosticReport);
+		}
+		catch (RuntimeException e) {
+			log.warn("Failed to record the failed sync of Radiology DiagnosticReport "
+					+ diagnosticReport.getIdElement().getIdPart(), e);
+			return 0;
+		}
+	}
+}
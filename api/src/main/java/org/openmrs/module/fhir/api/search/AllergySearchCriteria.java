@@ -0,0 +1,64 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+import java.util.Collection;
+
+/**
+ * Filters of an Allergy search. Filters which are null are not applied, the others are combined with AND.
+ * <p>
+ * OpenMRS removes an allergy from the allergy list of a patient by voiding it, so the FHIR clinical status active is
+ * matched by the non voided allergies and the inactive and resolved statuses by the voided ones.
+ */
+public class AllergySearchCriteria {
+
+	private Collection<Integer> patientIds;
+
+	private String patient;
+
+	private Boolean voided = false;
+
+	/**
+	 * @return ids of the patients whose allergies are searched
+	 */
+	public Collection<Integer> getPatientIds() {
+		return patientIds;
+	}
+
+	public void setPatientIds(Collection<Integer> patientIds) {
+		this.patientIds = patientIds;
+	}
+
+	/**
+	 * @return uuid of the patient whose allergies are searched
+	 */
+	public String getPatient() {
+		return patient;
+	}
+
+	public void setPatient(String patient) {
+		this.patient = patient;
+	}
+
+	/**
+	 * @return true for voided allergies, false for allergies which are not voided, null for both. Defaults to false.
+	 */
+	public Boolean getVoided() {
+		return voided;
+	}
+
+	public void setVoided(Boolean voided) {
+		this.voided = voided;
+	}
+}
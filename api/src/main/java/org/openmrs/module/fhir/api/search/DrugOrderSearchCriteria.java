@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+import java.util.Date;
+
+/**
+ * Filters of a DrugOrder search. Filters which are null are not applied, the others are combined with AND.
+ * <p>
+ * The statuses follow the mapping of {@link org.openmrs.module.fhir.api.util.FHIRMedicationRequestUtil}: an order
+ * is active until it is stopped or expires, stopped once its stop date has passed and completed otherwise.
+ */
+public class DrugOrderSearchCriteria {
+
+	public enum Status {
+		ACTIVE, STOPPED, COMPLETED
+	}
+
+	private Boolean voided = false;
+
+	private String patient;
+
+	private Status status;
+
+	private Date activeOn;
+
+	private Date authoredFrom;
+
+	private Date authoredTo;
+
+	/**
+	 * @return true for voided orders, false for orders which are not voided, null for both. Defaults to false.
+	 */
+	public Boolean getVoided() {
+		return voided;
+	}
+
+	public void setVoided(Boolean voided) {
+		this.voided = voided;
+	}
+
+	/**
+	 * @return uuid of the patient
+	 */
+	public String getPatient() {
+		return patient;
+	}
+
+	public void setPatient(String patient) {
+		this.patient = patient;
+	}
+
+	/**
+	 * @return status of the orders at the time of the search
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return orders which were not active at this instant are excluded
+	 */
+	public Date getActiveOn() {
+		return activeOn;
+	}
+
+	public void setActiveOn(Date activeOn) {
+		this.activeOn = activeOn;
+	}
+
+	/**
+	 * @return orders which were created before this instant are excluded
+	 */
+	public Date getAuthoredFrom() {
+		return authoredFrom;
+	}
+
+	public void setAuthoredFrom(Date authoredFrom) {
+		this.authoredFrom = authoredFrom;
+	}
+
+	/**
+	 * @return orders which were created after this instant are excluded
+	 */
+	public Date getAuthoredTo() {
+		return authoredTo;
+	}
+
+	public void setAuthoredTo(Date authoredTo) {
+		this.authoredTo = authoredTo;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+/**
+ * Filters of a Location search. Filters which are null are not applied, the others are combined with AND.
+ */
+public class LocationSearchCriteria {
+
+	private Boolean active;
+
+	private String name;
+
+	private String partOf;
+
+	private String city;
+
+	private String state;
+
+	private String country;
+
+	private String postalCode;
+
+	/**
+	 * @return true for locations which are not retired, false for retired locations
+	 */
+	public Boolean getActive() {
+		return active;
+	}
+
+	public void setActive(Boolean active) {
+		this.active = active;
+	}
+
+	/**
+	 * @return case insensitive prefix of the location name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @return uuid of the parent location
+	 */
+	public String getPartOf() {
+		return partOf;
+	}
+
+	public void setPartOf(String partOf) {
+		this.partOf = partOf;
+	}
+
+	/**
+	 * @return case insensitive prefix of the city or village
+	 */
+	public String getCity() {
+		return city;
+	}
+
+	public void setCity(String city) {
+		this.city = city;
+	}
+
+	/**
+	 * @return case insensitive prefix of the state or province
+	 */
+	public String getState() {
+		return state;
+	}
+
+	public void setState(String state) {
+		this.state = state;
+	}
+
+	/**
+	 * @return case insensitive prefix of the country
+	 */
+	public String getCountry() {
+		return country;
+	}
+
+	public void setCountry(String country) {
+		this.country = country;
+	}
+
+	/**
+	 * @return case insensitive prefix of the postal code
+	 */
+	public String getPostalCode() {
+		return postalCode;
+	}
+
+	public void setPostalCode(String postalCode) {
+		this.postalCode = postalCode;
+	}
+}
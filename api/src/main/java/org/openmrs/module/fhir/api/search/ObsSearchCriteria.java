@@ -0,0 +1,102 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Filters of a search of the obs which are served as another FHIR resource, such as the Conditions and
+ * AllergyIntolerances stored as obs. Filters which are null are not applied, the others are combined with AND.
+ */
+public class ObsSearchCriteria {
+
+	private Collection<Integer> conceptIds;
+
+	private Collection<Integer> patientIds;
+
+	private String patient;
+
+	private Date from;
+
+	private Date to;
+
+	private Boolean voided = false;
+
+	/**
+	 * @return ids of the concepts of the obs, an empty collection matches no obs
+	 */
+	public Collection<Integer> getConceptIds() {
+		return conceptIds;
+	}
+
+	public void setConceptIds(Collection<Integer> conceptIds) {
+		this.conceptIds = conceptIds;
+	}
+
+	/**
+	 * @return ids of the persons of the obs
+	 */
+	public Collection<Integer> getPatientIds() {
+		return patientIds;
+	}
+
+	public void setPatientIds(Collection<Integer> patientIds) {
+		this.patientIds = patientIds;
+	}
+
+	/**
+	 * @return uuid of the person of the obs
+	 */
+	public String getPatient() {
+		return patient;
+	}
+
+	public void setPatient(String patient) {
+		this.patient = patient;
+	}
+
+	/**
+	 * @return obs which were taken before this instant are excluded
+	 */
+	public Date getFrom() {
+		return from;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from;
+	}
+
+	/**
+	 * @return obs which were taken after this instant are excluded
+	 */
+	public Date getTo() {
+		return to;
+	}
+
+	public void setTo(Date to) {
+		this.to = to;
+	}
+
+	/**
+	 * @return true for voided obs, false for obs which are not voided, null for both. Defaults to false.
+	 */
+	public Boolean getVoided() {
+		return voided;
+	}
+
+	public void setVoided(Boolean voided) {
+		this.voided = voided;
+	}
+}
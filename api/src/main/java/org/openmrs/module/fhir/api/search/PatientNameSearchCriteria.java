@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+/**
+ * Filters of a Patient search by person name. Filters which are null are not applied, the others must all be matched
+ * by the same non voided name of the patient.
+ */
+public class PatientNameSearchCriteria {
+
+	/**
+	 * How a name filter is compared with the names of the patients, following the FHIR string search modifiers
+	 */
+	public enum Match {
+		/**
+		 * The name starts with the filter, the FHIR default
+		 */
+		START,
+		/**
+		 * The name is the filter, the FHIR :exact modifier
+		 */
+		EXACT,
+		/**
+		 * The name contains the filter, the FHIR :contains modifier
+		 */
+		CONTAINS,
+		/**
+		 * A word of the name sounds like the filter, the :phonetic modifier. Only answered by the name index.
+		 */
+		PHONETIC,
+		/**
+		 * A word of the name is within one or two typos of the filter, the :fuzzy modifier. Only answered by the name
+		 * index.
+		 */
+		FUZZY
+	}
+
+	private String givenName;
+
+	private Match givenNameMatch = Match.START;
+
+	private String familyName;
+
+	private Match familyNameMatch = Match.START;
+
+	/**
+	 * @return given name filter
+	 */
+	public String getGivenName() {
+		return givenName;
+	}
+
+	public void setGivenName(String givenName) {
+		this.givenName = givenName;
+	}
+
+	/**
+	 * @return how the given name filter is compared, defaults to {@link Match#START}
+	 */
+	public Match getGivenNameMatch() {
+		return givenNameMatch;
+	}
+
+	public void setGivenNameMatch(Match givenNameMatch) {
+		this.givenNameMatch = givenNameMatch;
+	}
+
+	/**
+	 * @return family name filter
+	 */
+	public String getFamilyName() {
+		return familyName;
+	}
+
+	public void setFamilyName(String familyName) {
+		this.familyName = familyName;
+	}
+
+	/**
+	 * @return how the family name filter is compared, defaults to {@link Match#START}
+	 */
+	public Match getFamilyNameMatch() {
+		return familyNameMatch;
+	}
+
+	public void setFamilyNameMatch(Match familyNameMatch) {
+		this.familyNameMatch = familyNameMatch;
+	}
+
+	/**
+	 * @return true if a filter uses a match which cannot be expressed as a database query
+	 */
+	public boolean isApproximate() {
+		return (givenName != null && isApproximate(givenNameMatch)) || (familyName != null && isApproximate(
+				familyNameMatch));
+	}
+
+	public static boolean isApproximate(Match match) {
+		return match == Match.PHONETIC || match == Match.FUZZY;
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.search;
+
+import java.util.Date;
+
+/**
+ * Filters of a Visit search. Filters which are null are not applied, the others are combined with AND.
+ */
+public class VisitSearchCriteria {
+
+	private Boolean voided = false;
+
+	private Boolean inProgress;
+
+	private String patient;
+
+	private String location;
+
+	private Date from;
+
+	private Date to;
+
+	/**
+	 * @return true for voided visits, false for visits which are not voided, null for both. Defaults to false.
+	 */
+	public Boolean getVoided() {
+		return voided;
+	}
+
+	public void setVoided(Boolean voided) {
+		this.voided = voided;
+	}
+
+	/**
+	 * @return true for visits which are not stopped, false for stopped visits
+	 */
+	public Boolean getInProgress() {
+		return inProgress;
+	}
+
+	public void setInProgress(Boolean inProgress) {
+		this.inProgress = inProgress;
+	}
+
+	/**
+	 * @return uuid of the patient
+	 */
+	public String getPatient() {
+		return patient;
+	}
+
+	public void setPatient(String patient) {
+		this.patient = patient;
+	}
+
+	/**
+	 * @return uuid of the visit location
+	 */
+	public String getLocation() {
+		return location;
+	}
+
+	public void setLocation(String location) {
+		this.location = location;
+	}
+
+	/**
+	 * @return visits which were stopped before this instant are excluded
+	 */
+	public Date getFrom() {
+		return from;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from;
+	}
+
+	/**
+	 * @return visits which were started after this instant are excluded
+	 */
+	public Date getTo() {
+		return to;
+	}
+
+	public void setTo(Date to) {
+		this.to = to;
+	}
+}
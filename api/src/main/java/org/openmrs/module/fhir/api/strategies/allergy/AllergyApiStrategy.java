@@ -17,10 +17,12 @@ import ca.uhn.fhir.rest.server.exceptions.NotImplementedOperationException;
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
 import org.openmrs.Allergy;
 import org.openmrs.Patient;
-import org.openmrs.PatientIdentifierType;
-import org.openmrs.api.PatientService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRAllergyIntoleranceAllergyAPIUtil;
+import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -44,47 +46,51 @@ public class AllergyApiStrategy implements GenericAllergyStrategy {
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPatientIdentifier(String identifier) {
-		org.openmrs.api.PatientService patientService = Context.getPatientService();
-		PatientService allergyService = Context.getService(PatientService.class);
-		List<AllergyIntolerance> allergies = new ArrayList();
-		List<PatientIdentifierType> allPatientIdentifierTypes = patientService.getAllPatientIdentifierTypes();
-		List<org.openmrs.Patient> patientList = patientService.getPatients(identifier, null, allPatientIdentifierTypes,
-				true);
-		if (patientList != null && !patientList.isEmpty()) {
-			for (Patient patient : patientList) {
-				for (org.openmrs.Allergy allergy : allergyService.getAllergies(patient)) {
-					allergies.add(FHIRAllergyIntoleranceAllergyAPIUtil.generateAllergyTolerance(allergy));
-				}
-			}
-		}
-		return allergies;
+		return searchAllergiesByPatients(FHIRPatientUtil.getPatientsByIdentifier(identifier, null));
 	}
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPatientName(String name) {
-		org.openmrs.api.PatientService patientService = Context.getPatientService();
-		PatientService allergyService = Context.getService(PatientService.class);
-		List<org.openmrs.Patient> patientList = patientService.getPatients(name, null, null, true);
-		List<AllergyIntolerance> allergies = new ArrayList();
-		for (Patient patient : patientList) {
-			for (Allergy allergy : allergyService.getAllergies(patient)) {
-				allergies.add(FHIRAllergyIntoleranceAllergyAPIUtil.generateAllergyTolerance(allergy));
-			}
-		}
-		return allergies;
+		return searchAllergiesByPatients(Context.getPatientService().getPatients(name, null, null, true));
 	}
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPersonId(String uuid) {
-		org.openmrs.api.PatientService patientService = Context.getPatientService();
-		PatientService allergyService = Context.getService(PatientService.class);
-		Patient patient = patientService.getPatientByUuid(uuid);
-		List<AllergyIntolerance> allergies = new ArrayList();
-		if (patient != null) {
-			for (Allergy allergy : allergyService.getAllergies(patient)) {
-				allergies.add(FHIRAllergyIntoleranceAllergyAPIUtil.generateAllergyTolerance(allergy));
-			}
+		AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatient(uuid);
+		return searchAllergies(criteria, null, null);
+	}
+
+	@Override
+	public List<AllergyIntolerance> searchAllergies(AllergySearchCriteria criteria, Integer firstResult,
+	                                                Integer maxResults) {
+		Context.requirePrivilege(PrivilegeConstants.GET_ALLERGIES);
+		List<AllergyIntolerance> allergies = new ArrayList<AllergyIntolerance>();
+		for (Allergy allergy : FHIRUtils.getFHIRDAO().searchAllergies(criteria, firstResult, maxResults)) {
+			allergies.add(FHIRAllergyIntoleranceAllergyAPIUtil.generateAllergyTolerance(allergy));
 		}
 		return allergies;
 	}
+
+	@Override
+	public long getAllergyCount(AllergySearchCriteria criteria) {
+		Context.requirePrivilege(PrivilegeConstants.GET_ALLERGIES);
+		return FHIRUtils.getFHIRDAO().getAllergyCount(criteria);
+	}
+
+	/**
+	 * Get the allergies of all the patients with a query per thousand patients, rather than one per patient
+	 */
+	private List<AllergyIntolerance> searchAllergiesByPatients(List<Patient> patients) {
+		if (patients == null || patients.isEmpty()) {
+			return new ArrayList<AllergyIntolerance>();
+		}
+		List<Integer> patientIds = new ArrayList<Integer>();
+		for (Patient patient : patients) {
+			patientIds.add(patient.getPatientId());
+		}
+		AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatientIds(patientIds);
+		return searchAllergies(criteria, null, null);
+	}
 }
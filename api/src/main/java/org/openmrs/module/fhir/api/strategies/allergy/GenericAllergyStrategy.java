@@ -14,6 +14,7 @@
 package org.openmrs.module.fhir.api.strategies.allergy;
 
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
 
 import java.util.List;
 
@@ -30,4 +31,8 @@ public interface GenericAllergyStrategy {
 	List<AllergyIntolerance> searchAllergiesByPatientName(String name);
 
 	List<AllergyIntolerance> searchAllergiesByPersonId(String uuid);
+
+	List<AllergyIntolerance> searchAllergies(AllergySearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	long getAllergyCount(AllergySearchCriteria criteria);
 }
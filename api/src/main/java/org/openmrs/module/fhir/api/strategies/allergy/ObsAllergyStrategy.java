@@ -13,20 +13,51 @@
  */
 package org.openmrs.module.fhir.api.strategies.allergy;
 
+import org.apache.commons.lang.StringUtils;
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
+import org.hl7.fhir.dstu3.model.Annotation;
+import org.hl7.fhir.dstu3.model.CodeableConcept;
+import org.hl7.fhir.dstu3.model.Coding;
+import org.openmrs.Concept;
+import org.openmrs.ConceptMap;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRObsConceptCache;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.util.PrivilegeConstants;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Serves the obs of the concept configured by {@link FHIRConstants#OBS_ALLERGY_STRATEGY_CONCEPT_UUID} as
+ * AllergyIntolerances, the coded value of an obs being the allergen.
+ */
 public class ObsAllergyStrategy implements GenericAllergyStrategy {
 
 	@Override
 	public AllergyIntolerance getAllergyById(String uuid) {
-		return null;
+		Obs obs = Context.getObsService().getObsByUuid(uuid);
+		if (obs == null || obs.isVoided() || !FHIRObsConceptCache.getInstance().getAllergyConceptIds().contains(
+				obs.getConcept().getConceptId())) {
+			return null;
+		}
+		return generateAllergyIntolerance(obs);
 	}
 
 	@Override
 	public List<AllergyIntolerance> searchAllergyById(String uuid) {
-		return null;
+		List<AllergyIntolerance> allergies = new ArrayList<AllergyIntolerance>();
+		AllergyIntolerance allergy = getAllergyById(uuid);
+		if (allergy != null) {
+			allergies.add(allergy);
+		}
+		return allergies;
 	}
 
 	@Override
@@ -36,16 +67,95 @@ public class ObsAllergyStrategy implements GenericAllergyStrategy {
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPatientIdentifier(String identifier) {
-		return null;
+		return searchAllergiesByPatients(FHIRPatientUtil.getPatientsByIdentifier(identifier, null));
 	}
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPatientName(String name) {
-		return null;
+		return searchAllergiesByPatients(Context.getPatientService().getPatients(name, null, null, true));
 	}
 
 	@Override
 	public List<AllergyIntolerance> searchAllergiesByPersonId(String uuid) {
-		return null;
+		AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatient(uuid);
+		return searchAllergies(criteria, null, null);
+	}
+
+	@Override
+	public List<AllergyIntolerance> searchAllergies(AllergySearchCriteria criteria, Integer firstResult,
+	                                                Integer maxResults) {
+		Context.requirePrivilege(PrivilegeConstants.GET_OBS);
+		List<AllergyIntolerance> allergies = new ArrayList<AllergyIntolerance>();
+		for (Obs obs : FHIRUtils.getFHIRDAO().searchObs(toObsSearchCriteria(criteria), firstResult, maxResults)) {
+			allergies.add(generateAllergyIntolerance(obs));
+		}
+		return allergies;
+	}
+
+	@Override
+	public long getAllergyCount(AllergySearchCriteria criteria) {
+		Context.requirePrivilege(PrivilegeConstants.GET_OBS);
+		return FHIRUtils.getFHIRDAO().getObsCount(toObsSearchCriteria(criteria));
+	}
+
+	private List<AllergyIntolerance> searchAllergiesByPatients(List<Patient> patients) {
+		if (patients == null || patients.isEmpty()) {
+			return new ArrayList<AllergyIntolerance>();
+		}
+		List<Integer> patientIds = new ArrayList<Integer>();
+		for (Patient patient : patients) {
+			patientIds.add(patient.getPatientId());
+		}
+		AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatientIds(patientIds);
+		return searchAllergies(criteria, null, null);
+	}
+
+	private ObsSearchCriteria toObsSearchCriteria(AllergySearchCriteria criteria) {
+		ObsSearchCriteria obsCriteria = new ObsSearchCriteria();
+		obsCriteria.setConceptIds(FHIRObsConceptCache.getInstance().getAllergyConceptIds());
+		obsCriteria.setPatientIds(criteria.getPatientIds());
+		obsCriteria.setPatient(criteria.getPatient());
+		obsCriteria.setVoided(criteria.getVoided());
+		return obsCriteria;
+	}
+
+	/**
+	 * Map an allergy obs to an AllergyIntolerance. The id is the obs uuid, the code the coded value of the obs, or
+	 * its text value, and the note the obs comment.
+	 */
+	private AllergyIntolerance generateAllergyIntolerance(Obs obs) {
+		AllergyIntolerance allergyIntolerance = new AllergyIntolerance();
+		allergyIntolerance.setId(obs.getUuid());
+		allergyIntolerance.setPatient(FHIRUtils.buildPatientOrPersonResourceReference(obs.getPerson()));
+		allergyIntolerance.setAssertedDate(obs.getObsDatetime());
+		allergyIntolerance.setClinicalStatus(obs.isVoided() ? AllergyIntolerance.AllergyIntoleranceClinicalStatus
+				.INACTIVE : AllergyIntolerance.AllergyIntoleranceClinicalStatus.ACTIVE);
+
+		CodeableConcept code = new CodeableConcept();
+		Concept allergen = obs.getValueCoded();
+		if (allergen != null) {
+			if (allergen.getConceptMappings() != null) {
+				for (ConceptMap map : allergen.getConceptMappings()) {
+					if (map.getConceptReferenceTerm() != null) {
+						code.addCoding(FHIRUtils.getCodingDtByConceptMappings(map));
+					}
+				}
+			}
+			Coding coding = new Coding().setCode(allergen.getUuid()).setSystem(FHIRConstants.OPENMRS_URI);
+			if (allergen.getName() != null) {
+				coding.setDisplay(allergen.getName().getName());
+			}
+			code.addCoding(coding);
+		} else if (StringUtils.isNotBlank(obs.getValueText())) {
+			code.setText(obs.getValueText());
+		}
+		allergyIntolerance.setCode(code);
+
+		if (StringUtils.isNotBlank(obs.getComment())) {
+			allergyIntolerance.addNote(new Annotation().setText(obs.getComment()));
+		}
+		return allergyIntolerance;
 	}
 }
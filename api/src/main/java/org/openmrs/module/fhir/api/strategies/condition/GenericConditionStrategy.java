@@ -14,6 +14,7 @@
 package org.openmrs.module.fhir.api.strategies.condition;
 
 import org.hl7.fhir.dstu3.model.Condition;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 
 import java.util.List;
 
@@ -29,4 +30,17 @@ public interface GenericConditionStrategy {
 	List<Condition> searchConditionById(String uuid);
 
 	List<Condition> searchConditionByName(String name);
+
+	/**
+	 * Search the conditions stored as obs. The concepts of the obs are restricted to the configured condition
+	 * concepts.
+	 *
+	 * @param criteria    filters of the search
+	 * @param firstResult index of the first condition to return, starting at 0
+	 * @param maxResults  maximum number of conditions to return, or null for all of them
+	 * @return conditions, most recent first
+	 */
+	List<Condition> searchConditions(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+	long getConditionCount(ObsSearchCriteria criteria);
 }
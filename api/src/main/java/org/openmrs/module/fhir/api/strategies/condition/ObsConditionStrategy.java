@@ -13,7 +13,6 @@
  */
 package org.openmrs.module.fhir.api.strategies.condition;
 
-import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.hl7.fhir.dstu3.model.Annotation;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
@@ -21,16 +20,22 @@ import org.hl7.fhir.dstu3.model.Coding;
 import org.hl7.fhir.dstu3.model.Condition;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Reference;
+import org.openmrs.Concept;
 import org.openmrs.ConceptMap;
 import org.openmrs.Obs;
 import org.openmrs.PersonName;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRObsConceptCache;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ObsConditionStrategy implements GenericConditionStrategy {
 
@@ -41,10 +46,9 @@ public class ObsConditionStrategy implements GenericConditionStrategy {
 	 */
 	@Override
 	public Condition getConditionById(String uuid) {
-		int[] conceptsAsConditions = FHIRUtils.getConceptIdsOfConditions();
 		Obs obs = Context.getObsService().getObsByUuid(uuid);
-		if (obs == null || obs.isVoided() || conceptsAsConditions == null || !ArrayUtils.contains
-				(conceptsAsConditions, obs.getConcept().getId())) {
+		if (obs == null || obs.isVoided() || !FHIRObsConceptCache.getInstance().getConditionConceptIds().contains(
+				obs.getConcept().getId())) {
 			return null;
 		}
 
@@ -53,12 +57,63 @@ public class ObsConditionStrategy implements GenericConditionStrategy {
 
 	@Override
 	public List<Condition> searchConditionById(String uuid) {
-		return null;
+		List<Condition> conditions = new ArrayList<Condition>();
+		Condition condition = getConditionById(uuid);
+		if (condition != null) {
+			conditions.add(condition);
+		}
+		return conditions;
 	}
 
+	/**
+	 * Search the conditions whose concept has a name containing the given name
+	 */
 	@Override
 	public List<Condition> searchConditionByName(String name) {
-		return null;
+		List<Integer> conceptIds = new ArrayList<Integer>();
+		for (Integer conceptId : FHIRObsConceptCache.getInstance().getConditionConceptIds()) {
+			Concept concept = Context.getConceptService().getConcept(conceptId);
+			if (concept != null && concept.getName() != null && concept.getName().getName().toLowerCase().contains(
+					name.toLowerCase())) {
+				conceptIds.add(conceptId);
+			}
+		}
+		ObsSearchCriteria criteria = new ObsSearchCriteria();
+		criteria.setConceptIds(conceptIds);
+		return searchConditions(criteria, null, null);
+	}
+
+	@Override
+	public List<Condition> searchConditions(ObsSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+		Context.requirePrivilege(PrivilegeConstants.GET_OBS);
+		List<Condition> conditions = new ArrayList<Condition>();
+		for (Obs obs : FHIRUtils.getFHIRDAO().searchObs(restrictToConditionConcepts(criteria), firstResult,
+				maxResults)) {
+			conditions.add(generateFHIRConditionForOpenMRSObs(obs));
+		}
+		return conditions;
+	}
+
+	@Override
+	public long getConditionCount(ObsSearchCriteria criteria) {
+		Context.requirePrivilege(PrivilegeConstants.GET_OBS);
+		return FHIRUtils.getFHIRDAO().getObsCount(restrictToConditionConcepts(criteria));
+	}
+
+	private ObsSearchCriteria restrictToConditionConcepts(ObsSearchCriteria criteria) {
+		Set<Integer> conceptIds = new LinkedHashSet<Integer>(
+				FHIRObsConceptCache.getInstance().getConditionConceptIds());
+		if (criteria.getConceptIds() != null) {
+			conceptIds.retainAll(criteria.getConceptIds());
+		}
+		ObsSearchCriteria restricted = new ObsSearchCriteria();
+		restricted.setConceptIds(conceptIds);
+		restricted.setPatientIds(criteria.getPatientIds());
+		restricted.setPatient(criteria.getPatient());
+		restricted.setFrom(criteria.getFrom());
+		restricted.setTo(criteria.getTo());
+		restricted.setVoided(criteria.getVoided());
+		return restricted;
 	}
 
 	/**
@@ -120,6 +175,7 @@ public class ObsConditionStrategy implements GenericConditionStrategy {
 			List<Annotation> annotations = new ArrayList<Annotation>();
 			Annotation annotation = new Annotation();
 			annotation.setText(openMrsObs.getComment());
+			annotations.add(annotation);
 			fhirCondition.setNote(annotations);
 		}
 
@@ -1,6 +1,7 @@
 package org.openmrs.module.fhir.api.strategies.location;
 
 import org.hl7.fhir.dstu3.model.Location;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
 
 import java.util.List;
 
@@ -14,6 +15,10 @@ public interface GenericLocationStrategy {
 
     List<Location> searchLocationsByName(String name);
 
+    List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+    long getLocationCount(LocationSearchCriteria criteria);
+
     void deleteLocation(String uuid);
 
     Location updateLocation(String uuid, Location location);
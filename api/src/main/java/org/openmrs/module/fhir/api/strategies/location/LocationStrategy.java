@@ -4,7 +4,11 @@ import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import org.apache.commons.lang.StringUtils;
 import org.hl7.fhir.dstu3.model.Location;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRLocationUtil;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -15,6 +19,12 @@ public class LocationStrategy implements GenericLocationStrategy {
 
     @Override
     public Location getLocation(String uuid) {
+        FHIRLocationIndex index = FHIRLocationIndex.getInstance();
+        if (index.isLoaded() && index.contains(uuid)) {
+            // The index skips the core service, so its privilege check is done here
+            Context.requirePrivilege(PrivilegeConstants.GET_LOCATIONS);
+            return index.getLocation(uuid);
+        }
         org.openmrs.Location omrsLocation = Context.getLocationService().getLocationByUuid(uuid);
         if (omrsLocation == null || omrsLocation.isRetired()) {
             return null;
@@ -34,33 +44,73 @@ public class LocationStrategy implements GenericLocationStrategy {
 
     @Override
     public List<Location> searchLocationsByName(String name) {
-        List<org.openmrs.Location> omrsLocations = Context.getLocationService().getLocations(name);
+        LocationSearchCriteria criteria = new LocationSearchCriteria();
+        criteria.setName(name);
+        return searchLocations(criteria, null, null);
+    }
+
+    @Override
+    public List<Location> searchLocationsByStatus(boolean status) {
+        LocationSearchCriteria criteria = new LocationSearchCriteria();
+        criteria.setActive(status);
+        return searchLocations(criteria, null, null);
+    }
+
+    @Override
+    public List<Location> searchLocations(LocationSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+        // Neither the index nor the DAO go through the core service, so its privilege check is done here
+        Context.requirePrivilege(PrivilegeConstants.GET_LOCATIONS);
+        if (isIndexedPartOfSearch(criteria)) {
+            List<String> children = getIndexedChildren(criteria);
+            int from = Math.min(firstResult != null ? firstResult : 0, children.size());
+            int to = maxResults != null ? Math.min(from + maxResults, children.size()) : children.size();
+            List<Location> locationList = new ArrayList<Location>();
+            for (String childUuid : children.subList(from, to)) {
+                Location location = FHIRLocationIndex.getInstance().getLocation(childUuid);
+                if (location == null) {
+                    location = FHIRLocationUtil.generateLocation(
+                            Context.getLocationService().getLocationByUuid(childUuid));
+                }
+                locationList.add(location);
+            }
+            return locationList;
+        }
+        List<org.openmrs.Location> omrsLocations = FHIRUtils.getFHIRDAO().searchLocations(criteria, firstResult,
+                maxResults);
         List<Location> locationList = new ArrayList<Location>();
         for (org.openmrs.Location location : omrsLocations) {
-            if (StringUtils.startsWithIgnoreCase(location.getName(), name)){
-                locationList.add(FHIRLocationUtil.generateLocation(location));
-            }
+            locationList.add(FHIRLocationUtil.generateLocation(location));
         }
         return locationList;
     }
 
     @Override
-    public List<Location> searchLocationsByStatus(boolean status) {
-        //TODO this method looks for all the locations which is inefficient. Reimplement after API revamp
-        List<org.openmrs.Location> omrsLocations = Context.getLocationService().getAllLocations(true);
-        List<Location> locationList = new ArrayList<Location>();
-        for (org.openmrs.Location location : omrsLocations) {
-            if (status) {
-                if (!location.isRetired()) {
-                    locationList.add(FHIRLocationUtil.generateLocation(location));
-                }
-            } else {
-                if (location.isRetired()) {
-                    locationList.add(FHIRLocationUtil.generateLocation(location));
-                }
+    public long getLocationCount(LocationSearchCriteria criteria) {
+        Context.requirePrivilege(PrivilegeConstants.GET_LOCATIONS);
+        if (isIndexedPartOfSearch(criteria)) {
+            return getIndexedChildren(criteria).size();
+        }
+        return FHIRUtils.getFHIRDAO().getLocationCount(criteria);
+    }
+
+    /**
+     * Searches on the parent location, optionally with the status, are answered from the location index
+     */
+    private boolean isIndexedPartOfSearch(LocationSearchCriteria criteria) {
+        return FHIRLocationIndex.getInstance().isLoaded() && StringUtils.isNotBlank(criteria.getPartOf())
+                && criteria.getName() == null && criteria.getCity() == null && criteria.getState() == null
+                && criteria.getCountry() == null && criteria.getPostalCode() == null;
+    }
+
+    private List<String> getIndexedChildren(LocationSearchCriteria criteria) {
+        FHIRLocationIndex index = FHIRLocationIndex.getInstance();
+        List<String> children = new ArrayList<String>();
+        for (String childUuid : index.getChildUuids(criteria.getPartOf())) {
+            if (criteria.getActive() == null || criteria.getActive() != index.isRetired(childUuid)) {
+                children.add(childUuid);
             }
         }
-        return locationList;
+        return children;
     }
 
     @Override
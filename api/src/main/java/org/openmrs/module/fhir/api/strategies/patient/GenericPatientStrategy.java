@@ -2,6 +2,7 @@ package org.openmrs.module.fhir.api.strategies.patient;
 
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Patient;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 
 import java.util.List;
 
@@ -21,6 +22,10 @@ public interface GenericPatientStrategy {
 
     Bundle searchPatientsByFamilyName(String familyName);
 
+    List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+    long getPatientCountByName(PatientNameSearchCriteria criteria);
+
     Bundle searchPatientsByName(String name);
 
     Bundle getPatientOperationsById(String patientId);
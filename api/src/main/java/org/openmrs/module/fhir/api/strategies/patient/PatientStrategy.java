@@ -8,18 +8,19 @@ import org.hl7.fhir.dstu3.model.FamilyMemberHistory;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.openmrs.Encounter;
-import org.openmrs.PatientIdentifierType;
-import org.openmrs.PersonName;
 import org.openmrs.Visit;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.EncounterService;
 import org.openmrs.module.fhir.api.FamilyMemberHistoryService;
+import org.openmrs.module.fhir.api.cache.FHIRNameIndex;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRLocationUtil;
 import org.openmrs.module.fhir.api.util.FHIRPatientUtil;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
 import org.openmrs.module.fhir.api.util.OMRSFHIRVisitUtil;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -54,11 +55,8 @@ public class PatientStrategy implements GenericPatientStrategy {
 
     @Override
     public List<Patient> searchPatientsByIdentifier(String identifierValue, String identifierTypeName) {
-        org.openmrs.api.PatientService patientService = Context.getPatientService();
-        List<PatientIdentifierType> patientIdentifierTypes = new ArrayList();
-        patientIdentifierTypes.add(patientService.getPatientIdentifierTypeByName(identifierTypeName));
-        List<org.openmrs.Patient> patientList = patientService.getPatients(identifierValue, null,
-                patientIdentifierTypes, true);
+        List<org.openmrs.Patient> patientList = FHIRPatientUtil.getPatientsByIdentifier(identifierValue,
+                identifierTypeName);
 
         List<Patient> fhirPatientList = new ArrayList();
         for (org.openmrs.Patient patient : patientList) {
@@ -69,10 +67,7 @@ public class PatientStrategy implements GenericPatientStrategy {
 
     @Override
     public List<Patient> searchPatientsByIdentifier(String identifier) {
-        org.openmrs.api.PatientService patientService = Context.getPatientService();
-        List<PatientIdentifierType> allPatientIdentifierTypes = patientService.getAllPatientIdentifierTypes();
-        List<org.openmrs.Patient> patientList = patientService
-                .getPatients(identifier, null, allPatientIdentifierTypes, true);
+        List<org.openmrs.Patient> patientList = FHIRPatientUtil.getPatientsByIdentifier(identifier, null);
 
         List<Patient> fhirPatientList = new ArrayList();
         for (org.openmrs.Patient patient : patientList) {
@@ -103,61 +98,89 @@ public class PatientStrategy implements GenericPatientStrategy {
 
     @Override
     public Bundle searchPatientsByGivenName(String givenName) {
-        List<org.openmrs.Patient> patients = searchPatientByQuery(givenName);
+        PatientNameSearchCriteria criteria = new PatientNameSearchCriteria();
+        criteria.setGivenName(givenName);
+        return toBundle(searchPatientsByName(criteria, null, null));
+    }
 
-        List<Patient> fhirPatientList = new ArrayList();
-        //Go through the patients given by the openmrs core api and find them patient who has the givenName matching
+    @Override
+    public Bundle searchPatientsByFamilyName(String familyName) {
+        PatientNameSearchCriteria criteria = new PatientNameSearchCriteria();
+        criteria.setFamilyName(familyName);
+        return toBundle(searchPatientsByName(criteria, null, null));
+    }
+
+    @Override
+    public List<Patient> searchPatientsByName(PatientNameSearchCriteria criteria, Integer firstResult,
+                                              Integer maxResults) {
+        Context.requirePrivilege(PrivilegeConstants.GET_PATIENTS);
+        List<org.openmrs.Patient> patients;
+        if (criteria.isApproximate() && FHIRNameIndex.getInstance().isLoaded()) {
+            List<Integer> patientIds = searchNameIndex(criteria);
+            int from = firstResult == null ? 0 : Math.min(firstResult, patientIds.size());
+            int to = maxResults == null ? patientIds.size() : Math.min(from + maxResults, patientIds.size());
+            patients = FHIRUtils.getFHIRDAO().getPatientsByIds(patientIds.subList(from, to));
+        } else {
+            patients = FHIRUtils.getFHIRDAO().searchPatientsByName(toDatabaseCriteria(criteria), firstResult,
+                    maxResults);
+        }
+        List<Patient> fhirPatientList = new ArrayList<Patient>();
         for (org.openmrs.Patient patient : patients) {
-            if (givenName.toLowerCase().contains(patient.getGivenName().toLowerCase())) {
-                fhirPatientList.add(FHIRPatientUtil.generatePatient(patient));
-            } else {
-                for (PersonName personName : patient.getNames()) {
-                    if (givenName.toLowerCase().contains(personName.getGivenName().toLowerCase())) {
-                        fhirPatientList.add(FHIRPatientUtil.generatePatient(patient));
-                    }
-                }
-            }
+            fhirPatientList.add(FHIRPatientUtil.generatePatient(patient));
         }
+        return fhirPatientList;
+    }
 
-        Bundle bundle = new Bundle();
-        List<Bundle.BundleEntryComponent> filteredList = new ArrayList();
-        for (Patient fhirPatient : fhirPatientList) {
-            Bundle.BundleEntryComponent entry = new Bundle.BundleEntryComponent();
-            entry.setResource(fhirPatient);
-            filteredList.add(entry);
+    @Override
+    public long getPatientCountByName(PatientNameSearchCriteria criteria) {
+        Context.requirePrivilege(PrivilegeConstants.GET_PATIENTS);
+        if (criteria.isApproximate() && FHIRNameIndex.getInstance().isLoaded()) {
+            return searchNameIndex(criteria).size();
         }
-        bundle.setEntry(filteredList);
-
-        return bundle;
+        return FHIRUtils.getFHIRDAO().getPatientCountByName(toDatabaseCriteria(criteria));
     }
 
-    @Override
-    public Bundle searchPatientsByFamilyName(String familyName) {
-        List<org.openmrs.Patient> patients = searchPatientByQuery(familyName);
+    /**
+     * @return ids of the patients matching the criteria in the name index, the best matches first
+     */
+    private List<Integer> searchNameIndex(PatientNameSearchCriteria criteria) {
+        List<FHIRNameIndex.Query> queries = new ArrayList<FHIRNameIndex.Query>();
+        if (criteria.getGivenName() != null) {
+            queries.add(new FHIRNameIndex.Query(FHIRNameIndex.Field.GIVEN, criteria.getGivenName(),
+                    FHIRNameIndex.Mode.valueOf(criteria.getGivenNameMatch().name())));
+        }
+        if (criteria.getFamilyName() != null) {
+            queries.add(new FHIRNameIndex.Query(FHIRNameIndex.Field.FAMILY, criteria.getFamilyName(),
+                    FHIRNameIndex.Mode.valueOf(criteria.getFamilyNameMatch().name())));
+        }
+        return FHIRNameIndex.getInstance().search(queries, true);
+    }
 
-        List<Patient> fhirPatientList = new ArrayList();
-        //Go through the patients given by the openmrs core api and find them patient who has the familyName matching
-        for (org.openmrs.Patient patient : patients) {
-            if (familyName.toLowerCase().contains(patient.getFamilyName().toLowerCase())) {
-                fhirPatientList.add(FHIRPatientUtil.generatePatient(patient));
-            } else {
-                for (PersonName personName : patient.getNames()) {
-                    if (familyName.toLowerCase().contains(personName.getFamilyName().toLowerCase())) {
-                        fhirPatientList.add(FHIRPatientUtil.generatePatient(patient));
-                    }
-                }
-            }
+    /**
+     * The database cannot compare names phonetically or with typos, so while the name index is not loaded those
+     * filters fall back to the default prefix match
+     */
+    private PatientNameSearchCriteria toDatabaseCriteria(PatientNameSearchCriteria criteria) {
+        if (!criteria.isApproximate()) {
+            return criteria;
+        }
+        PatientNameSearchCriteria databaseCriteria = new PatientNameSearchCriteria();
+        databaseCriteria.setGivenName(criteria.getGivenName());
+        databaseCriteria.setFamilyName(criteria.getFamilyName());
+        if (!PatientNameSearchCriteria.isApproximate(criteria.getGivenNameMatch())) {
+            databaseCriteria.setGivenNameMatch(criteria.getGivenNameMatch());
         }
+        if (!PatientNameSearchCriteria.isApproximate(criteria.getFamilyNameMatch())) {
+            databaseCriteria.setFamilyNameMatch(criteria.getFamilyNameMatch());
+        }
+        return databaseCriteria;
+    }
 
+    private Bundle toBundle(List<Patient> fhirPatientList) {
         Bundle bundle = new Bundle();
-        List<Bundle.BundleEntryComponent> filteredList = new ArrayList();
         for (Patient fhirPatient : fhirPatientList) {
-            Bundle.BundleEntryComponent entry = new Bundle.BundleEntryComponent();
-            entry.setResource(fhirPatient);
-            filteredList.add(entry);
+            bundle.addEntry().setResource(fhirPatient);
         }
-        bundle.setEntry(filteredList);
-
         return bundle;
     }
 
@@ -208,7 +231,7 @@ public class PatientStrategy implements GenericPatientStrategy {
             for (Visit visit : Context.getVisitService().getVisitsByPatient(omsrPatient)) {
                 bundle.addEntry().setResource(OMRSFHIRVisitUtil.generateEncounter(visit));
                 if (visit.getLocation() != null) {
-                    bundle.addEntry().setResource(FHIRLocationUtil.generateLocation(visit.getLocation()));
+                    bundle.addEntry().setResource(FHIRLocationUtil.getLocation(visit.getLocation()));
                 }
             }
 
@@ -1,6 +1,7 @@
 package org.openmrs.module.fhir.api.strategies.person;
 
 import org.hl7.fhir.dstu3.model.Person;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 
 import java.util.List;
 
@@ -14,6 +15,11 @@ public interface GenericPersonStrategy {
 
     List<Person> searchPersonsByName(String name);
 
+    List<Person> searchPersonsByName(String name, PatientNameSearchCriteria.Match match, Integer firstResult,
+                                     Integer maxResults);
+
+    long getPersonCountByName(String name, PatientNameSearchCriteria.Match match);
+
     Person createFHIRPerson(Person person);
 
     Person updateFHIRPerson(Person person, String uuid);
@@ -8,9 +8,12 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Person;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRNameIndex;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRPersonUtil;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -61,6 +64,56 @@ public class PersonStrategy implements GenericPersonStrategy {
         return fhirPersonsList;
     }
 
+    @Override
+    public List<Person> searchPersonsByName(String name, PatientNameSearchCriteria.Match match, Integer firstResult,
+                                            Integer maxResults) {
+        if (!isIndexedNameSearch(match)) {
+            List<Person> fhirPersonsList = searchPersonsByName(name);
+            return fhirPersonsList.subList(getFrom(firstResult, fhirPersonsList.size()),
+                    getTo(firstResult, maxResults, fhirPersonsList.size()));
+        }
+        Context.requirePrivilege(PrivilegeConstants.GET_PERSONS);
+        List<Integer> personIds = searchNameIndex(name, match);
+        personIds = personIds.subList(getFrom(firstResult, personIds.size()),
+                getTo(firstResult, maxResults, personIds.size()));
+        List<Person> fhirPersonsList = new ArrayList<Person>();
+        for (org.openmrs.Person person : FHIRUtils.getFHIRDAO().getPersonsByIds(personIds)) {
+            fhirPersonsList.add(FHIRPersonUtil.generatePerson(person));
+        }
+        return fhirPersonsList;
+    }
+
+    @Override
+    public long getPersonCountByName(String name, PatientNameSearchCriteria.Match match) {
+        if (!isIndexedNameSearch(match)) {
+            return Context.getPersonService().getPeople(name, null).size();
+        }
+        Context.requirePrivilege(PrivilegeConstants.GET_PERSONS);
+        return searchNameIndex(name, match).size();
+    }
+
+    private boolean isIndexedNameSearch(PatientNameSearchCriteria.Match match) {
+        return PatientNameSearchCriteria.isApproximate(match) && FHIRNameIndex.getInstance().isLoaded();
+    }
+
+    /**
+     * @return ids of the persons matching the name in the name index, the best matches first
+     */
+    private List<Integer> searchNameIndex(String name, PatientNameSearchCriteria.Match match) {
+        List<FHIRNameIndex.Query> queries = new ArrayList<FHIRNameIndex.Query>();
+        queries.add(new FHIRNameIndex.Query(FHIRNameIndex.Field.ANY, name, FHIRNameIndex.Mode.valueOf(match.name())));
+        return FHIRNameIndex.getInstance().search(queries, false);
+    }
+
+    private static int getFrom(Integer firstResult, int size) {
+        return firstResult == null ? 0 : Math.min(firstResult, size);
+    }
+
+    private static int getTo(Integer firstResult, Integer maxResults, int size) {
+        int from = getFrom(firstResult, size);
+        return maxResults == null ? size : Math.min(from + maxResults, size);
+    }
+
     @Override
     public Person createFHIRPerson(Person person) {
         List<String> errors = new ArrayList();
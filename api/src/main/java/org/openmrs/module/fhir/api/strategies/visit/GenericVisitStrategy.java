@@ -2,6 +2,7 @@ package org.openmrs.module.fhir.api.strategies.visit;
 
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Encounter;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
 
 import java.util.List;
 
@@ -13,6 +14,10 @@ public interface GenericVisitStrategy {
 
     List<Encounter> searchVisits(boolean active);
 
+    List<Encounter> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults);
+
+    long getVisitCount(VisitSearchCriteria criteria);
+
     void deleteVisit(String uuid);
 
     Encounter createFHIRVisit(Encounter visit);
@@ -12,7 +12,9 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.EncounterService;
 import org.openmrs.module.fhir.api.FamilyMemberHistoryService;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
 import org.openmrs.module.fhir.api.util.*;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
@@ -49,24 +51,27 @@ public class VisitStrategy implements GenericVisitStrategy {
 
     @Override
     public List<Encounter> searchVisits(boolean active) {
-        //TODO this method looks for all the patients which is inefficient. Reimplement after API revamp
-        List<org.openmrs.Visit> visits = Context.getVisitService().getAllVisits();
-
-        List<Encounter> fhirVisitList = new ArrayList();
-        for (org.openmrs.Visit visit : visits) {
-            if (active) {
-                if (!visit.isVoided()) {
-                    fhirVisitList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
-                }
-            } else {
-                if (visit.isVoided()) {
-                    fhirVisitList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
-                }
-            }
+        VisitSearchCriteria criteria = new VisitSearchCriteria();
+        criteria.setVoided(!active);
+        return searchVisits(criteria, null, null);
+    }
+
+    @Override
+    public List<Encounter> searchVisits(VisitSearchCriteria criteria, Integer firstResult, Integer maxResults) {
+        // The DAO bypasses the VisitService, so its privilege check as well
+        Context.requirePrivilege(PrivilegeConstants.GET_VISITS);
+        List<Encounter> fhirVisitList = new ArrayList<Encounter>();
+        for (org.openmrs.Visit visit : FHIRUtils.getFHIRDAO().searchVisits(criteria, firstResult, maxResults)) {
+            fhirVisitList.add(OMRSFHIRVisitUtil.generateEncounter(visit));
         }
         return fhirVisitList;
     }
 
+    @Override
+    public long getVisitCount(VisitSearchCriteria criteria) {
+        Context.requirePrivilege(PrivilegeConstants.GET_VISITS);
+        return FHIRUtils.getFHIRDAO().getVisitCount(criteria);
+    }
 
     @Override
     public void deleteVisit(String uuid) {
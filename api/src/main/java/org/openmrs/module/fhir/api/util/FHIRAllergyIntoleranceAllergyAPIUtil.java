@@ -37,6 +37,10 @@ public class FHIRAllergyIntoleranceAllergyAPIUtil {
 		//Set record date
 		allergyIntolerance.setAssertedDate(allergy.getDateLastUpdated());
 
+		//Voiding removes an allergy from the allergy list of the patient
+		allergyIntolerance.setClinicalStatus(allergy.isVoided() ? AllergyIntolerance.AllergyIntoleranceClinicalStatus
+				.INACTIVE : AllergyIntolerance.AllergyIntoleranceClinicalStatus.ACTIVE);
+
 		//Set critically
 		if (allergy.getSeverity() != null) {
 			if (allergy.getSeverity().equals(FHIRUtils.getMildSeverityConcept())) {
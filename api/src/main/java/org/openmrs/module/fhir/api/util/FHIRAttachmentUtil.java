@@ -0,0 +1,259 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Attachment;
+import org.hl7.fhir.dstu3.model.Binary;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.openmrs.Obs;
+import org.openmrs.obs.handler.AbstractHandler;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exposes the content of complex obs as FHIR Attachments which refer to a Binary resource, instead of inlining the
+ * content. The content itself is read straight from the complex obs file.
+ */
+public class FHIRAttachmentUtil {
+
+	protected static final Log log = LogFactory.getLog(FHIRAttachmentUtil.class);
+
+	public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAX_CACHED_HASHES = 1000;
+
+	private static final Map<String, FileHash> hashes = Collections.synchronizedMap(
+			new LinkedHashMap<String, FileHash>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, FileHash> eldest) {
+					return size() > MAX_CACHED_HASHES;
+				}
+			});
+
+	/**
+	 * Build an Attachment which refers to the content of a complex obs. Size and SHA-1 hash of the content are set, the
+	 * content itself is served through the url.
+	 *
+	 * @param attachmentObs complex obs
+	 * @return attachment
+	 */
+	public static Attachment generateAttachment(Obs attachmentObs) {
+		Attachment attachment = new Attachment();
+		attachment.setTitle(getComplexObsTitle(attachmentObs));
+		attachment.setCreation(attachmentObs.getObsDatetime());
+		attachment.setUrl(FHIRConstants.BINARY + "/" + attachmentObs.getUuid());
+
+		File file = getComplexObsFile(attachmentObs);
+		if (file != null) {
+			attachment.setContentType(getContentType(file));
+			if (file.length() <= Integer.MAX_VALUE) {
+				attachment.setSize((int) file.length());
+			}
+			attachment.setHash(getSha1Hash(file));
+		}
+		return attachment;
+	}
+
+	/**
+	 * Build a Binary resource holding the content of a complex obs. This loads the whole content into memory, so it
+	 * should only be used when the client explicitly asks for a FHIR representation of the Binary.
+	 *
+	 * @param complexObs complex obs
+	 * @return binary, or null if there is no content stored for the obs
+	 */
+	public static Binary generateBinary(Obs complexObs) {
+		File file = getComplexObsFile(complexObs);
+		if (file == null) {
+			return null;
+		}
+		// A byte array can not hold more, larger content is only served raw
+		if (file.length() > Integer.MAX_VALUE) {
+			throw new InvalidRequestException("The content of obs " + complexObs.getUuid() + " is too large to be "
+					+ "returned as a FHIR Binary, request it without a FHIR format instead");
+		}
+		Binary binary = new Binary();
+		binary.setId(new IdType(FHIRConstants.BINARY, complexObs.getUuid()));
+		binary.setContentType(getContentType(file));
+		ByteBuffer content = ByteBuffer.allocate((int) file.length());
+		FileChannel channel = null;
+		try {
+			channel = new FileInputStream(file).getChannel();
+			while (content.hasRemaining() && channel.read(content) >= 0) {
+				// read until the buffer is full
+			}
+		}
+		catch (IOException e) {
+			throw new InternalErrorException("Cannot read the content of obs " + complexObs.getUuid(), e);
+		}
+		finally {
+			closeQuietly(channel);
+		}
+		binary.setContent(content.array());
+		return binary;
+	}
+
+	/**
+	 * Find the file which stores the content of a complex obs
+	 *
+	 * @param complexObs complex obs
+	 * @return the file, or null if the obs is not complex or the file does not exist
+	 */
+	public static File getComplexObsFile(Obs complexObs) {
+		String valueComplex = complexObs.getValueComplex();
+		if (StringUtils.isBlank(valueComplex)) {
+			return null;
+		}
+		// Obs created through the FHIR Observation resource store the absolute path of the file
+		File file = new File(valueComplex);
+		if (!file.isAbsolute() || !file.isFile()) {
+			file = AbstractHandler.getComplexDataFile(complexObs);
+		}
+		return file != null && file.isFile() ? file : null;
+	}
+
+	/**
+	 * @param complexObs complex obs
+	 * @return the title part of the complex value, which has the form "title|file name"
+	 */
+	public static String getComplexObsTitle(Obs complexObs) {
+		String valueComplex = complexObs.getValueComplex();
+		if (StringUtils.isBlank(valueComplex)) {
+			return null;
+		}
+		String[] parts = valueComplex.split("\\|");
+		return StringUtils.isNotBlank(parts[0]) ? parts[0].trim() : new File(valueComplex).getName();
+	}
+
+	public static String getContentType(File file) {
+		String contentType = URLConnection.guessContentTypeFromName(file.getName());
+		return contentType != null ? contentType : DEFAULT_CONTENT_TYPE;
+	}
+
+	/**
+	 * Computes the SHA-1 hash of a file with a fixed size buffer. Hashes are cached until the file is modified.
+	 *
+	 * @param file file to hash
+	 * @return SHA-1 hash
+	 */
+	public static byte[] getSha1Hash(File file) {
+		String key = file.getAbsolutePath();
+		long lastModified = file.lastModified();
+		long length = file.length();
+		FileHash cached = hashes.get(key);
+		if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+			return cached.hash;
+		}
+
+		FileChannel channel = null;
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			channel = new FileInputStream(file).getChannel();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+			byte[] hash = digest.digest();
+			hashes.put(key, new FileHash(lastModified, length, hash));
+			return hash;
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new InternalErrorException("SHA-1 is not supported", e);
+		}
+		catch (IOException e) {
+			throw new InternalErrorException("Cannot compute the hash of " + file.getName(), e);
+		}
+		finally {
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Copy a range of a file to an output stream without buffering it in the heap. The copy is done by
+	 * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which lets the operating system move the data
+	 * where possible.
+	 *
+	 * @param file   file to copy
+	 * @param start  offset of the first byte to copy
+	 * @param length number of bytes to copy
+	 * @param out    destination
+	 * @throws IOException if the file cannot be read or the destination cannot be written
+	 */
+	public static void transferTo(File file, long start, long length, OutputStream out) throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			WritableByteChannel target = Channels.newChannel(out);
+			long position = start;
+			long end = start + length;
+			while (position < end) {
+				long transferred = channel.transferTo(position, end - position, target);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	private static void closeQuietly(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			}
+			catch (IOException e) {
+				log.debug("Failed to close file channel", e);
+			}
+		}
+	}
+
+	private static class FileHash {
+
+		private final long lastModified;
+
+		private final long length;
+
+		private final byte[] hash;
+
+		private FileHash(long lastModified, long length, byte[] hash) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.hash = hash;
+		}
+	}
+}
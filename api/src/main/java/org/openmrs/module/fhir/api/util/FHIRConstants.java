@@ -130,6 +130,8 @@ public final class FHIRConstants {
 
 	public static final String OBSERVATION = "Observation";
 
+	public static final String BINARY = "Binary";
+
 	public static final String NUMERIC_CONCEPT_MEASURE_URI = "http://unitsofmeasure.org";
 
 	//HL47 Abbrevations
@@ -245,6 +247,11 @@ public final class FHIRConstants {
 	public static final String DIAGNOSTIC_REPORT_IMAGING_STUDY = "imaging_study";
 	public static final String DIAGNOSTIC_REPORT_PRESENTED_FORM = "presentedForm";
 	public static final String DIAGNOSTIC_REPORT = "DiagnosticReport";
+	public static final String DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY = "fhir.diagnosticreport.name";
+	public static final String DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY = "fhir.diagnosticreport.status";
+	public static final String DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY = "fhir.diagnosticreport.result";
+	public static final String DIAGNOSTIC_REPORT_IMAGING_STUDY_CONCEPT_PROPERTY = "fhir.diagnosticreport.imagingstudy";
+	public static final String DIAGNOSTIC_REPORT_PRESENTED_FORM_CONCEPT_PROPERTY = "fhir.diagnosticreport.presentedform";
 
 	public static final String PARAMETER_NAME = "name";
 	
@@ -256,6 +263,7 @@ public final class FHIRConstants {
 
 	//Global Property Names
 	public static final String CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS = "fhir.concepts.conditions";
+	public static final String OBS_ALLERGY_STRATEGY_CONCEPT_UUID = "fhir.allergy.ObsAllergyStrategy.concept.uuid";
 	//module id or name
 	public static final String MODULE_ID = "fhir";
 	public static final String URI_PREFIX_GLOBAL_PROPERTY_NAME = MODULE_ID + ".uriPrefix";
@@ -276,4 +284,27 @@ public final class FHIRConstants {
 
 	public static final String ORDER_DELETE_MESSAGE = "DELETED by FHIR Request";
 
+	public static final String RADIOLOGY_SYNC_CHECKPOINT_PROPERTY = MODULE_ID + ".diagnosticreport.radiology.sync.lastUpdated";
+	public static final String RADIOLOGY_SYNC_PAGE_SIZE_PROPERTY = MODULE_ID + ".diagnosticreport.radiology.sync.pageSize";
+	public static final int DEFAULT_RADIOLOGY_SYNC_PAGE_SIZE = 100;
+	public static final String RADIOLOGY_SYNC_MAX_ATTEMPTS_PROPERTY = MODULE_ID + ".diagnosticreport.radiology.sync.maxAttempts";
+	public static final int DEFAULT_RADIOLOGY_SYNC_MAX_ATTEMPTS = 3;
+
+	public static final String FHIR_DAO_BEAN = "fhirDAO";
+
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	public static final int MAX_PAGE_SIZE = 500;
+
+	public static final String VISIT_SEARCH_QUERY = "visits";
+
+	public static final String RESOURCE_CACHE_MAX_SIZE_PROPERTY = MODULE_ID + ".resourceCache.maxSizeInKB";
+	public static final long DEFAULT_RESOURCE_CACHE_MAX_SIZE_IN_KB = 10240;
+
+	public static final String NARRATIVE_RENDER_THREADS_PROPERTY = MODULE_ID + ".narratives.renderThreads";
+	public static final int DEFAULT_NARRATIVE_RENDER_THREADS = 1;
+
+	public static final String DIAGNOSTIC_REPORT_SUBJECT_MODE_PROPERTY = MODULE_ID + ".diagnosticreport.subjectMode";
+	public static final String DIAGNOSTIC_REPORT_SUBJECT_MODE_REFERENCE = "reference";
+	public static final String DIAGNOSTIC_REPORT_SUBJECT_MODE_CONTAINED = "contained";
+
 }
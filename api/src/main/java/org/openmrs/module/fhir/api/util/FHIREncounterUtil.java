@@ -21,6 +21,7 @@ import org.openmrs.*;
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRConceptCache;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -54,22 +55,8 @@ public class FHIREncounterUtil {
 		//Setting composition author
 		if (omrsEncounter.getEncounterProviders().size() > 0) {
 			List<Reference> authors = new ArrayList<Reference>();
-			Reference author;
 			for (EncounterProvider provider : omrsEncounter.getEncounterProviders()) {
-				author = new Reference();
-				StringBuilder providerNameDisplay = new StringBuilder();
-				providerNameDisplay.append(provider.getProvider().getName());
-				providerNameDisplay.append("(");
-				providerNameDisplay.append(FHIRConstants.IDENTIFIER);
-				providerNameDisplay.append(":");
-				providerNameDisplay.append(provider.getProvider().getIdentifier());
-				providerNameDisplay.append(")");
-				author.setDisplay(providerNameDisplay.toString());
-				IdType providerRef = new IdType();
-				String providerUri = FHIRConstants.PRACTITIONER + "/" + provider.getProvider().getUuid();
-				providerRef.setValue(providerUri);
-				author.setReference(providerUri);
-				authors.add(author);
+				authors.add(FHIRUtils.buildPractitionerReference(provider.getProvider()));
 			}
 			composition.setAuthor(authors);
 		}
@@ -84,8 +71,7 @@ public class FHIREncounterUtil {
 		Composition.SectionComponent locationSection = composition.addSection();
 		Reference locationRef = locationSection.addEntry();
 		locationRef.setDisplay(FHIRConstants.LOCATION);
-		String locationUri = FHIRConstants.LOCATION + "/" + omrsEncounter.getLocation().getUuid();
-		locationRef.setReference(locationUri);
+		locationRef.setReference(FHIRLocationUtil.buildLocationReference(omrsEncounter.getLocation()).getReference());
 
 		//Set observation section
 		if (omrsEncounter.getAllObs(false).size() > 0) {
@@ -118,21 +104,9 @@ public class FHIREncounterUtil {
 			Encounter.EncounterParticipantComponent participant;
 			for (EncounterProvider provider : omrsEncounter.getEncounterProviders()) {
 				participant = new Encounter.EncounterParticipantComponent();
-				Reference providerReference = new Reference();
-				StringBuilder providerNameDisplay = new StringBuilder();
 				if (provider.getProvider() != null) {
-					providerNameDisplay.append(provider.getProvider().getName());
-					providerNameDisplay.append("(");
-					providerNameDisplay.append(FHIRConstants.IDENTIFIER);
-					providerNameDisplay.append(":");
-					providerNameDisplay.append(provider.getProvider().getIdentifier());
-					providerNameDisplay.append(")");
-					providerReference.setDisplay(providerNameDisplay.toString());
+					participant.setIndividual(FHIRUtils.buildPractitionerReference(provider.getProvider()));
 				}
-
-				String providerUri = FHIRConstants.PRACTITIONER + "/" + provider.getUuid();
-				providerReference.setReference(providerUri);
-				participant.setIndividual(providerReference);
 				participants.add(participant);
 			}
 			encounter.setParticipant(participants);
@@ -149,11 +123,7 @@ public class FHIREncounterUtil {
 			Encounter.EncounterLocationComponent location = new Encounter.EncounterLocationComponent();
 			//set encounter period
 			location.setPeriod(period);
-			Reference locationReference = new Reference();
-			locationReference.setDisplay(omrsEncounter.getLocation().getName());
-			String locationRefUri = FHIRConstants.LOCATION + "/" + omrsEncounter.getLocation().getUuid();
-			locationReference.setReference(locationRefUri);
-			location.setLocation(locationReference);
+			location.setLocation(FHIRLocationUtil.buildLocationReference(omrsEncounter.getLocation()));
 			locations.add(location);
 			encounter.setLocation(locations);
 		}
@@ -212,7 +182,7 @@ public class FHIREncounterUtil {
 		Bundle.BundleEntryComponent observation;
 		if (FHIRConstants.OBS_ALLERGY_STRATEGY.equals(strategy)) {
 			String allergyCode = FHIRUtils.getObsAllergyStrategyConceptUuid();
-			Concept concept = Context.getConceptService().getConceptByUuid(allergyCode);
+			Concept concept = FHIRConceptCache.getInstance().getConceptByUuid(allergyCode);
 			for (Obs obs : encounter.getAllObs(false)) {
 				if (concept != null && !concept.equals(obs.getConcept())) {
 					observation = bundle.addEntry();
@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Top level elements of a resource type which the current request returns, as selected by `_summary` or `_elements`.
+ * The mappers check it to skip loading and converting the elements which would be dropped from the response, for
+ * example the addresses and telecoms of patients when only ids and names are asked for.
+ * <p>
+ * The mask applies to the searched or read resource type only, resources of other types, such as included ones, are
+ * always complete. It is bound to the request thread by the FHIR servlet. Outside of a FHIR request every element is
+ * requested.
+ */
+public class FHIRFieldMask {
+
+	private static final ThreadLocal<FHIRFieldMask> current = new ThreadLocal<FHIRFieldMask>();
+
+	private final String resourceType;
+
+	private final Set<String> elements;
+
+	/**
+	 * @param resourceType type of the resources the mask applies to
+	 * @param elements     names of the top level elements which are returned
+	 */
+	public FHIRFieldMask(String resourceType, Collection<String> elements) {
+		this.resourceType = resourceType;
+		this.elements = Collections.unmodifiableSet(new HashSet<String>(elements));
+	}
+
+	public String getResourceType() {
+		return resourceType;
+	}
+
+	public Set<String> getElements() {
+		return elements;
+	}
+
+	public static void setCurrent(FHIRFieldMask mask) {
+		current.set(mask);
+	}
+
+	public static void clearCurrent() {
+		current.remove();
+	}
+
+	/**
+	 * @param resourceType type of the resource being generated, e.g. Patient
+	 * @param element      name of a top level element of the resource, e.g. address
+	 * @return false if the current request leaves the element out of the resources of this type
+	 */
+	public static boolean isRequested(String resourceType, String element) {
+		FHIRFieldMask mask = current.get();
+		return mask == null || !mask.resourceType.equals(resourceType) || mask.elements.contains(element);
+	}
+
+	/**
+	 * @param resourceType type of the resource being generated
+	 * @return true if the resources of this type are generated with all their elements
+	 */
+	public static boolean isComplete(String resourceType) {
+		FHIRFieldMask mask = current.get();
+		return mask == null || !mask.resourceType.equals(resourceType);
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes grayscale images stored by ED typed obs into the payload used by the FHIR Observation resource: one byte per
+ * pixel in row major order, holding the gray value shifted by -128.
+ * <p>
+ * Pixels are read a row at a time from the image raster into a reused buffer, instead of one
+ * {@link java.awt.Color} per pixel. Encoded payloads are cached by obs id and are reused while the modification time
+ * and length of the file are unchanged.
+ */
+public class FHIRImageEncoder {
+
+	/**
+	 * Widths are carried in the attachment size as height * 10000 + width, so wider images cannot be represented
+	 */
+	public static final int MAX_WIDTH = 10000;
+
+	/**
+	 * Upper bound of the total size of the cached payloads
+	 */
+	public static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+
+	private static final Map<Integer, EncodedImage> cache = new LinkedHashMap<Integer, EncodedImage>(16, 0.75f, true);
+
+	private static long cachedBytes = 0;
+
+	/**
+	 * Get the encoded payload of the image stored by an obs, encoding it if the cached payload is missing or stale
+	 *
+	 * @param obsId id of the obs
+	 * @param file  image file of the obs
+	 * @return encoded image
+	 */
+	public static EncodedImage getEncodedImage(Integer obsId, File file) {
+		long lastModified = file.lastModified();
+		long length = file.length();
+		synchronized (cache) {
+			EncodedImage cached = cache.get(obsId);
+			if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+				return cached;
+			}
+		}
+
+		EncodedImage encoded = encode(file, lastModified, length);
+		if (obsId != null && encoded.data.length <= MAX_CACHED_BYTES) {
+			synchronized (cache) {
+				EncodedImage previous = cache.put(obsId, encoded);
+				if (previous != null) {
+					cachedBytes -= previous.data.length;
+				}
+				cachedBytes += encoded.data.length;
+				Iterator<EncodedImage> eldest = cache.values().iterator();
+				while (cachedBytes > MAX_CACHED_BYTES && eldest.hasNext()) {
+					cachedBytes -= eldest.next().data.length;
+					eldest.remove();
+				}
+			}
+		}
+		return encoded;
+	}
+
+	/**
+	 * Drop all cached payloads
+	 */
+	public static void clearCache() {
+		synchronized (cache) {
+			cache.clear();
+			cachedBytes = 0;
+		}
+	}
+
+	/**
+	 * Read and encode an image file
+	 *
+	 * @param file image file
+	 * @return encoded image
+	 */
+	public static EncodedImage encode(File file) {
+		return encode(file, file.lastModified(), file.length());
+	}
+
+	private static EncodedImage encode(File file, long lastModified, long length) {
+		BufferedImage image;
+		try {
+			image = ImageIO.read(file);
+		}
+		catch (IOException e) {
+			throw new UnprocessableEntityException("Cannot load image");
+		}
+		if (image == null) {
+			throw new UnprocessableEntityException("Cannot load image");
+		}
+		return new EncodedImage(image.getWidth(), image.getHeight(), encode(image), lastModified, length);
+	}
+
+	/**
+	 * Encode a grayscale image
+	 *
+	 * @param image image, each pixel must have equal red, green and blue values
+	 * @return one byte per pixel in row major order, gray value - 128
+	 */
+	public static byte[] encode(BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		if (width >= MAX_WIDTH) {
+			throw new UnprocessableEntityException("image width is >= " + MAX_WIDTH + " pixels, please use lower "
+					+ "resolution images only");
+		}
+
+		byte[] values = new byte[width * height];
+		if (hasPlainRGBSamples(image.getColorModel())) {
+			// Samples of the raster are the sRGB components, so they are read directly without color conversion
+			Raster raster = image.getRaster();
+			int bands = raster.getNumBands();
+			int[] row = new int[width * bands];
+			for (int y = 0; y < height; y++) {
+				raster.getPixels(0, y, width, 1, row);
+				for (int x = 0, i = 0; x < width; x++, i += bands) {
+					values[y * width + x] = toGrayValue(row[i], row[i + 1], row[i + 2]);
+				}
+			}
+		} else {
+			int[] row = new int[width];
+			for (int y = 0; y < height; y++) {
+				image.getRGB(0, y, width, 1, row, 0, width);
+				for (int x = 0; x < width; x++) {
+					int rgb = row[x];
+					values[y * width + x] = toGrayValue((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
+				}
+			}
+		}
+		return values;
+	}
+
+	private static byte toGrayValue(int red, int green, int blue) {
+		if (red != green || red != blue) {
+			throw new UnprocessableEntityException("Grayscale images only are supported");
+		}
+		return (byte) (red - 128);
+	}
+
+	private static boolean hasPlainRGBSamples(ColorModel colorModel) {
+		if (!(colorModel instanceof ComponentColorModel) && !(colorModel instanceof DirectColorModel)) {
+			return false;
+		}
+		if (!colorModel.getColorSpace().isCS_sRGB() || colorModel.isAlphaPremultiplied()
+				|| colorModel.getNumColorComponents() != 3) {
+			return false;
+		}
+		for (int size : colorModel.getComponentSize()) {
+			if (size != 8) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public static class EncodedImage {
+
+		private final int width;
+
+		private final int height;
+
+		private final byte[] data;
+
+		private final long lastModified;
+
+		private final long length;
+
+		private EncodedImage(int width, int height, byte[] data, long lastModified, long length) {
+			this.width = width;
+			this.height = height;
+			this.data = data;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		public int getWidth() {
+			return width;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		/**
+		 * @return encoded pixels. The array is shared with the cache and must not be modified.
+		 */
+		public byte[] getData() {
+			return data;
+		}
+	}
+}
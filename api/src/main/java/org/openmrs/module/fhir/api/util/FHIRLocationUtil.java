@@ -19,6 +19,7 @@ import org.hl7.fhir.dstu3.model.Location;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.StringType;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -26,6 +27,41 @@ import java.util.List;
 
 public class FHIRLocationUtil {
 
+	/**
+	 * Build a reference to a location. Uuid and name are taken from {@link FHIRLocationIndex} when it is loaded, so an
+	 * uninitialized location proxy is not loaded.
+	 *
+	 * @param omrsLocation the location, which may be a proxy
+	 * @return reference with the location name as display
+	 */
+	public static Reference buildLocationReference(org.openmrs.Location omrsLocation) {
+		FHIRLocationIndex index = FHIRLocationIndex.getInstance();
+		String uuid = index.getUuid(omrsLocation.getLocationId());
+		String name;
+		if (uuid != null) {
+			name = index.getName(omrsLocation.getLocationId());
+		} else {
+			uuid = omrsLocation.getUuid();
+			name = omrsLocation.getName();
+		}
+		Reference reference = new Reference();
+		reference.setDisplay(name);
+		reference.setReference(FHIRConstants.LOCATION + "/" + uuid);
+		return reference;
+	}
+
+	/**
+	 * Get the resource of a location from {@link FHIRLocationIndex} when it is indexed, or generate it
+	 *
+	 * @param omrsLocation the location, which may be a proxy
+	 * @return location resource
+	 */
+	public static Location getLocation(org.openmrs.Location omrsLocation) {
+		Location location = FHIRLocationIndex.getInstance().getLocation(
+				FHIRLocationIndex.getInstance().getUuid(omrsLocation.getLocationId()));
+		return location != null ? location : generateLocation(omrsLocation);
+	}
+
 	public static Location generateLocation(org.openmrs.Location omrsLocation) {
 		Location location = new Location();
 
@@ -72,10 +108,7 @@ public class FHIRLocationUtil {
 		}
 
 		if (omrsLocation.getParentLocation() != null) {
-			Reference parent = new Reference();
-			parent.setDisplay(omrsLocation.getParentLocation().getName());
-			parent.setReference(FHIRConstants.LOCATION + "/" + omrsLocation.getParentLocation().getUuid());
-			location.setPartOf(parent);
+			location.setPartOf(buildLocationReference(omrsLocation.getParentLocation()));
 		}
 		FHIRUtils.validate(location);
 		return location;
@@ -32,6 +32,7 @@ import org.openmrs.OrderFrequency;
 import org.openmrs.Patient;
 import org.openmrs.Provider;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRConceptCache;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -325,7 +326,7 @@ public class FHIRMedicationRequestUtil {
             SimpleQuantity dose = (SimpleQuantity) dosage.getDose();
             if (dose != null) {
                 order.setDose(dose.getValue().doubleValue());
-                Concept unitConcept = Context.getConceptService().getConceptByName(dose.getUnit());
+                Concept unitConcept = FHIRConceptCache.getInstance().getConceptByName(dose.getUnit());
                 order.setDoseUnits(unitConcept);
             }
 
@@ -349,7 +350,7 @@ public class FHIRMedicationRequestUtil {
                     }
 
                     if (duration.getUnit() != null) {
-                        Concept unitConcept = Context.getConceptService().getConceptByName(duration.getUnit());
+                        Concept unitConcept = FHIRConceptCache.getInstance().getConceptByName(duration.getUnit());
                         order.setDurationUnits(unitConcept);
                     }
                 }
@@ -361,7 +362,7 @@ public class FHIRMedicationRequestUtil {
                         order.setQuantity(quantity.getValue().doubleValue());
                     }
                     if (quantity.getUnit() != null) {
-                        Concept unitConcept = Context.getConceptService().getConceptByName(quantity.getUnit());
+                        Concept unitConcept = FHIRConceptCache.getInstance().getConceptByName(quantity.getUnit());
                         order.setQuantityUnits(unitConcept);
                     }
                 }
@@ -461,14 +462,7 @@ public class FHIRMedicationRequestUtil {
         for (Coding cding : dts) {
             conceptCode = cding.getCode();
             system = cding.getSystem();
-            if (FHIRConstants.OPENMRS_URI.equals(system)) {
-                concept = Context.getConceptService().getConceptByUuid(conceptCode);
-            } else {
-                String systemName = FHIRConstants.conceptSourceURINameMap.get(system);
-                if (systemName != null && !systemName.isEmpty()) {
-                    concept = Context.getConceptService().getConceptByMapping(conceptCode, systemName);
-                }
-            }
+            concept = FHIRConceptCache.getInstance().getConceptByCode(system, conceptCode);
             if (concept != null) {
                 break;
             }
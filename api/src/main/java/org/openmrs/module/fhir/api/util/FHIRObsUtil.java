@@ -29,6 +29,7 @@ import org.openmrs.Obs;
 import org.openmrs.Obs.Interpretation;
 import org.openmrs.Obs.Status;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRConceptCache;
 import org.openmrs.obs.ComplexData;
 import org.openmrs.util.OpenmrsUtil;
 import org.postgresql.util.Base64;
@@ -68,18 +69,7 @@ public class FHIRObsUtil {
 		List<Reference> performers = new ArrayList<Reference>();
 		if (obs.getEncounter() != null) {
 			for (EncounterProvider provider : obs.getEncounter().getEncounterProviders()) {
-				Reference providerReference = new Reference();
-				StringBuilder providerNameDisplay = new StringBuilder();
-				providerNameDisplay.append(provider.getProvider().getName());
-				providerNameDisplay.append("(");
-				providerNameDisplay.append(FHIRConstants.IDENTIFIER);
-				providerNameDisplay.append(":");
-				providerNameDisplay.append(provider.getProvider().getIdentifier());
-				providerNameDisplay.append(")");
-				providerReference.setDisplay(providerNameDisplay.toString());
-				String providerUri = FHIRConstants.PRACTITIONER + "/" + provider.getUuid();
-				providerReference.setReference(providerUri);
-				performers.add(providerReference);
+				performers.add(FHIRUtils.buildPractitionerReference(provider.getProvider()));
 			}
 		}
 		observation.setPerformer(performers);
@@ -174,64 +164,15 @@ public class FHIRObsUtil {
 			Attachment attachmentDt = new Attachment();
 			attachmentDt.setUrl(FHIRConstants.COMPLEX_DATA_URL + obs.getId());
 
-			// READ IMAGE FROM LOCAL
-            StringBuilder values = new StringBuilder();
-            BufferedImage image;
-            try{
-                image = ImageIO.read(new File(obs.getValueComplex()));
-            }catch (IOException e){
-                throw new UnprocessableEntityException("Cannot load image");
-            }
-
-            /*
-            values.append(image.getHeight());
-            values.append(" ");
-            values.append(image.getWidth());
-            values.append(" ");
-
-            for(int i = 0 ; i < image.getHeight() ; i++){
-                for(int j = 0 ; j < image.getWidth() ; j++){
-                    Color color = new Color(image.getRGB(j, i));
-
-                    if(color.getRed() != color.getBlue() || color.getRed() != color.getGreen()){
-                        throw new UnprocessableEntityException("Grayscale images only are supported");
-                    }
-
-                    values.append(color.getRed());
-                    values.append(" ");
-                }
-            }
-            attachmentDt.setTitle(values.toString());
-			observation.setValue(attachmentDt);
-			*/
-
-            byte[] valuesI = new byte[image.getWidth() * image.getHeight()];
-
-			for(int i = 0 ; i < image.getHeight() ; i++){
-				for(int j = 0 ; j < image.getWidth() ; j++){
-					Color color = new Color(image.getRGB(j, i));
-
-					if(color.getRed() != color.getBlue() || color.getRed() != color.getGreen()){
-						throw new UnprocessableEntityException("Grayscale images only are supported");
-					}
-
-					byte value = (byte)(color.getRed() - 128);
-					valuesI[i * image.getWidth() + j] = value;
-				}
-			}
-			Base64BinaryType bt = new Base64BinaryType();
-			bt.setValue(valuesI);
-			attachmentDt.setSize(image.getHeight() * 10000 + image.getWidth());
-
-
-			// Bounds check for integer representation of width;
-			// If image width > 10000 it will not be represented correctly in FHIR format
-			// hence this check
-			if(image.getWidth() >= 10000){
-				throw new UnprocessableEntityException("image width is >= 100000 pixels, please use lower resolution" +
-						"images only");
+			File imageFile = new File(obs.getValueComplex());
+			if (!imageFile.isFile()) {
+				throw new UnprocessableEntityException("Cannot load image");
 			}
+			FHIRImageEncoder.EncodedImage image = FHIRImageEncoder.getEncodedImage(obs.getId(), imageFile);
 
+			Base64BinaryType bt = new Base64BinaryType();
+			bt.setValue(image.getData());
+			attachmentDt.setSize(image.getHeight() * FHIRImageEncoder.MAX_WIDTH + image.getWidth());
 			attachmentDt.setDataElement(bt);
 			observation.setValue(attachmentDt);
 
@@ -392,14 +333,7 @@ public class FHIRObsUtil {
 		for (Coding cding : dts) {
 			conceptCode = cding.getCode();
 			system = cding.getSystem();
-			if (FHIRConstants.OPENMRS_URI.equals(system)) {
-				concept = Context.getConceptService().getConceptByUuid(conceptCode);
-			} else {
-				String systemName = FHIRConstants.conceptSourceURINameMap.get(system);
-				if (systemName != null && !systemName.isEmpty()) {
-					concept = Context.getConceptService().getConceptByMapping(conceptCode, systemName);
-				}
-			}
+			concept = FHIRConceptCache.getInstance().getConceptByCode(system, conceptCode);
 			if (concept != null) {
 				break;
 			}
@@ -501,7 +435,7 @@ public class FHIRObsUtil {
 
                     for(Coding evaluate : data.getCoding()){
                         if(evaluate.getSystem().equalsIgnoreCase(FHIRConstants.OPENMRS_URI)){
-                            Concept value = Context.getConceptService().getConceptByUuid(evaluate.getCode());
+                            Concept value = FHIRConceptCache.getInstance().getConceptByUuid(evaluate.getCode());
                             obs.setValueCoded(value);
                         }
                     }
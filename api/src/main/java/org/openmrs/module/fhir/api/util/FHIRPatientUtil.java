@@ -21,6 +21,8 @@ import org.openmrs.PersonAddress;
 import org.openmrs.PersonName;
 import org.openmrs.api.LocationService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRIdentifierTypeCache;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.*;
 
@@ -29,6 +31,26 @@ import static org.openmrs.module.fhir.api.util.FHIRUtils.extractUuid;
 
 public class FHIRPatientUtil {
 
+	/**
+	 * Find patients by the exact value of one of their identifiers, without fuzzy matching and without loading all
+	 * the identifier types
+	 *
+	 * @param identifier identifier value
+	 * @param system     name, uuid or uuid urn of the identifier type, or null for any type
+	 * @return matching patients, or an empty list if the system is not a known identifier type
+	 */
+	public static List<org.openmrs.Patient> getPatientsByIdentifier(String identifier, String system) {
+		Context.requirePrivilege(PrivilegeConstants.GET_PATIENTS);
+		Integer identifierTypeId = null;
+		if (StringUtils.isNotBlank(system)) {
+			identifierTypeId = FHIRIdentifierTypeCache.getInstance().getIdentifierTypeId(system);
+			if (identifierTypeId == null) {
+				return new ArrayList<org.openmrs.Patient>();
+			}
+		}
+		return FHIRUtils.getFHIRDAO().getPatientsByIdentifier(identifier, identifierTypeId);
+	}
+
 	public static Patient generatePatient(org.openmrs.Patient omrsPatient) {
 		
 		Patient patient = new Patient();
@@ -38,14 +60,15 @@ public class FHIRPatientUtil {
 		patient.setId(uuid);
 
 		//Set patient identifiers to fhir patient
-		for (PatientIdentifier identifier : omrsPatient.getActiveIdentifiers()) {
-			String urn = FHIRUtils.buildURN(FHIRConstants.UUID, identifier.getIdentifierType().getUuid());
-			if (identifier.isPreferred()) {
-				patient.addIdentifier().setUse(Identifier.IdentifierUse.USUAL).setSystem(identifier.getIdentifierType().getName())
-						.setValue(identifier.getIdentifier());
-			} else {
-				patient.addIdentifier().setUse(Identifier.IdentifierUse.SECONDARY).setSystem(identifier.getIdentifierType()
-						.getName()).setValue(identifier.getIdentifier());
+		if (FHIRFieldMask.isRequested(patient.fhirType(), "identifier")) {
+			for (PatientIdentifier identifier : omrsPatient.getActiveIdentifiers()) {
+				if (identifier.isPreferred()) {
+					patient.addIdentifier().setUse(Identifier.IdentifierUse.USUAL).setSystem(identifier.getIdentifierType()
+							.getName()).setValue(identifier.getIdentifier());
+				} else {
+					patient.addIdentifier().setUse(Identifier.IdentifierUse.SECONDARY).setSystem(identifier.getIdentifierType()
+							.getName()).setValue(identifier.getIdentifier());
+				}
 			}
 		}
 
@@ -65,11 +88,13 @@ public class FHIRPatientUtil {
 			patient.setGender(Enumerations.AdministrativeGender.UNKNOWN);
 		}
 
-		List<Address> fhirAddresses = patient.getAddress();
-		for (PersonAddress address : omrsPatient.getAddresses()) {
-			fhirAddresses.add(FHIRUtils.buildAddress(address));
+		if (FHIRFieldMask.isRequested(patient.fhirType(), "address")) {
+			List<Address> fhirAddresses = patient.getAddress();
+			for (PersonAddress address : omrsPatient.getAddresses()) {
+				fhirAddresses.add(FHIRUtils.buildAddress(address));
+			}
+			patient.setAddress(fhirAddresses);
 		}
-		patient.setAddress(fhirAddresses);
 
 		if (omrsPatient.getBirthdate() != null) {
 			patient.setBirthDate(omrsPatient.getBirthdate());
@@ -88,7 +113,8 @@ public class FHIRPatientUtil {
 		List<ContactPoint> dts = new ArrayList<ContactPoint>();
 		// Add global property for telephone / email address. These properties will be used to identify the name of the
 		// person attribute (if any) being used to store a phone number and/or email.
-		if (omrsPatient.getAttribute(FHIRUtils.PATIENT_PHONE_NUMBER_ATTRIBUTE) != null) {
+		if (FHIRFieldMask.isRequested(patient.fhirType(), "telecom")
+				&& omrsPatient.getAttribute(FHIRUtils.PATIENT_PHONE_NUMBER_ATTRIBUTE) != null) {
 			ContactPoint telecom = new ContactPoint();
 			telecom.setSystem(ContactPoint.ContactPointSystem.PHONE).setValue(omrsPatient.getAttribute(
 					FHIRUtils.PATIENT_PHONE_NUMBER_ATTRIBUTE).getValue());
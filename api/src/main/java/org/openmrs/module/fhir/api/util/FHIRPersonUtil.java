@@ -73,12 +73,13 @@ public class FHIRPersonUtil {
 		person.setName(humanNames);
 		
 		//Set address in FHIR person
-		List<Address> addressList = new ArrayList<Address>();
-		Address fhirAddress;
-		for (PersonAddress address : omrsPerson.getAddresses()) {
-			addressList.add(FHIRUtils.buildAddress(address));
+		if (FHIRFieldMask.isRequested(person.fhirType(), "address")) {
+			List<Address> addressList = new ArrayList<Address>();
+			for (PersonAddress address : omrsPerson.getAddresses()) {
+				addressList.add(FHIRUtils.buildAddress(address));
+			}
+			person.setAddress(addressList);
 		}
-		person.setAddress(addressList);
 		//Set gender in fhir person object
 		if (omrsPerson.getGender().equals("M")) {
 			person.setGender(Enumerations.AdministrativeGender.MALE);
@@ -96,7 +97,8 @@ public class FHIRPersonUtil {
 		}
 		
 		//Check whether person converted to a patient
-		Patient patient = Context.getPatientService().getPatientByUuid(omrsPerson.getUuid());
+		Patient patient = FHIRFieldMask.isRequested(person.fhirType(), "link") ?
+				Context.getPatientService().getPatientByUuid(omrsPerson.getUuid()) : null;
 		if (patient != null) {
 			List<Person.PersonLinkComponent> links = new ArrayList<Person.PersonLinkComponent>();
 			Person.PersonLinkComponent link = new Person.PersonLinkComponent();
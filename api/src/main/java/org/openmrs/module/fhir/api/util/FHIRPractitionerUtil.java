@@ -26,6 +26,7 @@ import org.openmrs.PersonAddress;
 import org.openmrs.PersonName;
 import org.openmrs.Provider;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -37,6 +38,24 @@ import static java.lang.String.valueOf;
 
 public class FHIRPractitionerUtil {
 
+	/**
+	 * Get the Practitioner of a provider from the resource cache, generating and caching it if it is not present.
+	 * Cached practitioners were validated when they were generated.
+	 *
+	 * @param provider openmrs provider
+	 * @return fhir practitioner
+	 */
+	public static Practitioner getPractitioner(final Provider provider) {
+		return FHIRResourceCache.getInstance().get(Practitioner.class, provider.getUuid(),
+				new FHIRResourceCache.ResourceLoader<Practitioner>() {
+
+					@Override
+					public Practitioner load() {
+						return generatePractitioner(provider);
+					}
+				});
+	}
+
 	public static Practitioner generatePractitioner(Provider provider) {
 
 		Practitioner practitioner = new Practitioner();
@@ -83,12 +102,13 @@ public class FHIRPractitionerUtil {
 				practitioner.setName(names);
 			}
 			//Set address in FHIR patient
-			List<Address> addressList = new ArrayList<Address>();
-			Address fhirAddress;
-			for (PersonAddress address : provider.getPerson().getAddresses()) {
-				addressList.add(FHIRUtils.buildAddress(address));
+			if (FHIRFieldMask.isRequested(practitioner.fhirType(), "address")) {
+				List<Address> addressList = new ArrayList<Address>();
+				for (PersonAddress address : provider.getPerson().getAddresses()) {
+					addressList.add(FHIRUtils.buildAddress(address));
+				}
+				practitioner.setAddress(addressList);
 			}
-			practitioner.setAddress(addressList);
 			//Set gender in fhir practitioner object
 			if (provider.getPerson().getGender().equals("M")) {
 				practitioner.setGender(Enumerations.AdministrativeGender.MALE);
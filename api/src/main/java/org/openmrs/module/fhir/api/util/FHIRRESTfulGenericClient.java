@@ -14,23 +14,88 @@
 package org.openmrs.module.fhir.api.util;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.client.api.IGenericClient;
+import ca.uhn.fhir.rest.client.api.ServerValidationModeEnum;
+import ca.uhn.fhir.rest.gclient.DateClientParam;
 import ca.uhn.fhir.rest.gclient.ICriterion;
+import ca.uhn.fhir.rest.gclient.IQuery;
 import ca.uhn.fhir.rest.gclient.ReferenceClientParam;
 import ca.uhn.fhir.rest.gclient.TokenClientParam;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.DiagnosticReport;
 import org.hl7.fhir.dstu3.model.ImagingStudy;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.hl7.fhir.dstu3.model.Practitioner;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FHIRRESTfulGenericClient {
 
+	protected static final Log log = LogFactory.getLog(FHIRRESTfulGenericClient.class);
+
 	private static final FhirContext ctx = FhirContext.forDstu3();
 
+	/**
+	 * Maximum number of ids sent to the remote server in a single `_id` search
+	 */
+	public static final int BATCH_READ_SIZE = 50;
+
+	/**
+	 * Maximum number of `_id` searches which are executed against remote servers at the same time
+	 */
+	public static final int MAX_CONCURRENT_READS = 4;
+
+	private static final ConcurrentMap<String, IGenericClient> clients = new ConcurrentHashMap<String, IGenericClient>();
+
+	private static ExecutorService readExecutor = null;
+
+	static {
+		// Clients are reused, so there is no point in fetching the server metadata before the first request
+		ctx.getRestfulClientFactory().setServerValidationMode(ServerValidationModeEnum.NEVER);
+	}
+
+	/**
+	 * Returns the client for the given server base, creating it on first use
+	 *
+	 * @param serverBase base URL of the FHIR server
+	 * @return cached generic client
+	 */
+	public static IGenericClient getClient(String serverBase) {
+		IGenericClient client = clients.get(serverBase);
+		if (client == null) {
+			IGenericClient newClient = ctx.newRestfulGenericClient(serverBase);
+			client = clients.putIfAbsent(serverBase, newClient);
+			if (client == null) {
+				client = newClient;
+			}
+		}
+		return client;
+	}
+
 	public static Patient readPatientById(String serverBase,
 	                                      String theID) {
-		IGenericClient client = ctx.newRestfulGenericClient(serverBase);
+		IGenericClient client = getClient(serverBase);
 		return client.read()
 				.resource(Patient.class)
 				.withId(theID)
@@ -39,7 +104,7 @@ public class FHIRRESTfulGenericClient {
 
 	public static Practitioner readPractitionerById(String serverBase,
 	                                                String theID) {
-		IGenericClient client = ctx.newRestfulGenericClient(serverBase);
+		IGenericClient client = getClient(serverBase);
 		return client.read()
 				.resource(Practitioner.class)
 				.withId(theID)
@@ -48,18 +113,189 @@ public class FHIRRESTfulGenericClient {
 
 	public static ImagingStudy readImagingStudyById(String serverBase,
 	                                                String theID) {
-		IGenericClient client = ctx.newRestfulGenericClient(serverBase);
+		IGenericClient client = getClient(serverBase);
 		return client.read()
 				.resource(ImagingStudy.class)
 				.withId(theID)
 				.execute();
 	}
 
+	public static Map<String, Patient> readPatientsByIds(String serverBase, Collection<String> ids) {
+		return readResourcesByIds(serverBase, Patient.class, ids);
+	}
+
+	public static Map<String, Practitioner> readPractitionersByIds(String serverBase, Collection<String> ids) {
+		return readResourcesByIds(serverBase, Practitioner.class, ids);
+	}
+
+	public static Map<String, ImagingStudy> readImagingStudiesByIds(String serverBase, Collection<String> ids) {
+		return readResourcesByIds(serverBase, ImagingStudy.class, ids);
+	}
+
+	/**
+	 * Read many resources of the same type from a remote server. Ids are split into chunks of {@link #BATCH_READ_SIZE}
+	 * and every chunk is fetched with a single `_id=a,b,c` search. Chunks are executed concurrently, bounded by
+	 * {@link #MAX_CONCURRENT_READS}.
+	 *
+	 * @param serverBase   base URL of the FHIR server
+	 * @param resourceType type of the resources to read
+	 * @param ids          logical ids of the resources
+	 * @return resources found on the remote server, keyed by logical id. Ids which are not found are not present.
+	 */
+	public static <T extends Resource> Map<String, T> readResourcesByIds(final String serverBase,
+	                                                                     final Class<T> resourceType,
+	                                                                     Collection<String> ids) {
+		Map<String, T> resources = new HashMap<String, T>();
+		if (ids == null || ids.isEmpty()) {
+			return resources;
+		}
+		List<String> uniqueIds = new ArrayList<String>(new LinkedHashSet<String>(ids));
+		List<List<String>> chunks = new ArrayList<List<String>>();
+		for (int i = 0; i < uniqueIds.size(); i += BATCH_READ_SIZE) {
+			chunks.add(uniqueIds.subList(i, Math.min(i + BATCH_READ_SIZE, uniqueIds.size())));
+		}
+
+		// A single chunk is cheaper to fetch on the calling thread
+		if (chunks.size() == 1) {
+			return searchByIds(serverBase, resourceType, chunks.get(0));
+		}
+
+		List<Future<Map<String, T>>> futures = new ArrayList<Future<Map<String, T>>>();
+		for (final List<String> chunk : chunks) {
+			futures.add(getReadExecutor().submit(new Callable<Map<String, T>>() {
+
+				@Override
+				public Map<String, T> call() {
+					return searchByIds(serverBase, resourceType, chunk);
+				}
+			}));
+		}
+		try {
+			for (Future<Map<String, T>> future : futures) {
+				resources.putAll(future.get());
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException("Interrupted while reading " + resourceType.getSimpleName()
+					+ " resources from " + serverBase, e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException("Failed to read " + resourceType.getSimpleName() + " resources from "
+					+ serverBase, e.getCause());
+		}
+		finally {
+			for (Future<Map<String, T>> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return resources;
+	}
+
+	private static <T extends Resource> Map<String, T> searchByIds(String serverBase, Class<T> resourceType,
+	                                                               List<String> ids) {
+		if (log.isDebugEnabled()) {
+			log.debug("Reading " + ids.size() + " " + resourceType.getSimpleName() + " resources from " + serverBase);
+		}
+		IGenericClient client = getClient(serverBase);
+		Bundle bundle = client.search()
+				.forResource(resourceType)
+				.where(IAnyResource.RES_ID.exactly().codes(ids))
+				.count(ids.size())
+				.returnBundle(Bundle.class)
+				.execute();
+
+		Map<String, T> resources = new HashMap<String, T>();
+		while (bundle != null) {
+			for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+				Resource resource = entry.getResource();
+				if (resourceType.isInstance(resource)) {
+					resources.put(resource.getIdElement().getIdPart(), resourceType.cast(resource));
+				}
+			}
+			if (bundle.getLink(Bundle.LINK_NEXT) == null) {
+				break;
+			}
+			bundle = client.loadPage().next(bundle).execute();
+		}
+		return resources;
+	}
+
+	private static synchronized ExecutorService getReadExecutor() {
+		if (readExecutor == null) {
+			readExecutor = Executors.newFixedThreadPool(MAX_CONCURRENT_READS, new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "fhir-remote-read-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return readExecutor;
+	}
+
+	/**
+	 * Stops the remote read threads and drops the cached clients. Called when the module is stopped.
+	 */
+	public static synchronized void shutdown() {
+		if (readExecutor != null) {
+			readExecutor.shutdownNow();
+			readExecutor = null;
+		}
+		clients.clear();
+	}
+
+	/**
+	 * Search the DiagnosticReports of the given service category which were updated on or after the given instant,
+	 * oldest first. Remaining pages can be retrieved with {@link #loadNextPage(String, Bundle)}.
+	 *
+	 * @param serverBase      base URL of the FHIR server
+	 * @param serviceCategory DiagnosticReport category code
+	 * @param since           lower bound of `_lastUpdated`, or null to retrieve all reports
+	 * @param pageSize        number of reports per page
+	 * @return first page of the matching reports
+	 */
+	public static Bundle searchDiagnosticReportsUpdatedSince(String serverBase, String serviceCategory, Date since,
+	                                                         int pageSize) {
+		DateClientParam lastUpdated = new DateClientParam(Constants.PARAM_LASTUPDATED);
+		IQuery<Bundle> query = getClient(serverBase).search()
+				.forResource(DiagnosticReport.class)
+				.where(DiagnosticReport.CATEGORY.exactly().code(serviceCategory))
+				.sort().ascending(lastUpdated)
+				.count(pageSize)
+				.returnBundle(Bundle.class);
+		if (since != null) {
+			query = query.and(lastUpdated.afterOrEquals().second(since));
+		}
+		return query.execute();
+	}
+
+	/**
+	 * Retrieve the page following the given search result page
+	 *
+	 * @param serverBase base URL of the FHIR server
+	 * @param bundle     search result page
+	 * @return next page, or null if the given page is the last one
+	 */
+	public static Bundle loadNextPage(String serverBase, Bundle bundle) {
+		if (bundle.getLink(Bundle.LINK_NEXT) == null) {
+			return null;
+		}
+		return getClient(serverBase).loadPage().next(bundle).execute();
+	}
+
 	public static Bundle searchWhereReferenceAndToken(String serverBase,
 	                                                  Class<DiagnosticReport> fhirResource,
 	                                                  ICriterion<ReferenceClientParam> where,
 	                                                  ICriterion<TokenClientParam> and) {
-		IGenericClient client = ctx.newRestfulGenericClient(serverBase);
+		IGenericClient client = getClient(serverBase);
 		return (Bundle)client.search()
 				.forResource(fhirResource)
 				.where(where)
@@ -70,7 +306,7 @@ public class FHIRRESTfulGenericClient {
 	public static Bundle searchWhereReference(String serverBase,
 	                                          Class<DiagnosticReport> fhirResource,
 	                                          ICriterion<ReferenceClientParam> where) {
-		IGenericClient client = ctx.newRestfulGenericClient(serverBase);
+		IGenericClient client = getClient(serverBase);
 		return (Bundle)client.search()
 				.forResource(fhirResource)
 				.where(where)
@@ -14,6 +14,7 @@
 package org.openmrs.module.fhir.api.util;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.model.api.TemporalPrecisionEnum;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
 import ca.uhn.fhir.validation.FhirValidator;
 import ca.uhn.fhir.validation.ValidationResult;
@@ -23,8 +24,10 @@ import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
 import org.hl7.fhir.dstu3.model.CodeableConcept;
 import org.hl7.fhir.dstu3.model.Coding;
+import org.hl7.fhir.dstu3.model.DateTimeType;
 import org.hl7.fhir.dstu3.model.HumanName;
 import org.hl7.fhir.dstu3.model.Identifier;
+import org.hl7.fhir.dstu3.model.Practitioner;
 import org.hl7.fhir.dstu3.model.Reference;
 import org.hl7.fhir.dstu3.model.Resource;
 import org.hl7.fhir.dstu3.model.StringType;
@@ -35,10 +38,17 @@ import org.openmrs.EncounterType;
 import org.openmrs.PersonName;
 import org.openmrs.RelationshipType;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRConceptCache;
+import org.openmrs.module.fhir.api.cache.FHIRObsConceptCache;
+import org.openmrs.module.fhir.api.cache.FHIRRelationshipTypeCache;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
+import org.openmrs.module.fhir.api.db.FHIRDAO;
 import org.openmrs.module.fhir.api.manager.FHIRContextFactory;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 public class FHIRUtils {
 
@@ -105,6 +115,13 @@ public class FHIRUtils {
 		return Context.getAdministrationService().getGlobalProperty("fhir.appointment.strategy");
 	}
 
+	/**
+	 * @return the module DAO, for the resource strategies which query the database directly
+	 */
+	public static FHIRDAO getFHIRDAO() {
+		return Context.getRegisteredComponent(FHIRConstants.FHIR_DAO_BEAN, FHIRDAO.class);
+	}
+
 	public static String getLocationStrategy() {
 		return Context.getAdministrationService().getGlobalProperty("fhir.location.locationStrategy");
 	}
@@ -113,24 +130,24 @@ public class FHIRUtils {
 		return Context.getAdministrationService().getGlobalProperty("fhir.observation.observationStrategy");
 	}
 
+	/**
+	 * @return ids of the concepts whose obs are served as Conditions, or null if none is configured
+	 */
 	public static int[] getConceptIdsOfConditions() {
-		String conceptsAsConditions = Context.getAdministrationService().getGlobalProperty(FHIRConstants
-				.CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS);
-		if (StringUtils.isNotBlank(conceptsAsConditions)) {
-			String[] concepts = conceptsAsConditions.split(",");
-			int[] conceptIds = new int[concepts.length];
-			int counter = 0;
-			for (String str : concepts) {
-				conceptIds[counter] = Integer.parseInt(str);
-			}
-			return conceptIds;
-		} else {
+		Set<Integer> conceptIds = FHIRObsConceptCache.getInstance().getConditionConceptIds();
+		if (conceptIds.isEmpty()) {
 			return null;
 		}
+		int[] ids = new int[conceptIds.size()];
+		int counter = 0;
+		for (Integer conceptId : conceptIds) {
+			ids[counter++] = conceptId;
+		}
+		return ids;
 	}
 
 	public static String getObsAllergyStrategyConceptUuid() {
-		return Context.getAdministrationService().getGlobalProperty("fhir.allergy.ObsAllergyStrategy.concept.uuid");
+		return Context.getAdministrationService().getGlobalProperty(FHIRConstants.OBS_ALLERGY_STRATEGY_CONCEPT_UUID);
 	}
 
 	public static String getConceptCodingSystem() {
@@ -174,19 +191,13 @@ public class FHIRUtils {
 	}
 
 	public static RelationshipType getRelationshipTypeByCoding(Coding coding, MutableBoolean isAToB) {
-		if (coding.getCode() != null) {
-			List<RelationshipType> relationshipList = Context.getPersonService().getAllRelationshipTypes();
-			for (RelationshipType relationshipType : relationshipList) {
-				if (coding.getCode().equals(relationshipType.getaIsToB())) {
-					isAToB.setValue(true);
-					return relationshipType;
-				} else if (coding.getCode().equals(relationshipType.getbIsToA())) {
-					isAToB.setValue(false);
-					return relationshipType;
-				}
-			}
+		FHIRRelationshipTypeCache.Direction direction = FHIRRelationshipTypeCache.getInstance().getDirection(
+				coding.getCode());
+		if (direction == null) {
+			return null;
 		}
-		return null;
+		isAToB.setValue(direction.isAIsToB());
+		return Context.getPersonService().getRelationshipType(direction.getRelationshipTypeId());
 	}
 
 	public static HumanName buildHumanName(org.openmrs.PersonName personName) {
@@ -246,24 +257,23 @@ public class FHIRUtils {
 	}
 
 	/**
-	 * Generates practitioner referenceDt
+	 * Build a reference to the Practitioner of a provider. The display string is cached along with the Practitioner
+	 * resources and invalidated with them.
 	 *
-	 * @param provider the provider ob
-	 *
-	 * @return the practitioner resource reference
-     */
-	public static Reference buildPractitionerReference(org.openmrs.Provider provider) {
+	 * @param provider openmrs provider
+	 * @return reference to the Practitioner
+	 */
+	public static Reference buildPractitionerReference(final org.openmrs.Provider provider) {
 		Reference providerDt = new Reference();
-		StringBuilder providerNameDisplay = new StringBuilder();
-		providerNameDisplay.append(provider.getName());
-		providerNameDisplay.append("(");
-		providerNameDisplay.append(FHIRConstants.IDENTIFIER);
-		providerNameDisplay.append(":");
-		providerNameDisplay.append(provider.getIdentifier());
-		providerNameDisplay.append(")");
-		providerDt.setDisplay(providerNameDisplay.toString());
-		String providerUri = FHIRConstants.PRACTITIONER + "/" + provider.getUuid();
-		providerDt.setReference(providerUri);
+		providerDt.setDisplay(FHIRResourceCache.getInstance().getDisplay(Practitioner.class, provider.getUuid(),
+				new FHIRResourceCache.DisplayLoader() {
+
+					@Override
+					public String load() {
+						return provider.getName() + "(" + FHIRConstants.IDENTIFIER + ":" + provider.getIdentifier() + ")";
+					}
+				}));
+		providerDt.setReference(FHIRConstants.PRACTITIONER + "/" + provider.getUuid());
 		return providerDt;
 	}
 
@@ -362,7 +372,7 @@ public class FHIRUtils {
 
 	private static Concept getConceptByGlobalProperty(String globalPropertyName) {
 		String globalProperty = Context.getAdministrationService().getGlobalProperty(globalPropertyName);
-		Concept concept = Context.getConceptService().getConceptByUuid(globalProperty);
+		Concept concept = FHIRConceptCache.getInstance().getConceptByUuid(globalProperty);
 		if (concept == null) {
 			throw new IllegalStateException("Configuration required: " + globalPropertyName);
 		}
@@ -401,19 +411,19 @@ public class FHIRUtils {
 	}
 
 	public static Concept getDiagnosticReportNameConcept() {
-		return getConceptByConceptId("fhir.diagnosticreport.name");
+		return getConceptByConceptId(FHIRConstants.DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY);
 	}
 
 	public static Concept getDiagnosticReportStatusConcept() {
-		return getConceptByConceptId("fhir.diagnosticreport.status");
+		return getConceptByConceptId(FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY);
 	}
 
 	public static Concept getDiagnosticReportResultConcept() {
-		return getConceptByConceptId("fhir.diagnosticreport.result");
+		return getConceptByConceptId(FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY);
 	}
 
 	public static Concept getDiagnosticReportImagingStudyConcept() {
-		return getConceptByConceptId("fhir.diagnosticreport.imagingstudy");
+		return getConceptByConceptId(FHIRConstants.DIAGNOSTIC_REPORT_IMAGING_STUDY_CONCEPT_PROPERTY);
 	}
 
 	public static Concept getImagingStudySeriesConcept() {
@@ -425,7 +435,7 @@ public class FHIRUtils {
 	}
 
 	public static Concept getDiagnosticReportPresentedFormConcept() {
-		return getConceptByConceptId("fhir.diagnosticreport.presentedform");
+		return getConceptByConceptId(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM_CONCEPT_PROPERTY);
 	}
 
 	public static Concept getImagingStudySeriesInstanceContentConcept() {
@@ -436,6 +446,75 @@ public class FHIRUtils {
 		return Context.getAdministrationService().getGlobalProperty("fhir.diagnosticreport.radiology.server");
 	}
 
+	public static Date getRadiologySyncCheckpoint() {
+		String checkpoint = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.RADIOLOGY_SYNC_CHECKPOINT_PROPERTY);
+		if (StringUtils.isBlank(checkpoint)) {
+			return null;
+		}
+		return new DateTimeType(checkpoint).getValue();
+	}
+
+	public static void setRadiologySyncCheckpoint(Date checkpoint) {
+		DateTimeType checkpointDateTime = new DateTimeType(checkpoint, TemporalPrecisionEnum.MILLI);
+		Context.getAdministrationService().setGlobalProperty(FHIRConstants.RADIOLOGY_SYNC_CHECKPOINT_PROPERTY,
+				checkpointDateTime.getValueAsString());
+	}
+
+	public static int getRadiologySyncPageSize() {
+		String pageSize = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.RADIOLOGY_SYNC_PAGE_SIZE_PROPERTY);
+		if (StringUtils.isNumeric(pageSize) && StringUtils.isNotEmpty(pageSize)) {
+			return Integer.parseInt(pageSize);
+		}
+		return FHIRConstants.DEFAULT_RADIOLOGY_SYNC_PAGE_SIZE;
+	}
+
+	/**
+	 * @return number of runs a Radiology DiagnosticReport is retried before the sync moves past it
+	 */
+	public static int getRadiologySyncMaxAttempts() {
+		String maxAttempts = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.RADIOLOGY_SYNC_MAX_ATTEMPTS_PROPERTY);
+		if (StringUtils.isNumeric(maxAttempts) && StringUtils.isNotEmpty(maxAttempts)) {
+			return Math.max(1, Integer.parseInt(maxAttempts));
+		}
+		return FHIRConstants.DEFAULT_RADIOLOGY_SYNC_MAX_ATTEMPTS;
+	}
+
+	/**
+	 * @return maximum size of the FHIR resource cache in bytes, zero when the cache is disabled
+	 */
+	public static long getResourceCacheMaxSizeInBytes() {
+		String maxSize = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.RESOURCE_CACHE_MAX_SIZE_PROPERTY);
+		if (StringUtils.isNumeric(maxSize) && StringUtils.isNotEmpty(maxSize)) {
+			return Long.parseLong(maxSize) * 1024;
+		}
+		return FHIRConstants.DEFAULT_RESOURCE_CACHE_MAX_SIZE_IN_KB * 1024;
+	}
+
+	/**
+	 * @return number of threads rendering the narratives of a bundle, 1 to render them on the request thread
+	 */
+	public static int getNarrativeRenderThreads() {
+		String threads = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.NARRATIVE_RENDER_THREADS_PROPERTY);
+		if (StringUtils.isNumeric(threads) && StringUtils.isNotEmpty(threads) && Integer.parseInt(threads) > 0) {
+			return Integer.parseInt(threads);
+		}
+		return FHIRConstants.DEFAULT_NARRATIVE_RENDER_THREADS;
+	}
+
+	/**
+	 * @return true if DiagnosticReports contain their Patient and result Observations, false if they only refer to them
+	 */
+	public static boolean isDiagnosticReportSubjectContained() {
+		String mode = Context.getAdministrationService().getGlobalProperty(
+				FHIRConstants.DIAGNOSTIC_REPORT_SUBJECT_MODE_PROPERTY);
+		return FHIRConstants.DIAGNOSTIC_REPORT_SUBJECT_MODE_CONTAINED.equalsIgnoreCase(StringUtils.trim(mode));
+	}
+
 	public static void checkGeneratorErrorList(List<String> errors) {
 		if (!errors.isEmpty()) {
 			StringBuilder errorMessage = new StringBuilder("The request cannot be processed due to the following issues \n");
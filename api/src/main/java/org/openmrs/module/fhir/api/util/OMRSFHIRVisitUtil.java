@@ -80,11 +80,7 @@ public class OMRSFHIRVisitUtil {
 			//set encounter period
 			encounter.setPeriod(period);
 			location.setPeriod(period);
-			Reference locationReference = new Reference();
-			locationReference.setDisplay(omrsVisit.getLocation().getName());
-			String locationRefUri = FHIRConstants.LOCATION + "/" + omrsVisit.getLocation().getUuid();
-			locationReference.setReference(locationRefUri);
-			location.setLocation(locationReference);
+			location.setLocation(FHIRLocationUtil.buildLocationReference(omrsVisit.getLocation()));
 			locations.add(location);
 			encounter.setLocation(locations);
 		}
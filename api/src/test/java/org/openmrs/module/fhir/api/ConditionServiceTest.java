@@ -13,9 +13,11 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
 import java.util.Date;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * This test class will test the functionalities of the Condition Service.
@@ -60,4 +62,27 @@ public class ConditionServiceTest extends BaseModuleContextSensitiveTest {
         assertEquals(fhirCoding.getCode(), problemAddedObs.getConcept().getUuid());
         assertEquals(fhirCoding.getDisplay(), problemAddedObs.getConcept().getName().getName());
     }
+
+    @Test
+    public void searchConditionsByPatient_shouldReturnObsOfAnyConfiguredConcept() {
+        Context.getAdministrationService().saveGlobalProperty(new GlobalProperty(FHIRConstants
+                .CONCEPTS_CONVERTABLE_TO_CONDITIONS_STORED_AS_OBS, "5089, " + GLOBAL_PROPS_CONDITION_MAPPING_CONCEPT_ID));
+        String patientUuid = "61b38324-e2fd-4feb-95b7-9e9a2a4400df";
+        String conceptUuid = "4a5048b1-cf85-4c64-9339-7cab41e5e364";
+        Person patient = Context.getPersonService().getPersonByUuid(patientUuid);
+        Concept concept = Context.getConceptService().getConceptByUuid(conceptUuid);
+        Obs problemAddedObs = new Obs(patient, concept, new Date(), null);
+        problemAddedObs.setValueNumeric(8d);
+        problemAddedObs = Context.getObsService().saveObs(problemAddedObs, null);
+        List<Condition> conditions = getService().searchConditionsByPatient(patientUuid);
+        assertNotNull(conditions);
+        boolean found = false;
+        for (Condition condition : conditions) {
+            assertEquals(patientUuid, condition.getSubject().getId());
+            if (problemAddedObs.getUuid().equals(condition.getIdElement().getIdPart())) {
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
 }
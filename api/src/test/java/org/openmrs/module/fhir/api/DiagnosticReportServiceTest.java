@@ -11,17 +11,50 @@
  */
 package org.openmrs.module.fhir.api;
 
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hibernate.Hibernate;
 import org.junit.Test;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Obs;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandler;
+import org.openmrs.module.fhir.api.diagnosticreport.DiagnosticReportHandlerRegistry;
+import org.openmrs.module.fhir.api.diagnosticreport.handler.DefaultDiagnosticReportHandler;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.openmrs.test.Verifies;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class DiagnosticReportServiceTest extends BaseModuleContextSensitiveTest {
 
+	private static final Integer PATIENT_ID = 2;
+
+	/**
+	 * A set concept of the standard test dataset, used as the result obs group concept
+	 */
+	private static final Integer RESULT_CONCEPT_ID = 23;
+
+	/**
+	 * WEIGHT (KG), a numeric concept of the standard test dataset
+	 */
+	private static final Integer MEMBER_CONCEPT_ID = 5089;
+
 	public DiagnosticReportService getService() {
 		return Context.getService(DiagnosticReportService.class);
 	}
@@ -53,4 +86,178 @@ public class DiagnosticReportServiceTest extends BaseModuleContextSensitiveTest
 		assertEquals("RAD", radiologyHandler.getServiceCategory());
 	}
 
+	@Test
+	public void registerHandler_shouldFindTheHandlerByEncounterTypeId() {
+		EncounterType encounterType = Context.getEncounterService().getEncounterType(1);
+		DiagnosticReportHandler handler = new DefaultDiagnosticReportHandler();
+		DiagnosticReportHandlerRegistry registry = DiagnosticReportHandlerRegistry.getInstance();
+		try {
+			assertNull(registry.getHandler(encounterType.getEncounterTypeId()));
+			assertNull(registry.getHandler(encounterType.getEncounterTypeId()));
+
+			getService().registerHandler(encounterType.getName(), handler);
+			assertSame(handler, registry.getHandler(encounterType.getEncounterTypeId()));
+			assertSame(handler, getService().getHandlers().get(encounterType.getName()));
+
+			getService().removeHandler(encounterType.getName());
+			assertNull(registry.getHandler(encounterType.getEncounterTypeId()));
+			assertNotNull(getService().getHandler("LAB"));
+		}
+		finally {
+			getService().removeHandler(encounterType.getName());
+		}
+	}
+
+	@Test
+	public void getDiagnosticReport_shouldReturnNullForAnUnknownReport() {
+		assertNull(getService().getDiagnosticReport("not-an-encounter-uuid"));
+	}
+
+	@Test
+	public void getReports_shouldReferToTheSubjectAndResultsByDefault() {
+		List<Encounter> encounters = createReportEncounters();
+
+		List<DiagnosticReport> reports = getService().getHandler("LAB").getReports(encounters);
+
+		assertEquals(2, reports.size());
+		String patientUuid = encounters.get(0).getPatient().getUuid();
+		for (int i = 0; i < reports.size(); i++) {
+			DiagnosticReport report = reports.get(i);
+			assertTrue(report.getContained().isEmpty());
+			assertEquals("Patient/" + patientUuid, report.getSubject().getReference());
+			assertEquals(1, report.getResult().size());
+			Obs member = getResultMember(encounters.get(i));
+			assertEquals("Observation/" + member.getUuid(), report.getResult().get(0).getReference());
+			assertNull(report.getResult().get(0).getResource());
+		}
+	}
+
+	@Test
+	public void getReports_shouldShareOneContainedPatientPerBundleInTheContainedMode() {
+		Context.getAdministrationService().saveGlobalProperty(new GlobalProperty(
+				FHIRConstants.DIAGNOSTIC_REPORT_SUBJECT_MODE_PROPERTY,
+				FHIRConstants.DIAGNOSTIC_REPORT_SUBJECT_MODE_CONTAINED));
+		List<Encounter> encounters = createReportEncounters();
+
+		List<DiagnosticReport> reports = getService().getHandler("LAB").getReports(encounters);
+
+		assertEquals(2, reports.size());
+		String patientUuid = encounters.get(0).getPatient().getUuid();
+		Patient contained = null;
+		for (DiagnosticReport report : reports) {
+			assertEquals("#" + patientUuid, report.getSubject().getReference());
+			Patient patient = null;
+			for (Resource resource : report.getContained()) {
+				if (resource instanceof Patient) {
+					assertNull(patient);
+					patient = (Patient) resource;
+				}
+			}
+			assertNotNull(patient);
+			if (contained != null) {
+				assertSame(contained, patient);
+			}
+			contained = patient;
+			assertEquals(1, report.getResult().size());
+			assertTrue(report.getResult().get(0).getResource() instanceof Observation);
+		}
+	}
+
+	@Test
+	public void getReports_shouldConvertLikeTheSingleReportLookup() {
+		List<Encounter> encounters = reload(createReportEncounters());
+
+		List<DiagnosticReport> reports = getService().getHandler("LAB").getReports(encounters);
+
+		assertEquals(encounters.size(), reports.size());
+		for (int i = 0; i < reports.size(); i++) {
+			DiagnosticReport report = reports.get(i);
+			DiagnosticReport single = getService().getHandler("LAB").getFHIRDiagnosticReportById(
+					encounters.get(i).getUuid());
+			assertEquals(single.getId(), report.getId());
+			assertEquals(single.getSubject().getReference(), report.getSubject().getReference());
+			assertEquals(single.getResult().size(), report.getResult().size());
+			assertEquals(single.getResult().get(0).getReference(), report.getResult().get(0).getReference());
+		}
+	}
+
+	@Test
+	public void getReports_shouldReturnAnEmptyListForNoEncounters() {
+		assertTrue(getService().getHandler("LAB").getReports(new ArrayList<Encounter>()).isEmpty());
+	}
+
+	@Test
+	public void initializeReportEncounters_shouldLoadTheObsProvidersAndPatientsOfTheEncounters() {
+		List<Integer> encounterIds = new ArrayList<Integer>();
+		for (Encounter encounter : createReportEncounters()) {
+			encounterIds.add(encounter.getEncounterId());
+		}
+		Context.flushSession();
+		Context.clearSession();
+
+		FHIRUtils.getFHIRDAO().initializeReportEncounters(encounterIds, false);
+
+		for (Integer encounterId : encounterIds) {
+			Encounter encounter = Context.getEncounterService().getEncounter(encounterId);
+			assertTrue(Hibernate.isInitialized(encounter.getEncounterType()));
+			assertTrue(Hibernate.isInitialized(encounter.getEncounterProviders()));
+			assertTrue(Hibernate.isInitialized(encounter.getAllObs(true)));
+			for (Obs obs : encounter.getAllObs(true)) {
+				if (obs.getObsGroup() == null) {
+					assertTrue(Hibernate.isInitialized(obs.getGroupMembers(true)));
+				}
+			}
+			assertTrue(Hibernate.isInitialized(encounter.getPatient()));
+			assertTrue(Hibernate.isInitialized(encounter.getPatient().getNames()));
+			assertTrue(Hibernate.isInitialized(encounter.getPatient().getIdentifiers()));
+		}
+	}
+
+	/**
+	 * @return two laboratory report encounters of the same patient, each with a result obs group of one member
+	 */
+	private List<Encounter> createReportEncounters() {
+		AdministrationService administrationService = Context.getAdministrationService();
+		administrationService.saveGlobalProperty(new GlobalProperty(
+				FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY, RESULT_CONCEPT_ID.toString()));
+		administrationService.saveGlobalProperty(new GlobalProperty("fhir.encounter.encounterRoleUuid",
+				Context.getEncounterService().getEncounterRole(1).getUuid()));
+
+		org.openmrs.Patient patient = Context.getPatientService().getPatient(PATIENT_ID);
+		List<Encounter> encounters = new ArrayList<Encounter>();
+		for (int i = 0; i < 2; i++) {
+			Encounter encounter = new Encounter();
+			encounter.setPatient(patient);
+			encounter.setEncounterType(Context.getEncounterService().getEncounterType(1));
+			encounter.setLocation(Context.getLocationService().getLocation(1));
+			encounter.setEncounterDatetime(new Date());
+
+			Obs group = new Obs(patient, Context.getConceptService().getConcept(RESULT_CONCEPT_ID), new Date(),
+					encounter.getLocation());
+			Obs member = new Obs(patient, Context.getConceptService().getConcept(MEMBER_CONCEPT_ID), new Date(),
+					encounter.getLocation());
+			member.setValueNumeric(70.0 + i);
+			group.addGroupMember(member);
+			encounter.addObs(group);
+			encounters.add(Context.getEncounterService().saveEncounter(encounter));
+		}
+		return encounters;
+	}
+
+	/**
+	 * @return the encounters loaded again in a new session, so that nothing of them is initialized yet
+	 */
+	private List<Encounter> reload(List<Encounter> encounters) {
+		Context.flushSession();
+		Context.clearSession();
+		List<Encounter> reloaded = new ArrayList<Encounter>();
+		for (Encounter encounter : encounters) {
+			reloaded.add(Context.getEncounterService().getEncounter(encounter.getEncounterId()));
+		}
+		return reloaded;
+	}
+
+	private Obs getResultMember(Encounter encounter) {
+		return encounter.getObsAtTopLevel(false).iterator().next().getGroupMembers().iterator().next();
+	}
 }
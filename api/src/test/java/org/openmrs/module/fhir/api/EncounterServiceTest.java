@@ -23,7 +23,10 @@ import org.hl7.fhir.dstu3.model.Reference;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Visit;
+import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIREncounterKindCache;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
@@ -216,4 +219,64 @@ public class EncounterServiceTest extends BaseModuleContextSensitiveTest {
 		assertNotNull(fhirEncounters);
 		assertEquals(1, fhirEncounters.size());
 	}
+
+	@Test
+	public void searchVisits_shouldReturnNonVoidedVisitsAPageAtATime() {
+		int nonVoided = 0;
+		for (Visit visit : Context.getVisitService().getAllVisits()) {
+			if (!visit.isVoided()) {
+				nonVoided++;
+			}
+		}
+		VisitSearchCriteria criteria = new VisitSearchCriteria();
+		assertEquals(nonVoided, getService().getVisitCount(criteria));
+		assertEquals(nonVoided, getService().searchVisits(criteria, null, null).size());
+		assertEquals(Math.min(1, nonVoided), getService().searchVisits(criteria, 0, 1).size());
+		assertEquals(Math.max(0, nonVoided - 1), getService().searchVisits(criteria, 1, nonVoided).size());
+	}
+
+	@Test
+	public void searchVisits_shouldFilterByPatient() {
+		Visit visit = Context.getVisitService().getVisitByUuid("7fffd6b9-0970-4967-88c7-0b7b50f12ab9");
+		String patientUuid = visit.getPatient().getUuid();
+		VisitSearchCriteria criteria = new VisitSearchCriteria();
+		criteria.setPatient(patientUuid);
+		List<Encounter> fhirVisits = getService().searchVisits(criteria, null, null);
+		assertEquals(getService().getVisitCount(criteria), fhirVisits.size());
+		assertFalse(fhirVisits.isEmpty());
+		for (Encounter fhirVisit : fhirVisits) {
+			assertTrue(fhirVisit.getSubject().getReference().endsWith(patientUuid));
+		}
+	}
+
+	@Test(expected = APIAuthenticationException.class)
+	public void searchVisits_shouldRequireTheGetVisitsPrivilege() {
+		Context.logout();
+		getService().searchVisits(new VisitSearchCriteria(), null, null);
+	}
+
+	@Test(expected = APIAuthenticationException.class)
+	public void getVisitCount_shouldRequireTheGetVisitsPrivilege() {
+		Context.logout();
+		getService().getVisitCount(new VisitSearchCriteria());
+	}
+
+	@Test
+	public void getEncounter_shouldRememberThatTheUuidBelongsToAVisit() {
+		String visitUuid = "4c48b0c0-1ade-11e1-9c71-00248140a5eb";
+		FHIREncounterKindCache.getInstance().remove(visitUuid);
+		assertNotNull(getService().getEncounter(visitUuid));
+		assertEquals(FHIREncounterKindCache.Kind.VISIT, FHIREncounterKindCache.getInstance().get(visitUuid));
+		Encounter fhirEncounter = getService().getEncounter(visitUuid);
+		assertNotNull(fhirEncounter);
+		assertEquals(visitUuid, fhirEncounter.getId());
+	}
+
+	@Test
+	public void getEncounter_shouldFallBackWhenTheRememberedKindIsWrong() {
+		String encounterUuid = "430bbb70-6a9c-4e1e-badb-9d1034b1b5e9";
+		FHIREncounterKindCache.getInstance().put(encounterUuid, FHIREncounterKindCache.Kind.VISIT);
+		assertNotNull(getService().getEncounter(encounterUuid));
+		assertEquals(FHIREncounterKindCache.Kind.ENCOUNTER, FHIREncounterKindCache.getInstance().get(encounterUuid));
+	}
 }
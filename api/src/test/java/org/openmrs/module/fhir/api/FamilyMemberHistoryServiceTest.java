@@ -16,8 +16,10 @@ package org.openmrs.module.fhir.api;
 import org.hl7.fhir.dstu3.model.FamilyMemberHistory;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.openmrs.util.PrivilegeConstants;
 
 import java.util.List;
 
@@ -61,4 +63,17 @@ public class FamilyMemberHistoryServiceTest extends BaseModuleContextSensitiveTe
 		assertNotNull(memberHistorie);
 		assertEquals(3, memberHistorie.size());
 	}
+
+	@Test(expected = APIAuthenticationException.class)
+	public void searchFamilyHistoryByPerson_shouldRequireTheGetRelationshipsPrivilege() {
+		Context.logout();
+		// Only enough to look the person up
+		Context.addProxyPrivilege(PrivilegeConstants.GET_PEOPLE);
+		try {
+			getService().searchFamilyHistoryByPersonId("da7f524f-27ce-4bb2-86d6-6d1d05312bd5");
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.GET_PEOPLE);
+		}
+	}
 }
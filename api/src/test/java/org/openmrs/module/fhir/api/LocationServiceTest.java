@@ -17,7 +17,10 @@ import org.hl7.fhir.dstu3.model.Address;
 import org.hl7.fhir.dstu3.model.Location;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRLocationUtil;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
@@ -28,6 +31,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class LocationServiceTest extends BaseModuleContextSensitiveTest {
 
@@ -92,6 +96,72 @@ public class LocationServiceTest extends BaseModuleContextSensitiveTest {
 		assertEquals(5, locations.size());
 	}
 	
+	@Test
+	public void searchLocations_shouldFilterRetiredLocationsInTheDatabase() {
+		int retired = 0;
+		for (org.openmrs.Location location : Context.getLocationService().getAllLocations(true)) {
+			if (location.isRetired()) {
+				retired++;
+			}
+		}
+		LocationSearchCriteria criteria = new LocationSearchCriteria();
+		criteria.setActive(false);
+		assertEquals(retired, getService().getLocationCount(criteria));
+		assertEquals(retired, getService().searchLocationsByStatus(false).size());
+		for (Location location : getService().searchLocations(criteria, null, null)) {
+			assertEquals(Location.LocationStatus.INACTIVE, location.getStatus());
+		}
+	}
+
+	@Test
+	public void searchLocations_shouldReturnTheRequestedPage() {
+		LocationSearchCriteria criteria = new LocationSearchCriteria();
+		criteria.setActive(true);
+		List<Location> all = getService().searchLocations(criteria, null, null);
+		assertEquals(all.size(), getService().getLocationCount(criteria));
+
+		List<Location> page = getService().searchLocations(criteria, 1, 2);
+		assertEquals(2, page.size());
+		assertEquals(all.get(1).getId(), page.get(0).getId());
+		assertEquals(all.get(2).getId(), page.get(1).getId());
+	}
+
+	@Test
+	public void searchLocations_shouldReturnTheChildrenOfTheParentLocation() {
+		org.openmrs.Location parent = Context.getLocationService().getLocationByUuid(
+				"f08ba64b-ea57-4a41-b33c-9dfc59b0c60a");
+		LocationSearchCriteria criteria = new LocationSearchCriteria();
+		criteria.setPartOf(parent.getUuid());
+		List<Location> children = getService().searchLocations(criteria, null, null);
+		assertEquals(parent.getChildLocations(true).size(), children.size());
+		for (Location child : children) {
+			assertEquals("Location/" + parent.getUuid(), child.getPartOf().getReference());
+		}
+	}
+
+	@Test
+	public void rebuildLocationIndex_shouldServeReadsAndPartOfSearchesFromTheIndex() {
+		String parentUuid = "f08ba64b-ea57-4a41-b33c-9dfc59b0c60a";
+		LocationSearchCriteria criteria = new LocationSearchCriteria();
+		criteria.setPartOf(parentUuid);
+		List<Location> children = getService().searchLocations(criteria, null, null);
+		try {
+			getService().rebuildLocationIndex();
+			assertTrue(FHIRLocationIndex.getInstance().isLoaded());
+
+			Location indexed = getService().getLocation(parentUuid);
+			assertEquals(parentUuid, indexed.getId());
+			assertEquals(Context.getLocationService().getLocationByUuid(parentUuid).getName(), indexed.getName());
+
+			List<Location> indexedChildren = getService().searchLocations(criteria, null, null);
+			assertEquals(children.size(), indexedChildren.size());
+			assertEquals(children.size(), getService().getLocationCount(criteria));
+		}
+		finally {
+			FHIRLocationIndex.getInstance().clear();
+		}
+	}
+
 	@Test
 	public void deleteLocation_shouldDeleteTheSpecifiedLocation() {
 		org.openmrs.api.LocationService locationService = Context.getLocationService();
@@ -166,4 +236,16 @@ public class LocationServiceTest extends BaseModuleContextSensitiveTest {
 		fhirLocation = Context.getService(LocationService.class).createLocation(fhirLocation);
 		assertNotNull(fhirLocation);
 	}
+
+	@Test(expected = APIAuthenticationException.class)
+	public void searchLocations_shouldRequireTheGetLocationsPrivilege() {
+		Context.logout();
+		getService().searchLocations(new LocationSearchCriteria(), null, null);
+	}
+
+	@Test(expected = APIAuthenticationException.class)
+	public void getLocationCount_shouldRequireTheGetLocationsPrivilege() {
+		Context.logout();
+		getService().getLocationCount(new LocationSearchCriteria());
+	}
 }
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Patient;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.exception.FHIRValidationException;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
@@ -77,6 +78,25 @@ public class MedicationRequestTest extends BaseModuleContextSensitiveTest {
 		assertEquals(medicationRequests.size(), 10);
 	}
 
+	@Test
+	public void searchMedicationRequests_shouldReturnRequestedPageOfActiveDrugOrders() {
+		Patient patient = Context.getPatientService().getPatient(2);
+		DrugOrderSearchCriteria criteria = new DrugOrderSearchCriteria();
+		criteria.setPatient(patient.getUuid());
+		criteria.setStatus(DrugOrderSearchCriteria.Status.ACTIVE);
+		long count = getService().getMedicationRequestCount(criteria);
+		List<MedicationRequest> medicationRequests = getService().searchMedicationRequests(criteria, 0, null);
+		assertEquals(count, medicationRequests.size());
+		for (MedicationRequest medicationRequest : medicationRequests) {
+			assertEquals(MedicationRequest.MedicationRequestStatus.ACTIVE, medicationRequest.getStatus());
+		}
+		if (count > 1) {
+			List<MedicationRequest> page = getService().searchMedicationRequests(criteria, 1, 1);
+			assertEquals(1, page.size());
+			assertEquals(medicationRequests.get(1).getId(), page.get(0).getId());
+		}
+	}
+
 	@Test
 	public void deleteMedicationRequest_shouldDeleteTheSpecifiedMedicationRequest() {
 		org.openmrs.api.OrderService orderService = Context.getOrderService();
@@ -31,6 +31,7 @@ import org.openmrs.Obs.Status;
 import org.openmrs.Person;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRObsUtil;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
@@ -40,8 +41,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -135,6 +138,34 @@ public class ObsServiceTest extends BaseModuleContextSensitiveTest {
 		assertNotNull(obs);
 		assertEquals(5, obs.size());
 	}
+
+	@Test
+	public void searchObs_shouldReturnOnePageOfTheObservationsMostRecentFirst() {
+		String personUuid = "da7f524f-27ce-4bb2-86d6-6d1d05312bd5";
+		ObsSearchCriteria criteria = new ObsSearchCriteria();
+		criteria.setPatient(personUuid);
+
+		List<Observation> firstPage = getService().searchObs(criteria, 0, 3);
+		List<Observation> secondPage = getService().searchObs(criteria, 3, 3);
+		assertEquals(3, firstPage.size());
+		assertEquals(2, secondPage.size());
+
+		Set<String> expected = new HashSet<String>();
+		for (Observation observation : getService().searchObsByPerson(personUuid)) {
+			expected.add(observation.getId());
+		}
+		List<Observation> all = new ArrayList<Observation>(firstPage);
+		all.addAll(secondPage);
+		Set<String> ids = new HashSet<String>();
+		for (int i = 0; i < all.size(); i++) {
+			ids.add(all.get(i).getId());
+			if (i > 0) {
+				assertFalse(all.get(i).getEffectiveDateTimeType().getValue().after(
+						all.get(i - 1).getEffectiveDateTimeType().getValue()));
+			}
+		}
+		assertEquals(expected, ids);
+	}
 	
 	@Test
 	public void deleteObs_shouldDeleteTheSpecifiedObs() {
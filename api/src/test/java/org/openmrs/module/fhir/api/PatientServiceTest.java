@@ -19,6 +19,7 @@ import org.hl7.fhir.dstu3.model.Patient;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.exception.FHIRValidationException;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
@@ -89,6 +90,18 @@ public class PatientServiceTest extends BaseModuleContextSensitiveTest {
 		assertTrue(exist);
 	}
 
+	@Test
+	public void searchPatientsByIdentifierAndIdentifierType_shouldMatchTheTypeCaseInsensitively() {
+		List<Patient> patients = getService().searchPatientsByIdentifier("1234", "test identifier type");
+		assertEquals(1, patients.size());
+		assertEquals("61b38324-e2fd-4feb-95b7-9e9a2a4400df", patients.get(0).getId().toString());
+	}
+
+	@Test
+	public void searchPatientsByIdentifierAndIdentifierType_shouldReturnNothingForAnUnknownType() {
+		assertEquals(0, getService().searchPatientsByIdentifier("1234", "Unknown Identifier Type").size());
+	}
+
 	@Test
 	public void searchPatientsByIdentifierAndIdentifierType_shouldReturnBundle() {
 		String returned_patientUuid = "61b38324-e2fd-4feb-95b7-9e9a2a4400df";
@@ -134,6 +147,29 @@ public class PatientServiceTest extends BaseModuleContextSensitiveTest {
 		assertEquals(3, patients.getEntry().size());
 	}
 
+	@Test
+	public void searchPatientsByName_shouldApplyTheMatchModifiersAndPage() {
+		PatientNameSearchCriteria criteria = new PatientNameSearchCriteria();
+		criteria.setFamilyName("Do");
+		long startsWith = getService().getPatientCountByName(criteria);
+		assertTrue(startsWith >= 3);
+
+		criteria.setFamilyNameMatch(PatientNameSearchCriteria.Match.EXACT);
+		assertEquals(0, getService().getPatientCountByName(criteria));
+
+		criteria.setFamilyName("oe");
+		criteria.setFamilyNameMatch(PatientNameSearchCriteria.Match.CONTAINS);
+		assertTrue(getService().getPatientCountByName(criteria) >= 3);
+
+		criteria.setFamilyName("Doe");
+		criteria.setFamilyNameMatch(PatientNameSearchCriteria.Match.EXACT);
+		List<Patient> all = getService().searchPatientsByName(criteria, null, null);
+		assertEquals(getService().getPatientCountByName(criteria), all.size());
+		List<Patient> secondPage = getService().searchPatientsByName(criteria, 1, 1);
+		assertEquals(1, secondPage.size());
+		assertEquals(all.get(1).getId(), secondPage.get(0).getId());
+	}
+
 	@Test
 	public void searchActivePatients_shouldReturnBundle() {
 		List<Patient> patients = getService().searchPatients(true);
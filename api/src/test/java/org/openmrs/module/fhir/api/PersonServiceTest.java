@@ -26,6 +26,8 @@ import org.junit.Test;
 import org.openmrs.PersonAddress;
 import org.openmrs.PersonName;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRNameIndex;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
 import org.openmrs.module.fhir.api.util.FHIRPersonUtil;
 import org.openmrs.module.fhir.exception.FHIRValidationException;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
@@ -96,6 +98,33 @@ public class PersonServiceTest extends BaseModuleContextSensitiveTest {
 		assertEquals(2, persons.size());
 	}
 
+	@Test
+	public void searchPersonsByName_shouldPageThePhoneticMatchesOfTheNameIndex() {
+		getService().rebuildNameIndex();
+		try {
+			PatientNameSearchCriteria.Match match = PatientNameSearchCriteria.Match.PHONETIC;
+			List<Person> all = getService().searchPersonsByName("Anet", match, null, null);
+			assertFalse(all.isEmpty());
+			assertEquals(all.size(), getService().getPersonCountByName("Anet", match));
+
+			List<String> paged = new ArrayList<String>();
+			for (int firstResult = 0; firstResult < all.size(); firstResult++) {
+				List<Person> page = getService().searchPersonsByName("Anet", match, firstResult, 1);
+				assertEquals(1, page.size());
+				paged.add(page.get(0).getId());
+			}
+			List<String> expected = new ArrayList<String>();
+			for (Person person : all) {
+				expected.add(person.getId());
+			}
+			assertEquals(expected, paged);
+			assertTrue(getService().searchPersonsByName("Anet", match, all.size(), 1).isEmpty());
+		}
+		finally {
+			FHIRNameIndex.getInstance().clear();
+		}
+	}
+
 	/**
 	 * @verifies generate oms person
 	 */
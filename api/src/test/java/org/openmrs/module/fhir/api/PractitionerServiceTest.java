@@ -95,6 +95,26 @@ public class PractitionerServiceTest extends BaseModuleContextSensitiveTest {
 		assertEquals(practitionerUuid, practitionerList.get(0).getId().toString());
 	}
 
+	@Test
+	public void searchPractitionersByPersonName_shouldMatchInTheDatabaseAndPage() {
+		String practitionerUuid = "ba4781f4-6b94-11e0-93c3-18a905e044dc";
+		List<Practitioner> practitionerList = getService().searchPractitionersByPersonName("Collet", "Chebaskwony", 0, 10);
+		assertEquals(1, practitionerList.size());
+		assertEquals(practitionerUuid, practitionerList.get(0).getId().toString());
+		assertEquals(1, getService().getPractitionerCountByPersonName("Collet", "Chebaskwony"));
+		assertEquals(0, getService().searchPractitionersByPersonName("Collet", "Chebaskwony", 1, 10).size());
+		assertEquals(0, getService().getPractitionerCountByPersonName("Collet", "Unknown"));
+	}
+
+	@Test
+	public void searchPractitionersByPersonName_shouldIgnoreTheCaseOfTheNames() {
+		String practitionerUuid = "ba4781f4-6b94-11e0-93c3-18a905e044dc";
+		List<Practitioner> practitionerList = getService().searchPractitionersByPersonName("COLLET", "chebaskwony", 0, 10);
+		assertEquals(1, practitionerList.size());
+		assertEquals(practitionerUuid, practitionerList.get(0).getId().toString());
+		assertEquals(1, getService().getPractitionerCountByPersonName("cOLLET", "CHEBASKWONY"));
+	}
+
 	@Test
 	public void searchPractitionersByIdentifier_shouldReturnBundle() throws FHIRValidationException {
 		String identifier = "8A762";
@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FHIRConceptCacheTest extends BaseModuleContextSensitiveTest {
+
+	private static final String WEIGHT_CONCEPT_UUID = "c607c80f-1ea9-4da3-bb88-6276ce8868dd";
+
+	private static final String UNKNOWN_CONCEPT_UUID = "2f8b0b6a-0000-4b6e-9c53-000000000000";
+
+	private final FHIRConceptCache cache = FHIRConceptCache.getInstance();
+
+	@Before
+	public void enableCache() {
+		cache.setEnabled(true);
+	}
+
+	@After
+	public void disableCache() {
+		cache.setEnabled(false);
+	}
+
+	@Test
+	public void getConceptByUuid_shouldCacheTheConceptId() {
+		Concept concept = cache.getConceptByUuid(WEIGHT_CONCEPT_UUID);
+		assertEquals(WEIGHT_CONCEPT_UUID, concept.getUuid());
+		assertEquals(1, cache.size());
+
+		assertEquals(concept, cache.getConceptByCode(FHIRConstants.OPENMRS_URI, WEIGHT_CONCEPT_UUID));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void getConceptByName_shouldIgnoreTheCaseOfTheName() {
+		Concept concept = cache.getConceptByName("WEIGHT (KG)");
+		assertEquals(WEIGHT_CONCEPT_UUID, concept.getUuid());
+		assertEquals(concept, cache.getConceptByName("weight (kg)"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void getConceptByUuid_shouldCacheMisses() {
+		assertNull(cache.getConceptByUuid(UNKNOWN_CONCEPT_UUID));
+		assertNull(cache.getConceptByUuid(UNKNOWN_CONCEPT_UUID));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void getConceptByCode_shouldNotCacheUnknownSystems() {
+		assertNull(cache.getConceptByCode("http://example.org/unknown", "5089"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void setEnabled_shouldClearTheCache() {
+		cache.getConceptByUuid(WEIGHT_CONCEPT_UUID);
+		cache.setEnabled(false);
+		assertEquals(0, cache.size());
+		cache.getConceptByUuid(WEIGHT_CONCEPT_UUID);
+		assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares classifying the top level obs of a large lab panel with a {@link FHIRDiagnosticReportFieldCache.FieldTable}
+ * against the former chain of global property reads. Not run by the build, start it with
+ * <pre>
+ * java -cp target/test-classes:target/classes:... org.openmrs.module.fhir.api.cache.FHIRDiagnosticReportFieldBenchmark [obs]
+ * </pre>
+ * Global properties and concepts are served from in memory maps, so the chain is measured without the database round
+ * trips it pays in a running server. The real gap is larger than the reported one.
+ */
+public class FHIRDiagnosticReportFieldBenchmark {
+
+	private static final int ITERATIONS = 200;
+
+	private static final String[] PROPERTIES = { FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY,
+			FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY, FHIRConstants.DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY,
+			FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM_CONCEPT_PROPERTY };
+
+	private static final String[] FIELDS = { FHIRConstants.DIAGNOSTIC_REPORT_RESULT,
+			FHIRConstants.DIAGNOSTIC_REPORT_STATUS, FHIRConstants.DIAGNOSTIC_REPORT_NAME,
+			FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM };
+
+	private static final Map<String, String> globalProperties = new HashMap<String, String>();
+
+	private static final Map<Integer, Object> concepts = new HashMap<Integer, Object>();
+
+	public static void main(String[] args) {
+		int obsCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		Map<String, Integer> fieldConceptIds = new LinkedHashMap<String, Integer>();
+		for (int i = 0; i < PROPERTIES.length; i++) {
+			globalProperties.put(PROPERTIES[i], String.valueOf(1000 + i));
+			concepts.put(1000 + i, new Object());
+			fieldConceptIds.put(FIELDS[i], 1000 + i);
+		}
+		FHIRDiagnosticReportFieldCache.FieldTable table = new FHIRDiagnosticReportFieldCache.FieldTable(fieldConceptIds);
+
+		// Mostly result groups, a few status, name and presented form obs and 5% of unmapped concepts
+		Random random = new Random(42);
+		int[] obsConceptIds = new int[obsCount];
+		for (int i = 0; i < obsCount; i++) {
+			int draw = random.nextInt(100);
+			obsConceptIds[i] = draw < 80 ? 1000 : draw < 85 ? 1001 : draw < 90 ? 1002 : draw < 95 ? 1003 : 2000 + draw;
+		}
+
+		System.out.println(String.format("Classifying %,d obs, average of %d runs", obsCount, ITERATIONS));
+		for (int warmUp = 0; warmUp < 2; warmUp++) {
+			long[] chain = classifyWithPropertyChain(obsConceptIds);
+			long[] lookup = classifyWithTable(table, obsConceptIds);
+			if (warmUp == 1) {
+				report("property chain", chain);
+				report("dispatch table", lookup);
+			}
+		}
+	}
+
+	private static long[] classifyWithPropertyChain(int[] obsConceptIds) {
+		int unmapped = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			unmapped = 0;
+			for (int conceptId : obsConceptIds) {
+				try {
+					getFieldName(conceptId);
+				}
+				catch (NoSuchFieldException e) {
+					unmapped++;
+				}
+			}
+		}
+		return new long[] { unmapped, (System.nanoTime() - start) / ITERATIONS };
+	}
+
+	private static long[] classifyWithTable(FHIRDiagnosticReportFieldCache.FieldTable table, int[] obsConceptIds) {
+		int unmapped = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			unmapped = 0;
+			for (int conceptId : obsConceptIds) {
+				if (table.getField(conceptId) == null) {
+					unmapped++;
+				}
+			}
+		}
+		return new long[] { unmapped, (System.nanoTime() - start) / ITERATIONS };
+	}
+
+	/**
+	 * Mirrors the former LaboratoryHandler#getFieldName, one property read, parse and concept load per field tried
+	 */
+	private static String getFieldName(int conceptId) throws NoSuchFieldException {
+		for (int i = 0; i < PROPERTIES.length; i++) {
+			Integer configured = Integer.parseInt(globalProperties.get(PROPERTIES[i]));
+			if (concepts.get(configured) != null && configured == conceptId) {
+				return FIELDS[i];
+			}
+		}
+		throw new NoSuchFieldException("Can't find a concept for " + conceptId);
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-16s %,8d unmapped %,10d us", name, result[0], result[1] / 1000));
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FHIRDiagnosticReportFieldCacheTest extends BaseModuleContextSensitiveTest {
+
+	private final FHIRDiagnosticReportFieldCache cache = FHIRDiagnosticReportFieldCache.getInstance();
+
+	@Before
+	public void enableCache() {
+		cache.setEnabled(true);
+	}
+
+	@After
+	public void disableCache() {
+		cache.setEnabled(false);
+	}
+
+	@Test
+	public void getField_shouldMapConfiguredConceptsToFields() {
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY, "5089");
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM_CONCEPT_PROPERTY, "5497");
+		cache.clear();
+
+		assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_RESULT, cache.getField(5089));
+		assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_PRESENTED_FORM, cache.getField(5497));
+		assertNull(cache.getField(3));
+	}
+
+	@Test
+	public void getField_shouldIgnoreUnknownConcepts() {
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_RESULT_CONCEPT_PROPERTY, "not a concept id");
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY, "999999");
+		cache.clear();
+
+		assertNull(cache.getField(999999));
+	}
+
+	@Test
+	public void clear_shouldRebuildTheTableFromNewValues() {
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY, "5089");
+		cache.clear();
+		assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_NAME, cache.getField(5089));
+
+		setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_NAME_CONCEPT_PROPERTY, "5497");
+		cache.clear();
+		assertNull(cache.getField(5089));
+		assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_NAME, cache.getField(5497));
+	}
+
+	@Test
+	public void fieldPropertyListener_shouldRebuildTheTableWhenAPropertyIsSaved() {
+		GlobalPropertyListener listener = new FHIRDiagnosticReportFieldCache.FieldPropertyListener();
+		Context.getAdministrationService().addGlobalPropertyListener(listener);
+		try {
+			setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY, "5089");
+			assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_STATUS, cache.getField(5089));
+
+			// No explicit clear, the listener is notified by the administration service
+			setGlobalProperty(FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY, "5497");
+			assertNull(cache.getField(5089));
+			assertEquals(FHIRConstants.DIAGNOSTIC_REPORT_STATUS, cache.getField(5497));
+
+			Context.getAdministrationService().purgeGlobalProperty(Context.getAdministrationService()
+					.getGlobalPropertyObject(FHIRConstants.DIAGNOSTIC_REPORT_STATUS_CONCEPT_PROPERTY));
+			assertNull(cache.getField(5497));
+		}
+		finally {
+			Context.getAdministrationService().removeGlobalPropertyListener(listener);
+		}
+	}
+
+	private void setGlobalProperty(String property, String value) {
+		Context.getAdministrationService().saveGlobalProperty(new GlobalProperty(property, value));
+	}
+}
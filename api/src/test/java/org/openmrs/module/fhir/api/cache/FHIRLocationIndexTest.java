@@ -0,0 +1,102 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FHIRLocationIndexTest {
+
+	private final FHIRLocationIndex index = FHIRLocationIndex.getInstance();
+
+	@Before
+	public void loadIndex() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1, "country", "Country", false, null });
+		rows.add(new Object[] { 2, "district-b", "District B", false, 1 });
+		rows.add(new Object[] { 3, "district-a", "District A", false, 1 });
+		rows.add(new Object[] { 4, "clinic", "Clinic", true, 3 });
+		index.load(rows);
+	}
+
+	@After
+	public void clearIndex() {
+		index.clear();
+	}
+
+	@Test
+	public void load_shouldIndexTheTree() {
+		assertTrue(index.isLoaded());
+		assertEquals(4, index.size());
+		assertEquals("district-a", index.getUuid(3));
+		assertEquals("District A", index.getName(3));
+		assertEquals("district-a", index.getParentUuid("clinic"));
+		assertEquals(Arrays.asList("district-a", "district-b"), index.getChildUuids("country"));
+		assertEquals(Arrays.asList("district-a", "country"), index.getAncestorUuids("clinic"));
+		assertTrue(index.isRetired("clinic"));
+	}
+
+	@Test
+	public void update_shouldMoveALocationToItsNewParent() {
+		Location clinic = createLocation(4, "clinic", "Clinic", createLocation(2, "district-b", "District B", null));
+		index.update(clinic);
+
+		assertEquals(Collections.emptyList(), index.getChildUuids("district-a"));
+		assertEquals(Collections.singletonList("clinic"), index.getChildUuids("district-b"));
+		assertFalse(index.isRetired("clinic"));
+	}
+
+	@Test
+	public void update_shouldAddNewLocationsAndKeepChildren() {
+		Location country = createLocation(1, "country", "Renamed Country", null);
+		index.update(country);
+		index.update(createLocation(5, "district-c", "District C", country));
+
+		assertEquals("Renamed Country", index.getName(1));
+		assertEquals(Arrays.asList("district-a", "district-b", "district-c"), index.getChildUuids("country"));
+	}
+
+	@Test
+	public void remove_shouldDropThePurgedLocation() {
+		index.remove(createLocation(2, "district-b", "District B", null));
+
+		assertNull(index.getUuid(2));
+		assertFalse(index.contains("district-b"));
+		assertEquals(Collections.singletonList("district-a"), index.getChildUuids("country"));
+	}
+
+	@Test
+	public void getLocation_shouldReturnNullForRetiredOrUnknownLocations() {
+		assertNull(index.getLocation("clinic"));
+		assertNull(index.getLocation("unknown"));
+	}
+
+	private Location createLocation(Integer id, String uuid, String name, Location parent) {
+		Location location = new Location(id);
+		location.setUuid(uuid);
+		location.setName(name);
+		location.setParentLocation(parent);
+		return location;
+	}
+}
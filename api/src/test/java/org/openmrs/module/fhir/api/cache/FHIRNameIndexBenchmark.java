@@ -0,0 +1,157 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonName;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.PersonService;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the latency of {@link FHIRNameIndex} searches with the name searches of the core services the Person and
+ * Patient strategies use, {@code PersonService#getSimilarPeople} and {@code PatientService#getPatients}. Not run by
+ * the build, which only runs *Test classes, start it with
+ * <pre>
+ * mvn test -pl api -Dtest=FHIRNameIndexBenchmark -Dbenchmark.patients=20000
+ * </pre>
+ * The patients are stored in the in-memory test database, so the absolute latencies of the database searches are
+ * lower than against a real person_name table of the same size. Names are built from random syllables, so the number
+ * of distinct tokens grows with the number of patients as in a real registry.
+ */
+public class FHIRNameIndexBenchmark extends BaseModuleContextSensitiveTest {
+
+	private static final String[] SYLLABLES = { "ja", "mo", "ke", "lin", "son", "ra", "bert", "ma", "ri", "do", "na",
+			"tho", "wi", "ams", "ste", "phen", "ka", "ze", "o", "lu" };
+
+	private static final int ITERATIONS = 20;
+
+	private static final int BATCH_SIZE = 500;
+
+	@Test
+	public void benchmark() throws Exception {
+		int patients = Integer.getInteger("benchmark.patients", 5000);
+		Random random = new Random(42);
+		String family = createPatients(patients, random);
+		updateSearchIndex();
+
+		long start = System.nanoTime();
+		Context.getService(PersonService.class).rebuildNameIndex();
+		System.out.println(String.format("Indexed %,d persons in %,d ms", FHIRNameIndex.getInstance().size(),
+				(System.nanoTime() - start) / 1000000));
+
+		String misspelled = family.substring(1, 2) + family.charAt(0) + family.substring(2);
+		System.out.println("Searching family name " + family + ", misspelled " + misspelled + ", average of "
+				+ ITERATIONS + " runs, matched patients are loaded in every run");
+		try {
+			report("getSimilarPeople", family, getSimilarPeople(family));
+			report("getPatients", family, getPatients(family));
+			report("index exact", family, search(family, FHIRNameIndex.Mode.EXACT));
+			report("index phonetic", family, search(family, FHIRNameIndex.Mode.PHONETIC));
+			report("index fuzzy", misspelled, search(misspelled, FHIRNameIndex.Mode.FUZZY));
+		}
+		finally {
+			FHIRNameIndex.getInstance().clear();
+		}
+	}
+
+	/**
+	 * @return the family name of one of the created patients
+	 */
+	private String createPatients(int count, Random random) {
+		PatientIdentifierType identifierType = null;
+		for (PatientIdentifierType type : Context.getPatientService().getAllPatientIdentifierTypes()) {
+			if (type.getValidator() == null) {
+				identifierType = type;
+				break;
+			}
+		}
+		Location location = Context.getLocationService().getLocation(1);
+		String family = null;
+		for (int i = 0; i < count; i++) {
+			Patient patient = new Patient();
+			patient.setGender(i % 2 == 0 ? "M" : "F");
+			patient.addName(new PersonName(randomName(random), null, randomName(random)));
+			PatientIdentifier identifier = new PatientIdentifier("BENCH-" + i, identifierType, location);
+			identifier.setPreferred(true);
+			patient.addIdentifier(identifier);
+			Context.getPatientService().savePatient(patient);
+			if (i == count / 2) {
+				family = patient.getFamilyName();
+			}
+			if (i % BATCH_SIZE == 0) {
+				Context.flushSession();
+				Context.clearSession();
+			}
+		}
+		Context.flushSession();
+		Context.clearSession();
+		return family;
+	}
+
+	private long[] getSimilarPeople(String family) {
+		int matches = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			Context.clearSession();
+			matches = Context.getPersonService().getSimilarPeople(family, null, null).size();
+		}
+		return new long[] { matches, (System.nanoTime() - start) / ITERATIONS };
+	}
+
+	private long[] getPatients(String family) {
+		int matches = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			Context.clearSession();
+			matches = Context.getPatientService().getPatients(family).size();
+		}
+		return new long[] { matches, (System.nanoTime() - start) / ITERATIONS };
+	}
+
+	private long[] search(String family, FHIRNameIndex.Mode mode) {
+		List<FHIRNameIndex.Query> queries = Collections.singletonList(new FHIRNameIndex.Query(
+				FHIRNameIndex.Field.FAMILY, family, mode));
+		int matches = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			Context.clearSession();
+			List<Integer> patientIds = FHIRNameIndex.getInstance().search(queries, true);
+			matches = FHIRUtils.getFHIRDAO().getPatientsByIds(patientIds).size();
+		}
+		return new long[] { matches, (System.nanoTime() - start) / ITERATIONS };
+	}
+
+	private static void report(String name, String query, long[] result) {
+		System.out.println(String.format("%-16s %-14s %,10d matches %,10d us", name, query, result[0],
+				result[1] / 1000));
+	}
+
+	private static String randomName(Random random) {
+		StringBuilder name = new StringBuilder();
+		int syllables = 2 + random.nextInt(3);
+		for (int i = 0; i < syllables; i++) {
+			name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+		}
+		name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+		return name.toString();
+	}
+}
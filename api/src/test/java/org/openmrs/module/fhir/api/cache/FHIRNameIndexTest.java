@@ -0,0 +1,262 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.PersonName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FHIRNameIndexTest {
+
+	private final FHIRNameIndex index = FHIRNameIndex.getInstance();
+
+	@Before
+	public void loadIndex() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1, "John", "Paul", "Smith", null });
+		rows.add(new Object[] { 2, "Jon", null, "Smyth", null });
+		rows.add(new Object[] { 3, "Mary", null, "Johnson", null });
+		rows.add(new Object[] { 4, "Robert", null, "Ashcraft", "M\u00fcller" });
+		index.load(rows.iterator(), Arrays.asList(1, 2, 4).iterator());
+	}
+
+	@After
+	public void clearIndex() {
+		index.clear();
+	}
+
+	@Test
+	public void soundex_shouldEncodeAmericanSoundex() {
+		assertEquals("R163", FHIRNameIndex.soundex("Robert"));
+		assertEquals("R163", FHIRNameIndex.soundex("Rupert"));
+		assertEquals("A261", FHIRNameIndex.soundex("Ashcraft"));
+		assertEquals("T522", FHIRNameIndex.soundex("Tymczak"));
+		assertEquals("P236", FHIRNameIndex.soundex("Pfister"));
+		assertEquals("S530", FHIRNameIndex.soundex("Smith"));
+		assertEquals("S530", FHIRNameIndex.soundex("Smyth"));
+	}
+
+	@Test
+	public void editDistance_shouldCountTranspositionsAsOneEdit() {
+		assertEquals(1, FHIRNameIndex.editDistance("jonh", "john"));
+		assertEquals(1, FHIRNameIndex.editDistance("jon", "john"));
+		assertEquals(2, FHIRNameIndex.editDistance("smiht", "smyth"));
+	}
+
+	@Test
+	public void load_shouldIndexTheNonVoidedNames() {
+		assertTrue(index.isLoaded());
+		assertEquals(4, index.size());
+		assertEquals(Collections.singletonList(4), search(FHIRNameIndex.Field.FAMILY, "muller",
+				FHIRNameIndex.Mode.EXACT, true));
+	}
+
+	@Test
+	public void search_shouldMatchMisspelledNames() {
+		assertEquals(Arrays.asList(1, 2), search(FHIRNameIndex.Field.GIVEN, "jonh", FHIRNameIndex.Mode.FUZZY, true));
+		assertEquals(Arrays.asList(1, 2), search(FHIRNameIndex.Field.FAMILY, "Smiht", FHIRNameIndex.Mode.FUZZY, true));
+		assertEquals(Collections.emptyList(), search(FHIRNameIndex.Field.GIVEN, "jonh", FHIRNameIndex.Mode.EXACT,
+				true));
+	}
+
+	@Test
+	public void search_shouldMatchNamesWhichSoundAlikeBestMatchFirst() {
+		assertEquals(Arrays.asList(2, 1), search(FHIRNameIndex.Field.FAMILY, "Smyth", FHIRNameIndex.Mode.PHONETIC,
+				true));
+		assertEquals(Collections.singletonList(4), search(FHIRNameIndex.Field.ANY, "Rupert",
+				FHIRNameIndex.Mode.PHONETIC, true));
+	}
+
+	@Test
+	public void search_shouldRequireAllQueriesToMatch() {
+		List<FHIRNameIndex.Query> queries = new ArrayList<FHIRNameIndex.Query>();
+		queries.add(new FHIRNameIndex.Query(FHIRNameIndex.Field.GIVEN, "jon", FHIRNameIndex.Mode.FUZZY));
+		queries.add(new FHIRNameIndex.Query(FHIRNameIndex.Field.FAMILY, "smith", FHIRNameIndex.Mode.EXACT));
+		assertEquals(Collections.singletonList(1), index.search(queries, true));
+	}
+
+	@Test
+	public void search_shouldOnlyReturnPatientsIfRequested() {
+		assertEquals(Collections.emptyList(), search(FHIRNameIndex.Field.FAMILY, "john", FHIRNameIndex.Mode.START,
+				true));
+		assertEquals(Collections.singletonList(3), search(FHIRNameIndex.Field.FAMILY, "john",
+				FHIRNameIndex.Mode.START, false));
+	}
+
+	@Test
+	public void update_shouldReindexTheNamesOfThePerson() {
+		Patient patient = new Patient(2);
+		patient.addName(new PersonName("Jane", null, "Doe"));
+		index.update(patient);
+
+		assertEquals(Collections.emptyList(), search(FHIRNameIndex.Field.FAMILY, "smyth", FHIRNameIndex.Mode.EXACT,
+				false));
+		assertEquals(Collections.singletonList(2), search(FHIRNameIndex.Field.FAMILY, "doe", FHIRNameIndex.Mode.EXACT,
+				true));
+	}
+
+	@Test
+	public void update_shouldDropVoidedPersons() {
+		Person person = new Person(3);
+		person.addName(new PersonName("Mary", null, "Johnson"));
+		person.setVoided(true);
+		index.update(person);
+
+		assertEquals(3, index.size());
+		assertEquals(Collections.emptyList(), search(FHIRNameIndex.Field.ANY, "mary", FHIRNameIndex.Mode.EXACT,
+				false));
+	}
+
+	@Test
+	public void remove_shouldDropThePurgedPerson() {
+		index.remove(new Person(1));
+
+		assertEquals(Collections.singletonList(2), search(FHIRNameIndex.Field.GIVEN, "jonh", FHIRNameIndex.Mode.FUZZY,
+				true));
+	}
+
+	@Test
+	public void load_shouldKeepAnsweringSearchesAndApplyChangesMadeWhileLoading() throws Exception {
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1, "John", "Paul", "Smith", null });
+		rows.add(new Object[] { 2, "Jon", null, "Smyth", null });
+		final ExecutorService searcher = Executors.newSingleThreadExecutor();
+		final List<Integer> searchedWhileLoading = new ArrayList<Integer>();
+		try {
+			index.load(new Iterator<Object[]>() {
+
+				private final Iterator<Object[]> delegate = rows.iterator();
+
+				@Override
+				public boolean hasNext() {
+					return delegate.hasNext();
+				}
+
+				@Override
+				public Object[] next() {
+					if (searchedWhileLoading.isEmpty()) {
+						// A search from another thread is not blocked by the load
+						searchedWhileLoading.addAll(searchInAnotherThread(searcher, "mary"));
+						Patient patient = new Patient(2);
+						patient.addName(new PersonName("Jane", null, "Doe"));
+						index.update(patient);
+					}
+					return delegate.next();
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			}, Arrays.asList(1, 2).iterator());
+		}
+		finally {
+			searcher.shutdownNow();
+		}
+
+		assertEquals(Collections.singletonList(3), searchedWhileLoading);
+		assertEquals(2, index.size());
+		assertEquals(Collections.singletonList(2), search(FHIRNameIndex.Field.FAMILY, "doe", FHIRNameIndex.Mode.EXACT,
+				true));
+		assertEquals(Collections.emptyList(), search(FHIRNameIndex.Field.FAMILY, "smyth", FHIRNameIndex.Mode.EXACT,
+				false));
+	}
+
+	@Test
+	public void load_shouldNotPublishALoadWhichWasClearedMeanwhile() {
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1, "John", "Paul", "Smith", null });
+		index.load(new Iterator<Object[]>() {
+
+			private final Iterator<Object[]> delegate = rows.iterator();
+
+			@Override
+			public boolean hasNext() {
+				return delegate.hasNext();
+			}
+
+			@Override
+			public Object[] next() {
+				index.clear();
+				return delegate.next();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, Collections.<Integer>emptyList().iterator());
+
+		assertFalse(index.isLoaded());
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void load_shouldIndexTheNamesOfAPersonReadApartOnce() {
+		List<Object[]> rows = new ArrayList<Object[]>();
+		rows.add(new Object[] { 1, "John", null, "Smith", null });
+		rows.add(new Object[] { 2, "Jon", null, "Smyth", null });
+		rows.add(new Object[] { 1, "Johnny", null, "Smith", null });
+		index.load(rows.iterator(), Arrays.asList(1, 2).iterator());
+
+		assertEquals(2, index.size());
+		assertEquals(Collections.singletonList(1), search(FHIRNameIndex.Field.GIVEN, "johnny",
+				FHIRNameIndex.Mode.EXACT, true));
+		assertEquals(Collections.singletonList(1), search(FHIRNameIndex.Field.FAMILY, "smith",
+				FHIRNameIndex.Mode.EXACT, true));
+	}
+
+	@Test
+	public void clear_shouldDisableTheIndex() {
+		index.clear();
+
+		assertFalse(index.isLoaded());
+		assertEquals(0, index.size());
+	}
+
+	private List<Integer> searchInAnotherThread(ExecutorService searcher, final String text) {
+		try {
+			return searcher.submit(new Callable<List<Integer>>() {
+
+				@Override
+				public List<Integer> call() {
+					return search(FHIRNameIndex.Field.GIVEN, text, FHIRNameIndex.Mode.EXACT, false);
+				}
+			}).get(5, TimeUnit.SECONDS);
+		}
+		catch (Exception e) {
+			throw new AssertionError("The search was blocked by the load: " + e);
+		}
+	}
+
+	private List<Integer> search(FHIRNameIndex.Field field, String text, FHIRNameIndex.Mode mode,
+	                             boolean patientsOnly) {
+		return index.search(Collections.singletonList(new FHIRNameIndex.Query(field, text, mode)), patientsOnly);
+	}
+}
@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.apache.commons.lang.mutable.MutableBoolean;
+import org.hl7.fhir.dstu3.model.Coding;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.RelationshipType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class FHIRRelationshipTypeCacheTest extends BaseModuleContextSensitiveTest {
+
+	private final FHIRRelationshipTypeCache cache = FHIRRelationshipTypeCache.getInstance();
+
+	@Before
+	public void enableCache() {
+		cache.setEnabled(true);
+	}
+
+	@After
+	public void disableCache() {
+		cache.setEnabled(false);
+	}
+
+	@Test
+	public void getRelationshipTypeByCoding_shouldResolveBothDirections() {
+		for (RelationshipType type : Context.getPersonService().getAllRelationshipTypes()) {
+			MutableBoolean isAToB = new MutableBoolean(false);
+			RelationshipType resolved = FHIRUtils.getRelationshipTypeByCoding(new Coding(FHIRConstants.OPENMRS_URI,
+					type.getaIsToB(), null), isAToB);
+			assertNotNull(resolved);
+			assertEquals(type.getaIsToB(), isAToB.booleanValue() ? resolved.getaIsToB() : resolved.getbIsToA());
+
+			resolved = FHIRUtils.getRelationshipTypeByCoding(new Coding(FHIRConstants.OPENMRS_URI, type.getbIsToA(),
+					null), isAToB);
+			assertNotNull(resolved);
+			assertEquals(type.getbIsToA(), isAToB.booleanValue() ? resolved.getaIsToB() : resolved.getbIsToA());
+		}
+	}
+
+	@Test
+	public void getDirection_shouldReturnNullForUnknownCodes() {
+		assertNull(cache.getDirection("Not a relationship"));
+		assertNull(cache.getDirection(null));
+	}
+
+	@Test
+	public void clear_shouldReloadNewRelationshipTypes() {
+		assertNull(cache.getDirection("Godparent"));
+		RelationshipType type = new RelationshipType();
+		type.setaIsToB("Godparent");
+		type.setbIsToA("Godchild");
+		type.setDescription("Godparent of a child");
+		Context.getPersonService().saveRelationshipType(type);
+
+		cache.clear();
+		FHIRRelationshipTypeCache.Direction direction = cache.getDirection("Godchild");
+		assertNotNull(direction);
+		assertEquals(type.getRelationshipTypeId(), direction.getRelationshipTypeId());
+		assertFalse(direction.isAIsToB());
+	}
+}
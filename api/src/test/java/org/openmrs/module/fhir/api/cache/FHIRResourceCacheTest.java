@@ -0,0 +1,182 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.hl7.fhir.dstu3.model.Location;
+import org.hl7.fhir.dstu3.model.Practitioner;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FHIRResourceCacheTest {
+
+	private static final String LOCATION_UUID = "8d6c993e-c2cc-11de-8d13-0010c6dffd0f";
+
+	private static final String OTHER_LOCATION_UUID = "9356400c-a5a2-4532-8f2b-2361b3446eb8";
+
+	@Test
+	public void get_shouldLoadOnceAndReturnCopies() {
+		FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		CountingLoader loader = new CountingLoader(LOCATION_UUID, "Unknown Location");
+
+		Location first = cache.get(Location.class, LOCATION_UUID, loader);
+		Location second = cache.get(Location.class, LOCATION_UUID, loader);
+		second.setName("Changed by the caller");
+		Location third = cache.get(Location.class, LOCATION_UUID, loader);
+
+		assertEquals(1, loader.loads.get());
+		assertNotSame(second, third);
+		assertEquals("Unknown Location", first.getName());
+		assertEquals("Unknown Location", third.getName());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void invalidate_shouldReloadTheResource() {
+		FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		CountingLoader loader = new CountingLoader(LOCATION_UUID, "Unknown Location");
+		cache.get(Location.class, LOCATION_UUID, loader);
+
+		cache.invalidate(LOCATION_UUID);
+		cache.get(Location.class, LOCATION_UUID, loader);
+
+		assertEquals(2, loader.loads.get());
+		assertEquals(1, cache.getInvalidations());
+	}
+
+	@Test
+	public void invalidateAll_shouldOnlyRemoveResourcesOfTheType() {
+		FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		cache.get(Location.class, LOCATION_UUID, new CountingLoader(LOCATION_UUID, "Unknown Location"));
+		cache.get(Practitioner.class, LOCATION_UUID, new FHIRResourceCache.ResourceLoader<Practitioner>() {
+
+			@Override
+			public Practitioner load() {
+				Practitioner practitioner = new Practitioner();
+				practitioner.setId(LOCATION_UUID);
+				return practitioner;
+			}
+		});
+
+		cache.invalidateAll(Practitioner.class);
+
+		assertEquals(1, cache.getSize());
+	}
+
+	@Test
+	public void get_shouldNotCacheResourcesLoadedBeforeAnInvalidation() {
+		final FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		CountingLoader loader = new CountingLoader(LOCATION_UUID, "Unknown Location") {
+
+			@Override
+			public Location load() {
+				Location location = super.load();
+				// The entity is changed while the stale resource is being generated
+				cache.invalidate(LOCATION_UUID);
+				return location;
+			}
+		};
+
+		cache.get(Location.class, LOCATION_UUID, loader);
+
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void get_shouldEvictTheLeastRecentlyUsedResourcesWhenFull() {
+		FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		CountingLoader loader = new CountingLoader(LOCATION_UUID, "Unknown Location");
+		cache.get(Location.class, LOCATION_UUID, loader);
+		long resourceSize = cache.getSizeInBytes();
+
+		cache.setMaxSizeInBytes(resourceSize * 3 / 2);
+		cache.get(Location.class, OTHER_LOCATION_UUID, new CountingLoader(OTHER_LOCATION_UUID, "Unknown Location"));
+		cache.get(Location.class, LOCATION_UUID, loader);
+
+		assertEquals(1, cache.getSize());
+		assertEquals(2, cache.getEvictions());
+		assertEquals(2, loader.loads.get());
+		assertTrue(cache.getSizeInBytes() <= cache.getMaxSizeInBytes());
+	}
+
+	@Test
+	public void get_shouldNotCacheWhenDisabledOrNotFound() {
+		FHIRResourceCache cache = new FHIRResourceCache(0);
+		CountingLoader loader = new CountingLoader(LOCATION_UUID, "Unknown Location");
+		cache.get(Location.class, LOCATION_UUID, loader);
+		cache.get(Location.class, LOCATION_UUID, loader);
+		assertEquals(2, loader.loads.get());
+
+		cache.setMaxSizeInBytes(1024 * 1024);
+		assertNull(cache.get(Location.class, "missing", new FHIRResourceCache.ResourceLoader<Location>() {
+
+			@Override
+			public Location load() {
+				return null;
+			}
+		}));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void getDisplay_shouldBuildOnceUntilInvalidated() {
+		FHIRResourceCache cache = new FHIRResourceCache(1024 * 1024);
+		final AtomicInteger builds = new AtomicInteger();
+		FHIRResourceCache.DisplayLoader loader = new FHIRResourceCache.DisplayLoader() {
+
+			@Override
+			public String load() {
+				return "Super User(Identifier:" + builds.incrementAndGet() + ")";
+			}
+		};
+
+		assertEquals("Super User(Identifier:1)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+		assertEquals("Super User(Identifier:1)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+		cache.invalidateAll(Practitioner.class);
+		assertEquals("Super User(Identifier:2)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+		cache.invalidate(LOCATION_UUID);
+		assertEquals("Super User(Identifier:3)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+
+		cache.setMaxSizeInBytes(0);
+		assertEquals("Super User(Identifier:4)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+		assertEquals("Super User(Identifier:5)", cache.getDisplay(Practitioner.class, LOCATION_UUID, loader));
+	}
+
+	private static class CountingLoader implements FHIRResourceCache.ResourceLoader<Location> {
+
+		private final AtomicInteger loads = new AtomicInteger();
+
+		private final String uuid;
+
+		private final String name;
+
+		private CountingLoader(String uuid, String name) {
+			this.uuid = uuid;
+			this.name = name;
+		}
+
+		@Override
+		public Location load() {
+			loads.incrementAndGet();
+			Location location = new Location();
+			location.setId(uuid);
+			location.setName(name);
+			return location;
+		}
+	}
+}
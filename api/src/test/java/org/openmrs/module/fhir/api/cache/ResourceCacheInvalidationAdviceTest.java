@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.cache;
+
+import org.hl7.fhir.dstu3.model.Location;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.api.EncounterService;
+import org.openmrs.api.LocationService;
+import org.springframework.aop.MethodMatcher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceCacheInvalidationAdviceTest {
+
+	private static final String LOCATION_UUID = "8d6c993e-c2cc-11de-8d13-0010c6dffd0f";
+
+	private final ResourceCacheInvalidationAdvice advice = new ResourceCacheInvalidationAdvice();
+
+	private Method saveLocation;
+
+	@Before
+	public void setUp() throws Exception {
+		saveLocation = LocationService.class.getMethod("saveLocation", org.openmrs.Location.class);
+		FHIRResourceCache.getInstance().setMaxSizeInBytes(1024 * 1024);
+		FHIRResourceCache.getInstance().get(Location.class, LOCATION_UUID,
+				new FHIRResourceCache.ResourceLoader<Location>() {
+
+					@Override
+					public Location load() {
+						Location location = new Location();
+						location.setId(LOCATION_UUID);
+						return location;
+					}
+				});
+	}
+
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		FHIRResourceCache.getInstance().clear();
+		FHIRResourceCache.getInstance().setMaxSizeInBytes(0);
+	}
+
+	@Test
+	public void afterReturning_shouldInvalidateRightAwayWithoutATransaction() {
+		advice.afterReturning(null, saveLocation, new Object[] { newLocation() }, null);
+
+		assertEquals(0, FHIRResourceCache.getInstance().getSize());
+	}
+
+	@Test
+	public void afterReturning_shouldInvalidateOnlyOnceTheTransactionCommitted() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		advice.afterReturning(null, saveLocation, new Object[] { newLocation() }, null);
+		assertEquals(1, FHIRResourceCache.getInstance().getSize());
+
+		TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+		assertEquals(0, FHIRResourceCache.getInstance().getSize());
+	}
+
+	@Test
+	public void afterReturning_shouldNotInvalidateWhenTheTransactionIsRolledBack() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		advice.afterReturning(null, saveLocation, new Object[] { newLocation() }, null);
+		TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+				TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		assertEquals(1, FHIRResourceCache.getInstance().getSize());
+	}
+
+	@Test
+	public void encounterTypeInvalidationAdvisor_shouldOnlyMatchTheEncounterTypeMethods() throws Exception {
+		MethodMatcher matcher = new EncounterTypeInvalidationAdvisor().getPointcut().getMethodMatcher();
+
+		assertTrue(matcher.matches(EncounterService.class.getMethod("saveEncounterType", EncounterType.class),
+				EncounterService.class));
+		assertTrue(matcher.matches(EncounterService.class.getMethod("purgeEncounterType", EncounterType.class),
+				EncounterService.class));
+		assertFalse(matcher.matches(EncounterService.class.getMethod("saveEncounter", Encounter.class),
+				EncounterService.class));
+		assertFalse(matcher.matches(EncounterService.class.getMethod("voidEncounter", Encounter.class, String.class),
+				EncounterService.class));
+	}
+
+	private org.openmrs.Location newLocation() {
+		org.openmrs.Location location = new org.openmrs.Location();
+		location.setUuid(LOCATION_UUID);
+		return location;
+	}
+}
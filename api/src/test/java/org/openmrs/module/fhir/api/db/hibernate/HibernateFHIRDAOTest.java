@@ -0,0 +1,347 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.db.hibernate;
+
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Allergen;
+import org.openmrs.Allergy;
+import org.openmrs.AllergyReaction;
+import org.openmrs.Encounter;
+import org.openmrs.Patient;
+import org.openmrs.Visit;
+import org.openmrs.api.PatientService;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.db.FHIRDAO;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HibernateFHIRDAOTest extends BaseModuleContextSensitiveTest {
+
+	protected static final String ENCOUNTER_INITIAL_DATA_XML = "org/openmrs/api/include/EncounterServiceTest-initialData.xml";
+
+	protected static final String VISIT_INITIAL_DATA_XML = "org/openmrs/api/include/VisitServiceTest-includeVisitsAndTypeToAutoClose.xml";
+
+	protected static final String ALLERGY_TEST_DATA_XML = "org/openmrs/api/include/allergyTest.xml";
+
+	/**
+	 * Number of ids bound to a single IN restriction by the DAO
+	 */
+	private static final int CHUNK_SIZE = 1000;
+
+	/**
+	 * More ids than are bound to a single IN restriction, so that the ids are queried in several chunks
+	 */
+	private static final int UNKNOWN_PATIENT_COUNT = 2500;
+
+	private FHIRDAO dao;
+
+	private List<Integer> patientIds;
+
+	@Before
+	public void runBeforeEachTest() throws Exception {
+		executeDataSet(ENCOUNTER_INITIAL_DATA_XML);
+		executeDataSet(VISIT_INITIAL_DATA_XML);
+		dao = FHIRUtils.getFHIRDAO();
+		patientIds = new ArrayList<Integer>();
+		for (Patient patient : Context.getPatientService().getAllPatients()) {
+			patientIds.add(patient.getPatientId());
+		}
+	}
+
+	@Test
+	public void getEncountersByPatientIds_shouldReturnTheNonVoidedEncountersOfThePatients() {
+		Set<String> expected = new HashSet<String>();
+		for (Integer patientId : patientIds) {
+			for (Encounter encounter : Context.getEncounterService().getEncountersByPatientId(patientId)) {
+				expected.add(encounter.getUuid());
+			}
+		}
+		assertFalse(expected.isEmpty());
+
+		assertEquals(expected, getUuids(dao.getEncountersByPatientIds(patientIds, null)));
+	}
+
+	@Test
+	public void getEncountersByPatientIds_shouldQueryManyPatientsInChunks() {
+		List<Encounter> encounters = dao.getEncountersByPatientIds(patientIds, null);
+
+		List<Integer> manyPatientIds = withUnknownPatients(patientIds);
+		List<Encounter> chunked = dao.getEncountersByPatientIds(manyPatientIds, null);
+
+		assertEquals(getUuids(encounters), getUuids(chunked));
+		assertEquals(encounters.size(), chunked.size());
+	}
+
+	@Test
+	public void getEncountersByPatientIds_shouldNotReturnVoidedEncounters() {
+		Encounter voided = dao.getEncountersByPatientIds(patientIds, null).get(0);
+		Context.getEncounterService().voidEncounter(voided, "test");
+
+		List<Encounter> encounters = dao.getEncountersByPatientIds(withUnknownPatients(patientIds), null);
+
+		assertFalse(getUuids(encounters).contains(voided.getUuid()));
+		for (Encounter encounter : encounters) {
+			assertFalse(encounter.getVoided());
+		}
+	}
+
+	@Test
+	public void getEncountersByPatientIds_shouldOnlyReturnEncountersWithoutVisitForNone() {
+		List<Encounter> encounters = dao.getEncountersByPatientIds(patientIds, FHIRConstants.NONE);
+
+		for (Encounter encounter : encounters) {
+			assertNull(encounter.getVisit());
+		}
+	}
+
+	@Test
+	public void getVisitsByPatientIds_shouldReturnTheNonVoidedVisitsOfThePatients() {
+		Set<String> expected = new HashSet<String>();
+		for (Integer patientId : patientIds) {
+			Patient patient = Context.getPatientService().getPatient(patientId);
+			for (Visit visit : Context.getVisitService().getVisitsByPatient(patient)) {
+				expected.add(visit.getUuid());
+			}
+		}
+		assertFalse(expected.isEmpty());
+
+		assertEquals(expected, getVisitUuids(dao.getVisitsByPatientIds(withUnknownPatients(patientIds))));
+	}
+
+	@Test
+	public void getVisitsByPatientIds_shouldNotReturnVoidedVisits() {
+		Visit voided = dao.getVisitsByPatientIds(patientIds).get(0);
+		Context.getVisitService().voidVisit(voided, "test");
+
+		List<Visit> visits = dao.getVisitsByPatientIds(withUnknownPatients(patientIds));
+
+		assertFalse(getVisitUuids(visits).contains(voided.getUuid()));
+		for (Visit visit : visits) {
+			assertFalse(visit.getVoided());
+		}
+	}
+
+	@Test
+	public void searchAllergies_shouldReturnTheActiveAllergiesOfManyPatients() throws Exception {
+		Set<String> expected = getAllergyUuids(loadAllergies());
+		List<Integer> ids = withChunkBoundaryAfter(getPatientIdsWithAllergies().first());
+		assertTrue(ids.size() > CHUNK_SIZE);
+		Context.flushSession();
+		Context.clearSession();
+
+		List<Allergy> allergies = dao.searchAllergies(newAllergyCriteria(ids, false), null, null);
+
+		assertEquals(expected, getAllergyUuids(allergies));
+		assertEquals(expected.size(), allergies.size());
+		assertEquals(expected.size(), dao.getAllergyCount(newAllergyCriteria(ids, false)));
+		// The reactions and the concepts are loaded in bulk with the allergies
+		for (Allergy allergy : allergies) {
+			assertTrue(Hibernate.isInitialized(allergy.getReactions()));
+			for (AllergyReaction reaction : allergy.getReactions()) {
+				assertTrue(Hibernate.isInitialized(reaction.getReaction()));
+			}
+			if (allergy.getAllergen().getCodedAllergen() != null) {
+				assertTrue(Hibernate.isInitialized(allergy.getAllergen().getCodedAllergen().getNames()));
+			}
+		}
+	}
+
+	@Test
+	public void searchAllergies_shouldReturnPagesWhichSpanChunks() throws Exception {
+		loadAllergies();
+		TreeSet<Integer> patientsWithAllergies = getPatientIdsWithAllergies();
+		Integer lastOfFirstChunk = patientsWithAllergies.first();
+		List<Integer> ids = withChunkBoundaryAfter(lastOfFirstChunk);
+		List<Allergy> all = dao.searchAllergies(newAllergyCriteria(ids, false), null, null);
+		// Allergies are ordered by patient, the allergies of the first patient end the first chunk
+		int firstChunkSize = 0;
+		while (all.get(firstChunkSize).getPatient().getPatientId().equals(lastOfFirstChunk)) {
+			firstChunkSize++;
+		}
+		assertTrue(firstChunkSize < all.size());
+
+		List<Allergy> spanning = dao.searchAllergies(newAllergyCriteria(ids, false), firstChunkSize - 1, 2);
+
+		assertEquals(getIds(all.subList(firstChunkSize - 1, firstChunkSize + 1)), getIds(spanning));
+		for (int first = 0; first < all.size(); first++) {
+			List<Allergy> page = dao.searchAllergies(newAllergyCriteria(ids, false), first, 2);
+			assertEquals(getIds(all.subList(first, Math.min(first + 2, all.size()))), getIds(page));
+		}
+		assertTrue(dao.searchAllergies(newAllergyCriteria(ids, false), all.size(), 2).isEmpty());
+	}
+
+	@Test
+	public void searchAllergies_shouldSeparateActiveAndVoidedAllergies() throws Exception {
+		List<Allergy> active = loadAllergies();
+		Allergy voided = active.get(0);
+		Context.getPatientService().voidAllergy(voided, "test");
+		List<Integer> ids = withChunkBoundaryAfter(getPatientIdsWithAllergies().first());
+
+		List<Allergy> activeAllergies = dao.searchAllergies(newAllergyCriteria(ids, false), null, null);
+		List<Allergy> voidedAllergies = dao.searchAllergies(newAllergyCriteria(ids, true), null, null);
+		List<Allergy> allAllergies = dao.searchAllergies(newAllergyCriteria(ids, null), null, null);
+
+		assertFalse(getAllergyUuids(activeAllergies).contains(voided.getUuid()));
+		assertTrue(getAllergyUuids(voidedAllergies).contains(voided.getUuid()));
+		for (Allergy allergy : voidedAllergies) {
+			assertTrue(allergy.getVoided());
+		}
+		assertEquals(active.size() - 1, activeAllergies.size());
+		assertEquals(activeAllergies.size() + voidedAllergies.size(), allAllergies.size());
+		assertEquals(voidedAllergies.size(), dao.getAllergyCount(newAllergyCriteria(ids, true)));
+		assertEquals(allAllergies.size(), dao.getAllergyCount(newAllergyCriteria(ids, null)));
+	}
+
+	/**
+	 * Loads the core allergy test data and adds an allergy to the last patient without allergies, so that the
+	 * allergies of at least two patients can be split into different chunks
+	 *
+	 * @return the active allergies of all the patients
+	 */
+	private List<Allergy> loadAllergies() throws Exception {
+		executeDataSet(ALLERGY_TEST_DATA_XML);
+		PatientService patientService = Context.getPatientService();
+		Allergy template = null;
+		Patient withoutAllergies = null;
+		for (Integer patientId : patientIds) {
+			Patient patient = patientService.getPatient(patientId);
+			List<Allergy> allergies = new ArrayList<Allergy>(patientService.getAllergies(patient));
+			if (allergies.isEmpty()) {
+				if (withoutAllergies == null || patientId > withoutAllergies.getPatientId()) {
+					withoutAllergies = patient;
+				}
+			} else if (template == null) {
+				template = allergies.get(0);
+			}
+		}
+		assertTrue(template != null && withoutAllergies != null);
+		Allergen allergen = new Allergen(template.getAllergen().getAllergenType(),
+				template.getAllergen().getCodedAllergen(), template.getAllergen().getNonCodedAllergen());
+		Allergy allergy = new Allergy(withoutAllergies, allergen, template.getSeverity(), "test",
+				new ArrayList<AllergyReaction>());
+		for (AllergyReaction reaction : template.getReactions()) {
+			allergy.addReaction(new AllergyReaction(allergy, reaction.getReaction(), reaction.getReactionNonCoded()));
+		}
+		patientService.saveAllergy(allergy);
+
+		List<Allergy> active = new ArrayList<Allergy>();
+		for (Integer patientId : patientIds) {
+			active.addAll(patientService.getAllergies(patientService.getPatient(patientId)));
+		}
+		return active;
+	}
+
+	private TreeSet<Integer> getPatientIdsWithAllergies() {
+		TreeSet<Integer> ids = new TreeSet<Integer>();
+		for (Integer patientId : patientIds) {
+			Patient patient = Context.getPatientService().getPatient(patientId);
+			if (!Context.getPatientService().getAllergies(patient).isEmpty()) {
+				ids.add(patientId);
+			}
+		}
+		assertTrue(ids.size() > 1);
+		return ids;
+	}
+
+	/**
+	 * @return the known patient ids with unknown ones, so that the sorted ids of the first chunk end with the given
+	 * patient and the patients after it are queried in the following chunks
+	 */
+	private List<Integer> withChunkBoundaryAfter(Integer lastOfFirstChunk) {
+		List<Integer> ids = new ArrayList<Integer>();
+		int knownInFirstChunk = 0;
+		for (Integer patientId : new TreeSet<Integer>(patientIds)) {
+			if (patientId <= lastOfFirstChunk) {
+				knownInFirstChunk++;
+			}
+		}
+		// Unknown ids below the known ones fill the first chunk
+		for (int i = 1; i <= CHUNK_SIZE - knownInFirstChunk; i++) {
+			ids.add(-i);
+		}
+		ids.addAll(patientIds);
+		for (int i = 0; i < UNKNOWN_PATIENT_COUNT; i++) {
+			ids.add(100000 + i);
+		}
+		Collections.shuffle(ids);
+		return ids;
+	}
+
+	private AllergySearchCriteria newAllergyCriteria(List<Integer> ids, Boolean voided) {
+		AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatientIds(ids);
+		criteria.setVoided(voided);
+		return criteria;
+	}
+
+	private List<Integer> getIds(List<Allergy> allergies) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (Allergy allergy : allergies) {
+			ids.add(allergy.getAllergyId());
+		}
+		return ids;
+	}
+
+	private List<Integer> withUnknownPatients(List<Integer> knownPatientIds) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int i = 0; i < UNKNOWN_PATIENT_COUNT; i++) {
+			ids.add(100000 + i);
+		}
+		// Known patients end up in different chunks, and duplicates are queried once
+		ids.addAll(knownPatientIds);
+		ids.add(1200, knownPatientIds.get(0));
+		ids.addAll(knownPatientIds);
+		return ids;
+	}
+
+	private Set<String> getUuids(List<Encounter> encounters) {
+		Set<String> uuids = new HashSet<String>();
+		for (Encounter encounter : encounters) {
+			uuids.add(encounter.getUuid());
+		}
+		return uuids;
+	}
+
+	private Set<String> getAllergyUuids(List<Allergy> allergies) {
+		Set<String> uuids = new HashSet<String>();
+		for (Allergy allergy : allergies) {
+			uuids.add(allergy.getUuid());
+		}
+		return uuids;
+	}
+
+	private Set<String> getVisitUuids(List<Visit> visits) {
+		Set<String> uuids = new HashSet<String>();
+		for (Visit visit : visits) {
+			uuids.add(visit.getUuid());
+		}
+		return uuids;
+	}
+}
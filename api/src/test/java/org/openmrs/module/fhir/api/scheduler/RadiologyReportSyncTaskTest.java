@@ -0,0 +1,248 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.scheduler;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Encounter;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.DiagnosticReportService;
+import org.openmrs.module.fhir.api.diagnosticreport.handler.RadiologyHandler;
+import org.openmrs.module.fhir.api.util.FHIRRESTfulGenericClient;
+import org.openmrs.module.fhir.api.util.FHIRUtils;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link RadiologyReportSyncTask} against a local stub radiology server
+ */
+public class RadiologyReportSyncTaskTest extends BaseModuleContextSensitiveTest {
+
+	private static final FhirContext ctx = FhirContext.forDstu3();
+
+	private static final String RADIOLOGY_SERVICE_CATEGORY = "RAD";
+
+	/**
+	 * Category without an encounter type, the reports of this category always fail to sync
+	 */
+	private static final String UNKNOWN_SERVICE_CATEGORY = "UNKNOWN";
+
+	private static final long REPORT_1_UPDATED = 1500000100000L;
+
+	private static final long REPORT_2_UPDATED = 1500000200000L;
+
+	private static final long REPORT_3_UPDATED = 1500000300000L;
+
+	private HttpServer server;
+
+	private String serverBase;
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+	private final List<DiagnosticReport> firstPage = new ArrayList<DiagnosticReport>();
+
+	private final List<DiagnosticReport> nextPage = new ArrayList<DiagnosticReport>();
+
+	private RadiologyHandler handler;
+
+	private String patientUuid;
+
+	@Before
+	public void runBeforeEachTest() throws IOException {
+		// The table is created by liquibase, which does not run for the tests
+		Context.getAdministrationService().executeSQL("create table if not exists fhir_remote_diagnostic_report ("
+				+ "encounter_uuid char(38) not null primary key, remote_version varchar(255),"
+				+ " failed_version varchar(255), failed_attempts int default 0 not null)", false);
+		Context.getAdministrationService().saveGlobalProperty(new GlobalProperty(
+				"fhir.encounter.encounterType." + RADIOLOGY_SERVICE_CATEGORY,
+				Context.getEncounterService().getEncounterType(1).getUuid()));
+		handler = (RadiologyHandler) Context.getService(DiagnosticReportService.class).getHandler(
+				RADIOLOGY_SERVICE_CATEGORY);
+		patientUuid = Context.getPatientService().getPatient(7).getUuid();
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		serverBase = "http://localhost:" + server.getAddress().getPort() + "/fhir";
+		server.createContext("/fhir", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+				requests.add(exchange.getRequestURI().getPath() + "?" + query);
+				respond(exchange, ctx.newJsonParser().encodeResourceToString(createResponse(query)));
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void runAfterEachTest() {
+		server.stop(0);
+		FHIRRESTfulGenericClient.shutdown();
+	}
+
+	@Test
+	public void sync_shouldUpsertTheReportsOfEveryPageAndRecordTheirRemoteVersion() {
+		firstPage.add(createReport("report-1", "1", REPORT_1_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+		nextPage.add(createReport("report-2", "4", REPORT_2_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+
+		assertEquals(2, requests.size());
+		assertTrue(requests.get(0).startsWith("/fhir/DiagnosticReport?"));
+		assertTrue(requests.get(1).contains("_getpages=stub"));
+		assertSynced("report-1", "1");
+		assertSynced("report-2", "4");
+		assertEquals(new Date(REPORT_2_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+	}
+
+	@Test
+	public void sync_shouldSkipAReportWhoseRemoteVersionIsUnchanged() {
+		firstPage.add(createReport("report-1", "1", REPORT_1_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+		long upserted = RadiologyReportSyncMetrics.getUpserted();
+		long unchanged = RadiologyReportSyncMetrics.getUnchanged();
+
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+
+		assertEquals(upserted, RadiologyReportSyncMetrics.getUpserted());
+		assertEquals(unchanged + 1, RadiologyReportSyncMetrics.getUnchanged());
+		assertSynced("report-1", "1");
+	}
+
+	@Test
+	public void sync_shouldKeepTheCheckpointBeforeAFailedReport() {
+		firstPage.add(createReport("report-1", "1", REPORT_1_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+		firstPage.add(createReport("report-2", "1", REPORT_2_UPDATED, UNKNOWN_SERVICE_CATEGORY));
+		nextPage.add(createReport("report-3", "1", REPORT_3_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+
+		assertEquals(new Date(REPORT_1_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+		assertNull(getLocalCopy("report-2"));
+		// Reports after the failed one are still synced, the next run skips them as unchanged
+		assertSynced("report-3", "1");
+	}
+
+	@Test
+	public void sync_shouldMovePastAReportWhichFailedInEveryAttempt() {
+		firstPage.add(createReport("report-1", "1", REPORT_1_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+		firstPage.add(createReport("report-2", "1", REPORT_2_UPDATED, UNKNOWN_SERVICE_CATEGORY));
+		firstPage.add(createReport("report-3", "1", REPORT_3_UPDATED, RADIOLOGY_SERVICE_CATEGORY));
+		int maxAttempts = FHIRUtils.getRadiologySyncMaxAttempts();
+		long skipped = RadiologyReportSyncMetrics.getSkipped();
+
+		for (int attempt = 1; attempt < maxAttempts; attempt++) {
+			new RadiologyReportSyncTask().sync(serverBase, handler);
+			assertEquals(new Date(REPORT_1_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+		}
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+
+		assertEquals(new Date(REPORT_3_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+		assertEquals(skipped + 1, RadiologyReportSyncMetrics.getSkipped());
+		assertNull(getLocalCopy("report-2"));
+	}
+
+	@Test
+	public void sync_shouldRetryANewVersionOfASkippedReport() {
+		firstPage.add(createReport("report-1", "1", REPORT_1_UPDATED, UNKNOWN_SERVICE_CATEGORY));
+		for (int attempt = 0; attempt < FHIRUtils.getRadiologySyncMaxAttempts(); attempt++) {
+			new RadiologyReportSyncTask().sync(serverBase, handler);
+		}
+		assertEquals(new Date(REPORT_1_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+
+		firstPage.clear();
+		firstPage.add(createReport("report-1", "2", REPORT_2_UPDATED, UNKNOWN_SERVICE_CATEGORY));
+		new RadiologyReportSyncTask().sync(serverBase, handler);
+
+		assertEquals(new Date(REPORT_1_UPDATED), FHIRUtils.getRadiologySyncCheckpoint());
+	}
+
+	private void assertSynced(String remoteId, String remoteVersion) {
+		Encounter encounter = getLocalCopy(remoteId);
+		assertNotNull(encounter);
+		assertEquals(patientUuid, encounter.getPatient().getUuid());
+		assertEquals(remoteVersion, FHIRUtils.getFHIRDAO().getRemoteReportVersion(encounter.getUuid()));
+	}
+
+	private Encounter getLocalCopy(String remoteId) {
+		return Context.getEncounterService().getEncounterByUuid(
+				RadiologyHandler.getLocalUuidOfRemoteReport(serverBase, remoteId));
+	}
+
+	private Bundle createResponse(String query) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		if (query.contains("_getpages=")) {
+			for (DiagnosticReport report : nextPage) {
+				bundle.addEntry().setResource(report);
+			}
+		} else {
+			for (DiagnosticReport report : firstPage) {
+				bundle.addEntry().setResource(report);
+			}
+			if (!nextPage.isEmpty()) {
+				bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl(serverBase + "?_getpages=stub&_getpagesoffset="
+						+ firstPage.size());
+			}
+		}
+		bundle.setTotal(bundle.getEntry().size());
+		return bundle;
+	}
+
+	private DiagnosticReport createReport(String id, String version, long lastUpdated, String serviceCategory) {
+		DiagnosticReport diagnosticReport = new DiagnosticReport();
+		diagnosticReport.setId(id);
+		diagnosticReport.getMeta().setVersionId(version);
+		diagnosticReport.getMeta().setLastUpdated(new Date(lastUpdated));
+		diagnosticReport.setStatus(DiagnosticReport.DiagnosticReportStatus.FINAL);
+		diagnosticReport.getCategory().addCoding().setCode(serviceCategory);
+		diagnosticReport.setIssued(new Date(lastUpdated));
+		diagnosticReport.getSubject().setReference("Patient/" + patientUuid);
+		return diagnosticReport;
+	}
+
+	private void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().add("Content-Type", "application/fhir+json;charset=UTF-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		OutputStream outputStream = exchange.getResponseBody();
+		try {
+			outputStream.write(bytes);
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+}
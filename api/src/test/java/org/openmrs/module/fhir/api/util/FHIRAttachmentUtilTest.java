@@ -0,0 +1,112 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import org.hl7.fhir.dstu3.model.Attachment;
+import org.hl7.fhir.dstu3.model.Binary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmrs.Obs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class FHIRAttachmentUtilTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void generateAttachment_shouldReferToTheBinaryInsteadOfEmbeddingTheContent() throws Exception {
+		byte[] content = createContent(100000);
+		Obs obs = createComplexObs(writeFile("report.png", content));
+
+		Attachment attachment = FHIRAttachmentUtil.generateAttachment(obs);
+
+		assertNull(attachment.getData());
+		assertEquals("Binary/" + obs.getUuid(), attachment.getUrl());
+		assertEquals("image/png", attachment.getContentType());
+		assertEquals(content.length, attachment.getSize());
+		assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(content), attachment.getHash());
+	}
+
+	@Test
+	public void getSha1Hash_shouldRecomputeTheHashWhenTheFileChanges() throws Exception {
+		File file = writeFile("report.txt", createContent(10));
+		byte[] first = FHIRAttachmentUtil.getSha1Hash(file);
+
+		byte[] changed = createContent(20);
+		writeFile("report.txt", changed);
+
+		byte[] second = FHIRAttachmentUtil.getSha1Hash(file);
+		assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(changed), second);
+		assertEquals(false, Arrays.equals(first, second));
+	}
+
+	@Test
+	public void transferTo_shouldCopyOnlyTheRequestedRange() throws Exception {
+		byte[] content = createContent(50000);
+		File file = writeFile("report.bin", content);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		FHIRAttachmentUtil.transferTo(file, 1000, 20000, out);
+
+		assertArrayEquals(Arrays.copyOfRange(content, 1000, 21000), out.toByteArray());
+	}
+
+	@Test
+	public void generateBinary_shouldLoadTheContent() throws Exception {
+		byte[] content = createContent(3000);
+		Obs obs = createComplexObs(writeFile("report.png", content));
+
+		Binary binary = FHIRAttachmentUtil.generateBinary(obs);
+
+		assertEquals(obs.getUuid(), binary.getIdElement().getIdPart());
+		assertEquals("image/png", binary.getContentType());
+		assertArrayEquals(content, binary.getContent());
+	}
+
+	private Obs createComplexObs(File file) {
+		Obs obs = new Obs();
+		obs.setValueComplex(file.getAbsolutePath());
+		return obs;
+	}
+
+	private byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		return content;
+	}
+
+	private File writeFile(String name, byte[] content) throws IOException {
+		File file = new File(folder.getRoot(), name);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+		return file;
+	}
+}
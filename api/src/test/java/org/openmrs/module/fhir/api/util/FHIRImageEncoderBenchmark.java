@@ -0,0 +1,71 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Compares the allocations and the time taken by the per pixel {@link java.awt.Color} decoding which was used for ED
+ * obs with {@link FHIRImageEncoder#encode(BufferedImage)}. Not run by the build, start it with
+ * <pre>
+ * java -cp target/test-classes:target/classes:... org.openmrs.module.fhir.api.util.FHIRImageEncoderBenchmark [size]
+ * </pre>
+ * Allocations are only reported on JVMs which support thread allocation counters.
+ */
+public class FHIRImageEncoderBenchmark {
+
+	private static final int WARMUP_ITERATIONS = 5;
+
+	private static final int ITERATIONS = 10;
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+		BufferedImage image = FHIRImageEncoderTest.createGrayImage(BufferedImage.TYPE_4BYTE_ABGR, size, size);
+
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			FHIRImageEncoderTest.encodePerPixel(image);
+			FHIRImageEncoder.encode(image);
+		}
+
+		System.out.println("Encoding a " + size + "x" + size + " grayscale image, average of " + ITERATIONS + " runs");
+		report("per pixel Color", run(image, true));
+		report("raster rows", run(image, false));
+	}
+
+	private static long[] run(BufferedImage image, boolean perPixel) {
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			if (perPixel) {
+				FHIRImageEncoderTest.encodePerPixel(image);
+			} else {
+				FHIRImageEncoder.encode(image);
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		return new long[] { (allocatedBytes() - allocated) / ITERATIONS, elapsed / ITERATIONS };
+	}
+
+	private static void report(String name, long[] result) {
+		System.out.println(String.format("%-16s %,14d bytes allocated %,8d ms", name, result[0], result[1] / 1000000));
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FHIRImageEncoderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@After
+	public void clearCache() {
+		FHIRImageEncoder.clearCache();
+	}
+
+	@Test
+	public void encode_shouldMatchPerPixelDecodingForRGBImages() {
+		for (int type : new int[] { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB,
+				BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR }) {
+			BufferedImage image = createGrayImage(type, 37, 23);
+			assertArrayEquals(encodePerPixel(image), FHIRImageEncoder.encode(image));
+		}
+	}
+
+	@Test
+	public void encode_shouldMatchPerPixelDecodingForOtherColorModels() {
+		BufferedImage image = createGrayImage(BufferedImage.TYPE_BYTE_GRAY, 37, 23);
+		assertArrayEquals(encodePerPixel(image), FHIRImageEncoder.encode(image));
+	}
+
+	@Test(expected = UnprocessableEntityException.class)
+	public void encode_shouldRejectColorImages() {
+		BufferedImage image = createGrayImage(BufferedImage.TYPE_INT_ARGB, 10, 10);
+		image.setRGB(5, 5, new Color(10, 20, 30).getRGB());
+		FHIRImageEncoder.encode(image);
+	}
+
+	@Test
+	public void getEncodedImage_shouldReuseThePayloadUntilTheFileChanges() throws Exception {
+		File file = folder.newFile("image.png");
+		ImageIO.write(createGrayImage(BufferedImage.TYPE_INT_ARGB, 20, 10), "png", file);
+
+		FHIRImageEncoder.EncodedImage first = FHIRImageEncoder.getEncodedImage(1, file);
+		assertEquals(20, first.getWidth());
+		assertEquals(10, first.getHeight());
+		assertSame(first, FHIRImageEncoder.getEncodedImage(1, file));
+
+		ImageIO.write(createGrayImage(BufferedImage.TYPE_INT_ARGB, 40, 30), "png", file);
+		file.setLastModified(first.getWidth() * 1000L);
+
+		FHIRImageEncoder.EncodedImage second = FHIRImageEncoder.getEncodedImage(1, file);
+		assertNotSame(first, second);
+		assertEquals(40, second.getWidth());
+		assertEquals(30, second.getHeight());
+	}
+
+	static BufferedImage createGrayImage(int type, int width, int height) {
+		BufferedImage image = new BufferedImage(width, height, type);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				int gray = (x * 7 + y * 13) & 0xff;
+				image.setRGB(x, y, new Color(gray, gray, gray).getRGB());
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * The decoding previously done by FHIRObsUtil, one Color per pixel
+	 */
+	static byte[] encodePerPixel(BufferedImage image) {
+		byte[] values = new byte[image.getWidth() * image.getHeight()];
+		for (int i = 0; i < image.getHeight(); i++) {
+			for (int j = 0; j < image.getWidth(); j++) {
+				Color color = new Color(image.getRGB(j, i));
+				if (color.getRed() != color.getBlue() || color.getRed() != color.getGreen()) {
+					throw new UnprocessableEntityException("Grayscale images only are supported");
+				}
+				values[i * image.getWidth() + j] = (byte) (color.getRed() - 128);
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.api.util;
+
+import ca.uhn.fhir.context.FhirContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link FHIRRESTfulGenericClient} against a local stub FHIR server
+ */
+public class FHIRRESTfulGenericClientTest {
+
+	private static final FhirContext ctx = FhirContext.forDstu3();
+
+	private HttpServer server;
+
+	private String serverBase;
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void startStubServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		serverBase = "http://localhost:" + server.getAddress().getPort() + "/fhir";
+		server.createContext("/fhir", new HttpHandler() {
+
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+				requests.add(exchange.getRequestURI().getPath() + "?" + query);
+				respond(exchange, ctx.newJsonParser().encodeResourceToString(createResponse(query)));
+			}
+		});
+		server.start();
+	}
+
+	@After
+	public void stopStubServer() {
+		server.stop(0);
+		FHIRRESTfulGenericClient.shutdown();
+	}
+
+	@Test
+	public void readResourcesByIds_shouldFetchIdsInBatchedSearches() {
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < 120; i++) {
+			ids.add("patient-" + i);
+		}
+
+		Map<String, Patient> patients = FHIRRESTfulGenericClient.readPatientsByIds(serverBase, ids);
+
+		assertEquals(120, patients.size());
+		assertEquals("patient-7", patients.get("patient-7").getIdElement().getIdPart());
+		// 120 ids are fetched with 3 searches and no metadata request
+		assertEquals(3, requests.size());
+		for (String request : requests) {
+			assertTrue(request.startsWith("/fhir/Patient?_id="));
+		}
+	}
+
+	@Test
+	public void searchDiagnosticReportsUpdatedSince_shouldRequestReportsAfterCheckpointPageByPage() {
+		Date checkpoint = new Date(1500000000000L);
+
+		Bundle page = FHIRRESTfulGenericClient.searchDiagnosticReportsUpdatedSince(serverBase, "RAD", checkpoint, 2);
+		int reports = 0;
+		while (page != null) {
+			reports += page.getEntry().size();
+			page = FHIRRESTfulGenericClient.loadNextPage(serverBase, page);
+		}
+
+		assertEquals(3, reports);
+		assertEquals(2, requests.size());
+		String search = requests.get(0);
+		assertTrue(search.startsWith("/fhir/DiagnosticReport?"));
+		assertTrue(search.contains("category=RAD"));
+		assertTrue(search.contains("_lastUpdated=ge"));
+		assertTrue(search.contains("_sort=_lastUpdated"));
+		assertTrue(search.contains("_count=2"));
+		assertTrue(requests.get(1).contains("_getpages=stub"));
+	}
+
+	@Test
+	public void loadNextPage_shouldReturnNullForLastPage() {
+		assertNull(FHIRRESTfulGenericClient.loadNextPage(serverBase, new Bundle()));
+	}
+
+	private Bundle createResponse(String query) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		if (query.contains("_id=")) {
+			String ids = query.substring(query.indexOf("_id=") + 4);
+			if (ids.contains("&")) {
+				ids = ids.substring(0, ids.indexOf('&'));
+			}
+			for (String id : ids.split(",")) {
+				Patient patient = new Patient();
+				patient.setId(id);
+				bundle.addEntry().setResource(patient);
+			}
+		} else if (query.contains("_getpages=")) {
+			bundle.addEntry().setResource(createReport("report-3", 1500000300000L));
+		} else {
+			bundle.addEntry().setResource(createReport("report-1", 1500000100000L));
+			bundle.addEntry().setResource(createReport("report-2", 1500000200000L));
+			bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl(serverBase + "?_getpages=stub&_getpagesoffset=2");
+		}
+		bundle.setTotal(bundle.getEntry().size());
+		return bundle;
+	}
+
+	private DiagnosticReport createReport(String id, long lastUpdated) {
+		DiagnosticReport diagnosticReport = new DiagnosticReport();
+		diagnosticReport.setId(id);
+		diagnosticReport.getMeta().setLastUpdated(new Date(lastUpdated));
+		return diagnosticReport;
+	}
+
+	private void respond(HttpExchange exchange, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.getResponseHeaders().add("Content-Type", "application/fhir+json;charset=UTF-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		OutputStream outputStream = exchange.getResponseBody();
+		try {
+			outputStream.write(bytes);
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+}
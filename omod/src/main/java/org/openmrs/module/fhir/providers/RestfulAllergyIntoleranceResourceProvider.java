@@ -13,10 +13,14 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -27,6 +31,7 @@ import org.hl7.fhir.dstu3.model.Resource;
 import org.openmrs.module.fhir.resources.FHIRAllergyIntoleranceResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulAllergyIntoleranceResourceProvider implements IResourceProvider {
 
@@ -89,4 +94,20 @@ public class RestfulAllergyIntoleranceResourceProvider implements IResourceProvi
 					name) {
 		return allergyIntoleranceResource.searchAllergiesByPatientName(name);
 	}
+
+	/**
+	 * Search allergies by patient, and optionally clinical status, eg.
+	 * AllergyIntolerance?patient=...&amp;clinical-status=active. The results are paged.
+	 *
+	 * @param patient        the patient
+	 * @param clinicalStatus active for the allergies of the allergy list, inactive or resolved for the removed ones
+	 * @param includes       _include values, resolved by the IncludeInterceptor
+	 */
+	@Search()
+	public IBundleProvider searchAllergiesByPatient(
+			@RequiredParam(name = AllergyIntolerance.SP_PATIENT, chainWhitelist = { "" }) ReferenceParam patient,
+			@OptionalParam(name = AllergyIntolerance.SP_CLINICAL_STATUS) TokenParam clinicalStatus,
+			@IncludeParam Set<Include> includes) {
+		return allergyIntoleranceResource.searchAllergiesByPatient(patient, clinicalStatus);
+	}
 }
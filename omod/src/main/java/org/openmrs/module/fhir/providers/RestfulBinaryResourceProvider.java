@@ -0,0 +1,50 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.providers;
+
+import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.Read;
+import ca.uhn.fhir.rest.server.IResourceProvider;
+import org.hl7.fhir.dstu3.model.Binary;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.openmrs.module.fhir.resources.FHIRBinaryResource;
+
+public class RestfulBinaryResourceProvider implements IResourceProvider {
+
+	private FHIRBinaryResource binaryResource;
+
+	public RestfulBinaryResourceProvider() {
+		this.binaryResource = new FHIRBinaryResource();
+	}
+
+	@Override
+	public Class<? extends Resource> getResourceType() {
+		return Binary.class;
+	}
+
+	/**
+	 * The "@Read" annotation indicates that this method supports the read operation. Raw content reads are served
+	 * by {@link org.openmrs.module.fhir.server.BinaryStreamingInterceptor}, so this is only invoked when the client
+	 * asks for a FHIR formatted Binary.
+	 *
+	 * @param theId The read operation takes one parameter, which must be of type IdType and must be
+	 *            annotated with the "@Read.IdParam" annotation.
+	 * @return Returns a resource matching this identifier, or null if none exists.
+	 */
+	@Read()
+	public Binary getResourceById(@IdParam IdType theId) {
+		return binaryResource.getByUniqueId(theId);
+	}
+}
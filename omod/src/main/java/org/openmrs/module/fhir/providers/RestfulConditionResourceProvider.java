@@ -13,10 +13,15 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.Search;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -26,6 +31,7 @@ import org.hl7.fhir.dstu3.model.Resource;
 import org.openmrs.module.fhir.resources.FHIRConditionResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulConditionResourceProvider implements IResourceProvider {
 
@@ -79,13 +85,17 @@ public class RestfulConditionResourceProvider implements IResourceProvider {
     }
 
     /**
-     * Search appointments by unique id
+     * Search the conditions stored as obs by patient, and optionally asserted date. The results are paged.
      *
-     * @param patient object containing the patient details
+     * @param patient      object containing the patient details
+     * @param assertedDate conditions asserted within this range
+     * @param includes     _include values, resolved by the IncludeInterceptor
      */
     @Search()
-    public List<Condition> searchConditionssByPatient(
-            @RequiredParam(name = Condition.SP_PATIENT) ReferenceParam patient) {
-        return conditionResource.searchConditionsByPatient(patient);
+    public IBundleProvider searchConditionssByPatient(
+            @RequiredParam(name = Condition.SP_PATIENT) ReferenceParam patient,
+            @OptionalParam(name = Condition.SP_ASSERTED_DATE) DateRangeParam assertedDate,
+            @IncludeParam Set<Include> includes) {
+        return conditionResource.searchConditionsByPatient(patient, assertedDate);
     }
 }
@@ -13,9 +13,11 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
@@ -36,6 +38,7 @@ import org.hl7.fhir.dstu3.model.Resource;
 import org.openmrs.module.fhir.resources.FHIRDiagnosticReportResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulDiagnosticReportResourceProvider implements IResourceProvider {
 
@@ -127,12 +130,15 @@ public class RestfulDiagnosticReportResourceProvider implements IResourceProvide
 	 * a bundle of resources.
 	 *
 	 * @param theSubject The read operation takes one parameter, which must be of type ReferenceParam.
+	 * @param includes   _include values, resolved by the IncludeInterceptor, e.g. DiagnosticReport:result for the
+	 *                   result Observations the reports refer to
 	 * @return Returns a bundle of resources matching this subject's given name, or empty bundle if none exists.
 	 */
 	@Search
 	public List<DiagnosticReport> searchByPatientAndServiceCategory(
 			@RequiredParam(name = DiagnosticReport.SP_SUBJECT, chainWhitelist = Patient.SP_GIVEN) ReferenceParam theSubject,
-			@OptionalParam(name = DiagnosticReport.SP_CATEGORY) TokenParam theService) {
+			@OptionalParam(name = DiagnosticReport.SP_CATEGORY) TokenParam theService,
+			@IncludeParam Set<Include> includes) {
 		return diagnosticReportResource.getDiagnosticReportByPatientNameAndServiceCategory(theSubject, theService);
 	}
 }
@@ -13,15 +13,20 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -37,6 +42,7 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.resources.FHIREncounterResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulEncounterResourceProvider implements IResourceProvider {
 
@@ -70,9 +76,11 @@ public class RestfulEncounterResourceProvider implements IResourceProvider {
 	 * Search locations by unique id
 	 *
 	 * @param id object containing the requested id
+	 * @param includes _include values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public List<Encounter> searchEncountersByUniqueId(@RequiredParam(name = Encounter.SP_RES_ID) TokenParam id) {
+	public List<Encounter> searchEncountersByUniqueId(@RequiredParam(name = Encounter.SP_RES_ID) TokenParam id,
+	                                                  @IncludeParam Set<Include> includes) {
 		return encounterResource.searchEncountersById(id);
 	}
 
@@ -110,6 +118,27 @@ public class RestfulEncounterResourceProvider implements IResourceProvider {
 		return encounterResource.searchEncountersByIdAndPartOf(encounterId, partOf);
 	}
 
+	/**
+	 * Search visits as encounters by patient, period, location and status, eg.
+	 * Encounter?_query=visits&amp;patient=...&amp;date=ge2018-01-01. All the filters are applied by the database
+	 * and the results are paged.
+	 *
+	 * @param patient  the patient of the visit
+	 * @param date     visits overlapping this range
+	 * @param location the visit location
+	 * @param status   in-progress for visits which are not stopped, finished for stopped visits
+	 * @param includes _include values, resolved by the IncludeInterceptor
+	 * @return This method returns the matching visits, which are fetched a page at a time.
+	 */
+	@Search(queryName = FHIRConstants.VISIT_SEARCH_QUERY)
+	public IBundleProvider searchVisits(@OptionalParam(name = Encounter.SP_PATIENT) ReferenceParam patient,
+	                                    @OptionalParam(name = Encounter.SP_DATE) DateRangeParam date,
+	                                    @OptionalParam(name = Encounter.SP_LOCATION) ReferenceParam location,
+	                                    @OptionalParam(name = Encounter.SP_STATUS) TokenParam status,
+	                                    @IncludeParam Set<Include> includes) {
+		return encounterResource.searchVisits(patient, date, location, status);
+	}
+
 	/**
 	 * Implementation of $everything operation which retunrs content of a encounter
 	 *
@@ -13,16 +13,21 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -37,6 +42,7 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.resources.FHIRLocationResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulLocationResourceProvider implements IResourceProvider {
 	
@@ -77,27 +83,29 @@ public class RestfulLocationResourceProvider implements IResourceProvider {
 	}
 	
 	/**
-	 * Get locations by name
+	 * Search locations by name, status, parent location and address. All the filters are applied by the database and
+	 * the results are paged.
 	 *
-	 * @param name name of the location
-	 * @return This method returns a list of locations. This list may contain multiple matching
-	 *         resources, or it may also be empty.
+	 * @param name       prefix of the location name
+	 * @param active     active or inactive status
+	 * @param partOf     the parent location
+	 * @param city       prefix of the city
+	 * @param state      prefix of the state
+	 * @param country    prefix of the country
+	 * @param postalCode prefix of the postal code
+	 * @param includes   _include values, resolved by the IncludeInterceptor
+	 * @return This method returns the matching locations, which are fetched a page at a time.
 	 */
 	@Search()
-	public List<Location> findLocationsByName(@RequiredParam(name = Location.SP_NAME) StringParam name) {
-		return locationResource.searchLocationsByName(name);
-	}
-	
-	/**
-	 * Search location by status
-	 *
-	 * @param active search term
-	 * @return This method returns a list of locations. This list may contain multiple matching
-	 *         resources, or it may also be empty.
-	 */
-	@Search()
-	public List<Location> searchLocationsByStatus(@RequiredParam(name = Location.SP_STATUS) TokenParam active) {
-		return locationResource.searchLocationsByStatus(active);
+	public IBundleProvider searchLocations(@OptionalParam(name = Location.SP_NAME) StringParam name,
+	                                       @OptionalParam(name = Location.SP_STATUS) TokenParam active,
+	                                       @OptionalParam(name = Location.SP_PARTOF) ReferenceParam partOf,
+	                                       @OptionalParam(name = Location.SP_ADDRESS_CITY) StringParam city,
+	                                       @OptionalParam(name = Location.SP_ADDRESS_STATE) StringParam state,
+	                                       @OptionalParam(name = Location.SP_ADDRESS_COUNTRY) StringParam country,
+	                                       @OptionalParam(name = Location.SP_ADDRESS_POSTALCODE) StringParam postalCode,
+	                                       @IncludeParam Set<Include> includes) {
+		return locationResource.searchLocations(name, active, partOf, city, state, country, postalCode);
 	}
 	
 	/**
@@ -13,14 +13,19 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -34,6 +39,7 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.resources.FHIRMedicationRequestResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulMedicationRequestProvider implements IResourceProvider {
 
@@ -77,14 +83,20 @@ public class RestfulMedicationRequestProvider implements IResourceProvider {
 	}
 
 	/**
-	 * Search Medication by unique patient uuod
+	 * Search Medication by unique patient uuod, and optionally status and authored date. The results are paged.
 	 *
-	 * @param patient patient reference with uuid
+	 * @param patient    patient reference with uuid
+	 * @param status     active, stopped or completed
+	 * @param authoredOn medication requests authored within this range
+	 * @param includes   _include values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public List<MedicationRequest> searchMedicatoonRequestByPatientId(
-			@RequiredParam(name = MedicationRequest.SP_PATIENT) ReferenceParam patient) {
-		return fhirMedicationRequestResource.searchByPatientId(patient);
+	public IBundleProvider searchMedicatoonRequestByPatientId(
+			@RequiredParam(name = MedicationRequest.SP_PATIENT) ReferenceParam patient,
+			@OptionalParam(name = MedicationRequest.SP_STATUS) TokenParam status,
+			@OptionalParam(name = MedicationRequest.SP_AUTHOREDON) DateRangeParam authoredOn,
+			@IncludeParam Set<Include> includes) {
+		return fhirMedicationRequestResource.searchByPatientId(patient, status, authoredOn);
 	}
 
 	/**
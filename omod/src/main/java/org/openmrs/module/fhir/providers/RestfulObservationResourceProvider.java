@@ -13,9 +13,11 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
@@ -38,6 +40,7 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.resources.FHIRObservationResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulObservationResourceProvider implements IResourceProvider {
 
@@ -80,12 +83,14 @@ public class RestfulObservationResourceProvider implements IResourceProvider {
 	 * Search obsservation by patient and concept name
 	 *
 	 * @param codes object containing the requested name
+	 * @param includes _include values, resolved by the IncludeInterceptor
 	 */
 	@Search()
 	public List<Observation> searchObsByPatientAndConcept(@RequiredParam(name = Observation.SP_SUBJECT) ReferenceParam
 			                                                      person,
 	                                                      @RequiredParam(name = Observation.SP_CODE) TokenOrListParam
-			                                                      codes) {
+			                                                      codes,
+	                                                      @IncludeParam Set<Include> includes) {
 		return provider.searchObsByPatientAndConcept(person, codes);
 	}
 
@@ -113,9 +118,11 @@ public class RestfulObservationResourceProvider implements IResourceProvider {
 	 * Search obsservation by person
 	 *
 	 * @param person object containing the requested person id
+	 * @param includes _include values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public List<Observation> searchObsByPerson(@RequiredParam(name = Observation.SP_SUBJECT) ReferenceParam person) {
+	public List<Observation> searchObsByPerson(@RequiredParam(name = Observation.SP_SUBJECT) ReferenceParam person,
+	                                           @IncludeParam Set<Include> includes) {
 		return provider.searchObsByPerson(person);
 	}
 
@@ -13,17 +13,22 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.ConditionalUrlParam;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.Delete;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Operation;
+import ca.uhn.fhir.rest.annotation.OptionalParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -42,6 +47,7 @@ import org.openmrs.module.fhir.resources.FHIRPatientResource;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 public class RestfulPatientResourceProvider implements IResourceProvider {
 
@@ -75,20 +81,34 @@ public class RestfulPatientResourceProvider implements IResourceProvider {
 	 * Search patient by unique id
 	 *
 	 * @param id object containing the requested id
+	 * @param includes _include values, resolved by the IncludeInterceptor
+	 * @param revIncludes _revinclude values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public List<Patient> searchPatientByUniqueId(@RequiredParam(name = Patient.SP_RES_ID) TokenParam id) {
+	public List<Patient> searchPatientByUniqueId(@RequiredParam(name = Patient.SP_RES_ID) TokenParam id,
+	                                             @IncludeParam Set<Include> includes,
+	                                             @IncludeParam(reverse = true) Set<Include> revIncludes) {
 		return patientResource.searchByUniqueId(id);
 	}
 
 	/**
-	 * Get patients by family name
+	 * Get patients by family name, and optionally given name. Both support the :exact and :contains modifiers, which
+	 * are matched by the database, and the :phonetic and :fuzzy modifiers, which are matched by the name index. The
+	 * results are paged.
 	 *
 	 * @param theFamilyName object contaning the requested family name
+	 * @param givenName     object contaning the requested given name
+	 * @param request       the request, to read the modifiers which HAPI does not parse
+	 * @param includes      _include values, resolved by the IncludeInterceptor
+	 * @param revIncludes   _revinclude values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public Bundle findPatientsByFamilyName(@RequiredParam(name = Patient.SP_FAMILY) StringParam theFamilyName) {
-		return patientResource.searchByFamilyName(theFamilyName);
+	public IBundleProvider findPatientsByFamilyName(@RequiredParam(name = Patient.SP_FAMILY) StringParam theFamilyName,
+	                                                @OptionalParam(name = Patient.SP_GIVEN) StringParam givenName,
+	                                                @IncludeParam Set<Include> includes,
+	                                                @IncludeParam(reverse = true) Set<Include> revIncludes,
+	                                                RequestDetails request) {
+		return patientResource.searchByPersonName(givenName, theFamilyName, request);
 	}
 
 	/**
@@ -107,11 +127,15 @@ public class RestfulPatientResourceProvider implements IResourceProvider {
 	 * Get patients by identifier
 	 *
 	 * @param identifier
+	 * @param includes _include values, resolved by the IncludeInterceptor
+	 * @param revIncludes _revinclude values, resolved by the IncludeInterceptor
 	 * @return This method returns a list of Patients. This list may contain multiple matching
 	 *         resources, or it may also be empty.
 	 */
 	@Search()
-	public List<Patient> searchPatientsByIdentifier(@RequiredParam(name = Patient.SP_IDENTIFIER) TokenParam identifier) {
+	public List<Patient> searchPatientsByIdentifier(@RequiredParam(name = Patient.SP_IDENTIFIER) TokenParam identifier,
+	                                                @IncludeParam Set<Include> includes,
+	                                                @IncludeParam(reverse = true) Set<Include> revIncludes) {
 		return patientResource.searchByIdentifier(identifier);
 	}
 
@@ -128,15 +152,22 @@ public class RestfulPatientResourceProvider implements IResourceProvider {
 	}
 
 	/**
-	 * Find patients by given name
+	 * Find patients by given name, which supports the :exact, :contains, :phonetic and :fuzzy modifiers. The results
+	 * are paged.
 	 *
-	 * @param givenName given name of the patient
+	 * @param givenName   given name of the patient
+	 * @param request     the request, to read the modifiers which HAPI does not parse
+	 * @param includes    _include values, resolved by the IncludeInterceptor
+	 * @param revIncludes _revinclude values, resolved by the IncludeInterceptor
 	 * @return This method returns a list of Patients. This list may contain multiple matching
 	 *         resources, or it may also be empty.
 	 */
 	@Search()
-	public Bundle findPatientsByGivenName(@RequiredParam(name = Patient.SP_GIVEN) StringParam givenName) {
-		return patientResource.searchByGivenName(givenName);
+	public IBundleProvider findPatientsByGivenName(@RequiredParam(name = Patient.SP_GIVEN) StringParam givenName,
+	                                               @IncludeParam Set<Include> includes,
+	                                               @IncludeParam(reverse = true) Set<Include> revIncludes,
+	                                               RequestDetails request) {
+		return patientResource.searchByPersonName(givenName, null, request);
 	}
 
 	/**
@@ -23,6 +23,8 @@ import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.DateParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
@@ -93,15 +95,17 @@ public class RestfulPersonResourceProvider implements IResourceProvider {
 	}
 
 	/**
-	 * Search persons by name
+	 * Search persons by name. The :phonetic and :fuzzy modifiers are matched by the name index, the best matches
+	 * first.
 	 *
-	 * @param name name of persons
-	 * @return This method returns a list of Persons. This list may contain multiple matching
-	 * resources, or it may also be empty.
+	 * @param name    name of persons
+	 * @param request the request, to read the modifiers which HAPI does not parse
+	 * @return the matching Persons, fetched a page at a time
 	 */
 	@Search()
-	public List<Person> findPersonsByName(@RequiredParam(name = Person.SP_NAME) StringParam name) {
-		return personResource.searchByName(name);
+	public IBundleProvider findPersonsByName(@RequiredParam(name = Person.SP_NAME) StringParam name,
+	                                         RequestDetails request) {
+		return personResource.searchByName(name, request);
 	}
 
 	/**
@@ -13,14 +13,17 @@
  */
 package org.openmrs.module.fhir.providers;
 
+import ca.uhn.fhir.model.api.Include;
 import ca.uhn.fhir.rest.annotation.Create;
 import ca.uhn.fhir.rest.annotation.IdParam;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
 import ca.uhn.fhir.rest.annotation.Read;
 import ca.uhn.fhir.rest.annotation.RequiredParam;
 import ca.uhn.fhir.rest.annotation.ResourceParam;
 import ca.uhn.fhir.rest.annotation.Search;
 import ca.uhn.fhir.rest.annotation.Update;
 import ca.uhn.fhir.rest.api.MethodOutcome;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.IResourceProvider;
@@ -34,6 +37,7 @@ import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.resources.FHIRPractitionerResource;
 
 import java.util.List;
+import java.util.Set;
 
 public class RestfulPractitionerResourceProvider implements IResourceProvider {
 
@@ -79,9 +83,11 @@ public class RestfulPractitionerResourceProvider implements IResourceProvider {
 	 * Get Practitioner by family name
 	 *
 	 * @param theFamilyName object contaning the requested family name
+	 * @param includes _include values, resolved by the IncludeInterceptor
 	 */
 	@Search()
-	public List<Practitioner> findPractitionersByFamilyName(@RequiredParam(name = Practitioner.SP_FAMILY) StringParam theFamilyName) {
+	public IBundleProvider findPractitionersByFamilyName(@RequiredParam(name = Practitioner.SP_FAMILY) StringParam theFamilyName,
+	                                                     @IncludeParam Set<Include> includes) {
 		return practitionerResource.searchByFamilyName(theFamilyName);
 	}
 
@@ -113,11 +119,13 @@ public class RestfulPractitionerResourceProvider implements IResourceProvider {
 	 * Find Practitioner by given name
 	 *
 	 * @param givenName given name of the Practitioner
+	 * @param includes _include values, resolved by the IncludeInterceptor
 	 * @return This method returns a list of Practitioners. This list may contain multiple matching
 	 *         resources, or it may also be empty.
 	 */
 	@Search()
-	public List<Practitioner> findPractitionersByGivenName(@RequiredParam(name = Practitioner.SP_GIVEN) StringParam givenName) {
+	public IBundleProvider findPractitionersByGivenName(@RequiredParam(name = Practitioner.SP_GIVEN) StringParam givenName,
+	                                                    @IncludeParam Set<Include> includes) {
 		return practitionerResource.searchByGivenName(givenName);
 	}
 	
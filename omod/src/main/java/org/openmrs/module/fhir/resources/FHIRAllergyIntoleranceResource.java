@@ -13,14 +13,18 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.dstu3.model.AllergyIntolerance;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.AllergyIntoleranceService;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -57,4 +61,36 @@ public class FHIRAllergyIntoleranceResource extends Resource {
 		}
 		return fhirAllergies;
 	}
+
+	public IBundleProvider searchAllergiesByPatient(ReferenceParam patient, TokenParam clinicalStatus) {
+		final AllergySearchCriteria criteria = new AllergySearchCriteria();
+		criteria.setPatient(patient.getIdPart());
+		if (clinicalStatus != null) {
+			String code = clinicalStatus.getValue();
+			if (AllergyIntolerance.AllergyIntoleranceClinicalStatus.ACTIVE.toCode().equalsIgnoreCase(code)) {
+				criteria.setVoided(false);
+			} else if (AllergyIntolerance.AllergyIntoleranceClinicalStatus.INACTIVE.toCode().equalsIgnoreCase(code)
+					|| AllergyIntolerance.AllergyIntoleranceClinicalStatus.RESOLVED.toCode().equalsIgnoreCase(code)) {
+				criteria.setVoided(true);
+			} else {
+				throw new InvalidRequestException("Unsupported clinical-status " + code
+						+ ", supported values are active, inactive and resolved");
+			}
+		} else {
+			criteria.setVoided(null);
+		}
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(AllergyIntoleranceService.class).getAllergyCount(criteria);
+			}
+
+			@Override
+			protected List<AllergyIntolerance> fetch(int firstResult, int maxResults) {
+				return Context.getService(AllergyIntoleranceService.class).searchAllergies(criteria, firstResult,
+						maxResults);
+			}
+		};
+	}
 }
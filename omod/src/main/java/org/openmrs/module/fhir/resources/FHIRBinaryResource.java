@@ -0,0 +1,32 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.resources;
+
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.dstu3.model.Binary;
+import org.hl7.fhir.dstu3.model.IdType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.ObsService;
+
+public class FHIRBinaryResource extends Resource {
+
+	public Binary getByUniqueId(IdType id) {
+		ObsService obsService = Context.getService(ObsService.class);
+		Binary binary = obsService.getBinary(id.getIdPart());
+		if (binary == null) {
+			throw new ResourceNotFoundException("Binary is not found for the given Id " + id.getIdPart());
+		}
+		return binary;
+	}
+}
@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -20,6 +22,8 @@ import org.hl7.fhir.dstu3.model.Condition;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.ConditionService;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -53,7 +57,25 @@ public class FHIRConditionResource extends Resource {
         return Context.getService(ConditionService.class).searchConditionById(id.getValue());
     }
 
-    public List<Condition> searchConditionsByPatient(ReferenceParam patient) {
-        return Context.getService(ConditionService.class).searchConditionsByPatient(patient.getValue());
+    public IBundleProvider searchConditionsByPatient(ReferenceParam patient, DateRangeParam assertedDate) {
+        final ObsSearchCriteria criteria = new ObsSearchCriteria();
+        criteria.setPatient(patient.getIdPart());
+        if (assertedDate != null) {
+            criteria.setFrom(assertedDate.getLowerBoundAsInstant());
+            criteria.setTo(assertedDate.getUpperBoundAsInstant());
+        }
+        return new PagedBundleProvider() {
+
+            @Override
+            protected long count() {
+                return Context.getService(ConditionService.class).getObsConditionCount(criteria);
+            }
+
+            @Override
+            protected List<Condition> fetch(int firstResult, int maxResults) {
+                return Context.getService(ConditionService.class).searchObsConditions(criteria, firstResult,
+                        maxResults);
+            }
+        };
     }
 }
@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -21,6 +23,8 @@ import org.hl7.fhir.dstu3.model.Encounter;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.EncounterService;
+import org.openmrs.module.fhir.api.search.VisitSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -67,6 +71,36 @@ public class FHIREncounterResource extends Resource {
 		return fhirEncounters;
 	}
 
+	public IBundleProvider searchVisits(ReferenceParam patient, DateRangeParam date, ReferenceParam location,
+	                                    TokenParam status) {
+		final VisitSearchCriteria criteria = new VisitSearchCriteria();
+		if (patient != null) {
+			criteria.setPatient(patient.getIdPart());
+		}
+		if (date != null) {
+			criteria.setFrom(date.getLowerBoundAsInstant());
+			criteria.setTo(date.getUpperBoundAsInstant());
+		}
+		if (location != null) {
+			criteria.setLocation(location.getIdPart());
+		}
+		if (status != null) {
+			criteria.setInProgress(status.getValue().equalsIgnoreCase(Encounter.EncounterStatus.INPROGRESS.toCode()));
+		}
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(EncounterService.class).getVisitCount(criteria);
+			}
+
+			@Override
+			protected List<Encounter> fetch(int firstResult, int maxResults) {
+				return Context.getService(EncounterService.class).searchVisits(criteria, firstResult, maxResults);
+			}
+		};
+	}
+
 	public void deleteEncounter(IdType theId) {
 		EncounterService encounterService = Context.getService(EncounterService.class);
 		encounterService.deleteEncounter(theId.getIdPart());
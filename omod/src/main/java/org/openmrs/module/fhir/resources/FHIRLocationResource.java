@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -20,6 +22,8 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Location;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.LocationService;
+import org.openmrs.module.fhir.api.search.LocationSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -46,6 +50,44 @@ public class FHIRLocationResource extends Resource {
 		}
 	}
 	
+	public IBundleProvider searchLocations(StringParam name, TokenParam status, ReferenceParam partOf, StringParam city,
+	                                       StringParam state, StringParam country, StringParam postalCode) {
+		final LocationSearchCriteria criteria = new LocationSearchCriteria();
+		if (name != null) {
+			criteria.setName(name.getValue());
+		}
+		if (status != null) {
+			criteria.setActive(status.getValue().equalsIgnoreCase(Location.LocationStatus.ACTIVE.toCode()));
+		}
+		if (partOf != null) {
+			criteria.setPartOf(partOf.getIdPart());
+		}
+		if (city != null) {
+			criteria.setCity(city.getValue());
+		}
+		if (state != null) {
+			criteria.setState(state.getValue());
+		}
+		if (country != null) {
+			criteria.setCountry(country.getValue());
+		}
+		if (postalCode != null) {
+			criteria.setPostalCode(postalCode.getValue());
+		}
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(LocationService.class).getLocationCount(criteria);
+			}
+
+			@Override
+			protected List<Location> fetch(int firstResult, int maxResults) {
+				return Context.getService(LocationService.class).searchLocations(criteria, firstResult, maxResults);
+			}
+		};
+	}
+
 	public List<Location> searchLocationsByName(StringParam name) {
 		return Context.getService(LocationService.class).searchLocationsByName(name.getValue());
 	}
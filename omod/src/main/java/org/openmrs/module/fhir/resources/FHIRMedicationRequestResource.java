@@ -13,13 +13,18 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.param.DateRangeParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.MedicationRequest;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.MedicationRequestService;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -41,10 +46,39 @@ public class FHIRMedicationRequestResource extends Resource {
 		return medicationRequestService.searchMedicationRequestById(id.getValue());
 	}
 
-	public List<MedicationRequest> searchByPatientId(ReferenceParam patient) {
-		MedicationRequestService medicationRequestService = Context
-				.getService(MedicationRequestService.class);
-		return medicationRequestService.searchMedicationRequestByPatientId(patient.getIdPart());
+	public IBundleProvider searchByPatientId(ReferenceParam patient, TokenParam status, DateRangeParam authoredOn) {
+		final DrugOrderSearchCriteria criteria = new DrugOrderSearchCriteria();
+		criteria.setPatient(patient.getIdPart());
+		if (status != null) {
+			if (status.getValue().equalsIgnoreCase(MedicationRequest.MedicationRequestStatus.STOPPED.toCode())) {
+				criteria.setStatus(DrugOrderSearchCriteria.Status.STOPPED);
+			} else if (status.getValue().equalsIgnoreCase(
+					MedicationRequest.MedicationRequestStatus.COMPLETED.toCode())) {
+				criteria.setStatus(DrugOrderSearchCriteria.Status.COMPLETED);
+			} else if (status.getValue().equalsIgnoreCase(MedicationRequest.MedicationRequestStatus.ACTIVE.toCode())) {
+				criteria.setStatus(DrugOrderSearchCriteria.Status.ACTIVE);
+			} else {
+				throw new InvalidRequestException("Unsupported status " + status.getValue()
+						+ ", supported values are active, stopped and completed");
+			}
+		}
+		if (authoredOn != null) {
+			criteria.setAuthoredFrom(authoredOn.getLowerBoundAsInstant());
+			criteria.setAuthoredTo(authoredOn.getUpperBoundAsInstant());
+		}
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(MedicationRequestService.class).getMedicationRequestCount(criteria);
+			}
+
+			@Override
+			protected List<MedicationRequest> fetch(int firstResult, int maxResults) {
+				return Context.getService(MedicationRequestService.class).searchMedicationRequests(criteria,
+						firstResult, maxResults);
+			}
+		};
 	}
 
 	public MedicationRequest createFHIRMedicationRequest(MedicationRequest medicationRequest) {
@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -21,6 +23,8 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Patient;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.PatientService;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -53,16 +57,34 @@ public class FHIRPatientResource extends Resource {
 		return patientService.searchPatientsByIdentifier(identifier.getValue());
 	}
 
-	public Bundle searchByGivenName(StringParam givenName) {
-		org.openmrs.module.fhir.api.PatientService patientService = Context.getService(
-				org.openmrs.module.fhir.api.PatientService.class);
-		return patientService.searchPatientsByGivenName(givenName.getValue());
+	public IBundleProvider searchByPersonName(StringParam givenName, StringParam familyName, RequestDetails request) {
+		final PatientNameSearchCriteria criteria = new PatientNameSearchCriteria();
+		if (givenName != null) {
+			criteria.setGivenName(givenName.getValue());
+			criteria.setGivenNameMatch(getNameMatch(givenName, request, Patient.SP_GIVEN));
+		}
+		if (familyName != null) {
+			criteria.setFamilyName(familyName.getValue());
+			criteria.setFamilyNameMatch(getNameMatch(familyName, request, Patient.SP_FAMILY));
+		}
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(PatientService.class).getPatientCountByName(criteria);
+			}
+
+			@Override
+			protected List<Patient> fetch(int firstResult, int maxResults) {
+				return Context.getService(PatientService.class).searchPatientsByName(criteria, firstResult, maxResults);
+			}
+		};
 	}
 
-	public Bundle searchByFamilyName(StringParam theFamilyName) {
+	public Bundle searchByGivenName(StringParam givenName) {
 		org.openmrs.module.fhir.api.PatientService patientService = Context.getService(
 				org.openmrs.module.fhir.api.PatientService.class);
-		return patientService.searchPatientsByFamilyName(theFamilyName.getValue());
+		return patientService.searchPatientsByGivenName(givenName.getValue());
 	}
 
 	public Bundle searchByName(StringParam name) {
@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -20,6 +22,8 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Person;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.PersonService;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -44,9 +48,22 @@ public class FHIRPersonResource extends Resource {
 		return personService.searchPersons(name, birthYear, gender.getValue());
 	}
 
-	public List<Person> searchByName(StringParam name) {
-		PersonService personService = Context.getService(PersonService.class);
-		return personService.searchPersonsByName(name.getValue());
+	public IBundleProvider searchByName(StringParam name, RequestDetails request) {
+		final String value = name.getValue();
+		final PatientNameSearchCriteria.Match match = getNameMatch(name, request, Person.SP_NAME);
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(PersonService.class).getPersonCountByName(value, match);
+			}
+
+			@Override
+			protected List<Person> fetch(int firstResult, int maxResults) {
+				return Context.getService(PersonService.class).searchPersonsByName(value, match, firstResult,
+						maxResults);
+			}
+		};
 	}
 
 	public Person createFHIRPerson(Person person) {
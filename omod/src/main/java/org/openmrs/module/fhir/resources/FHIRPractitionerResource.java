@@ -13,6 +13,7 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
@@ -20,6 +21,7 @@ import org.hl7.fhir.dstu3.model.IdType;
 import org.hl7.fhir.dstu3.model.Practitioner;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.fhir.api.PractitionerService;
+import org.openmrs.module.fhir.util.PagedBundleProvider;
 
 import java.util.List;
 
@@ -48,16 +50,29 @@ public class FHIRPractitionerResource extends Resource {
 		return patientService.searchPractitionersByIdentifier(identifier.getValue());
 	}
 
-	public List<Practitioner> searchByGivenName(StringParam givenName) {
-		org.openmrs.module.fhir.api.PractitionerService patientService = Context
-		        .getService(org.openmrs.module.fhir.api.PractitionerService.class);
-		return patientService.searchPractitionersByGivenName(givenName.getValue()); /// ??
+	public IBundleProvider searchByGivenName(StringParam givenName) {
+		return searchByPersonName(givenName.getValue(), null);
 	}
 
-	public List<Practitioner> searchByFamilyName(StringParam familyName) {
-		org.openmrs.module.fhir.api.PractitionerService patientService = Context
-		        .getService(org.openmrs.module.fhir.api.PractitionerService.class);
-		return patientService.searchPractitionersByFamilyName(familyName.getValue()); //// ??
+	public IBundleProvider searchByFamilyName(StringParam familyName) {
+		return searchByPersonName(null, familyName.getValue());
+	}
+
+	private IBundleProvider searchByPersonName(final String givenName, final String familyName) {
+		return new PagedBundleProvider() {
+
+			@Override
+			protected long count() {
+				return Context.getService(PractitionerService.class).getPractitionerCountByPersonName(givenName,
+						familyName);
+			}
+
+			@Override
+			protected List<Practitioner> fetch(int firstResult, int maxResults) {
+				return Context.getService(PractitionerService.class).searchPractitionersByPersonName(givenName,
+						familyName, firstResult, maxResults);
+			}
+		};
 	}
 
 	public List<Practitioner> searchByName(StringParam name) {
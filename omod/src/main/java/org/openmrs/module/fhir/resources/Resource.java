@@ -13,6 +13,35 @@
  */
 package org.openmrs.module.fhir.resources;
 
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.param.StringParam;
+import org.openmrs.module.fhir.api.search.PatientNameSearchCriteria;
+import org.openmrs.module.fhir.util.FHIROmodConstants;
+
 public class Resource {
 
+	/**
+	 * Get how a name parameter is to be matched. HAPI only parses the :exact and :contains modifiers, so :phonetic and
+	 * :fuzzy are read from the names of the request parameters.
+	 *
+	 * @param name      value of the name parameter
+	 * @param request   the request, or null if the modifiers of the parameter names are not known
+	 * @param paramName name of the search parameter, e.g. family
+	 * @return how the name is compared with the names of the persons
+	 */
+	protected static PatientNameSearchCriteria.Match getNameMatch(StringParam name, RequestDetails request,
+	                                                              String paramName) {
+		if (request != null && request.getParameters() != null) {
+			if (request.getParameters().containsKey(paramName + FHIROmodConstants.PHONETIC_MODIFIER)) {
+				return PatientNameSearchCriteria.Match.PHONETIC;
+			}
+			if (request.getParameters().containsKey(paramName + FHIROmodConstants.FUZZY_MODIFIER)) {
+				return PatientNameSearchCriteria.Match.FUZZY;
+			}
+		}
+		if (name.isExact()) {
+			return PatientNameSearchCriteria.Match.EXACT;
+		}
+		return name.isContains() ? PatientNameSearchCriteria.Match.CONTAINS : PatientNameSearchCriteria.Match.START;
+	}
 }
@@ -0,0 +1,162 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.ObsService;
+import org.openmrs.module.fhir.api.util.FHIRAttachmentUtil;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves raw reads of Binary resources (GET [base]/Binary/[id] without a FHIR format) directly from the complex obs
+ * file. The content is copied to the response with {@link java.nio.channels.FileChannel#transferTo}, so it is never
+ * loaded into the heap, and single byte range requests are supported. Requests which ask for a FHIR formatted Binary
+ * are left to {@link org.openmrs.module.fhir.providers.RestfulBinaryResourceProvider}.
+ */
+public class BinaryStreamingInterceptor extends InterceptorAdapter {
+
+	private static final Log log = LogFactory.getLog(BinaryStreamingInterceptor.class);
+
+	private static final Pattern BINARY_READ_PATH = Pattern.compile("/Binary/([^/]+)/?$");
+
+	private static final Pattern BYTE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+	private static final String HEADER_ACCEPT_RANGES = "Accept-Ranges";
+
+	private static final String HEADER_RANGE = "Range";
+
+	private static final String HEADER_CONTENT_RANGE = "Content-Range";
+
+	private static final Set<String> FHIR_MEDIA_TYPES = new HashSet<String>(Arrays.asList(Constants.CT_FHIR_JSON,
+			Constants.CT_FHIR_XML, Constants.CT_FHIR_JSON_NEW, Constants.CT_FHIR_XML_NEW));
+
+	@Override
+	public boolean incomingRequestPreProcessed(HttpServletRequest theRequest, HttpServletResponse theResponse) {
+		if (!"GET".equals(theRequest.getMethod()) || isFhirFormatRequested(theRequest)) {
+			return true;
+		}
+		Matcher matcher = BINARY_READ_PATH.matcher(theRequest.getRequestURI());
+		if (!matcher.find()) {
+			return true;
+		}
+
+		try {
+			File file = Context.getService(ObsService.class).getBinaryFile(matcher.group(1));
+			if (file == null || !file.isFile()) {
+				theResponse.sendError(HttpServletResponse.SC_NOT_FOUND, "Binary is not found for the given Id "
+						+ matcher.group(1));
+				return false;
+			}
+			streamFile(file, theRequest, theResponse);
+		}
+		catch (APIAuthenticationException e) {
+			sendError(theResponse, HttpServletResponse.SC_FORBIDDEN, e.getMessage());
+		}
+		catch (IOException e) {
+			// Most of the time the client has gone away while the content was being written
+			log.debug("Failed to stream binary content of " + matcher.group(1), e);
+		}
+		return false;
+	}
+
+	private void streamFile(File file, HttpServletRequest theRequest, HttpServletResponse theResponse)
+			throws IOException {
+		long length = file.length();
+		long start = 0;
+		long end = length - 1;
+
+		theResponse.setHeader(HEADER_ACCEPT_RANGES, "bytes");
+		theResponse.setContentType(FHIRAttachmentUtil.getContentType(file));
+
+		String range = theRequest.getHeader(HEADER_RANGE);
+		if (StringUtils.isNotBlank(range)) {
+			Matcher matcher = BYTE_RANGE.matcher(range.trim());
+			if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+				sendUnsatisfiableRange(theResponse, length);
+				return;
+			}
+			if (matcher.group(1).isEmpty()) {
+				// Suffix range, the last n bytes
+				start = Math.max(0, length - Long.parseLong(matcher.group(2)));
+			} else {
+				start = Long.parseLong(matcher.group(1));
+				if (!matcher.group(2).isEmpty()) {
+					end = Math.min(end, Long.parseLong(matcher.group(2)));
+				}
+			}
+			if (start > end) {
+				sendUnsatisfiableRange(theResponse, length);
+				return;
+			}
+			theResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+			theResponse.setHeader(HEADER_CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+		} else {
+			theResponse.setStatus(HttpServletResponse.SC_OK);
+		}
+
+		long contentLength = end - start + 1;
+		theResponse.setHeader(Constants.HEADER_CONTENT_LENGTH, String.valueOf(contentLength));
+		if (contentLength > 0) {
+			FHIRAttachmentUtil.transferTo(file, start, contentLength, theResponse.getOutputStream());
+		}
+		theResponse.flushBuffer();
+	}
+
+	private void sendUnsatisfiableRange(HttpServletResponse theResponse, long length) throws IOException {
+		theResponse.setHeader(HEADER_CONTENT_RANGE, "bytes */" + length);
+		theResponse.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+	}
+
+	private void sendError(HttpServletResponse theResponse, int status, String message) {
+		try {
+			theResponse.sendError(status, message);
+		}
+		catch (IOException e) {
+			log.debug("Failed to send error response", e);
+		}
+	}
+
+	private boolean isFhirFormatRequested(HttpServletRequest theRequest) {
+		if (StringUtils.isNotBlank(theRequest.getParameter(Constants.PARAM_FORMAT))) {
+			return true;
+		}
+		String accept = theRequest.getHeader(Constants.HEADER_ACCEPT);
+		if (accept == null) {
+			return false;
+		}
+		// Browsers accept application/xml too, only the FHIR media types ask for a FHIR formatted Binary
+		for (String mediaRange : accept.split(",")) {
+			String mediaType = StringUtils.substringBefore(mediaRange, ";").trim().toLowerCase();
+			if (FHIR_MEDIA_TYPES.contains(mediaType)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -14,16 +14,20 @@
 package org.openmrs.module.fhir.server;
 
 import ca.uhn.fhir.context.FhirContext;
-import ca.uhn.fhir.narrative.CustomThymeleafNarrativeGenerator;
 import ca.uhn.fhir.rest.api.EncodingEnum;
 import ca.uhn.fhir.rest.server.IResourceProvider;
+import ca.uhn.fhir.rest.server.FifoMemoryPagingProvider;
 import ca.uhn.fhir.rest.server.RestfulServer;
 import ca.uhn.fhir.rest.server.interceptor.LoggingInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.ResponseHighlighterInterceptor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.hl7.fhir.dstu3.hapi.rest.server.ServerCapabilityStatementProvider;
 import org.openmrs.module.fhir.addressstrategy.OpenMRSFHIRRequestAddressStrategy;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
 import org.openmrs.module.fhir.api.util.FHIRUtils;
 import org.openmrs.module.fhir.providers.RestfulAllergyIntoleranceResourceProvider;
+import org.openmrs.module.fhir.providers.RestfulBinaryResourceProvider;
 import org.openmrs.module.fhir.providers.RestfulConditionResourceProvider;
 import org.openmrs.module.fhir.providers.RestfulDiagnosticReportResourceProvider;
 import org.openmrs.module.fhir.providers.RestfulEncounterResourceProvider;
@@ -45,6 +49,14 @@ public class FHIRRESTServer extends RestfulServer {
 
 	private static final long serialVersionUID = 1L;
 	private static final String MODULE_SERVELET_PREFIX = "/fhir/fhirServelet";
+	/**
+	 * Number of searches whose results are kept for the following pages
+	 */
+	private static final int PAGING_PROVIDER_SIZE = 100;
+
+	private static final Log log = LogFactory.getLog(FHIRRESTServer.class);
+
+	private NarrativeInterceptor narrativeInterceptor;
 
 	/**
 	 * The initialize method is automatically called when the servlet is starting up, so it can
@@ -69,6 +81,7 @@ public class FHIRRESTServer extends RestfulServer {
 		//resourceProviders.add(new RestfulCompositionResourceProvider());
 		resourceProviders.add(new RestfulPersonResourceProvider());
 		resourceProviders.add(new RestfulRelatedPersonProvider());
+		resourceProviders.add(new RestfulBinaryResourceProvider());
 		this.setFhirContext(FhirContext.forDstu3());
 		setResourceProviders(resourceProviders);
 		setServerName(FHIROmodConstants.OPENMRS_FHIR_SERVER_NAME);
@@ -76,11 +89,24 @@ public class FHIRRESTServer extends RestfulServer {
 		setImplementationDescription(FHIROmodConstants.OPENMRS_FHIR_SERVER_DES);
 		setDefaultPrettyPrint(true);
 		setDefaultResponseEncoding(EncodingEnum.JSON);
+		FifoMemoryPagingProvider pagingProvider = new FifoMemoryPagingProvider(PAGING_PROVIDER_SIZE);
+		pagingProvider.setDefaultPageSize(FHIRConstants.DEFAULT_PAGE_SIZE);
+		pagingProvider.setMaximumPageSize(FHIRConstants.MAX_PAGE_SIZE);
+		setPagingProvider(pagingProvider);
+		// Registered first so that raw Binary reads are streamed before any other interceptor touches the response
+		registerInterceptor(new BinaryStreamingInterceptor());
+		PagedSearchInterceptor pagedSearches = new PagedSearchInterceptor(PAGING_PROVIDER_SIZE);
 		if (FHIRUtils.isCustomNarrativesEnabled()) {
 			String propFile = FHIRUtils.getCustomNarrativesPropertyPath();
-			CustomThymeleafNarrativeGenerator generator = new CustomThymeleafNarrativeGenerator(propFile);
+			LazyNarrativeGenerator generator = new LazyNarrativeGenerator(propFile);
 			getFhirContext().setNarrativeGenerator(generator);
+			narrativeInterceptor = new NarrativeInterceptor(getFhirContext(), generator, pagedSearches,
+					FHIRUtils.getNarrativeRenderThreads());
+			registerInterceptor(narrativeInterceptor);
 		}
+		registerInterceptor(pagedSearches);
+		registerInterceptor(new FieldMaskInterceptor(getFhirContext(), pagedSearches));
+		registerInterceptor(new IncludeInterceptor(getFhirContext(), pagedSearches));
 		ResponseHighlighterInterceptor responseHighlighter = new ResponseHighlighterInterceptor();
 		registerInterceptor(responseHighlighter);
 		LoggingInterceptor loggingInterceptor = new LoggingInterceptor();
@@ -95,6 +121,15 @@ public class FHIRRESTServer extends RestfulServer {
 		provider.setRestfulServer(this);
 	}
 
+	@Override
+	public void destroy() {
+		if (narrativeInterceptor != null) {
+			narrativeInterceptor.shutdown();
+			log.info("FHIR narratives: " + NarrativeMetrics.getSummary());
+		}
+		super.destroy();
+	}
+
 	protected String getRequestPath(String requestFullPath, String servletContextPath, String servletPath) {
 		return requestFullPath.substring(escapedLength(servletContextPath) + escapedLength(servletPath) + escapedLength(
 				MODULE_SERVELET_PREFIX));
@@ -0,0 +1,155 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeDeclaredChildDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.openmrs.module.fhir.api.util.FHIRFieldMask;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binds a {@link FHIRFieldMask} to the request thread for reads, searches and their following pages which use
+ * `_summary` or `_elements`, so that the mappers do not load the elements which are dropped from the response. HAPI
+ * still filters the encoded response, the mask only saves the work of building what would be thrown away.
+ */
+public class FieldMaskInterceptor extends InterceptorAdapter {
+
+	private static final String ID_ELEMENT = "id";
+
+	private static final String META_ELEMENT = "meta";
+
+	private static final String TEXT_ELEMENT = "text";
+
+	private final FhirContext fhirContext;
+
+	private final PagedSearchInterceptor pagedSearches;
+
+	public FieldMaskInterceptor(FhirContext fhirContext, PagedSearchInterceptor pagedSearches) {
+		this.fhirContext = fhirContext;
+		this.pagedSearches = pagedSearches;
+	}
+
+	@Override
+	public boolean incomingRequestPostProcessed(RequestDetails theRequestDetails, HttpServletRequest theRequest,
+	                                            HttpServletResponse theResponse) {
+		// Set even without a mask, a pooled request thread must not keep the mask of the previous request
+		FHIRFieldMask.setCurrent(createMask(theRequestDetails));
+		return true;
+	}
+
+	@Override
+	public void processingCompletedNormally(ServletRequestDetails theRequestDetails) {
+		FHIRFieldMask.clearCurrent();
+	}
+
+	@Override
+	public boolean handleException(RequestDetails theRequestDetails, BaseServerResponseException theException,
+	                               HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) {
+		FHIRFieldMask.clearCurrent();
+		return true;
+	}
+
+	/**
+	 * @return mask of the elements returned by the request, or null if complete resources are returned
+	 */
+	FHIRFieldMask createMask(RequestDetails requestDetails) {
+		RestOperationTypeEnum operation = requestDetails.getRestOperationType();
+		if (operation != RestOperationTypeEnum.READ && operation != RestOperationTypeEnum.VREAD
+				&& operation != RestOperationTypeEnum.SEARCH_TYPE && operation != RestOperationTypeEnum.GET_PAGE) {
+			return null;
+		}
+		// Page requests are masked like the search they belong to
+		Map<String, String[]> parameters = pagedSearches.getParameters(requestDetails);
+		String resourceName = pagedSearches.getResourceName(requestDetails);
+		if (parameters == null || resourceName == null) {
+			return null;
+		}
+		RuntimeResourceDefinition definition;
+		try {
+			definition = fhirContext.getResourceDefinition(resourceName);
+		}
+		catch (DataFormatException e) {
+			return null;
+		}
+
+		String[] summary = parameters.get(Constants.PARAM_SUMMARY);
+		if (summary != null && summary.length > 0) {
+			SummaryEnum summaryMode = SummaryEnum.fromCode(summary[0]);
+			if (summaryMode == SummaryEnum.TRUE) {
+				return new FHIRFieldMask(definition.getName(), getElements(definition, true));
+			} else if (summaryMode == SummaryEnum.TEXT) {
+				Set<String> elements = getElements(definition, false);
+				elements.add(TEXT_ELEMENT);
+				elements.add(META_ELEMENT);
+				return new FHIRFieldMask(definition.getName(), elements);
+			} else if (summaryMode == SummaryEnum.COUNT) {
+				Set<String> elements = new HashSet<String>();
+				elements.add(ID_ELEMENT);
+				return new FHIRFieldMask(definition.getName(), elements);
+			}
+			return null;
+		}
+
+		String[] elementsParam = parameters.get(Constants.PARAM_ELEMENTS);
+		if (elementsParam != null) {
+			Set<String> elements = getElements(definition, false);
+			for (String value : elementsParam) {
+				for (String element : value.split(",")) {
+					element = element.trim();
+					// Both `address` and `Patient.address` are accepted, only the top level element matters
+					if (element.startsWith(definition.getName() + ".")) {
+						element = element.substring(definition.getName().length() + 1);
+					}
+					int dot = element.indexOf('.');
+					elements.add(dot > 0 ? element.substring(0, dot) : element);
+				}
+			}
+			return new FHIRFieldMask(definition.getName(), elements);
+		}
+		return null;
+	}
+
+	/**
+	 * @param includeSummary whether to include the summary elements as well
+	 * @return the id, the mandatory elements and optionally the summary elements of the resource type
+	 */
+	private Set<String> getElements(RuntimeResourceDefinition definition, boolean includeSummary) {
+		Set<String> elements = new HashSet<String>();
+		elements.add(ID_ELEMENT);
+		for (BaseRuntimeChildDefinition child : definition.getChildren()) {
+			if (child.getMin() > 0) {
+				elements.add(child.getElementName());
+			} else if (includeSummary && child instanceof BaseRuntimeDeclaredChildDefinition
+					&& ((BaseRuntimeDeclaredChildDefinition) child).isSummary()) {
+				elements.add(child.getElementName());
+			}
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.util.FhirTerser;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Reference;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.AllergyIntoleranceService;
+import org.openmrs.module.fhir.api.ConditionService;
+import org.openmrs.module.fhir.api.EncounterService;
+import org.openmrs.module.fhir.api.FamilyMemberHistoryService;
+import org.openmrs.module.fhir.api.LocationService;
+import org.openmrs.module.fhir.api.MedicationRequestService;
+import org.openmrs.module.fhir.api.ObsService;
+import org.openmrs.module.fhir.api.PatientService;
+import org.openmrs.module.fhir.api.PersonService;
+import org.openmrs.module.fhir.api.PractitionerService;
+import org.openmrs.module.fhir.api.search.AllergySearchCriteria;
+import org.openmrs.module.fhir.api.search.DrugOrderSearchCriteria;
+import org.openmrs.module.fhir.api.search.ObsSearchCriteria;
+import org.openmrs.module.fhir.api.util.FHIRConstants;
+import org.openmrs.module.fhir.api.util.FHIRFieldMask;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves `_include` and `_revinclude` for searches, so that clients get the related resources of a page in the same
+ * round trip. The mappers only emit references, the referenced resources are generated here once per page and added
+ * to the bundle with the `include` search mode.
+ * <p>
+ * `_include` follows the reference search parameters of the searched resource type, e.g.
+ * `Observation:subject` or `Encounter:location:Location`. `_revinclude` is supported on patient searches through the
+ * patient or subject parameter of the resources which are looked up by patient: Observation, Condition,
+ * AllergyIntolerance, MedicationRequest and FamilyMemberHistory. At most {@link #MAX_REVINCLUDED} resources are
+ * reverse included per `_revinclude` value and page, the most recent first where the search orders them.
+ */
+public class IncludeInterceptor extends InterceptorAdapter {
+
+	private static final Log log = LogFactory.getLog(IncludeInterceptor.class);
+
+	private static final String ALL_PARAMETERS = "*";
+
+	/**
+	 * Search parameters through which resources refer to the patients they belong to
+	 */
+	private static final Set<String> PATIENT_PARAMETERS = new HashSet<String>(Arrays.asList("patient", "subject"));
+
+	static final int MAX_REVINCLUDED = FHIRConstants.MAX_PAGE_SIZE;
+
+	private final FhirContext fhirContext;
+
+	private final PagedSearchInterceptor pagedSearches;
+
+	public IncludeInterceptor(FhirContext fhirContext, PagedSearchInterceptor pagedSearches) {
+		this.fhirContext = fhirContext;
+		this.pagedSearches = pagedSearches;
+	}
+
+	@Override
+	public boolean outgoingResponse(RequestDetails theRequestDetails, IBaseResource theResponseObject,
+	                                HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) {
+		// Page requests include the resources asked for by the search they belong to
+		Map<String, String[]> parameters = pagedSearches.getParameters(theRequestDetails);
+		if (!(theResponseObject instanceof Bundle) || parameters == null) {
+			return true;
+		}
+		String[] includes = parameters.get(Constants.PARAM_INCLUDE);
+		String[] revIncludes = parameters.get(Constants.PARAM_REVINCLUDE);
+		if (includes == null && revIncludes == null) {
+			return true;
+		}
+
+		// The matches are generated already, included resources are always complete
+		FHIRFieldMask.clearCurrent();
+		Bundle bundle = (Bundle) theResponseObject;
+		List<Resource> matches = new ArrayList<Resource>();
+		Set<String> present = new HashSet<String>();
+		for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+			if (entry.getResource() != null) {
+				matches.add(entry.getResource());
+				present.add(getKey(entry.getResource()));
+			}
+		}
+
+		List<Resource> included = new ArrayList<Resource>();
+		if (includes != null) {
+			for (String include : includes) {
+				included.addAll(resolveInclude(include, matches));
+			}
+		}
+		if (revIncludes != null) {
+			for (String revInclude : revIncludes) {
+				included.addAll(resolveRevInclude(revInclude, matches));
+			}
+		}
+
+		for (Resource resource : included) {
+			if (present.add(getKey(resource))) {
+				bundle.addEntry()
+						.setFullUrl(theRequestDetails.getFhirServerBase() + "/" + getKey(resource))
+						.setResource(resource)
+						.getSearch().setMode(Bundle.SearchEntryMode.INCLUDE);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param include value of `_include`, SourceType:searchParameter[:TargetType]
+	 * @param matches resources matched by the search
+	 * @return resources referenced by the matches through the search parameter
+	 */
+	private List<Resource> resolveInclude(String include, List<Resource> matches) {
+		String[] parts = include.split(":");
+		if (parts.length < 2 || ALL_PARAMETERS.equals(parts[1])) {
+			return Collections.emptyList();
+		}
+		String targetType = parts.length > 2 ? parts[2] : null;
+		List<String> paths = getReferencePaths(parts[0], parts[1]);
+		if (paths.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		FhirTerser terser = fhirContext.newTerser();
+		Set<String> references = new HashSet<String>();
+		List<Resource> resources = new ArrayList<Resource>();
+		for (Resource match : matches) {
+			if (!parts[0].equals(match.fhirType())) {
+				continue;
+			}
+			for (String path : paths) {
+				for (Object value : terser.getValues(match, path)) {
+					if (!(value instanceof Reference)) {
+						continue;
+					}
+					IIdType id = ((Reference) value).getReferenceElement();
+					if (id == null || !id.hasResourceType() || !id.hasIdPart()
+							|| (targetType != null && !targetType.equals(id.getResourceType()))
+							|| !references.add(id.getResourceType() + "/" + id.getIdPart())) {
+						continue;
+					}
+					Resource resource = getResource(id.getResourceType(), id.getIdPart());
+					if (resource != null) {
+						resources.add(resource);
+					}
+				}
+			}
+		}
+		return resources;
+	}
+
+	/**
+	 * @param revInclude value of `_revinclude`, SourceType:searchParameter[:Patient]
+	 * @param matches    resources matched by the search
+	 * @return at most {@link #MAX_REVINCLUDED} resources of the source type which refer to the matched patients
+	 */
+	private List<Resource> resolveRevInclude(String revInclude, List<Resource> matches) {
+		String[] parts = revInclude.split(":");
+		// The resources are looked up by patient, so only the parameter referring to the patient can be followed
+		if (parts.length < 2 || !PATIENT_PARAMETERS.contains(parts[1])
+				|| (parts.length > 2 && !FHIRConstants.PATIENT.equals(parts[2]))
+				|| getReferencePaths(parts[0], parts[1]).isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Resource> resources = new ArrayList<Resource>();
+		for (Resource match : matches) {
+			if (resources.size() >= MAX_REVINCLUDED) {
+				log.debug("Reverse included " + MAX_REVINCLUDED + " " + parts[0] + " resources, skipping the rest");
+				break;
+			}
+			if (FHIRConstants.PATIENT.equals(match.fhirType())) {
+				resources.addAll(getPatientResources(parts[0], match.getIdElement().getIdPart(),
+						MAX_REVINCLUDED - resources.size()));
+			}
+		}
+		return resources;
+	}
+
+	/**
+	 * @return FHIRPath expressions of the reference search parameter, without the type filters
+	 */
+	private List<String> getReferencePaths(String resourceType, String searchParameter) {
+		RuntimeResourceDefinition definition;
+		try {
+			definition = fhirContext.getResourceDefinition(resourceType);
+		}
+		catch (DataFormatException e) {
+			return Collections.emptyList();
+		}
+		RuntimeSearchParam param = definition.getSearchParam(searchParameter);
+		if (param == null || param.getParamType() != RestSearchParameterTypeEnum.REFERENCE || param.getPath() == null) {
+			return Collections.emptyList();
+		}
+		List<String> paths = new ArrayList<String>();
+		for (String path : param.getPath().split("\\|")) {
+			path = path.trim();
+			int function = path.indexOf(".where(");
+			if (function > 0) {
+				path = path.substring(0, function);
+			}
+			if (path.startsWith(resourceType + ".")) {
+				paths.add(path);
+			}
+		}
+		return paths;
+	}
+
+	private Resource getResource(String resourceType, String id) {
+		try {
+			if (FHIRConstants.PATIENT.equals(resourceType)) {
+				return Context.getService(PatientService.class).getPatient(id);
+			} else if (FHIRConstants.PRACTITIONER.equals(resourceType)) {
+				return Context.getService(PractitionerService.class).getPractitioner(id);
+			} else if (FHIRConstants.LOCATION.equals(resourceType)) {
+				return Context.getService(LocationService.class).getLocation(id);
+			} else if (FHIRConstants.ENCOUNTER.equals(resourceType)) {
+				return Context.getService(EncounterService.class).getEncounter(id);
+			} else if ("Person".equals(resourceType)) {
+				return Context.getService(PersonService.class).getPerson(id);
+			} else if (FHIRConstants.OBSERVATION.equals(resourceType)) {
+				return Context.getService(ObsService.class).getObs(id);
+			}
+		}
+		catch (ResourceNotFoundException e) {
+			log.debug("Included " + resourceType + "/" + id + " does not exist");
+		}
+		return null;
+	}
+
+	/**
+	 * @param maxResults maximum number of resources to load
+	 */
+	private List<? extends Resource> getPatientResources(String resourceType, String patientUuid, int maxResults) {
+		List<? extends Resource> resources = null;
+		if (FHIRConstants.OBSERVATION.equals(resourceType)) {
+			ObsSearchCriteria criteria = new ObsSearchCriteria();
+			criteria.setPatient(patientUuid);
+			resources = Context.getService(ObsService.class).searchObs(criteria, 0, maxResults);
+		} else if ("Condition".equals(resourceType)) {
+			ObsSearchCriteria criteria = new ObsSearchCriteria();
+			criteria.setPatient(patientUuid);
+			resources = Context.getService(ConditionService.class).searchObsConditions(criteria, 0, maxResults);
+		} else if ("AllergyIntolerance".equals(resourceType)) {
+			AllergySearchCriteria criteria = new AllergySearchCriteria();
+			criteria.setPatient(patientUuid);
+			resources = Context.getService(AllergyIntoleranceService.class).searchAllergies(criteria, 0, maxResults);
+		} else if ("MedicationRequest".equals(resourceType)) {
+			DrugOrderSearchCriteria criteria = new DrugOrderSearchCriteria();
+			criteria.setPatient(patientUuid);
+			criteria.setVoided(null);
+			resources = Context.getService(MedicationRequestService.class).searchMedicationRequests(criteria, 0,
+					maxResults);
+		} else if ("FamilyMemberHistory".equals(resourceType)) {
+			// Relationships are not paged by the service, a person only has a few of them
+			resources = Context.getService(FamilyMemberHistoryService.class).searchFamilyHistoryByPersonId(patientUuid);
+			if (resources != null && resources.size() > maxResults) {
+				resources = resources.subList(0, maxResults);
+			}
+		}
+		return resources == null ? Collections.<Resource>emptyList() : resources;
+	}
+
+	private String getKey(Resource resource) {
+		return resource.fhirType() + "/" + resource.getIdElement().getIdPart();
+	}
+}
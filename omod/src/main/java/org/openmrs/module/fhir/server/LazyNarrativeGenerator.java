@@ -0,0 +1,72 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.narrative.CustomThymeleafNarrativeGenerator;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.INarrative;
+
+/**
+ * Custom narrative generator which only renders narratives when the current request asks for them. The parsers call
+ * the generator for every resource they encode, {@link NarrativeInterceptor} tells it which requests, such as
+ * `_summary=data` or `_elements` searches, do not return the narrative.
+ * <p>
+ * A single instance is installed on the FHIR context, so the templates are read and parsed once by its Thymeleaf
+ * engine and reused by all the requests. The render time is recorded in {@link NarrativeMetrics}.
+ */
+public class LazyNarrativeGenerator extends CustomThymeleafNarrativeGenerator {
+
+	private static final ThreadLocal<Boolean> suppressed = new ThreadLocal<Boolean>();
+
+	public LazyNarrativeGenerator(String... propertyFiles) {
+		super(propertyFiles);
+	}
+
+	/**
+	 * @param suppress true if the narratives of the resources encoded by the current thread are not returned
+	 */
+	static void setSuppressed(boolean suppress) {
+		suppressed.set(suppress);
+	}
+
+	static void clearSuppressed() {
+		suppressed.remove();
+	}
+
+	static boolean isSuppressed() {
+		return Boolean.TRUE.equals(suppressed.get());
+	}
+
+	@Override
+	public void generateNarrative(FhirContext context, IBaseResource resource, INarrative narrative) {
+		if (isSuppressed()) {
+			NarrativeMetrics.recordSkipped();
+			return;
+		}
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			super.generateNarrative(context, resource, narrative);
+			success = true;
+		}
+		finally {
+			if (success) {
+				NarrativeMetrics.recordRendered(System.nanoTime() - start);
+			} else {
+				NarrativeMetrics.recordFailure(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.SummaryEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.exceptions.BaseServerResponseException;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.DomainResource;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the {@link LazyNarrativeGenerator}: narratives are not rendered for requests which do not return them,
+ * `_summary=data`, `_summary=count`, `_summary=true` and `_elements` without `text`. Page requests are treated like the
+ * search they belong to.
+ * <p>
+ * When more than one render thread is configured, the narratives of a bundle of at least
+ * {@link #PARALLEL_RENDER_MIN_ENTRIES} resources are rendered concurrently before the bundle is encoded. The parser
+ * then finds them filled and does not render them again.
+ */
+public class NarrativeInterceptor extends InterceptorAdapter {
+
+	private static final Log log = LogFactory.getLog(NarrativeInterceptor.class);
+
+	/**
+	 * Smaller bundles are rendered on the request thread, the hand off would cost more than it saves
+	 */
+	public static final int PARALLEL_RENDER_MIN_ENTRIES = 20;
+
+	private static final String TEXT_ELEMENT = "text";
+
+	private final FhirContext fhirContext;
+
+	private final LazyNarrativeGenerator generator;
+
+	private final PagedSearchInterceptor pagedSearches;
+
+	private final ExecutorService renderExecutor;
+
+	public NarrativeInterceptor(FhirContext fhirContext, LazyNarrativeGenerator generator,
+	                            PagedSearchInterceptor pagedSearches, int renderThreads) {
+		this.fhirContext = fhirContext;
+		this.generator = generator;
+		this.pagedSearches = pagedSearches;
+		if (renderThreads > 1) {
+			renderExecutor = Executors.newFixedThreadPool(renderThreads, new ThreadFactory() {
+
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "fhir-narrative-render-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		} else {
+			renderExecutor = null;
+		}
+	}
+
+	@Override
+	public boolean incomingRequestPostProcessed(RequestDetails theRequestDetails, HttpServletRequest theRequest,
+	                                            HttpServletResponse theResponse) {
+		LazyNarrativeGenerator.setSuppressed(!isNarrativeReturned(theRequestDetails));
+		return true;
+	}
+
+	@Override
+	public boolean outgoingResponse(RequestDetails theRequestDetails, IBaseResource theResponseObject,
+	                                HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) {
+		if (renderExecutor != null && !LazyNarrativeGenerator.isSuppressed() && theResponseObject instanceof Bundle
+				&& ((Bundle) theResponseObject).getEntry().size() >= PARALLEL_RENDER_MIN_ENTRIES) {
+			renderConcurrently((Bundle) theResponseObject);
+		}
+		return true;
+	}
+
+	@Override
+	public void processingCompletedNormally(ServletRequestDetails theRequestDetails) {
+		LazyNarrativeGenerator.clearSuppressed();
+	}
+
+	@Override
+	public boolean handleException(RequestDetails theRequestDetails, BaseServerResponseException theException,
+	                               HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) {
+		LazyNarrativeGenerator.clearSuppressed();
+		return true;
+	}
+
+	/**
+	 * Stops the render threads. Called when the FHIR servlet is destroyed.
+	 */
+	public void shutdown() {
+		if (renderExecutor != null) {
+			renderExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * @return false if the narrative is left out of the response by the `_summary` or `_elements` parameters
+	 */
+	boolean isNarrativeReturned(RequestDetails requestDetails) {
+		// Page requests only carry the search id, their parameters are those of the original search
+		Map<String, String[]> parameters = pagedSearches.getParameters(requestDetails);
+		if (parameters == null) {
+			return true;
+		}
+		String[] summary = parameters.get(Constants.PARAM_SUMMARY);
+		if (summary != null) {
+			for (String value : summary) {
+				if (SummaryEnum.DATA.getCode().equalsIgnoreCase(value)
+						|| SummaryEnum.COUNT.getCode().equalsIgnoreCase(value)
+						|| SummaryEnum.TRUE.getCode().equalsIgnoreCase(value)) {
+					return false;
+				}
+			}
+		}
+		String[] elements = parameters.get(Constants.PARAM_ELEMENTS);
+		if (elements != null) {
+			for (String value : elements) {
+				for (String element : value.split(",")) {
+					if (TEXT_ELEMENT.equals(element.trim())) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		return true;
+	}
+
+	private void renderConcurrently(Bundle bundle) {
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+			Resource resource = entry.getResource();
+			if (!(resource instanceof DomainResource) || !((DomainResource) resource).getText().isEmpty()) {
+				continue;
+			}
+			final DomainResource domainResource = (DomainResource) resource;
+			futures.add(renderExecutor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					generator.generateNarrative(fhirContext, domainResource, domainResource.getText());
+				}
+			}));
+		}
+		try {
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e) {
+			// The parser renders the narratives which are still empty on the request thread
+			log.warn("Failed to render narratives concurrently", e.getCause());
+		}
+		finally {
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
+}
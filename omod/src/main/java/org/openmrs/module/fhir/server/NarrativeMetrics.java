@@ -0,0 +1,87 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Time spent rendering custom narratives, accumulated since the FHIR servlet was started. It is kept apart from the
+ * request times, so that slow templates can be told from slow queries.
+ */
+public class NarrativeMetrics {
+
+	private static final AtomicLong rendered = new AtomicLong();
+
+	private static final AtomicLong skipped = new AtomicLong();
+
+	private static final AtomicLong failed = new AtomicLong();
+
+	private static final AtomicLong renderNanos = new AtomicLong();
+
+	private NarrativeMetrics() {
+	}
+
+	static void recordRendered(long nanos) {
+		rendered.incrementAndGet();
+		renderNanos.addAndGet(nanos);
+	}
+
+	static void recordSkipped() {
+		skipped.incrementAndGet();
+	}
+
+	static void recordFailure(long nanos) {
+		failed.incrementAndGet();
+		renderNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * @return number of narratives rendered
+	 */
+	public static long getRendered() {
+		return rendered.get();
+	}
+
+	/**
+	 * @return number of narratives which were not rendered because the request did not ask for them
+	 */
+	public static long getSkipped() {
+		return skipped.get();
+	}
+
+	public static long getFailed() {
+		return failed.get();
+	}
+
+	public static long getRenderMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(renderNanos.get());
+	}
+
+	/**
+	 * @return average render time of a narrative in milliseconds
+	 */
+	public static double getAverageRenderMillis() {
+		long count = rendered.get() + failed.get();
+		if (count == 0) {
+			return 0;
+		}
+		return renderNanos.get() / 1000000.0 / count;
+	}
+
+	public static String getSummary() {
+		return "rendered=" + getRendered() + ", skipped=" + getSkipped() + ", failed=" + getFailed() + ", renderMillis="
+				+ getRenderMillis() + ", averageRenderMillis=" + getAverageRenderMillis();
+	}
+}
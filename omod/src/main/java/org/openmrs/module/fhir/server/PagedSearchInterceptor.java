@@ -0,0 +1,124 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.rest.server.interceptor.InterceptorAdapter;
+import ca.uhn.fhir.util.UrlUtil;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the resource type and the `_include`, `_revinclude`, `_summary` and `_elements` parameters of the searches
+ * which have a next page. Page requests only carry the id of the search in `_getpages`, the include, field mask and
+ * narrative interceptors look the parameters of the original search up here so that every page is returned the same
+ * way.
+ */
+public class PagedSearchInterceptor extends InterceptorAdapter {
+
+	private static final String[] CARRIED_PARAMETERS = { Constants.PARAM_INCLUDE, Constants.PARAM_REVINCLUDE,
+			Constants.PARAM_SUMMARY, Constants.PARAM_ELEMENTS };
+
+	private final Map<String, PagedSearch> searches;
+
+	/**
+	 * @param maxSearches number of searches to remember, the paging provider does not keep more either
+	 */
+	public PagedSearchInterceptor(final int maxSearches) {
+		searches = Collections.synchronizedMap(new LinkedHashMap<String, PagedSearch>() {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PagedSearch> eldest) {
+				return size() > maxSearches;
+			}
+		});
+	}
+
+	@Override
+	public boolean outgoingResponse(RequestDetails theRequestDetails, IBaseResource theResponseObject,
+	                                HttpServletRequest theServletRequest, HttpServletResponse theServletResponse) {
+		if (theRequestDetails.getRestOperationType() != RestOperationTypeEnum.SEARCH_TYPE
+				|| !(theResponseObject instanceof Bundle) || theRequestDetails.getParameters() == null) {
+			return true;
+		}
+		Bundle.BundleLinkComponent next = ((Bundle) theResponseObject).getLink(Bundle.LINK_NEXT);
+		String searchId = next == null ? null : getSearchId(next.getUrl());
+		if (searchId != null) {
+			Map<String, String[]> parameters = new HashMap<String, String[]>();
+			for (String name : CARRIED_PARAMETERS) {
+				String[] values = theRequestDetails.getParameters().get(name);
+				if (values != null) {
+					parameters.put(name, values);
+				}
+			}
+			searches.put(searchId, new PagedSearch(theRequestDetails.getResourceName(), parameters));
+		}
+		return true;
+	}
+
+	/**
+	 * @return the resource type of the request, or of the original search for a page request
+	 */
+	public String getResourceName(RequestDetails requestDetails) {
+		PagedSearch search = getPagedSearch(requestDetails);
+		return search != null ? search.resourceName : requestDetails.getResourceName();
+	}
+
+	/**
+	 * @return the parameters of the request, or the carried parameters of the original search for a page request
+	 */
+	public Map<String, String[]> getParameters(RequestDetails requestDetails) {
+		PagedSearch search = getPagedSearch(requestDetails);
+		return search != null ? search.parameters : requestDetails.getParameters();
+	}
+
+	private PagedSearch getPagedSearch(RequestDetails requestDetails) {
+		if (requestDetails.getRestOperationType() != RestOperationTypeEnum.GET_PAGE
+				|| requestDetails.getParameters() == null) {
+			return null;
+		}
+		String[] searchId = requestDetails.getParameters().get(Constants.PARAM_PAGINGACTION);
+		return searchId != null && searchId.length > 0 ? searches.get(searchId[0]) : null;
+	}
+
+	private String getSearchId(String url) {
+		int query = url == null ? -1 : url.indexOf('?');
+		if (query < 0) {
+			return null;
+		}
+		String[] searchId = UrlUtil.parseQueryString(url.substring(query + 1)).get(Constants.PARAM_PAGINGACTION);
+		return searchId != null && searchId.length > 0 ? searchId[0] : null;
+	}
+
+	private static class PagedSearch {
+
+		private final String resourceName;
+
+		private final Map<String, String[]> parameters;
+
+		private PagedSearch(String resourceName, Map<String, String[]> parameters) {
+			this.resourceName = resourceName;
+			this.parameters = Collections.unmodifiableMap(parameters);
+		}
+	}
+}
@@ -20,4 +20,6 @@ public class FHIROmodConstants {
 	public static final String OPENMRS_FHIR_SERVER_DES = "OpenMRS FHIR Resources";
 	public static final String OPENMRS_FHIR_SWAGGER_SHORT_PATH = "/module/fhir/rest/swagger.json";
 	public static final String OPENMRS_FHIR_SWAGGER_ORG_PATH = "/ms/fhir/fhirDocServelet";
+	public static final String PHONETIC_MODIFIER = ":phonetic";
+	public static final String FUZZY_MODIFIER = ":fuzzy";
 }
@@ -0,0 +1,79 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.util;
+
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.hl7.fhir.dstu3.model.InstantType;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Search results which are counted and fetched a page at a time from the database, instead of being loaded at once.
+ * The server keeps the provider between page requests, so implementations must not hold on to Hibernate sessions.
+ */
+public abstract class PagedBundleProvider implements IBundleProvider {
+
+	private final InstantType published = InstantType.withCurrentTime();
+
+	private Integer size;
+
+	/**
+	 * @return total number of matching resources
+	 */
+	protected abstract long count();
+
+	/**
+	 * @param firstResult index of the first resource, starting at 0
+	 * @param maxResults  maximum number of resources
+	 * @return one page of the matching resources
+	 */
+	protected abstract List<? extends IBaseResource> fetch(int firstResult, int maxResults);
+
+	@Override
+	public IPrimitiveType<Date> getPublished() {
+		return published;
+	}
+
+	@Override
+	public List<IBaseResource> getResources(int theFromIndex, int theToIndex) {
+		List<IBaseResource> resources = new ArrayList<IBaseResource>();
+		if (theToIndex > theFromIndex) {
+			resources.addAll(fetch(theFromIndex, theToIndex - theFromIndex));
+		}
+		return resources;
+	}
+
+	@Override
+	public String getUuid() {
+		return null;
+	}
+
+	@Override
+	public Integer preferredPageSize() {
+		// The page size of the server's paging provider is used
+		return null;
+	}
+
+	@Override
+	public Integer size() {
+		if (size == null) {
+			size = (int) Math.min(count(), Integer.MAX_VALUE);
+		}
+		return size;
+	}
+}
@@ -16,6 +16,8 @@ package org.openmrs.module.fhir.web.controller;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.cache.FHIRLocationIndex;
+import org.openmrs.module.fhir.api.cache.FHIRResourceCache;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -32,5 +34,7 @@ public class FHIRManageController {
 	@RequestMapping(value = "/module/fhir/manage", method = RequestMethod.GET)
 	public void manage(ModelMap model) {
 		model.addAttribute("user", Context.getAuthenticatedUser());
+		model.addAttribute("resourceCache", FHIRResourceCache.getInstance());
+		model.addAttribute("locationIndex", FHIRLocationIndex.getInstance());
 	}
 }
@@ -19,4 +19,15 @@
 
 <p>Hello ${user.systemId}!</p>
 
+<h3>Resource cache</h3>
+<table>
+    <tr><td>Cached resources</td><td>${resourceCache.size}</td></tr>
+    <tr><td>Size (bytes)</td><td>${resourceCache.sizeInBytes} / ${resourceCache.maxSizeInBytes}</td></tr>
+    <tr><td>Hit ratio</td><td><fmt:formatNumber value="${resourceCache.hitRatio}" type="percent"/></td></tr>
+    <tr><td>Hits / misses</td><td>${resourceCache.hits} / ${resourceCache.misses}</td></tr>
+    <tr><td>Evictions</td><td>${resourceCache.evictions}</td></tr>
+    <tr><td>Invalidations</td><td>${resourceCache.invalidations}</td></tr>
+    <tr><td>Indexed locations</td><td>${locationIndex.size()}</td></tr>
+</table>
+
 <%@ include file="/WEB-INF/template/footer.jsp" %>
@@ -0,0 +1,161 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.junit.Test;
+import org.openmrs.module.fhir.api.util.FHIRFieldMask;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FieldMaskInterceptorTest {
+
+	private static final String SEARCH_ID = "8a7c4b9e-paged";
+
+	private final FhirContext fhirContext = FhirContext.forDstu3();
+
+	private final PagedSearchInterceptor pagedSearches = new PagedSearchInterceptor(10);
+
+	private final FieldMaskInterceptor interceptor = new FieldMaskInterceptor(fhirContext, pagedSearches);
+
+	@Test
+	public void createMask_shouldKeepTheSummaryElementsForSummaryTrue() {
+		FHIRFieldMask mask = interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "true"));
+
+		assertEquals("Patient", mask.getResourceType());
+		assertTrue(mask.getElements().contains("id"));
+		assertTrue(mask.getElements().contains("name"));
+		assertTrue(mask.getElements().contains("birthDate"));
+		assertFalse(mask.getElements().contains("photo"));
+		assertFalse(mask.getElements().contains("text"));
+	}
+
+	@Test
+	public void createMask_shouldKeepTheTextAndMandatoryElementsForSummaryText() {
+		FHIRFieldMask mask = interceptor.createMask(newRequest(RestOperationTypeEnum.READ, "Observation",
+				Constants.PARAM_SUMMARY, "text"));
+
+		assertTrue(mask.getElements().contains("id"));
+		assertTrue(mask.getElements().contains("text"));
+		assertTrue(mask.getElements().contains("meta"));
+		assertTrue(mask.getElements().contains("status"));
+		assertTrue(mask.getElements().contains("code"));
+		assertFalse(mask.getElements().contains("subject"));
+	}
+
+	@Test
+	public void createMask_shouldOnlyKeepTheIdForSummaryCount() {
+		FHIRFieldMask mask = interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "count"));
+
+		assertEquals(Collections.singleton("id"), mask.getElements());
+	}
+
+	@Test
+	public void createMask_shouldNotMaskForSummaryFalse() {
+		assertNull(interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "false")));
+	}
+
+	@Test
+	public void createMask_shouldKeepTheTopLevelElementsOfElements() {
+		FHIRFieldMask mask = interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_ELEMENTS, "name, Patient.birthDate,address.city"));
+
+		assertTrue(mask.getElements().contains("id"));
+		assertTrue(mask.getElements().contains("name"));
+		assertTrue(mask.getElements().contains("birthDate"));
+		assertTrue(mask.getElements().contains("address"));
+		assertFalse(mask.getElements().contains("telecom"));
+		assertFalse(mask.getElements().contains("address.city"));
+	}
+
+	@Test
+	public void createMask_shouldNotMaskWithoutSummaryOrElements() {
+		assertNull(interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient", null, null)));
+	}
+
+	@Test
+	public void createMask_shouldNotMaskOtherOperationsOrUnknownTypes() {
+		assertNull(interceptor.createMask(newRequest(RestOperationTypeEnum.CREATE, "Patient",
+				Constants.PARAM_SUMMARY, "true")));
+		assertNull(interceptor.createMask(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "NotAResource",
+				Constants.PARAM_SUMMARY, "true")));
+	}
+
+	@Test
+	public void createMask_shouldMaskPageRequestsLikeTheirSearch() {
+		ServletRequestDetails search = newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_ELEMENTS, "name");
+		Bundle bundle = new Bundle();
+		bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl("http://localhost/ws/fhir?"
+				+ Constants.PARAM_PAGINGACTION + "=" + SEARCH_ID + "&_getpagesoffset=50&_count=50");
+		pagedSearches.outgoingResponse(search, bundle, null, null);
+
+		ServletRequestDetails page = newRequest(RestOperationTypeEnum.GET_PAGE, null,
+				Constants.PARAM_PAGINGACTION, SEARCH_ID);
+		FHIRFieldMask mask = interceptor.createMask(page);
+
+		assertEquals("Patient", mask.getResourceType());
+		assertTrue(mask.getElements().contains("name"));
+		assertFalse(mask.getElements().contains("address"));
+	}
+
+	@Test
+	public void createMask_shouldNotMaskPageRequestsOfUnknownSearches() {
+		assertNull(interceptor.createMask(newRequest(RestOperationTypeEnum.GET_PAGE, null,
+				Constants.PARAM_PAGINGACTION, "unknown")));
+	}
+
+	@Test
+	public void incomingRequestPostProcessed_shouldReplaceTheMaskOfThePreviousRequest() {
+		try {
+			interceptor.incomingRequestPostProcessed(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+					Constants.PARAM_SUMMARY, "count"), null, null);
+			assertFalse(FHIRFieldMask.isRequested("Patient", "name"));
+
+			interceptor.incomingRequestPostProcessed(newRequest(RestOperationTypeEnum.READ, "Patient", null, null),
+					null, null);
+			assertTrue(FHIRFieldMask.isRequested("Patient", "name"));
+		}
+		finally {
+			FHIRFieldMask.clearCurrent();
+		}
+	}
+
+	private ServletRequestDetails newRequest(RestOperationTypeEnum operation, String resourceName, String parameter,
+	                                         String value) {
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(operation);
+		request.setResourceName(resourceName);
+		Map<String, String[]> parameters = new HashMap<String, String[]>();
+		if (parameter != null) {
+			parameters.put(parameter, new String[] { value });
+		}
+		request.setParameters(parameters);
+		return request;
+	}
+}
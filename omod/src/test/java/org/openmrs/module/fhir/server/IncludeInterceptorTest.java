@@ -0,0 +1,251 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.annotation.IncludeParam;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.DiagnosticReport;
+import org.hl7.fhir.dstu3.model.Observation;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.dstu3.model.Resource;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.fhir.api.ObsService;
+import org.openmrs.module.fhir.api.PatientService;
+import org.openmrs.module.fhir.providers.RestfulDiagnosticReportResourceProvider;
+import org.openmrs.web.test.BaseModuleWebContextSensitiveTest;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IncludeInterceptorTest extends BaseModuleWebContextSensitiveTest {
+
+	private static final String OBS_INITIAL_DATA_XML = "org/openmrs/api/include/ObsServiceTest-initial.xml";
+
+	private static final String PATIENT_UUID = "da7f524f-27ce-4bb2-86d6-6d1d05312bd5";
+
+	private static final String SERVER_BASE = "http://localhost/openmrs/ws/fhir";
+
+	private static final String SEARCH_ID = "3f1c2a7d-paged";
+
+	private PagedSearchInterceptor pagedSearches;
+
+	private IncludeInterceptor interceptor;
+
+	private List<Observation> observations;
+
+	@Before
+	public void runBeforeEachTest() throws Exception {
+		executeDataSet(OBS_INITIAL_DATA_XML);
+		pagedSearches = new PagedSearchInterceptor(10);
+		interceptor = new IncludeInterceptor(FhirContext.forDstu3(), pagedSearches);
+		observations = Context.getService(ObsService.class).searchObsByPerson(PATIENT_UUID);
+		assertTrue(observations.size() > 1);
+	}
+
+	@Test
+	public void outgoingResponse_shouldIncludeAReferencedResourceOnce() {
+		Bundle bundle = newBundle(observations);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Observation",
+				Constants.PARAM_INCLUDE, "Observation:subject"), bundle, null, null);
+
+		List<Bundle.BundleEntryComponent> included = getIncluded(bundle);
+		assertEquals(1, included.size());
+		assertEquals("Patient", included.get(0).getResource().fhirType());
+		assertEquals(PATIENT_UUID, included.get(0).getResource().getIdElement().getIdPart());
+		assertEquals(SERVER_BASE + "/Patient/" + PATIENT_UUID, included.get(0).getFullUrl());
+	}
+
+	@Test
+	public void outgoingResponse_shouldIncludeTheResultsOfDiagnosticReports() {
+		DiagnosticReport report = new DiagnosticReport();
+		report.setId("7d5e8f21-report");
+		for (Observation observation : observations) {
+			report.addResult().setReference("Observation/" + observation.getIdElement().getIdPart());
+		}
+		Bundle bundle = newBundle(report);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "DiagnosticReport",
+				Constants.PARAM_INCLUDE, "DiagnosticReport:result"), bundle, null, null);
+
+		Set<String> expected = new HashSet<String>();
+		for (Observation observation : observations) {
+			expected.add(observation.getIdElement().getIdPart());
+		}
+		Set<String> included = new HashSet<String>();
+		for (Bundle.BundleEntryComponent entry : getIncluded(bundle)) {
+			assertEquals("Observation", entry.getResource().fhirType());
+			included.add(entry.getResource().getIdElement().getIdPart());
+		}
+		assertEquals(expected, included);
+	}
+
+	@Test
+	public void searchByPatientAndServiceCategory_shouldDeclareIncludesSoThatHapiAcceptsThem() {
+		boolean declared = false;
+		for (Method method : RestfulDiagnosticReportResourceProvider.class.getMethods()) {
+			if ("searchByPatientAndServiceCategory".equals(method.getName())) {
+				for (Annotation[] annotations : method.getParameterAnnotations()) {
+					for (Annotation annotation : annotations) {
+						declared |= annotation instanceof IncludeParam && !((IncludeParam) annotation).reverse();
+					}
+				}
+			}
+		}
+		assertTrue(declared);
+	}
+
+	@Test
+	public void outgoingResponse_shouldNotIncludeAResourceWhichIsAlreadyAMatch() {
+		List<Resource> matches = new ArrayList<Resource>(observations);
+		matches.add(Context.getService(PatientService.class).getPatient(PATIENT_UUID));
+		Bundle bundle = newBundle(matches);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Observation",
+				Constants.PARAM_INCLUDE, "Observation:subject"), bundle, null, null);
+
+		assertTrue(getIncluded(bundle).isEmpty());
+		assertEquals(matches.size(), bundle.getEntry().size());
+	}
+
+	@Test
+	public void outgoingResponse_shouldOnlyIncludeTheTargetType() {
+		Bundle bundle = newBundle(observations);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Observation",
+				Constants.PARAM_INCLUDE, "Observation:subject:Group"), bundle, null, null);
+
+		assertTrue(getIncluded(bundle).isEmpty());
+	}
+
+	@Test
+	public void outgoingResponse_shouldReverseIncludeTheResourcesOfThePatients() {
+		Patient patient = Context.getService(PatientService.class).getPatient(PATIENT_UUID);
+		Bundle bundle = newBundle(patient);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_REVINCLUDE, "Observation:subject"), bundle, null, null);
+
+		Set<String> expected = new HashSet<String>();
+		for (Observation observation : observations) {
+			expected.add(observation.getIdElement().getIdPart());
+		}
+		Set<String> included = new HashSet<String>();
+		for (Bundle.BundleEntryComponent entry : getIncluded(bundle)) {
+			assertEquals("Observation", entry.getResource().fhirType());
+			included.add(entry.getResource().getIdElement().getIdPart());
+		}
+		assertEquals(expected, included);
+		assertEquals(expected.size(), getIncluded(bundle).size());
+	}
+
+	@Test
+	public void outgoingResponse_shouldOnlyReverseIncludeThroughThePatientParameter() {
+		Patient patient = Context.getService(PatientService.class).getPatient(PATIENT_UUID);
+		Bundle bundle = newBundle(patient);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_REVINCLUDE, "Observation:encounter"), bundle, null, null);
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_REVINCLUDE, "Observation:subject:Group"), bundle, null, null);
+
+		assertTrue(getIncluded(bundle).isEmpty());
+	}
+
+	@Test
+	public void outgoingResponse_shouldIncludeOnTheFollowingPagesOfASearch() {
+		Bundle firstPage = newBundle(observations.subList(0, 1));
+		firstPage.addLink().setRelation(Bundle.LINK_NEXT).setUrl(SERVER_BASE + "?" + Constants.PARAM_PAGINGACTION
+				+ "=" + SEARCH_ID + "&_getpagesoffset=1&_count=1");
+		ServletRequestDetails search = newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Observation",
+				Constants.PARAM_INCLUDE, "Observation:subject");
+		pagedSearches.outgoingResponse(search, firstPage, null, null);
+		interceptor.outgoingResponse(search, firstPage, null, null);
+		assertEquals(1, getIncluded(firstPage).size());
+
+		Bundle secondPage = newBundle(observations.subList(1, 2));
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.GET_PAGE, null,
+				Constants.PARAM_PAGINGACTION, SEARCH_ID), secondPage, null, null);
+
+		List<Bundle.BundleEntryComponent> included = getIncluded(secondPage);
+		assertEquals(1, included.size());
+		assertEquals(PATIENT_UUID, included.get(0).getResource().getIdElement().getIdPart());
+	}
+
+	@Test
+	public void outgoingResponse_shouldNotChangeTheBundleWithoutIncludes() {
+		Bundle bundle = newBundle(observations);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Observation", null, null),
+				bundle, null, null);
+
+		assertFalse(bundle.getEntry().isEmpty());
+		assertTrue(getIncluded(bundle).isEmpty());
+	}
+
+	private Bundle newBundle(Resource match) {
+		List<Resource> matches = new ArrayList<Resource>();
+		matches.add(match);
+		return newBundle(matches);
+	}
+
+	private Bundle newBundle(List<? extends Resource> matches) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		for (Resource match : matches) {
+			bundle.addEntry().setResource(match).getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+		}
+		return bundle;
+	}
+
+	private List<Bundle.BundleEntryComponent> getIncluded(Bundle bundle) {
+		List<Bundle.BundleEntryComponent> included = new ArrayList<Bundle.BundleEntryComponent>();
+		for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+			if (entry.getSearch().getMode() == Bundle.SearchEntryMode.INCLUDE) {
+				included.add(entry);
+			}
+		}
+		return included;
+	}
+
+	private ServletRequestDetails newRequest(RestOperationTypeEnum operation, String resourceName, String parameter,
+	                                         String value) {
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(operation);
+		request.setResourceName(resourceName);
+		request.setFhirServerBase(SERVER_BASE);
+		Map<String, String[]> parameters = new HashMap<String, String[]>();
+		if (parameter != null) {
+			parameters.put(parameter, new String[] { value });
+		}
+		request.setParameters(parameters);
+		return request;
+	}
+}
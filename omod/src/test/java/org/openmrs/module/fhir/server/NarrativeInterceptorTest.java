@@ -0,0 +1,199 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.fhir.server;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
+import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
+import org.hl7.fhir.dstu3.model.Bundle;
+import org.hl7.fhir.dstu3.model.Narrative;
+import org.hl7.fhir.dstu3.model.Patient;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.INarrative;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NarrativeInterceptorTest {
+
+	private static final String SEARCH_ID = "5b2e9d4c-paged";
+
+	private static final String RENDER_THREAD_PREFIX = "fhir-narrative-render-";
+
+	private final FhirContext fhirContext = FhirContext.forDstu3();
+
+	private final PagedSearchInterceptor pagedSearches = new PagedSearchInterceptor(10);
+
+	private final RecordingNarrativeGenerator generator = new RecordingNarrativeGenerator();
+
+	private final NarrativeInterceptor interceptor = new NarrativeInterceptor(fhirContext, generator, pagedSearches, 4);
+
+	@After
+	public void runAfterEachTest() {
+		interceptor.shutdown();
+		LazyNarrativeGenerator.clearSuppressed();
+	}
+
+	@Test
+	public void isNarrativeReturned_shouldReturnFalseForSummaryDataCountAndTrue() {
+		assertFalse(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "data")));
+		assertFalse(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "count")));
+		assertFalse(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.READ, "Patient",
+				Constants.PARAM_SUMMARY, "true")));
+	}
+
+	@Test
+	public void isNarrativeReturned_shouldReturnTrueForSummaryTextAndFalse() {
+		assertTrue(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "text")));
+		assertTrue(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "false")));
+		assertTrue(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				null, null)));
+	}
+
+	@Test
+	public void isNarrativeReturned_shouldOnlyReturnTrueForElementsWithText() {
+		assertTrue(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_ELEMENTS, "name, text")));
+		assertFalse(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_ELEMENTS, "name,birthDate")));
+	}
+
+	@Test
+	public void isNarrativeReturned_shouldTreatPageRequestsLikeTheirSearch() {
+		rememberSearch(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient", Constants.PARAM_SUMMARY, "data"));
+
+		assertFalse(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.GET_PAGE, null,
+				Constants.PARAM_PAGINGACTION, SEARCH_ID)));
+		assertTrue(interceptor.isNarrativeReturned(newRequest(RestOperationTypeEnum.GET_PAGE, null,
+				Constants.PARAM_PAGINGACTION, "unknown")));
+	}
+
+	@Test
+	public void incomingRequestPostProcessed_shouldSetTheSuppressedFlagOfEveryRequest() {
+		interceptor.incomingRequestPostProcessed(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "count"), null, null);
+		assertTrue(LazyNarrativeGenerator.isSuppressed());
+
+		// A pooled request thread must not keep the flag of the previous request
+		interceptor.incomingRequestPostProcessed(newRequest(RestOperationTypeEnum.READ, "Patient", null, null), null,
+				null);
+		assertFalse(LazyNarrativeGenerator.isSuppressed());
+	}
+
+	@Test
+	public void processingCompletedNormally_shouldClearTheSuppressedFlag() {
+		interceptor.incomingRequestPostProcessed(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "data"), null, null);
+
+		interceptor.processingCompletedNormally(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient", null, null));
+
+		assertFalse(LazyNarrativeGenerator.isSuppressed());
+	}
+
+	@Test
+	public void outgoingResponse_shouldRenderTheNarrativesOfLargeBundlesConcurrently() {
+		Bundle bundle = newBundle(NarrativeInterceptor.PARALLEL_RENDER_MIN_ENTRIES);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient", null, null), bundle,
+				null, null);
+
+		for (Bundle.BundleEntryComponent entry : bundle.getEntry()) {
+			assertEquals(Narrative.NarrativeStatus.GENERATED, ((Patient) entry.getResource()).getText().getStatus());
+		}
+		assertEquals(NarrativeInterceptor.PARALLEL_RENDER_MIN_ENTRIES, generator.threadNames.size());
+		for (String threadName : generator.threadNames.values()) {
+			assertTrue(threadName.startsWith(RENDER_THREAD_PREFIX));
+		}
+	}
+
+	@Test
+	public void outgoingResponse_shouldLeaveSmallBundlesToTheParser() {
+		Bundle bundle = newBundle(NarrativeInterceptor.PARALLEL_RENDER_MIN_ENTRIES - 1);
+
+		interceptor.outgoingResponse(newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient", null, null), bundle,
+				null, null);
+
+		assertTrue(generator.threadNames.isEmpty());
+	}
+
+	@Test
+	public void outgoingResponse_shouldNotRenderSuppressedNarratives() {
+		Bundle bundle = newBundle(NarrativeInterceptor.PARALLEL_RENDER_MIN_ENTRIES);
+		ServletRequestDetails request = newRequest(RestOperationTypeEnum.SEARCH_TYPE, "Patient",
+				Constants.PARAM_SUMMARY, "data");
+		interceptor.incomingRequestPostProcessed(request, null, null);
+
+		interceptor.outgoingResponse(request, bundle, null, null);
+
+		assertTrue(generator.threadNames.isEmpty());
+	}
+
+	private void rememberSearch(ServletRequestDetails search) {
+		Bundle bundle = new Bundle();
+		bundle.addLink().setRelation(Bundle.LINK_NEXT).setUrl("http://localhost/ws/fhir?"
+				+ Constants.PARAM_PAGINGACTION + "=" + SEARCH_ID + "&_getpagesoffset=50&_count=50");
+		pagedSearches.outgoingResponse(search, bundle, null, null);
+	}
+
+	private Bundle newBundle(int size) {
+		Bundle bundle = new Bundle();
+		bundle.setType(Bundle.BundleType.SEARCHSET);
+		for (int i = 0; i < size; i++) {
+			Patient patient = new Patient();
+			patient.setId("Patient/" + i);
+			bundle.addEntry().setResource(patient);
+		}
+		return bundle;
+	}
+
+	private ServletRequestDetails newRequest(RestOperationTypeEnum operation, String resourceName, String parameter,
+	                                         String value) {
+		ServletRequestDetails request = new ServletRequestDetails();
+		request.setRestOperationType(operation);
+		request.setResourceName(resourceName);
+		Map<String, String[]> parameters = new HashMap<String, String[]>();
+		if (parameter != null) {
+			parameters.put(parameter, new String[] { value });
+		}
+		request.setParameters(parameters);
+		return request;
+	}
+
+	/**
+	 * Records the thread which renders each resource instead of running the templates
+	 */
+	private static class RecordingNarrativeGenerator extends LazyNarrativeGenerator {
+
+		private final Map<String, String> threadNames = new ConcurrentHashMap<String, String>();
+
+		@Override
+		public void generateNarrative(FhirContext context, IBaseResource resource, INarrative narrative) {
+			threadNames.put(resource.getIdElement().getValue(), Thread.currentThread().getName());
+			((Narrative) narrative).setStatus(Narrative.NarrativeStatus.GENERATED);
+			((Narrative) narrative).setDivAsString("<div>" + resource.getIdElement().getIdPart() + "</div>");
+		}
+	}
+}